@@ -0,0 +1,57 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.io.IOException;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.tx.ReadonlyTransactionManager;
+import org.web3j.tx.exceptions.ContractCallException;
+
+/**
+ * A read only Transaction Manager that delegates contract calls to a
+ * {@link BlockchainCallBatcher} in order to group concurrent calls of the same
+ * network into JSON-RPC batch requests.
+ */
+public class BatchingReadonlyTransactionManager extends ReadonlyTransactionManager {
+
+  private static final String         CALL_REVERTED_MESSAGE =
+                                                            "Contract Call has been reverted by the EVM with the reason: '%s'.";
+
+  private final BlockchainCallBatcher callBatcher;
+
+  private final String                fromAddress;
+
+  public BatchingReadonlyTransactionManager(Web3j web3j, String fromAddress, BlockchainCallBatcher callBatcher) {
+    super(web3j, fromAddress);
+    this.fromAddress = fromAddress;
+    this.callBatcher = callBatcher;
+  }
+
+  @Override
+  public String sendCall(String to, String data, DefaultBlockParameter defaultBlockParameter) throws IOException {
+    EthCall ethCall = callBatcher.call(Transaction.createEthCallTransaction(fromAddress, to, data),
+                                       defaultBlockParameter);
+    if (ethCall.isReverted()) {
+      throw new ContractCallException(String.format(CALL_REVERTED_MESSAGE, ethCall.getRevertReason()));
+    }
+    return ethCall.getValue();
+  }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.EthLog.LogResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Retrieves logs of a block range by splitting it into windows which size
+ * adapts to the node limits: a window is bisected when the node answers with
+ * a 'too many results' or a timeout error, and the window size grows again
+ * when responses are small. Windows are fetched in parallel up to the
+ * configured concurrency.
+ */
+public class BlockRangeLogFetcher {
+
+  private static final Logger          LOG                  = LoggerFactory.getLogger(BlockRangeLogFetcher.class);
+
+  // Messages of providers limiting the results or the block range of a logs
+  // query, such as 'query returned more than 10000 results' or
+  // 'eth_getLogs is limited to a 10000 block range'
+  private static final List<String>    RANGE_ERROR_MESSAGES = List.of("query returned more than",
+                                                                      "block range",
+                                                                      "too many results",
+                                                                      "response size exceeded",
+                                                                      "timeout",
+                                                                      "timed out");
+
+  private final long                   initialWindowSize;
+
+  private final long                   maxWindowSize;
+
+  private final long                   targetResultsPerWindow;
+
+  private final int                    concurrency;
+
+  private final ExecutorService        executorService;
+
+  private final Map<Web3j, AtomicLong> windowSizes          = new ConcurrentHashMap<>();
+
+  @Getter
+  private final AtomicLong             scannedBlocksCount   = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             scannedWindowsCount  = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             retrievedLogsCount   = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             splitWindowsCount    = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             lastBlocksPerSecond  = new AtomicLong();
+
+  public BlockRangeLogFetcher(long initialWindowSize, long maxWindowSize, long targetResultsPerWindow, int concurrency) {
+    this.initialWindowSize = Math.max(1, initialWindowSize);
+    this.maxWindowSize = Math.max(this.initialWindowSize, maxWindowSize);
+    this.targetResultsPerWindow = Math.max(1, targetResultsPerWindow);
+    this.concurrency = Math.max(1, concurrency);
+    this.executorService = this.concurrency > 1 ? Executors.newFixedThreadPool(this.concurrency, runnable -> {
+      Thread thread = new Thread(runnable, "BlockRangeLogFetcher");
+      thread.setDaemon(true);
+      return thread;
+    }) : null;
+  }
+
+  /**
+   * Retrieves the logs mined between two blocks, ordered by block
+   *
+   * @param web3j {@link Web3j} of the network
+   * @param fromBlock Start block, inclusive
+   * @param toBlock End block, inclusive
+   * @param filterFactory {@link LogFilterFactory} building the filter of a
+   *          window
+   * @return {@link List} of {@link LogResult}
+   * @throws IOException when a window can't be retrieved even with a single
+   *           block
+   */
+  @SuppressWarnings("rawtypes")
+  public List<LogResult> getLogs(Web3j web3j,
+                                 long fromBlock,
+                                 long toBlock,
+                                 LogFilterFactory filterFactory) throws IOException {
+    if (toBlock < fromBlock) {
+      return Collections.emptyList();
+    }
+    long startTime = System.currentTimeMillis();
+    AtomicLong windowSize = windowSizes.computeIfAbsent(web3j, key -> new AtomicLong(initialWindowSize));
+    Map<Long, List<LogResult>> windowsLogs = new TreeMap<>();
+    Deque<BlockRange> splitRanges = new ArrayDeque<>();
+    long nextBlock = fromBlock;
+    while (nextBlock <= toBlock || !splitRanges.isEmpty()) {
+      List<BlockRange> ranges = new ArrayList<>();
+      while (ranges.size() < concurrency && !splitRanges.isEmpty()) {
+        ranges.add(splitRanges.poll());
+      }
+      while (ranges.size() < concurrency && nextBlock <= toBlock) {
+        long endBlock = Math.min(nextBlock + windowSize.get() - 1, toBlock);
+        ranges.add(new BlockRange(nextBlock, endBlock));
+        nextBlock = endBlock + 1;
+      }
+      List<List<LogResult>> rangesLogs = fetchRanges(web3j, ranges, filterFactory);
+      for (int i = 0; i < ranges.size(); i++) {
+        BlockRange range = ranges.get(i);
+        List<LogResult> logs = rangesLogs.get(i);
+        if (logs == null) {
+          splitRange(range, windowSize, splitRanges);
+        } else {
+          windowsLogs.put(range.fromBlock, logs);
+          adaptWindowSize(range, logs.size(), windowSize);
+        }
+      }
+    }
+    List<LogResult> logs = windowsLogs.values().stream().flatMap(List::stream).toList();
+    computeMetrics(fromBlock, toBlock, windowsLogs.size(), logs.size(), startTime);
+    return logs;
+  }
+
+  public long getWindowSize(Web3j web3j) {
+    AtomicLong windowSize = windowSizes.get(web3j);
+    return windowSize == null ? initialWindowSize : windowSize.get();
+  }
+
+  public void shutdown() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private List<List<LogResult>> fetchRanges(Web3j web3j,
+                                            List<BlockRange> ranges,
+                                            LogFilterFactory filterFactory) throws IOException {
+    if (executorService == null || ranges.size() == 1) {
+      List<List<LogResult>> rangesLogs = new ArrayList<>();
+      for (BlockRange range : ranges) {
+        rangesLogs.add(fetchRange(web3j, range, filterFactory));
+      }
+      return rangesLogs;
+    }
+    List<Future<List<LogResult>>> futures = ranges.stream()
+                                                  .map(range -> executorService.submit(() -> fetchRange(web3j,
+                                                                                                        range,
+                                                                                                        filterFactory)))
+                                                  .toList();
+    List<List<LogResult>> rangesLogs = new ArrayList<>();
+    for (Future<List<LogResult>> future : futures) {
+      try {
+        rangesLogs.add(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while retrieving logs", e);
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+      }
+    }
+    return rangesLogs;
+  }
+
+  /**
+   * @return retrieved logs, or null when the range has to be split
+   */
+  @SuppressWarnings("rawtypes")
+  private List<LogResult> fetchRange(Web3j web3j, BlockRange range, LogFilterFactory filterFactory) throws IOException {
+    EthFilter ethFilter = filterFactory.newFilter(new DefaultBlockParameterNumber(range.fromBlock),
+                                                  new DefaultBlockParameterNumber(range.toBlock));
+    try {
+      EthLog ethLog = web3j.ethGetLogs(ethFilter).send();
+      if (ethLog.hasError()) {
+        String errorMessage = ethLog.getError().getMessage();
+        if (isRangeError(errorMessage)) {
+          LOG.debug("Logs of blocks {}-{} will be split due to error: {}", range.fromBlock, range.toBlock, errorMessage);
+          return null; // NOSONAR
+        }
+        throw new IOException("Error retrieving logs of blocks " + range.fromBlock + "-" + range.toBlock + ": " + errorMessage);
+      }
+      List<LogResult> logs = ethLog.getLogs();
+      return logs == null ? Collections.emptyList() : logs;
+    } catch (IOException e) {
+      if (isTimeout(e)) {
+        LOG.debug("Logs of blocks {}-{} will be split due to timeout", range.fromBlock, range.toBlock);
+        return null; // NOSONAR
+      }
+      throw e;
+    }
+  }
+
+  private void splitRange(BlockRange range, AtomicLong windowSize, Deque<BlockRange> splitRanges) throws IOException {
+    long blocksCount = range.toBlock - range.fromBlock + 1;
+    if (blocksCount <= 1) {
+      throw new IOException("Can't retrieve logs of block " + range.fromBlock + " even with a single block window");
+    }
+    splitWindowsCount.incrementAndGet();
+    long middleBlock = range.fromBlock + blocksCount / 2 - 1;
+    splitRanges.addFirst(new BlockRange(middleBlock + 1, range.toBlock));
+    splitRanges.addFirst(new BlockRange(range.fromBlock, middleBlock));
+    windowSize.accumulateAndGet(Math.max(1, blocksCount / 2), Math::min);
+  }
+
+  private void adaptWindowSize(BlockRange range, int resultsCount, AtomicLong windowSize) {
+    long blocksCount = range.toBlock - range.fromBlock + 1;
+    if (resultsCount < targetResultsPerWindow / 2 && blocksCount >= windowSize.get()) {
+      windowSize.updateAndGet(size -> Math.min(maxWindowSize, size * 2));
+    }
+  }
+
+  private void computeMetrics(long fromBlock, long toBlock, int windowsCount, int logsCount, long startTime) {
+    long blocksCount = toBlock - fromBlock + 1;
+    long duration = Math.max(1, System.currentTimeMillis() - startTime);
+    long blocksPerSecond = blocksCount * 1000 / duration;
+    scannedBlocksCount.addAndGet(blocksCount);
+    scannedWindowsCount.addAndGet(windowsCount);
+    retrievedLogsCount.addAndGet(logsCount);
+    lastBlocksPerSecond.set(blocksPerSecond);
+    LOG.debug("Logs of blocks {}-{} retrieved in {}ms: {} blocks/s, {} windows, {} results/window",
+              fromBlock,
+              toBlock,
+              duration,
+              blocksPerSecond,
+              windowsCount,
+              windowsCount == 0 ? 0 : logsCount / windowsCount);
+  }
+
+  private boolean isRangeError(String errorMessage) {
+    String message = StringUtils.lowerCase(errorMessage);
+    return message != null && RANGE_ERROR_MESSAGES.stream().anyMatch(message::contains);
+  }
+
+  private boolean isTimeout(IOException e) {
+    String message = StringUtils.lowerCase(e.getMessage());
+    return ExceptionUtils.indexOfType(e, SocketTimeoutException.class) >= 0
+           || ExceptionUtils.indexOfType(e, TimeoutException.class) >= 0
+           || (message != null && (message.contains("timeout") || message.contains("timed out")));
+  }
+
+  @FunctionalInterface
+  public interface LogFilterFactory {
+    EthFilter newFilter(DefaultBlockParameter fromBlock, DefaultBlockParameter toBlock);
+  }
+
+  @AllArgsConstructor
+  private static class BlockRange {
+
+    long fromBlock;
+
+    long toBlock;
+
+  }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import lombok.Getter;
+
+/**
+ * Collects concurrent eth_call requests targeting the same network and sends
+ * them in a single JSON-RPC batch request. A call is sent immediately when no
+ * other call is being sent or queued, so that serial callers don't wait. Calls
+ * overlapping with a call being sent are queued: the first caller of a batch
+ * waits for the linger window while other callers join the batch, a batch is
+ * sent immediately once it reaches the maximum size. Each caller still blocks
+ * until its own response is received, so that the contract wrappers keep their
+ * synchronous behavior.
+ */
+public class BlockchainCallBatcher {
+
+  private static final Logger     LOG            = LoggerFactory.getLogger(BlockchainCallBatcher.class);
+
+  private final Web3j             web3j;
+
+  @Getter
+  private final int               maxBatchSize;
+
+  @Getter
+  private final long              lingerMillis;
+
+  private final List<PendingCall> pendingCalls   = new ArrayList<>();
+
+  private boolean                 leaderElected;
+
+  private int                     sendingCount;
+
+  @Getter
+  private final AtomicLong        sentBatchCount = new AtomicLong();
+
+  @Getter
+  private final AtomicLong        sentCallCount  = new AtomicLong();
+
+  public BlockchainCallBatcher(Web3j web3j, int maxBatchSize, long lingerMillis) {
+    this.web3j = web3j;
+    this.maxBatchSize = maxBatchSize;
+    this.lingerMillis = lingerMillis;
+  }
+
+  public boolean isEnabled() {
+    return maxBatchSize > 1 && lingerMillis > 0;
+  }
+
+  public EthCall call(Transaction transaction, DefaultBlockParameter defaultBlockParameter) throws IOException {
+    Request<?, EthCall> request = web3j.ethCall(transaction, defaultBlockParameter);
+    if (!isEnabled()) {
+      return request.send();
+    }
+    PendingCall pendingCall = new PendingCall(request);
+    List<PendingCall> fullBatch = null;
+    boolean leader = false;
+    synchronized (pendingCalls) {
+      if (sendingCount == 0 && pendingCalls.isEmpty()) {
+        // No overlapping call, no need to wait for other calls to join
+        fullBatch = Collections.singletonList(pendingCall);
+        sendingCount++;
+      } else {
+        pendingCalls.add(pendingCall);
+        if (pendingCalls.size() >= maxBatchSize) {
+          fullBatch = drainPendingCalls();
+          sendingCount++;
+        } else if (!leaderElected) {
+          leaderElected = true;
+          leader = true;
+        }
+      }
+    }
+    if (fullBatch != null) {
+      sendBatchAndRelease(fullBatch);
+    }
+    if (leader) {
+      lingerAndSend(pendingCall);
+    }
+    return pendingCall.await();
+  }
+
+  private void lingerAndSend(PendingCall leaderCall) {
+    leaderCall.awaitCompletion(lingerMillis);
+    List<PendingCall> batch;
+    synchronized (pendingCalls) {
+      leaderElected = false;
+      batch = drainPendingCalls();
+      sendingCount++;
+    }
+    sendBatchAndRelease(batch);
+  }
+
+  private void sendBatchAndRelease(List<PendingCall> batch) {
+    try {
+      sendBatch(batch);
+    } finally {
+      synchronized (pendingCalls) {
+        sendingCount--;
+      }
+    }
+  }
+
+  private List<PendingCall> drainPendingCalls() {
+    if (pendingCalls.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<PendingCall> batch = new ArrayList<>(pendingCalls);
+    pendingCalls.clear();
+    return batch;
+  }
+
+  private void sendBatch(List<PendingCall> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    sentBatchCount.incrementAndGet();
+    sentCallCount.addAndGet(batch.size());
+    try {
+      if (batch.size() == 1) {
+        PendingCall pendingCall = batch.get(0);
+        pendingCall.complete(pendingCall.request.send());
+        return;
+      }
+      BatchRequest batchRequest = web3j.newBatch();
+      batch.forEach(pendingCall -> batchRequest.add(pendingCall.request));
+      BatchResponse batchResponse = batchRequest.send();
+      List<? extends Response<?>> responses = batchResponse.getResponses();
+      Map<Long, Response<?>> responsesById = new HashMap<>();
+      responses.forEach(response -> responsesById.put(response.getId(), response));
+      for (int i = 0; i < batch.size(); i++) {
+        PendingCall pendingCall = batch.get(i);
+        Response<?> response = responsesById.get(pendingCall.request.getId());
+        if (response == null && responses.size() == batch.size()) {
+          response = responses.get(i);
+        }
+        if (response instanceof EthCall ethCall) {
+          pendingCall.complete(ethCall);
+        } else {
+          pendingCall.fail(new IOException("No eth_call response retrieved in batch for request with id "
+              + pendingCall.request.getId()));
+        }
+      }
+      LOG.debug("Blockchain calls batch of {} requests sent", batch.size());
+    } catch (Exception e) {
+      batch.forEach(pendingCall -> pendingCall.fail(e));
+    }
+  }
+
+  private static class PendingCall {
+
+    private final Request<?, EthCall>        request;
+
+    private final CompletableFuture<EthCall> future = new CompletableFuture<>();
+
+    private PendingCall(Request<?, EthCall> request) {
+      this.request = request;
+    }
+
+    private void complete(EthCall ethCall) {
+      future.complete(ethCall);
+    }
+
+    private void fail(Throwable e) {
+      future.completeExceptionally(e);
+    }
+
+    private void awaitCompletion(long timeoutMillis) {
+      try {
+        future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException | TimeoutException e) {
+        // Expected when the call wasn't sent yet in a full batch
+      }
+    }
+
+    private EthCall await() throws IOException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for blockchain call response", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException ioException) {
+          throw ioException;
+        } else {
+          throw new IOException("Error while sending blockchain calls batch", e.getCause());
+        }
+      }
+    }
+
+  }
+
+}
@@ -16,18 +16,26 @@
 package io.meeds.deeds.common.blockchain;
 
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
 import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.ReadonlyTransactionManager;
 import org.web3j.tx.gas.StaticGasProvider;
 
+import io.meeds.deeds.common.blockchain.PolygonGasOracle.GasSpeed;
 import io.meeds.deeds.contract.Deed;
 import io.meeds.deeds.contract.DeedRenting;
 import io.meeds.deeds.contract.DeedTenantProvisioning;
@@ -50,14 +58,143 @@ public class BlockchainConfiguration {
   @Autowired
   private BlockchainConfigurationProperties properties;
 
+  @Value("${meeds.blockchain.batch.maxSize:20}")
+  private int                               callBatchMaxSize;
+
+  @Value("${meeds.blockchain.batch.lingerMillis:5}")
+  private long                              callBatchLingerMillis;
+
+  @Value("${meeds.blockchain.multicallAddress:" + MulticallAggregator.DEFAULT_MULTICALL3_ADDRESS + "}")
+  private String                            multicallAddress;
+
+  @Value("${meeds.blockchain.logs.initialWindowSize:5000}")
+  private long                              logsInitialWindowSize;
+
+  @Value("${meeds.blockchain.logs.maxWindowSize:100000}")
+  private long                              logsMaxWindowSize;
+
+  @Value("${meeds.blockchain.logs.targetResultsPerWindow:1000}")
+  private long                              logsTargetResultsPerWindow;
+
+  @Value("${meeds.blockchain.logs.concurrency:4}")
+  private int                               logsConcurrency;
+
+  @Value("${meeds.blockchain.transactions.pollingMillis:2000}")
+  private long                              transactionsPollingMillis;
+
+  @Value("${meeds.blockchain.transactions.stuckTimeoutMillis:60000}")
+  private long                              transactionsStuckTimeoutMillis;
+
+  @Value("${meeds.blockchain.transactions.maxReplacements:5}")
+  private int                               transactionsMaxReplacements;
+
+  /**
+   * Defaults to the maximum waiting time of WoM transactions, in minutes
+   */
+  @Value("${meeds.blockchain.transactions.maxPendingMillis:#{${io.meeds.maxWaitTransactionSending:3} * 60000}}")
+  private long                              transactionsMaxPendingMillis;
+
+  @Value("${meeds.blockchain.gas.targetSpeed:STANDARD}")
+  private GasSpeed                          gasTargetSpeed;
+
+  @Value("${meeds.blockchain.gas.blockCount:20}")
+  private int                               gasBlockCount;
+
+  @Value("${meeds.blockchain.gas.refreshMillis:5000}")
+  private long                              gasRefreshMillis;
+
+  @Value("${meeds.blockchain.gas.ttlMillis:30000}")
+  private long                              gasTtlMillis;
+
+  @Value("${meeds.blockchain.gas.baseFeeMultiplier:1.25}")
+  private double                            gasBaseFeeMultiplier;
+
+  @Value("${meeds.blockchain.gas.defaultLimit:300000}")
+  private long                              gasDefaultLimit;
+
+  @Value("${meeds.blockchain.gas.limitMargin:1.5}")
+  private double                            gasLimitMargin;
+
+  @Value("${meeds.blockchain.rpc.healthCheckMillis:10000}")
+  private long                              rpcHealthCheckMillis;
+
+  @Value("${meeds.blockchain.rpc.maxBlockLag:5}")
+  private long                              rpcMaxBlockLag;
+
+  @Value("${meeds.blockchain.rpc.hedgeDelayMillis:500}")
+  private long                              rpcHedgeDelayMillis;
+
+  private Map<Web3j, BlockchainCallBatcher> callBatchers          = new ConcurrentHashMap<>();
+
+  @Bean(name = "ethereumNetworkService", destroyMethod = "")
+  public Web3jService getMainnetNetworkService() {
+    return newWeb3jService(properties.getNetworkUrl(), properties.getNetworkFallbackUrls());
+  }
+
+  @Bean(name = "polygonNetworkService", destroyMethod = "")
+  public Web3jService getPolygonNetworkService() {
+    return newWeb3jService(properties.getPolygonNetworkUrl(), properties.getPolygonNetworkFallbackUrls());
+  }
+
   @Bean("ethereumNetwork")
-  public Web3j getMainnetNetworkWeb3j() {
-    return Web3j.build(new HttpService(properties.getNetworkUrl()));
+  public Web3j getMainnetNetworkWeb3j(
+                                      @Qualifier("ethereumNetworkService")
+                                      Web3jService web3jService) {
+    return Web3j.build(web3jService);
   }
 
   @Bean("polygonNetwork")
-  public Web3j getPolygonNetworkWeb3j() {
-    return Web3j.build(new HttpService(properties.getPolygonNetworkUrl()));
+  public Web3j getPolygonNetworkWeb3j(
+                                      @Qualifier("polygonNetworkService")
+                                      Web3jService web3jService) {
+    return Web3j.build(web3jService);
+  }
+
+  @Bean("ethereumMulticall")
+  public MulticallAggregator getMainnetMulticall(
+                                                 @Qualifier("ethereumNetwork")
+                                                 Web3j web3j) {
+    return new MulticallAggregator(getReadOnlyTransactionManager(web3j), multicallAddress);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public BlockRangeLogFetcher getBlockRangeLogFetcher() {
+    return new BlockRangeLogFetcher(logsInitialWindowSize,
+                                    logsMaxWindowSize,
+                                    logsTargetResultsPerWindow,
+                                    logsConcurrency);
+  }
+
+  @Bean(initMethod = "start", destroyMethod = "shutdown")
+  public PolygonGasOracle getPolygonGasOracle(
+                                              @Qualifier("polygonNetwork")
+                                              Web3j web3j) {
+    return new PolygonGasOracle(web3j,
+                                gasTargetSpeed,
+                                gasBlockCount,
+                                gasRefreshMillis,
+                                gasTtlMillis,
+                                gasBaseFeeMultiplier,
+                                gasDefaultLimit,
+                                gasLimitMargin);
+  }
+
+  @Bean
+  public PolygonWomContractGasProvider getPolygonWomContractGasProvider(PolygonGasOracle gasOracle) {
+    return new PolygonWomContractGasProvider(gasOracle);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public PolygonTransactionPipeline getPolygonTransactionPipeline(
+                                                                  @Qualifier("polygonNetwork")
+                                                                  Web3j web3j,
+                                                                  PolygonWomContractGasProvider gasProvider) {
+    return new PolygonTransactionPipeline(web3j,
+                                          gasProvider,
+                                          transactionsPollingMillis,
+                                          transactionsStuckTimeoutMillis,
+                                          transactionsMaxReplacements,
+                                          transactionsMaxPendingMillis);
   }
 
   @Bean
@@ -171,7 +308,8 @@ public class BlockchainConfiguration {
   @Bean("womContractReadWrite")
   public WoM getWomReadWrite(
                              @Qualifier("polygonNetwork")
-                             Web3j web3j) {
+                             Web3j web3j,
+                             PolygonWomContractGasProvider gasProvider) {
     if (StringUtils.isBlank(properties.getWomAddress())) {
       return null;
     } else {
@@ -179,12 +317,32 @@ public class BlockchainConfiguration {
       return WoM.load(properties.getWomAddress(),
                       web3j,
                       new PolygonTransactionManagerProxy(),
-                      new PolygonWomContractGasProvider(web3j));
+                      gasProvider);
+    }
+  }
+
+  private Web3jService newWeb3jService(String url, List<String> fallbackUrls) {
+    if (CollectionUtils.isEmpty(fallbackUrls)) {
+      return new HttpService(url);
     }
+    List<String> urls = Stream.concat(Stream.of(url), fallbackUrls.stream())
+                              .filter(StringUtils::isNotBlank)
+                              .distinct()
+                              .toList();
+    MultiEndpointWeb3jService web3jService = new MultiEndpointWeb3jService(urls,
+                                                                           rpcHealthCheckMillis,
+                                                                           rpcMaxBlockLag,
+                                                                           rpcHedgeDelayMillis);
+    web3jService.start();
+    return web3jService;
   }
 
   private ReadonlyTransactionManager getReadOnlyTransactionManager(Web3j web3j) {
-    return new ReadonlyTransactionManager(web3j, Address.DEFAULT.toString());
+    BlockchainCallBatcher callBatcher = callBatchers.computeIfAbsent(web3j,
+                                                                     w -> new BlockchainCallBatcher(w,
+                                                                                                    callBatchMaxSize,
+                                                                                                    callBatchLingerMillis));
+    return new BatchingReadonlyTransactionManager(web3j, Address.DEFAULT.toString(), callBatcher);
   }
 
 }
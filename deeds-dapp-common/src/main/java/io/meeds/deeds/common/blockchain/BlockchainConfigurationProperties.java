@@ -15,6 +15,8 @@
  */
 package io.meeds.deeds.common.blockchain;
 
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -29,28 +31,44 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class BlockchainConfigurationProperties {
 
-  private String networkUrl;
+  private String       networkUrl;
+
+  private String       polygonNetworkUrl;
+
+  /**
+   * Additional Ethereum RPC endpoints to balance and fail over the requests
+   * sent to networkUrl
+   */
+  private List<String> networkFallbackUrls;
+
+  /**
+   * Additional Polygon RPC endpoints to balance and fail over the requests
+   * sent to polygonNetworkUrl
+   */
+  private List<String> polygonNetworkFallbackUrls;
+
+  private String       networkWsUrl;
 
-  private String polygonNetworkUrl;
+  private String       polygonNetworkWsUrl;
 
-  private String tenantProvisioningAddress = "0x49C0cF46C0Eb6FdF05A4E8C1FE344d510422E1F0";
+  private String       tenantProvisioningAddress = "0x49C0cF46C0Eb6FdF05A4E8C1FE344d510422E1F0";
 
-  private String tenantRentingAddress      = "0x427aa8F31013960E0E5e73977c1918e15d693BAa";
+  private String       tenantRentingAddress      = "0x427aa8F31013960E0E5e73977c1918e15d693BAa";
 
-  private String deedAddress               = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+  private String       deedAddress               = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
 
-  private String meedAddress               = "0x8503a7b00b4b52692cc6c14e5b96f142e30547b7";
+  private String       meedAddress               = "0x8503a7b00b4b52692cc6c14e5b96f142e30547b7";
 
-  private String polygonMeedAddress        = "0x6aca77cf3bab0c4e8210a09b57b07854a995289a";
+  private String       polygonMeedAddress        = "0x6aca77cf3bab0c4e8210a09b57b07854a995289a";
 
-  private String xMeedAddress              = "0x44d6d6ab50401dd846336e9c706a492f06e1bcd4";
+  private String       xMeedAddress              = "0x44d6d6ab50401dd846336e9c706a492f06e1bcd4";
 
-  private String tokenFactoryAddress       = "0x1B37D04759aD542640Cc44Ff849a373040386050";
+  private String       tokenFactoryAddress       = "0x1B37D04759aD542640Cc44Ff849a373040386050";
 
-  private String sushiPairAddress          = "0x960bd61d0b960b107ff5309a2dcced4705567070";
+  private String       sushiPairAddress          = "0x960bd61d0b960b107ff5309a2dcced4705567070";
 
-  private String womAddress                = "0x8028aB8508bA5060B8119444b53f4321D0ff00ee";
+  private String       womAddress                = "0x8028aB8508bA5060B8119444b53f4321D0ff00ee";
 
-  private String uemAddress                = "0xC56167cB7AC4D0C514D29390432BFC057f0c99a8";
+  private String       uemAddress                = "0xC56167cB7AC4D0C514D29390432BFC057f0c99a8";
 
 }
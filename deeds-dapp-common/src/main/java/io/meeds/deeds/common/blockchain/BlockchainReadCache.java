@@ -0,0 +1,350 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A read-through cache of contract view calls, keyed by contract, method and
+ * arguments. Two policies are supported:
+ * <ul>
+ * <li>Immutable values are kept until evicted by size limit</li>
+ * <li>Mutable values are kept as long as the last mined block of the network
+ * doesn't change, or until explicitly invalidated when a mined event
+ * modifying the value is detected</li>
+ * </ul>
+ */
+@Component
+public class BlockchainReadCache {
+
+  private static final Logger                                   LOG                 = LoggerFactory.getLogger(BlockchainReadCache.class);
+
+  @Autowired
+  @Qualifier("ethereumNetwork")
+  private Web3j                                                 web3j;
+
+  @Autowired
+  @Qualifier("polygonNetwork")
+  private Web3j                                                 polygonWeb3j;
+
+  @Value("${meeds.blockchain.cache.maxSize:10000}")
+  private int                                                   maxSize;
+
+  @Value("${meeds.blockchain.cache.blockRefreshMillis:2000}")
+  private long                                                  blockRefreshMillis;
+
+  private Map<CacheKey, Object>                                 immutableEntries;
+
+  private Map<CacheKey, BlockEntry>                             blockEntries;
+
+  private final Map<BlockchainNetwork, BlockStamp>              lastBlocks          = new EnumMap<>(BlockchainNetwork.class);
+
+  private final Map<BlockchainNetwork, CompletableFuture<Long>> lastBlockRetrievals = new EnumMap<>(BlockchainNetwork.class);
+
+  @Getter
+  private final AtomicLong                                      hitCount            = new AtomicLong();
+
+  @Getter
+  private final AtomicLong                                      missCount           = new AtomicLong();
+
+  @Getter
+  private final AtomicLong                                      invalidationCount   = new AtomicLong();
+
+  /**
+   * Retrieves a value which never changes once stored on blockchain, like the
+   * Deed card type.
+   *
+   * @param <T> Value type
+   * @param <E> Exception type thrown by the loader
+   * @param contractAddress Contract address
+   * @param method Contract method name
+   * @param loader Loader retrieving the value from blockchain when not cached
+   * @param args Contract method arguments
+   * @return cached or freshly loaded value
+   * @throws E when the loader fails
+   */
+  @SuppressWarnings("unchecked")
+  public <T, E extends Exception> T getImmutable(String contractAddress,
+                                                 String method,
+                                                 BlockchainLoader<T, E> loader,
+                                                 Object... args) throws E {
+    CacheKey key = new CacheKey(contractAddress, method, args);
+    Object value;
+    synchronized (this) {
+      value = getImmutableEntries().get(key);
+    }
+    if (value != null) {
+      hitCount.incrementAndGet();
+      return (T) value;
+    }
+    missCount.incrementAndGet();
+    T loadedValue = loader.load();
+    if (loadedValue != null) {
+      synchronized (this) {
+        getImmutableEntries().put(key, loadedValue);
+      }
+    }
+    return loadedValue;
+  }
+
+  /**
+   * Retrieves a value which can change only when a transaction is mined, like
+   * the Deed owner. The value is cached until a new block is mined on the
+   * designated network.
+   *
+   * @param <T> Value type
+   * @param <E> Exception type thrown by the loader
+   * @param network {@link BlockchainNetwork} of the contract
+   * @param contractAddress Contract address
+   * @param method Contract method name
+   * @param loader Loader retrieving the value from blockchain when not cached
+   * @param args Contract method arguments
+   * @return cached or freshly loaded value
+   * @throws E when the loader fails
+   */
+  @SuppressWarnings("unchecked")
+  public <T, E extends Exception> T getForBlock(BlockchainNetwork network,
+                                                String contractAddress,
+                                                String method,
+                                                BlockchainLoader<T, E> loader,
+                                                Object... args) throws E {
+    long lastBlock = getLastBlock(network);
+    if (lastBlock < 0) {
+      missCount.incrementAndGet();
+      return loader.load();
+    }
+    CacheKey key = new CacheKey(contractAddress, method, args);
+    BlockEntry entry;
+    synchronized (this) {
+      entry = getBlockEntries().get(key);
+    }
+    if (entry != null && entry.blockNumber == lastBlock) {
+      hitCount.incrementAndGet();
+      return (T) entry.value;
+    }
+    missCount.incrementAndGet();
+    T loadedValue = loader.load();
+    if (loadedValue != null) {
+      synchronized (this) {
+        getBlockEntries().put(key, new BlockEntry(lastBlock, loadedValue));
+      }
+    }
+    return loadedValue;
+  }
+
+  /**
+   * Invalidates cached mutable values of a contract which arguments contain
+   * the designated argument
+   *
+   * @param contractAddress Contract address
+   * @param arg Contract method argument, like a Deed NFT identifier or an
+   *          address
+   */
+  public synchronized void invalidate(String contractAddress, Object arg) {
+    getBlockEntries().keySet().removeIf(key -> {
+      boolean matches = StringUtils.equalsIgnoreCase(key.contractAddress, contractAddress)
+          && Arrays.stream(key.args).anyMatch(value -> matchesArgument(value, arg));
+      if (matches) {
+        invalidationCount.incrementAndGet();
+      }
+      return matches;
+    });
+  }
+
+  /**
+   * Invalidates all cached mutable values of a contract
+   *
+   * @param contractAddress Contract address
+   */
+  public synchronized void invalidate(String contractAddress) {
+    getBlockEntries().keySet().removeIf(key -> {
+      boolean matches = StringUtils.equalsIgnoreCase(key.contractAddress, contractAddress);
+      if (matches) {
+        invalidationCount.incrementAndGet();
+      }
+      return matches;
+    });
+  }
+
+  /**
+   * Updates the last mined block of a network when pushed by a subscription,
+   * avoiding to request it again before the next refresh period
+   *
+   * @param network {@link BlockchainNetwork}
+   * @param blockNumber last mined block number
+   */
+  public void onNewBlock(BlockchainNetwork network, long blockNumber) {
+    synchronized (lastBlocks) {
+      lastBlocks.put(network, new BlockStamp(blockNumber, System.currentTimeMillis()));
+    }
+  }
+
+  public synchronized int size() {
+    return getImmutableEntries().size() + getBlockEntries().size();
+  }
+
+  /**
+   * Retrieves the last mined block of a network. Only one thread requests it
+   * from the blockchain at a time, outside any lock, while other threads reuse
+   * the previously retrieved block, or wait for the retrieval when no block
+   * was retrieved yet.
+   *
+   * @param network {@link BlockchainNetwork}
+   * @return last mined block number or -1 when not retrievable
+   */
+  private long getLastBlock(BlockchainNetwork network) {
+    CompletableFuture<Long> retrieval;
+    boolean retrieve = false;
+    synchronized (lastBlocks) {
+      BlockStamp blockStamp = lastBlocks.get(network);
+      if (blockStamp != null && (System.currentTimeMillis() - blockStamp.retrievalTime) < blockRefreshMillis) {
+        return blockStamp.blockNumber;
+      }
+      retrieval = lastBlockRetrievals.get(network);
+      if (retrieval == null) {
+        retrieval = new CompletableFuture<>();
+        lastBlockRetrievals.put(network, retrieval);
+        retrieve = true;
+      } else if (blockStamp != null) {
+        return blockStamp.blockNumber;
+      }
+    }
+    if (retrieve) {
+      long blockNumber = -1;
+      try {
+        blockNumber = retrieveLastBlock(network);
+        return blockNumber;
+      } finally {
+        synchronized (lastBlocks) {
+          if (blockNumber >= 0) {
+            lastBlocks.put(network, new BlockStamp(blockNumber, System.currentTimeMillis()));
+          }
+          lastBlockRetrievals.remove(network);
+        }
+        retrieval.complete(blockNumber);
+      }
+    } else {
+      return retrieval.join();
+    }
+  }
+
+  private long retrieveLastBlock(BlockchainNetwork network) {
+    try {
+      Web3j networkWeb3j = network == BlockchainNetwork.POLYGON ? polygonWeb3j : web3j;
+      return networkWeb3j.ethBlockNumber().send().getBlockNumber().longValue();
+    } catch (Exception e) {
+      LOG.debug("Error retrieving last block of network {}, bypass cache", network, e);
+      return -1;
+    }
+  }
+
+  private boolean matchesArgument(Object value, Object arg) {
+    return value instanceof String stringValue && arg instanceof String stringArg ?
+                                                                                  StringUtils.equalsIgnoreCase(stringValue,
+                                                                                                               stringArg) :
+                                                                                  Objects.equals(value, arg);
+  }
+
+  private Map<CacheKey, Object> getImmutableEntries() {
+    if (immutableEntries == null) {
+      immutableEntries = newBoundedMap();
+    }
+    return immutableEntries;
+  }
+
+  private Map<CacheKey, BlockEntry> getBlockEntries() {
+    if (blockEntries == null) {
+      blockEntries = newBoundedMap();
+    }
+    return blockEntries;
+  }
+
+  @SuppressWarnings("serial")
+  private <V> Map<CacheKey, V> newBoundedMap() {
+    return new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<CacheKey, V> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  public enum BlockchainNetwork {
+    ETHEREUM, POLYGON;
+  }
+
+  @FunctionalInterface
+  public interface BlockchainLoader<T, E extends Exception> {
+    T load() throws E;
+  }
+
+  @EqualsAndHashCode
+  private static class CacheKey {
+
+    private final String   contractAddress;
+
+    private final String   method;
+
+    private final Object[] args;
+
+    private CacheKey(String contractAddress, String method, Object[] args) {
+      this.contractAddress = StringUtils.lowerCase(contractAddress);
+      this.method = method;
+      this.args = Arrays.stream(args)
+                        .map(arg -> arg instanceof String stringArg ? StringUtils.lowerCase(stringArg) : arg)
+                        .toArray();
+    }
+
+  }
+
+  @AllArgsConstructor
+  private static class BlockEntry {
+
+    long   blockNumber;
+
+    Object value;
+
+  }
+
+  @AllArgsConstructor
+  private static class BlockStamp {
+
+    long blockNumber;
+
+    long retrievalTime;
+
+  }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.websocket.events.Notification;
+
+import io.reactivex.Flowable;
+import lombok.Getter;
+
+/**
+ * A {@link Web3jService} distributing JSON-RPC requests over multiple
+ * endpoints of the same network:
+ * <ul>
+ * <li>Endpoints are periodically health-checked using 'eth_blockNumber', an
+ * endpoint is considered unhealthy when it fails or when it lags behind the
+ * most advanced endpoint by more than the configured number of blocks</li>
+ * <li>Read requests are sent to the healthy endpoint having the lowest
+ * latency. When no response is retrieved after the hedge delay, the same
+ * request is sent to the next endpoint and the first response wins. A failing
+ * endpoint is replaced by the next one.</li>
+ * <li>Write requests and nonce retrieval stick to a single endpoint, as long
+ * as it's healthy, to keep nonces consistent</li>
+ * </ul>
+ */
+public class MultiEndpointWeb3jService implements Web3jService {
+
+  private static final Logger            LOG           = LoggerFactory.getLogger(MultiEndpointWeb3jService.class);
+
+  private static final Set<String>       WRITE_METHODS = Set.of("eth_sendRawTransaction",
+                                                                "eth_sendTransaction",
+                                                                "eth_getTransactionCount");
+
+  private static final double            EWMA_WEIGHT   = 0.2d;
+
+  private static final int               BATCH_THREADS = 4;
+
+  @Getter
+  private final List<Endpoint>           endpoints;
+
+  private final long                     healthCheckMillis;
+
+  private final long                     maxBlockLag;
+
+  private final long                     hedgeDelayMillis;
+
+  private final ScheduledExecutorService healthCheckExecutor;
+
+  /**
+   * Separated from health checks, which can block until the endpoints time
+   * out, to send hedged requests on time
+   */
+  private final ScheduledExecutorService hedgeExecutor;
+
+  private final ExecutorService          batchExecutor;
+
+  private volatile Endpoint              writeEndpoint;
+
+  public MultiEndpointWeb3jService(List<String> urls, long healthCheckMillis, long maxBlockLag, long hedgeDelayMillis) {
+    this.endpoints = urls.stream().map(url -> new Endpoint(url, new HttpService(url))).toList();
+    this.healthCheckMillis = healthCheckMillis;
+    this.maxBlockLag = maxBlockLag;
+    this.hedgeDelayMillis = hedgeDelayMillis;
+    this.healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> newThread(runnable, "HealthCheck"));
+    this.hedgeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> newThread(runnable, "Hedge"));
+    this.batchExecutor = Executors.newFixedThreadPool(BATCH_THREADS, runnable -> newThread(runnable, "Batch"));
+  }
+
+  public void start() {
+    healthCheckExecutor.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Retrieves the last block of each endpoint and marks as unhealthy the ones
+   * which fail or lag behind
+   */
+  public void checkHealth() {
+    for (Endpoint endpoint : endpoints) {
+      long start = System.currentTimeMillis();
+      try {
+        EthBlockNumber ethBlockNumber = new Request<>("eth_blockNumber",
+                                                      Collections.<String> emptyList(),
+                                                      endpoint.service,
+                                                      EthBlockNumber.class).send();
+        if (ethBlockNumber.hasError()) {
+          throw new IOException(ethBlockNumber.getError().getMessage());
+        }
+        endpoint.recordLatency(System.currentTimeMillis() - start);
+        endpoint.lastBlock = ethBlockNumber.getBlockNumber().longValue();
+        endpoint.healthy = true;
+      } catch (Exception e) {
+        LOG.debug("Endpoint {} health check failed", endpoint.url, e);
+        endpoint.healthy = false;
+      }
+    }
+    long maxBlock = endpoints.stream().filter(Endpoint::isHealthy).mapToLong(Endpoint::getLastBlock).max().orElse(0);
+    endpoints.stream()
+             .filter(endpoint -> endpoint.healthy && maxBlock - endpoint.lastBlock > maxBlockLag)
+             .forEach(endpoint -> {
+               LOG.info("Endpoint {} lags behind by {} blocks, mark it as unhealthy", endpoint.url, maxBlock - endpoint.lastBlock);
+               endpoint.healthy = false;
+             });
+  }
+
+  @Override
+  public <T extends Response> T send(Request request, Class<T> responseType) throws IOException { // NOSONAR
+    try {
+      return sendAsync(request, responseType).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for " + request.getMethod() + " response", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      } else if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else {
+        throw new IOException("Error while sending " + request.getMethod(), e.getCause());
+      }
+    }
+  }
+
+  @Override
+  public <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType) { // NOSONAR
+    List<Endpoint> candidates;
+    boolean hedged;
+    if (WRITE_METHODS.contains(request.getMethod())) {
+      candidates = Collections.singletonList(getWriteEndpoint());
+      hedged = false;
+    } else {
+      candidates = getReadEndpoints();
+      hedged = hedgeDelayMillis > 0;
+    }
+    HedgedRequest<T> hedgedRequest = new HedgedRequest<>(candidates, request, responseType);
+    hedgedRequest.attempt();
+    if (hedged && candidates.size() > 1) {
+      hedgeExecutor.schedule(() -> {
+        if (!hedgedRequest.result.isDone()) {
+          LOG.debug("No response retrieved for {} after {}ms, send hedged request", request.getMethod(), hedgeDelayMillis);
+          hedgedRequest.attempt();
+        }
+      }, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+    }
+    return hedgedRequest.result;
+  }
+
+  @Override
+  public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+    IOException lastError = null;
+    for (Endpoint endpoint : getReadEndpoints()) {
+      long start = System.currentTimeMillis();
+      try {
+        BatchResponse batchResponse = endpoint.service.sendBatch(batchRequest);
+        endpoint.recordLatency(System.currentTimeMillis() - start);
+        return batchResponse;
+      } catch (IOException | ClientConnectionException e) {
+        endpoint.markFailure(e);
+        lastError = e instanceof IOException ioException ? ioException : new IOException(e);
+      }
+    }
+    throw lastError == null ? new IOException("No endpoint available") : lastError;
+  }
+
+  @Override
+  public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return sendBatch(batchRequest);
+      } catch (IOException e) {
+        throw new ClientConnectionException("Error while sending batch request", e);
+      }
+    }, batchExecutor);
+  }
+
+  @Override
+  public <T extends Notification<?>> Flowable<T> subscribe(Request request, String unsubscribeMethod, Class<T> responseType) { // NOSONAR
+    throw new UnsupportedOperationException("Subscriptions aren't supported by HTTP endpoints");
+  }
+
+  @Override
+  public void close() throws IOException {
+    healthCheckExecutor.shutdownNow();
+    hedgeExecutor.shutdownNow();
+    batchExecutor.shutdownNow();
+    for (Endpoint endpoint : endpoints) {
+      endpoint.service.close();
+    }
+  }
+
+  /**
+   * @return the endpoint used to send transactions, which is kept as long as
+   *         it's healthy
+   */
+  public Endpoint getWriteEndpoint() {
+    Endpoint endpoint = writeEndpoint;
+    if (endpoint == null || !endpoint.healthy) {
+      Endpoint newEndpoint = endpoints.stream().filter(Endpoint::isHealthy).findFirst().orElse(endpoints.get(0));
+      if (endpoint != null && endpoint != newEndpoint) {
+        LOG.info("Switch transactions endpoint from {} to {}", endpoint.url, newEndpoint.url);
+      }
+      writeEndpoint = newEndpoint;
+      endpoint = newEndpoint;
+    }
+    return endpoint;
+  }
+
+  private List<Endpoint> getReadEndpoints() {
+    List<Endpoint> readEndpoints = new ArrayList<>(endpoints);
+    // Healthy endpoints first, ordered by latency, then unhealthy ones as last
+    // resort
+    readEndpoints.sort(Comparator.comparing((Endpoint endpoint) -> !endpoint.healthy)
+                                 .thenComparingDouble(Endpoint::getAverageLatencyMillis));
+    return readEndpoints;
+  }
+
+  private static Thread newThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, "MultiEndpointWeb3jService-" + name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private static boolean isConnectionError(Throwable error) {
+    return error instanceof IOException || error instanceof ClientConnectionException;
+  }
+
+  private class HedgedRequest<T extends Response> {
+
+    private final List<Endpoint>             candidates;
+
+    private final Request                    request; // NOSONAR
+
+    private final Class<T>                   responseType;
+
+    private final CompletableFuture<T>       result    = new CompletableFuture<>();
+
+    private final AtomicInteger              nextIndex = new AtomicInteger();
+
+    private final AtomicInteger              inFlight  = new AtomicInteger();
+
+    private final AtomicReference<Throwable> lastError = new AtomicReference<>();
+
+    private HedgedRequest(List<Endpoint> candidates, Request request, Class<T> responseType) { // NOSONAR
+      this.candidates = candidates;
+      this.request = request;
+      this.responseType = responseType;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attempt() {
+      int index = nextIndex.getAndIncrement();
+      if (index >= candidates.size()) {
+        if (inFlight.get() == 0) {
+          Throwable error = lastError.get();
+          result.completeExceptionally(error == null ? new IOException("No endpoint available for " + request.getMethod()) :
+                                                     error);
+        }
+        return;
+      }
+      Endpoint endpoint = candidates.get(index);
+      inFlight.incrementAndGet();
+      long start = System.currentTimeMillis();
+      CompletableFuture<T> future;
+      try {
+        future = endpoint.service.sendAsync(request, responseType);
+      } catch (Exception e) {
+        future = CompletableFuture.failedFuture(e);
+      }
+      future.whenComplete((response, error) -> {
+        inFlight.decrementAndGet();
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause == null) {
+          endpoint.recordLatency(System.currentTimeMillis() - start);
+          result.complete(response);
+        } else if (isConnectionError(cause)) {
+          endpoint.markFailure(cause);
+          lastError.set(cause);
+          attempt();
+        } else {
+          result.completeExceptionally(cause);
+        }
+      });
+    }
+
+  }
+
+  public static class Endpoint {
+
+    @Getter
+    private final String           url;
+
+    private final HttpService      service;
+
+    @Getter
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    @Getter
+    private volatile boolean       healthy          = true;
+
+    @Getter
+    private volatile long          lastBlock;
+
+    @Getter
+    private volatile double        averageLatencyMillis;
+
+    private Endpoint(String url, HttpService service) {
+      this.url = url;
+      this.service = service;
+    }
+
+    private void recordLatency(long latencyMillis) {
+      latencyHistogram.record(latencyMillis);
+      averageLatencyMillis = averageLatencyMillis == 0 ? latencyMillis :
+                                                       averageLatencyMillis * (1 - EWMA_WEIGHT) + latencyMillis * EWMA_WEIGHT;
+    }
+
+    private void markFailure(Throwable error) {
+      LOG.debug("Endpoint {} failed, mark it as unhealthy until next health check", url, error);
+      healthy = false;
+    }
+
+  }
+
+  /**
+   * Counts request latencies into fixed buckets
+   */
+  public static class LatencyHistogram {
+
+    private static final long[]   BUCKET_BOUNDS = new long[] { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private final AtomicLongArray counts        = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    /**
+     * @return upper bounds, in milliseconds, of the histogram buckets
+     */
+    public static long[] getBucketBounds() {
+      return BUCKET_BOUNDS.clone();
+    }
+
+    public void record(long latencyMillis) {
+      int bucket = 0;
+      while (bucket < BUCKET_BOUNDS.length && latencyMillis > BUCKET_BOUNDS[bucket]) {
+        bucket++;
+      }
+      counts.incrementAndGet(bucket);
+    }
+
+    /**
+     * @return counts of requests per bucket, the last bucket counting the
+     *         requests exceeding the highest bound
+     */
+    public long[] getCounts() {
+      long[] result = new long[counts.length()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = counts.get(i);
+      }
+      return result;
+    }
+
+    public long getCount() {
+      long count = 0;
+      for (int i = 0; i < counts.length(); i++) {
+        count += counts.get(i);
+      }
+      return count;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return the upper bound of the bucket containing the percentile, else
+     *         {@link Long#MAX_VALUE} when it exceeds the highest bound
+     */
+    public long getPercentileMillis(double percentile) {
+      long[] values = getCounts();
+      long total = Arrays.stream(values).sum();
+      long threshold = (long) Math.ceil(total * percentile / 100d);
+      long cumulated = 0;
+      for (int i = 0; i < values.length; i++) {
+        cumulated += values[i];
+        if (cumulated >= threshold && cumulated > 0) {
+          return i < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[i] : Long.MAX_VALUE;
+        }
+      }
+      return 0;
+    }
+
+  }
+
+}
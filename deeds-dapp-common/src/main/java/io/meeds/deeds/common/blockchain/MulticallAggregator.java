@@ -0,0 +1,174 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.tx.TransactionManager;
+import org.web3j.utils.Numeric;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Aggregates multiple contract view calls into a single eth_call using the
+ * Multicall3 contract 'aggregate3' function. Each call is allowed to fail
+ * individually, in which case its result is marked as not successful.
+ */
+public class MulticallAggregator {
+
+  public static final String       DEFAULT_MULTICALL3_ADDRESS = "0xcA11bde05977b3631167028862bE2a173976CA11";
+
+  private static final String      AGGREGATE3_METHOD_ID       =
+                                                        FunctionEncoder.buildMethodId("aggregate3((address,bool,bytes)[])");
+
+  private static final int         WORD_LENGTH                = 32;
+
+  private final TransactionManager transactionManager;
+
+  @Getter
+  private final String             contractAddress;
+
+  public MulticallAggregator(TransactionManager transactionManager, String contractAddress) {
+    this.transactionManager = transactionManager;
+    this.contractAddress = contractAddress;
+  }
+
+  public boolean isEnabled() {
+    return StringUtils.isNotBlank(contractAddress);
+  }
+
+  /**
+   * Sends the list of view calls in a single eth_call
+   *
+   * @param calls {@link List} of {@link MulticallRequest}
+   * @return {@link List} of {@link MulticallResult} in the same order than
+   *         designated calls
+   * @throws IOException when an error happens while calling the blockchain
+   */
+  @SuppressWarnings("rawtypes")
+  public List<MulticallResult> aggregate(List<MulticallRequest> calls) throws IOException {
+    if (calls.isEmpty()) {
+      return Collections.emptyList();
+    }
+    String encodedCall = encodeAggregate3(calls);
+    String encodedResult = transactionManager.sendCall(contractAddress, encodedCall, DefaultBlockParameterName.LATEST);
+    List<String> returnData = decodeAggregate3(encodedResult, calls.size());
+    List<MulticallResult> results = new ArrayList<>(calls.size());
+    for (int i = 0; i < calls.size(); i++) {
+      String data = returnData.get(i);
+      if (data == null) {
+        results.add(new MulticallResult(false, Collections.emptyList()));
+      } else {
+        List<Type> values = FunctionReturnDecoder.decode(data, calls.get(i).getFunction().getOutputParameters());
+        results.add(new MulticallResult(values != null && !values.isEmpty(), values));
+      }
+    }
+    return results;
+  }
+
+  private String encodeAggregate3(List<MulticallRequest> calls) {
+    List<String> encodedTuples = calls.stream().map(this::encodeCall3).toList();
+    StringBuilder encoded = new StringBuilder(AGGREGATE3_METHOD_ID);
+    encoded.append(encodeWord(WORD_LENGTH));
+    encoded.append(encodeWord(calls.size()));
+    long tupleOffset = (long) calls.size() * WORD_LENGTH;
+    for (String encodedTuple : encodedTuples) {
+      encoded.append(encodeWord(tupleOffset));
+      tupleOffset += encodedTuple.length() / 2;
+    }
+    encodedTuples.forEach(encoded::append);
+    return encoded.toString();
+  }
+
+  private String encodeCall3(MulticallRequest call) {
+    String callData = Numeric.cleanHexPrefix(FunctionEncoder.encode(call.getFunction()));
+    int callDataLength = callData.length() / 2;
+    int paddedLength = ((callDataLength + WORD_LENGTH - 1) / WORD_LENGTH) * WORD_LENGTH;
+    return Numeric.toHexStringNoPrefixZeroPadded(Numeric.toBigInt(call.getTarget()), WORD_LENGTH * 2)
+        + encodeWord(1) // allowFailure
+        + encodeWord(3l * WORD_LENGTH) // callData offset in the tuple
+        + encodeWord(callDataLength)
+        + StringUtils.rightPad(callData, paddedLength * 2, '0');
+  }
+
+  private List<String> decodeAggregate3(String encodedResult, int expectedSize) throws IOException {
+    String data = Numeric.cleanHexPrefix(encodedResult);
+    if (StringUtils.isBlank(data)) {
+      throw new IOException("Empty response retrieved from Multicall contract " + contractAddress);
+    }
+    int arrayOffset = readWord(data, 0);
+    int length = readWord(data, arrayOffset);
+    if (length != expectedSize) {
+      throw new IOException("Unexpected Multicall results count " + length + " while expecting " + expectedSize);
+    }
+    int tuplesStart = arrayOffset + WORD_LENGTH;
+    List<String> returnData = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      int tupleStart = tuplesStart + readWord(data, tuplesStart + i * WORD_LENGTH);
+      boolean success = readWord(data, tupleStart) != 0;
+      int bytesStart = tupleStart + readWord(data, tupleStart + WORD_LENGTH);
+      int bytesLength = readWord(data, bytesStart);
+      if (success && bytesLength > 0) {
+        int dataStart = (bytesStart + WORD_LENGTH) * 2;
+        returnData.add("0x" + data.substring(dataStart, dataStart + bytesLength * 2));
+      } else {
+        returnData.add(null);
+      }
+    }
+    return returnData;
+  }
+
+  private int readWord(String data, int byteOffset) {
+    return new BigInteger(data.substring(byteOffset * 2, (byteOffset + WORD_LENGTH) * 2), 16).intValueExact();
+  }
+
+  private String encodeWord(long value) {
+    return Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(value), WORD_LENGTH * 2);
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class MulticallRequest {
+
+    private String   target;
+
+    private Function function;
+
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class MulticallResult {
+
+    private boolean         success;
+
+    @SuppressWarnings("rawtypes")
+    private List<Type> values;
+
+  }
+
+}
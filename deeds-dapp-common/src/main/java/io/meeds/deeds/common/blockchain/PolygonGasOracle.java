@@ -0,0 +1,304 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+import org.web3j.protocol.core.methods.response.EthFeeHistory.FeeHistory;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Estimates Polygon gas fees by sampling 'eth_feeHistory' in background. The
+ * base fee of the next block and the priority fees paid at each
+ * {@link GasSpeed} percentile are cached, so that computing a gas price
+ * doesn't need any RPC call as long as the last sample isn't expired.
+ * <br>
+ * Gas limits are estimated per contract function using the gas used by
+ * previously mined transactions, without going below the default gas limit.
+ */
+public class PolygonGasOracle {
+
+  private static final Logger            LOG                = LoggerFactory.getLogger(PolygonGasOracle.class);
+
+  private static final BigDecimal        FALLBACK_GAS_RATIO = BigDecimal.valueOf(1.2);
+
+  private static final List<Double>      PERCENTILES        = Arrays.stream(GasSpeed.values())
+                                                                    .map(GasSpeed::getPercentile)
+                                                                    .toList();
+
+  private final Web3j                    web3j;
+
+  @Getter
+  private final GasSpeed                 targetSpeed;
+
+  private final int                      blockCount;
+
+  private final long                     refreshMillis;
+
+  private final long                     ttlMillis;
+
+  private final BigDecimal               baseFeeMultiplier;
+
+  @Getter
+  private final BigInteger               defaultGasLimit;
+
+  private final BigDecimal               gasLimitMargin;
+
+  private final Map<String, BigInteger>  maxGasUsed         = new ConcurrentHashMap<>();
+
+  private final ScheduledExecutorService executor;
+
+  private volatile FeeEstimate           feeEstimate;
+
+  @Getter
+  private final AtomicLong               samplingCount      = new AtomicLong();
+
+  @Getter
+  private final AtomicLong               fallbackCount      = new AtomicLong();
+
+  public PolygonGasOracle(Web3j web3j, // NOSONAR
+                          GasSpeed targetSpeed,
+                          int blockCount,
+                          long refreshMillis,
+                          long ttlMillis,
+                          double baseFeeMultiplier,
+                          long defaultGasLimit,
+                          double gasLimitMargin) {
+    this.web3j = web3j;
+    this.targetSpeed = targetSpeed;
+    this.blockCount = blockCount;
+    this.refreshMillis = refreshMillis;
+    this.ttlMillis = ttlMillis;
+    this.baseFeeMultiplier = BigDecimal.valueOf(baseFeeMultiplier);
+    this.defaultGasLimit = BigInteger.valueOf(defaultGasLimit);
+    this.gasLimitMargin = BigDecimal.valueOf(gasLimitMargin);
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "PolygonGasOracle");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void start() {
+    executor.scheduleWithFixedDelay(this::refresh, 0, refreshMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Samples the fee history of the last mined blocks and caches the resulting
+   * estimates. Synchronized to not sample concurrently from the scheduler and
+   * from callers when the estimate expired.
+   */
+  public synchronized void refresh() {
+    try {
+      feeEstimate = sampleFeeHistory();
+      samplingCount.incrementAndGet();
+    } catch (Exception e) {
+      LOG.warn("Error while sampling Polygon fee history, the last estimate will be used until it expires", e);
+    }
+  }
+
+  /**
+   * @return the legacy gas price to use to be mined at the target speed:
+   *         estimated next block base fee with a margin added to the
+   *         estimated priority fee
+   */
+  public BigInteger getGasPrice() {
+    FeeEstimate estimate = getFeeEstimate();
+    if (estimate == null) {
+      return getFallbackGasPrice();
+    } else {
+      return estimate.getMaxFeePerGas(targetSpeed);
+    }
+  }
+
+  /**
+   * @return the estimated base fee of the next block, else null if no fee
+   *         history is available
+   */
+  public BigInteger getBaseFeePerGas() {
+    FeeEstimate estimate = getFeeEstimate();
+    return estimate == null ? null : estimate.baseFeePerGas;
+  }
+
+  /**
+   * @param speed {@link GasSpeed}
+   * @return the estimated priority fee to pay to be mined at the designated
+   *         speed, else null if no fee history is available
+   */
+  public BigInteger getMaxPriorityFeePerGas(GasSpeed speed) {
+    FeeEstimate estimate = getFeeEstimate();
+    return estimate == null ? null : estimate.priorityFeesPerGas.get(speed);
+  }
+
+  /**
+   * @param speed {@link GasSpeed}
+   * @return the maximum fee to pay per gas to be mined at the designated speed,
+   *         else null if no fee history is available
+   */
+  public BigInteger getMaxFeePerGas(GasSpeed speed) {
+    FeeEstimate estimate = getFeeEstimate();
+    return estimate == null ? null : estimate.getMaxFeePerGas(speed);
+  }
+
+  /**
+   * @param functionName contract function name
+   * @return the gas limit computed from the maximum gas used by the mined
+   *         transactions of the function with a margin, at least the default
+   *         gas limit since the gas used depends on the function arguments
+   */
+  public BigInteger getGasLimit(String functionName) {
+    BigInteger gasUsed = functionName == null ? null : maxGasUsed.get(functionName);
+    if (gasUsed == null) {
+      return defaultGasLimit;
+    } else {
+      return new BigDecimal(gasUsed).multiply(gasLimitMargin)
+                                    .setScale(0, RoundingMode.CEILING)
+                                    .toBigInteger()
+                                    .max(defaultGasLimit);
+    }
+  }
+
+  /**
+   * Records the gas used by a mined transaction to estimate the gas limit of
+   * the next transactions of the same contract function
+   *
+   * @param functionName contract function name
+   * @param gasUsed gas used by the mined transaction
+   */
+  public void recordGasUsed(String functionName, BigInteger gasUsed) {
+    if (functionName != null && gasUsed != null && gasUsed.signum() > 0) {
+      maxGasUsed.merge(functionName, gasUsed, BigInteger::max);
+    }
+  }
+
+  private FeeEstimate getFeeEstimate() {
+    FeeEstimate estimate = feeEstimate;
+    if (estimate == null || estimate.isExpired()) {
+      // Background sampling is late or failing, try once in current thread
+      estimate = refreshIfExpired();
+    }
+    return estimate == null || estimate.isExpired() ? null : estimate;
+  }
+
+  private synchronized FeeEstimate refreshIfExpired() {
+    // Checked again, since refreshed by a concurrent caller while waiting
+    if (feeEstimate == null || feeEstimate.isExpired()) {
+      refresh();
+    }
+    return feeEstimate;
+  }
+
+  private FeeEstimate sampleFeeHistory() throws IOException {
+    EthFeeHistory ethFeeHistory = web3j.ethFeeHistory(blockCount, DefaultBlockParameterName.LATEST, PERCENTILES).send();
+    if (ethFeeHistory.hasError()) {
+      throw new IOException("Error retrieving fee history: " + ethFeeHistory.getError().getMessage());
+    }
+    FeeHistory feeHistory = ethFeeHistory.getFeeHistory();
+    if (feeHistory == null || feeHistory.getBaseFeePerGas() == null || feeHistory.getBaseFeePerGas().isEmpty()) {
+      throw new IOException("Empty fee history retrieved");
+    }
+    // The last base fee is the one of the next block to mine
+    List<BigInteger> baseFees = feeHistory.getBaseFeePerGas();
+    BigInteger baseFeePerGas = baseFees.get(baseFees.size() - 1);
+
+    List<List<BigInteger>> rewards = feeHistory.getReward() == null ? List.of() : feeHistory.getReward();
+    Map<GasSpeed, BigInteger> priorityFeesPerGas = new EnumMap<>(GasSpeed.class);
+    for (GasSpeed speed : GasSpeed.values()) {
+      List<BigInteger> speedRewards = rewards.stream()
+                                             .filter(Objects::nonNull)
+                                             .filter(blockRewards -> blockRewards.size() > speed.ordinal())
+                                             .map(blockRewards -> blockRewards.get(speed.ordinal()))
+                                             .filter(Objects::nonNull)
+                                             .toList();
+      BigInteger priorityFee = speedRewards.isEmpty() ? BigInteger.ZERO :
+                                                      speedRewards.stream()
+                                                                  .reduce(BigInteger.ZERO, BigInteger::add)
+                                                                  .divide(BigInteger.valueOf(speedRewards.size()));
+      priorityFeesPerGas.put(speed, priorityFee);
+    }
+    return new FeeEstimate(baseFeePerGas, priorityFeesPerGas, System.currentTimeMillis());
+  }
+
+  private BigInteger getFallbackGasPrice() {
+    fallbackCount.incrementAndGet();
+    try {
+      BigInteger gasPrice = web3j.ethGasPrice().send().getGasPrice();
+      return new BigDecimal(gasPrice).multiply(FALLBACK_GAS_RATIO)
+                                     .setScale(0, RoundingMode.HALF_EVEN)
+                                     .toBigInteger();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to estimate Polygon gas price", e);
+    }
+  }
+
+  public enum GasSpeed {
+    SLOW(10d), STANDARD(50d), FAST(90d);
+
+    @Getter
+    private final double percentile;
+
+    GasSpeed(double percentile) {
+      this.percentile = percentile;
+    }
+  }
+
+  @AllArgsConstructor
+  private class FeeEstimate {
+
+    BigInteger                baseFeePerGas;
+
+    Map<GasSpeed, BigInteger> priorityFeesPerGas;
+
+    long                      samplingTime;
+
+    boolean isExpired() {
+      return System.currentTimeMillis() - samplingTime > ttlMillis;
+    }
+
+    BigInteger getMaxFeePerGas(GasSpeed speed) {
+      return new BigDecimal(baseFeePerGas).multiply(baseFeeMultiplier)
+                                          .setScale(0, RoundingMode.CEILING)
+                                          .toBigInteger()
+                                          .add(priorityFeesPerGas.get(speed));
+    }
+
+  }
+
+}
@@ -32,6 +32,7 @@ import org.web3j.protocol.core.methods.response.EthSendTransaction;
 import org.web3j.tx.TransactionManager;
 import org.web3j.tx.response.PollingTransactionReceiptProcessor;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
 
@@ -39,6 +40,7 @@ public class PolygonTransactionManagerProxy extends TransactionManager {
 
   private static final Logger       LOG = LoggerFactory.getLogger(PolygonTransactionManagerProxy.class);
 
+  @Getter
   @Setter
   private static TransactionManager transactionManager;
 
@@ -0,0 +1,349 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.TransactionManager;
+import org.web3j.tx.gas.ContractGasProvider;
+
+import lombok.Getter;
+
+/**
+ * Sends Polygon transactions without waiting for the previous ones to be
+ * mined. Nonces are allocated locally by
+ * {@link PolygonWomRawTransactionManager}, the receipts of in-flight
+ * transactions are tracked asynchronously and the transactions which remain
+ * pending for too long are replaced using the same nonce and a higher gas
+ * price. A transaction not mined after maxPendingMillis is failed with a
+ * {@link TimeoutException} and the local nonce is synchronized with the
+ * pending transactions count of the wallet, to reuse the nonce of the
+ * transaction if it was dropped from the mempool.
+ */
+public class PolygonTransactionPipeline {
+
+  private static final Logger                       LOG                       =
+                                                        LoggerFactory.getLogger(PolygonTransactionPipeline.class);
+
+  private static final BigDecimal                   REPLACEMENT_GAS_RATIO     = BigDecimal.valueOf(1.125);
+
+  private final Web3j                               web3j;
+
+  private final ContractGasProvider                 gasProvider;
+
+  private final long                                pollingMillis;
+
+  private final long                                stuckTimeoutMillis;
+
+  private final int                                 maxReplacements;
+
+  private final long                                maxPendingMillis;
+
+  private final Map<BigInteger, PendingTransaction> pendingTransactions       = new ConcurrentSkipListMap<>();
+
+  /**
+   * Nonces allocated for transactions being sent, not added yet to pending
+   * transactions
+   */
+  private final Set<BigInteger>                     sendingNonces             = ConcurrentHashMap.newKeySet();
+
+  private final ScheduledExecutorService            executor;
+
+  private ScheduledFuture<?>                        receiptsTracking;
+
+  @Getter
+  private final AtomicLong                          sentTransactionsCount     = new AtomicLong();
+
+  @Getter
+  private final AtomicLong                          replacedTransactionsCount = new AtomicLong();
+
+  public PolygonTransactionPipeline(Web3j web3j,
+                                    ContractGasProvider gasProvider,
+                                    long pollingMillis,
+                                    long stuckTimeoutMillis,
+                                    int maxReplacements,
+                                    long maxPendingMillis) {
+    this.web3j = web3j;
+    this.gasProvider = gasProvider;
+    this.pollingMillis = pollingMillis;
+    this.stuckTimeoutMillis = stuckTimeoutMillis;
+    this.maxReplacements = maxReplacements;
+    this.maxPendingMillis = maxPendingMillis;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "PolygonTransactionPipeline");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public boolean isEnabled() {
+    return PolygonTransactionManagerProxy.getTransactionManager() instanceof PolygonWomRawTransactionManager;
+  }
+
+  public int getPendingTransactionsCount() {
+    return pendingTransactions.size();
+  }
+
+  /**
+   * Sends a contract transaction without waiting for it to be mined
+   *
+   * @param to contract address
+   * @param data encoded function call
+   * @param functionName contract function name used to compute the gas
+   * @return {@link CompletableFuture} completed with the
+   *         {@link TransactionReceipt} once mined, which status has to be
+   *         checked by the caller
+   */
+  public CompletableFuture<TransactionReceipt> sendTransaction(String to, String data, String functionName) {
+    PendingTransaction transaction = null;
+    try {
+      PolygonWomRawTransactionManager transactionManager = getTransactionManager();
+      BigInteger nonce = transactionManager.allocateNonce();
+      sendingNonces.add(nonce);
+      try {
+        transaction = new PendingTransaction(nonce, to, data, functionName, gasProvider.getGasLimit(functionName));
+        send(transactionManager, transaction, gasProvider.getGasPrice(functionName));
+        pendingTransactions.put(nonce, transaction);
+      } catch (IOException e) {
+        transactionManager.releaseNonce(nonce);
+        if (StringUtils.containsIgnoreCase(e.getMessage(), "nonce too low")) {
+          transactionManager.synchronizeNonce();
+        }
+        throw e;
+      } finally {
+        sendingNonces.remove(nonce);
+      }
+      sentTransactionsCount.incrementAndGet();
+      scheduleReceiptsTracking();
+      return transaction.future;
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  public synchronized void shutdown() {
+    executor.shutdownNow();
+    pendingTransactions.values()
+                       .forEach(transaction -> transaction.future.completeExceptionally(new IllegalStateException("Transaction pipeline stopped")));
+    pendingTransactions.clear();
+  }
+
+  /**
+   * Checks the receipts of in-flight transactions, replaces the stuck ones and
+   * fails the ones pending since a too long period of time
+   */
+  public void trackReceipts() {
+    for (PendingTransaction transaction : new ArrayList<>(pendingTransactions.values())) {
+      try {
+        Optional<TransactionReceipt> receipt = getReceipt(transaction);
+        long now = System.currentTimeMillis();
+        if (receipt.isPresent()) {
+          pendingTransactions.remove(transaction.nonce);
+          recordGasUsed(receipt.get(), transaction);
+          transaction.future.complete(withRevertReason(receipt.get(), transaction));
+        } else if (now - transaction.firstSendingTime > maxPendingMillis) {
+          pendingTransactions.remove(transaction.nonce);
+          synchronizePendingNonce();
+          transaction.future.completeExceptionally(new TimeoutException("Transaction " + transaction.getTransactionHash()
+              + " with nonce " + transaction.nonce + " wasn't mined after " + maxPendingMillis + "ms"));
+        } else if (now - transaction.lastSendingTime > stuckTimeoutMillis && transaction.replacements < maxReplacements) {
+          replace(transaction);
+        }
+      } catch (Exception e) {
+        LOG.warn("Error while checking transaction with nonce {} status. Will retry next time.", transaction.nonce, e);
+      }
+    }
+  }
+
+  private void synchronizePendingNonce() {
+    try {
+      Set<BigInteger> inFlightNonces = new HashSet<>(pendingTransactions.keySet());
+      inFlightNonces.addAll(sendingNonces);
+      getTransactionManager().synchronizePendingNonce(inFlightNonces);
+    } catch (Exception e) {
+      LOG.warn("Error while synchronizing nonce with pending transactions count", e);
+    }
+  }
+
+  private void replace(PendingTransaction transaction) throws IOException {
+    BigInteger bumpedGasPrice = new BigDecimal(transaction.gasPrice).multiply(REPLACEMENT_GAS_RATIO)
+                                                                    .setScale(0, RoundingMode.CEILING)
+                                                                    .toBigInteger();
+    BigInteger gasPrice = bumpedGasPrice.max(gasProvider.getGasPrice());
+    LOG.info("Replace stuck transaction {} with nonce {} using gas price {} instead of {}",
+             transaction.getTransactionHash(),
+             transaction.nonce,
+             gasPrice,
+             transaction.gasPrice);
+    try {
+      send(getTransactionManager(), transaction, gasPrice);
+      transaction.replacements++;
+      replacedTransactionsCount.incrementAndGet();
+    } catch (IOException e) {
+      if (StringUtils.containsIgnoreCase(e.getMessage(), "nonce too low")) {
+        // Already mined, the receipt will be found on next check
+        LOG.debug("Transaction with nonce {} already mined", transaction.nonce);
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  private void send(PolygonWomRawTransactionManager transactionManager,
+                    PendingTransaction transaction,
+                    BigInteger gasPrice) throws IOException {
+    EthSendTransaction ethSendTransaction = transactionManager.sendTransaction(transaction.nonce,
+                                                                               gasPrice,
+                                                                               transaction.gasLimit,
+                                                                               transaction.to,
+                                                                               transaction.data);
+    if (ethSendTransaction.hasError()) {
+      throw new IOException("Error sending transaction with nonce " + transaction.nonce + ": "
+          + ethSendTransaction.getError().getMessage());
+    }
+    long now = System.currentTimeMillis();
+    if (transaction.firstSendingTime == 0) {
+      transaction.firstSendingTime = now;
+    }
+    transaction.lastSendingTime = now;
+    transaction.gasPrice = gasPrice;
+    transaction.transactionHashes.add(ethSendTransaction.getTransactionHash());
+  }
+
+  private Optional<TransactionReceipt> getReceipt(PendingTransaction transaction) throws IOException {
+    // Any of the sent transactions with the same nonce can be mined
+    for (String transactionHash : transaction.transactionHashes) {
+      Optional<TransactionReceipt> receipt = web3j.ethGetTransactionReceipt(transactionHash)
+                                                  .send()
+                                                  .getTransactionReceipt();
+      if (receipt.isPresent()) {
+        return receipt;
+      }
+    }
+    return Optional.empty();
+  }
+
+  private void recordGasUsed(TransactionReceipt receipt, PendingTransaction transaction) {
+    if (receipt.isStatusOK() && gasProvider instanceof PolygonWomContractGasProvider womGasProvider) {
+      womGasProvider.recordGasUsed(transaction.functionName, receipt.getGasUsed());
+    }
+  }
+
+  private TransactionReceipt withRevertReason(TransactionReceipt receipt, PendingTransaction transaction) {
+    if (!receipt.isStatusOK() && StringUtils.isBlank(receipt.getRevertReason())) {
+      try {
+        // Replay the transaction call on the mined block to retrieve the
+        // revert reason
+        EthCall ethCall = web3j.ethCall(Transaction.createEthCallTransaction(getTransactionManager().getFromAddress(),
+                                                                             transaction.to,
+                                                                             transaction.data),
+                                        DefaultBlockParameter.valueOf(receipt.getBlockNumber()))
+                               .send();
+        if (ethCall.isReverted()) {
+          receipt.setRevertReason(ethCall.getRevertReason());
+        }
+      } catch (Exception e) {
+        LOG.debug("Error retrieving revert reason of transaction {}", receipt.getTransactionHash(), e);
+      }
+    }
+    return receipt;
+  }
+
+  private synchronized void scheduleReceiptsTracking() {
+    if (receiptsTracking == null) {
+      receiptsTracking = executor.scheduleWithFixedDelay(this::trackReceipts,
+                                                         pollingMillis,
+                                                         pollingMillis,
+                                                         TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private PolygonWomRawTransactionManager getTransactionManager() {
+    TransactionManager transactionManager = PolygonTransactionManagerProxy.getTransactionManager();
+    if (transactionManager instanceof PolygonWomRawTransactionManager rawTransactionManager) {
+      return rawTransactionManager;
+    } else {
+      throw new IllegalStateException("Polygon transaction manager isn't initialized");
+    }
+  }
+
+  private static class PendingTransaction {
+
+    private final BigInteger                            nonce;
+
+    private final String                                to;
+
+    private final String                                data;
+
+    private final String                                functionName;
+
+    private final BigInteger                            gasLimit;
+
+    private final List<String>                          transactionHashes = new CopyOnWriteArrayList<>();
+
+    private final CompletableFuture<TransactionReceipt> future            = new CompletableFuture<>();
+
+    private BigInteger                                  gasPrice;
+
+    private long                                        firstSendingTime;
+
+    private long                                        lastSendingTime;
+
+    private int                                         replacements;
+
+    private PendingTransaction(BigInteger nonce, String to, String data, String functionName, BigInteger gasLimit) {
+      this.nonce = nonce;
+      this.to = to;
+      this.data = data;
+      this.functionName = functionName;
+      this.gasLimit = gasLimit;
+    }
+
+    private String getTransactionHash() {
+      return transactionHashes.isEmpty() ? null : transactionHashes.get(transactionHashes.size() - 1);
+    }
+
+  }
+
+}
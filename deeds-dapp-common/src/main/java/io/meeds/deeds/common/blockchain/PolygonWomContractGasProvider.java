@@ -18,32 +18,26 @@
  */
 package io.meeds.deeds.common.blockchain;
 
-import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.math.RoundingMode;
 
-import org.web3j.protocol.Web3j;
 import org.web3j.tx.gas.ContractGasProvider;
 
-import lombok.SneakyThrows;
-
+/**
+ * Computes Polygon gas price and limits using the cached estimates of
+ * {@link PolygonGasOracle} rather than requesting the gas price on each
+ * contract function call.
+ */
 public class PolygonWomContractGasProvider implements ContractGasProvider {
 
-  private static final BigInteger GAS_LIMIT = BigInteger.valueOf(300000);
+  private PolygonGasOracle gasOracle;
 
-  private Web3j                   web3j;
-
-  public PolygonWomContractGasProvider(Web3j web3j) {
-    this.web3j = web3j;
+  public PolygonWomContractGasProvider(PolygonGasOracle gasOracle) {
+    this.gasOracle = gasOracle;
   }
 
   @Override
-  @SneakyThrows
   public BigInteger getGasPrice() {
-    BigInteger gasPrice = web3j.ethGasPrice().send().getGasPrice();
-    return new BigDecimal(gasPrice).multiply(BigDecimal.valueOf(1.2))
-                                   .setScale(0, RoundingMode.HALF_EVEN)
-                                   .toBigInteger();
+    return gasOracle.getGasPrice();
   }
 
   @Override
@@ -53,12 +47,23 @@ public class PolygonWomContractGasProvider implements ContractGasProvider {
 
   @Override
   public BigInteger getGasLimit(String contractFunc) {
-    return getGasLimit();
+    return gasOracle.getGasLimit(contractFunc);
   }
 
   @Override
   public BigInteger getGasLimit() {
-    return GAS_LIMIT;
+    return gasOracle.getDefaultGasLimit();
+  }
+
+  /**
+   * Records the gas used by a mined transaction to adjust the gas limit of
+   * the contract function
+   *
+   * @param contractFunc contract function name
+   * @param gasUsed gas used by the mined transaction
+   */
+  public void recordGasUsed(String contractFunc, BigInteger gasUsed) {
+    gasOracle.recordGasUsed(contractFunc, gasUsed);
   }
 
 }
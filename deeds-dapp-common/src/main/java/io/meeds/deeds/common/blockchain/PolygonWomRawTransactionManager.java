@@ -20,20 +20,31 @@ package io.meeds.deeds.common.blockchain;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.TreeSet;
 
+import org.apache.commons.lang3.StringUtils;
 import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
 import org.web3j.tx.RawTransactionManager;
 
 /**
- * Override default Raw Transaction to ensure to use the latest mined nonce
- * instead of pending, in order to replace transactions
+ * Override default Raw Transaction to allocate nonces locally, starting from
+ * the latest mined nonce instead of pending, in order to replace transactions
+ * left in the mempool by a previous run. This allows sending multiple
+ * transactions without waiting for the previous ones to be mined.
  */
 public class PolygonWomRawTransactionManager extends RawTransactionManager {
 
-  private final Web3j web3j;
+  private final Web3j               web3j;
+
+  private final TreeSet<BigInteger> releasedNonces = new TreeSet<>();
+
+  private BigInteger                nextNonce;
 
   public PolygonWomRawTransactionManager(Web3j web3j,
                                          Credentials credentials,
@@ -44,10 +55,128 @@ public class PolygonWomRawTransactionManager extends RawTransactionManager {
 
   @Override
   protected BigInteger getNonce() throws IOException {
-    EthGetTransactionCount ethGetTransactionCount =
-                                                  web3j.ethGetTransactionCount(this.getFromAddress(),
-                                                                               DefaultBlockParameterName.LATEST)
-                                                       .send();
+    return allocateNonce();
+  }
+
+  /**
+   * Sends a transaction built by contract wrappers with a nonce allocated by
+   * {@link #getNonce()}, the nonce is released when the transaction is
+   * rejected to not leave a gap
+   */
+  @Override
+  public EthSendTransaction signAndSend(RawTransaction rawTransaction) throws IOException {
+    EthSendTransaction ethSendTransaction;
+    try {
+      ethSendTransaction = super.signAndSend(rawTransaction);
+    } catch (IOException | RuntimeException e) {
+      releaseNonce(rawTransaction.getNonce());
+      throw e;
+    }
+    if (ethSendTransaction.hasError()) {
+      releaseNonce(rawTransaction.getNonce());
+      if (StringUtils.containsIgnoreCase(ethSendTransaction.getError().getMessage(), "nonce too low")) {
+        synchronizeNonce();
+      }
+    }
+    return ethSendTransaction;
+  }
+
+  /**
+   * Allocates the next nonce to use for a new transaction, reusing in priority
+   * the nonces released by transactions which sending failed
+   *
+   * @return allocated nonce
+   * @throws IOException when an error occurs while retrieving the latest mined
+   *           nonce from blockchain
+   */
+  public synchronized BigInteger allocateNonce() throws IOException {
+    if (nextNonce == null) {
+      nextNonce = getTransactionCount(DefaultBlockParameterName.LATEST);
+    }
+    if (!releasedNonces.isEmpty()) {
+      return releasedNonces.pollFirst();
+    }
+    BigInteger nonce = nextNonce;
+    nextNonce = nextNonce.add(BigInteger.ONE);
+    return nonce;
+  }
+
+  /**
+   * Releases a nonce which transaction couldn't be sent, to not leave a gap
+   * preventing the next transactions from being mined
+   *
+   * @param nonce allocated nonce
+   */
+  public synchronized void releaseNonce(BigInteger nonce) {
+    if (nextNonce != null && nonce.compareTo(nextNonce) < 0) {
+      releasedNonces.add(nonce);
+    }
+  }
+
+  /**
+   * Synchronizes the local nonce with the blockchain, to use when a
+   * transaction is rejected because its nonce is already used
+   *
+   * @throws IOException when an error occurs while retrieving the latest mined
+   *           nonce from blockchain
+   */
+  public synchronized void synchronizeNonce() throws IOException {
+    BigInteger minedNonce = getTransactionCount(DefaultBlockParameterName.LATEST);
+    releasedNonces.removeIf(nonce -> nonce.compareTo(minedNonce) < 0);
+    if (nextNonce == null || nextNonce.compareTo(minedNonce) < 0) {
+      nextNonce = minedNonce;
+    }
+  }
+
+  /**
+   * Synchronizes the local nonce with the pending transactions count of the
+   * wallet, to use when a sent transaction was dropped from the mempool. The
+   * nonces between the pending transactions count and the next nonce which
+   * aren't used by in-flight transactions are released to fill the gap that
+   * prevents the next transactions from being mined.
+   *
+   * @param inFlightNonces nonces of the transactions sent and not mined yet
+   * @throws IOException when an error occurs while retrieving the pending
+   *           transactions count from blockchain
+   */
+  public synchronized void synchronizePendingNonce(Collection<BigInteger> inFlightNonces) throws IOException {
+    BigInteger pendingNonce = getTransactionCount(DefaultBlockParameterName.PENDING);
+    releasedNonces.removeIf(nonce -> nonce.compareTo(pendingNonce) < 0);
+    if (nextNonce == null || nextNonce.compareTo(pendingNonce) < 0) {
+      nextNonce = pendingNonce;
+    } else {
+      for (BigInteger nonce = pendingNonce; nonce.compareTo(nextNonce) < 0; nonce = nonce.add(BigInteger.ONE)) {
+        if (!inFlightNonces.contains(nonce)) {
+          releasedNonces.add(nonce);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a transaction using a designated nonce, allowing to replace a
+   * pending transaction by using a higher gas price
+   *
+   * @param nonce transaction nonce
+   * @param gasPrice gas price
+   * @param gasLimit gas limit
+   * @param to contract address
+   * @param data encoded function call
+   * @return {@link EthSendTransaction}
+   * @throws IOException when an error occurs while sending the transaction
+   */
+  public EthSendTransaction sendTransaction(BigInteger nonce,
+                                            BigInteger gasPrice,
+                                            BigInteger gasLimit,
+                                            String to,
+                                            String data) throws IOException {
+    // The nonce is released by the caller, which may be a replacement
+    return super.signAndSend(RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, BigInteger.ZERO, data));
+  }
+
+  private BigInteger getTransactionCount(DefaultBlockParameterName blockParameter) throws IOException {
+    EthGetTransactionCount ethGetTransactionCount = web3j.ethGetTransactionCount(this.getFromAddress(), blockParameter)
+                                                         .send();
 
     return ethGetTransactionCount.getTransactionCount();
   }
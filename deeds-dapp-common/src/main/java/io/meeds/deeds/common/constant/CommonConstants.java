@@ -31,6 +31,8 @@ public class CommonConstants {
 
   public static final String DEED_OWNERSHIP_TRANSFERRED_BLOCKCHAIN_EVENT = "deed.event.transferOwnershipFromBlockchain";
 
+  public static final String DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT   = "deed.event.rentingTransactionFromBlockchain";
+
   public static final String DEED_TENANT_OWNERSHIP_TRANSFERRED_EVENT     = "deed.event.transferOwnershipFromDeedTenant";
 
   public static final String DEED_EMAIL_CODE_CONFIRMATION_TEMPLATE       = "EMAIL_CONFIRMATION_CODE";
@@ -43,6 +45,8 @@ public class CommonConstants {
 
   public static final String DEED_EVENT_TENANT_EMAIL_UPDATED             = "deed.event.tenantEmailUpdated";
 
+  public static final String TENANT_STATUS_UPDATED_EVENT                 = "deed.event.tenantStatusUpdated";
+
   public static final String CODE_VERIFICATION_HTTP_HEADER               = "X-AUTHORIZATION";
 
   public static final String CODE_REFRESH_HTTP_HEADER                    = "X-REFRESH";
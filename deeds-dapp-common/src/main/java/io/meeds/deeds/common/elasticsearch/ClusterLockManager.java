@@ -0,0 +1,221 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Component;
+
+import io.meeds.deeds.common.elasticsearch.model.ClusterLockEntity;
+
+import lombok.Getter;
+
+/**
+ * Locks shared by the nodes of the cluster, stored as Elasticsearch documents
+ * created using 'op_type=create' so that a single node succeeds to create a
+ * lock document. An expired lock, left by a stopped node, is taken over using
+ * the document sequence number so that a single node takes it over too.
+ */
+@Component
+public class ClusterLockManager {
+
+  private static final Logger LOG             = LoggerFactory.getLogger(ClusterLockManager.class);
+
+  private static final int    CONFLICT_STATUS = 409;
+
+  @Value("${meeds.elasticsearch.lock.pollingMillis:2000}")
+  private long                pollingMillis;
+
+  /**
+   * Unique identifier of the current node used as owner of its locks
+   */
+  @Getter
+  private final String        owner           = UUID.randomUUID().toString();
+
+  private volatile boolean    indexCreated;
+
+  /**
+   * Acquires a lock if not already held by another node. When the current
+   * node already holds the lock, its expiry is extended.
+   *
+   * @param elasticsearchOperations {@link ElasticsearchOperations}
+   * @param name lock name
+   * @param ttl duration after which the lock can be taken over by another
+   *          node if not released
+   * @return true if the lock was acquired, else false
+   */
+  public boolean tryLock(ElasticsearchOperations elasticsearchOperations, String name, Duration ttl) {
+    return acquire(elasticsearchOperations, name, ttl, true);
+  }
+
+  /**
+   * Waits until a lock is acquired, see
+   * {@link #tryLock(ElasticsearchOperations, String, Duration)}
+   *
+   * @param elasticsearchOperations {@link ElasticsearchOperations}
+   * @param name lock name
+   * @param ttl duration after which the lock can be taken over by another
+   *          node if not released
+   * @param maxWait maximum duration to wait for the lock
+   * @return true if the lock was acquired, false if not acquired after
+   *         maxWait
+   */
+  public boolean lock(ElasticsearchOperations elasticsearchOperations, String name, Duration ttl, Duration maxWait) {
+    long timeout = System.currentTimeMillis() + maxWait.toMillis();
+    while (!tryLock(elasticsearchOperations, name, ttl)) {
+      if (System.currentTimeMillis() >= timeout) {
+        return false;
+      }
+      try {
+        Thread.sleep(pollingMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Claims a key for the current node only once in the cluster. Unlike
+   * {@link #tryLock(ElasticsearchOperations, String, Duration)}, a second
+   * claim made by the same node fails too, which allows to process an event
+   * received by all the nodes by a single one.
+   *
+   * @param elasticsearchOperations {@link ElasticsearchOperations}
+   * @param key claimed key
+   * @param ttl duration during which the key can't be claimed again
+   * @return true if the key was claimed by the current node, else false
+   */
+  public boolean claim(ElasticsearchOperations elasticsearchOperations, String key, Duration ttl) {
+    return acquire(elasticsearchOperations, key, ttl, false);
+  }
+
+  /**
+   * Releases a lock if held by the current node
+   *
+   * @param elasticsearchOperations {@link ElasticsearchOperations}
+   * @param name lock name
+   */
+  public void unlock(ElasticsearchOperations elasticsearchOperations, String name) {
+    ClusterLockEntity lock = elasticsearchOperations.get(name, ClusterLockEntity.class);
+    if (lock != null && StringUtils.equals(owner, lock.getOwner())) {
+      elasticsearchOperations.delete(name, ClusterLockEntity.class);
+    }
+  }
+
+  /**
+   * Deletes the expired locks and claims
+   *
+   * @param elasticsearchOperations {@link ElasticsearchOperations}
+   */
+  public void deleteExpiredLocks(ElasticsearchOperations elasticsearchOperations) {
+    if (!elasticsearchOperations.indexOps(ClusterLockEntity.class).exists()) {
+      return;
+    }
+    elasticsearchOperations.delete(new CriteriaQuery(new Criteria("expiryDate").lessThan(Instant.now())),
+                                   ClusterLockEntity.class);
+  }
+
+  private boolean acquire(ElasticsearchOperations elasticsearchOperations,
+                          String name,
+                          Duration ttl,
+                          boolean reentrant) {
+    createIndexIfNeeded(elasticsearchOperations);
+    Instant now = Instant.now();
+    ClusterLockEntity lock = new ClusterLockEntity(name, owner, now, now.plus(ttl), null);
+    try {
+      IndexQuery indexQuery = new IndexQueryBuilder().withId(name)
+                                                     .withObject(lock)
+                                                     .withOpType(IndexQuery.OpType.CREATE)
+                                                     .build();
+      elasticsearchOperations.index(indexQuery, elasticsearchOperations.getIndexCoordinatesFor(ClusterLockEntity.class));
+      return true;
+    } catch (RuntimeException e) {
+      if (!isConflict(e)) {
+        throw e;
+      }
+    }
+
+    ClusterLockEntity existingLock = elasticsearchOperations.get(name, ClusterLockEntity.class);
+    if (existingLock == null) {
+      // Released in the meantime, will be acquired on next attempt
+      return false;
+    }
+    boolean owned = reentrant && StringUtils.equals(owner, existingLock.getOwner());
+    boolean expired = existingLock.getExpiryDate() == null || existingLock.getExpiryDate().isBefore(now);
+    if (!owned && !expired) {
+      return false;
+    }
+    if (!owned) {
+      LOG.info("Take over expired lock {} of node {}", name, existingLock.getOwner());
+    }
+    existingLock.setOwner(owner);
+    existingLock.setLockedDate(now);
+    existingLock.setExpiryDate(now.plus(ttl));
+    try {
+      // Saved with the read sequence number, thus fails if modified meanwhile
+      elasticsearchOperations.save(existingLock);
+      return true;
+    } catch (RuntimeException e) {
+      if (isConflict(e)) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void createIndexIfNeeded(ElasticsearchOperations elasticsearchOperations) {
+    if (indexCreated) {
+      return;
+    }
+    IndexOperations indexOperations = elasticsearchOperations.indexOps(ClusterLockEntity.class);
+    try {
+      if (!indexOperations.exists()) {
+        indexOperations.createWithMapping();
+      }
+    } catch (RuntimeException e) {
+      if (!indexOperations.exists()) {
+        throw e;
+      }
+      // Created by another node in the meantime
+    }
+    indexCreated = true;
+  }
+
+  private boolean isConflict(RuntimeException e) {
+    return e instanceof DataIntegrityViolationException
+        || e instanceof OptimisticLockingFailureException
+        || (e instanceof UncategorizedElasticsearchException elasticsearchException
+            && Integer.valueOf(CONFLICT_STATUS).equals(elasticsearchException.getStatusCode()));
+  }
+
+}
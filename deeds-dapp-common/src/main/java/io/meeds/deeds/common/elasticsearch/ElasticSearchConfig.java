@@ -16,15 +16,25 @@
 package io.meeds.deeds.common.elasticsearch;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.elasticsearch.client.ClientConfiguration;
 import org.springframework.data.elasticsearch.client.ClientConfiguration.ClientConfigurationBuilderWithRequiredEndpoint;
 import org.springframework.data.elasticsearch.client.ClientConfiguration.MaybeSecureClientConfigurationBuilder;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchClients.ElasticsearchHttpClientConfigurationCallback;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchClients.ElasticsearchRestClientConfigurationCallback;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchConfiguration;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
@@ -37,25 +47,68 @@ import co.elastic.clients.elasticsearch.ElasticsearchClient;
 @Configuration
 public class ElasticSearchConfig extends ElasticsearchConfiguration {
 
-  private static final Logger LOG = LoggerFactory.getLogger(ElasticSearchConfig.class);
+  private static final Logger        LOG = LoggerFactory.getLogger(ElasticSearchConfig.class);
 
   @Value("${meeds.elasticsearch.username:}")
-  private String              esUsername;
+  private String                     esUsername;
 
   @Value("${meeds.elasticsearch.password:}")
-  private String              esPassword;
+  private String                     esPassword;
 
   @Value("${meeds.elasticsearch.url:http://127.0.0.1:9200}")
-  private String              esUrl;
+  private String                     esUrl;
 
   @Value("${meeds.elasticsearch.socketTimeout:20}")
-  private int                 socketTimeout;
+  private int                        socketTimeout;
 
   @Value("${meeds.elasticsearch.connectTimeout:20}")
-  private int                 connectionTimeout;
+  private int                        connectionTimeout;
 
   @Value("${meeds.elasticsearch.connectionRetry:60}")
-  private int                 connectionRetry;
+  private int                        connectionRetry;
+
+  @Autowired(required = false)
+  private IndexLifecycleManager      indexLifecycleManager;
+
+  @Autowired(required = false)
+  private ElasticsearchClientMetrics clientMetrics;
+
+  @Value("${meeds.elasticsearch.pool.maxConnectionsPerRoute:20}")
+  private int                        maxConnectionsPerRoute;
+
+  @Value("${meeds.elasticsearch.pool.maxConnections:50}")
+  private int                        maxConnections;
+
+  /**
+   * Maximum duration to keep an idle connection alive, when the server
+   * doesn't define a shorter one
+   */
+  @Value("${meeds.elasticsearch.pool.keepAliveSeconds:60}")
+  private int                        keepAliveSeconds;
+
+  @Value("${meeds.elasticsearch.compression:true}")
+  private boolean                    compression;
+
+  /**
+   * Default refresh policy, which waits for the next periodic refresh rather
+   * than forcing one on each write, like for settings, events
+   * acknowledgements, claimable amounts and report scores
+   */
+  @Value("${meeds.elasticsearch.refresh.defaultPolicy:WAIT_UNTIL}")
+  private RefreshPolicy              defaultRefreshPolicy;
+
+  /**
+   * Refresh policy per index, which takes precedence over the default one:
+   * <ul>
+   * <li>Offers, leases and tenants are searched by the UI just after being
+   * saved, thus keep IMMEDIATE to get read-your-write semantics</li>
+   * <li>Token metrics and exchange rates are written by periodic jobs which
+   * read them back by identifier only, which is realtime, thus don't need a
+   * refresh</li>
+   * </ul>
+   */
+  @Value("${meeds.elasticsearch.refresh.indexPolicies:deed_tenant_offer:IMMEDIATE,deed_tenant_lease:IMMEDIATE,deed_tenant_manager:IMMEDIATE,meed_token_metrics:NONE,meed_exchange_rate:NONE,currency_exchange_rate:NONE}")
+  private String                     indexRefreshPolicies;
 
   @Override
   public ClientConfiguration clientConfiguration() {
@@ -70,18 +123,61 @@ public class ElasticSearchConfig extends ElasticsearchConfiguration {
     }
     connectionBuilder.withConnectTimeout(Duration.ofSeconds(connectionTimeout));
     connectionBuilder.withSocketTimeout(Duration.ofSeconds(socketTimeout));
+    connectionBuilder.withClientConfigurer(ElasticsearchHttpClientConfigurationCallback.from(this::configureHttpClient));
+    connectionBuilder.withClientConfigurer(ElasticsearchRestClientConfigurationCallback.from(restClientBuilder -> restClientBuilder.setCompressionEnabled(compression)));
     return connectionBuilder.build();
   }
 
   @Override
   public ElasticsearchOperations elasticsearchOperations(ElasticsearchConverter elasticsearchConverter,
                                                          ElasticsearchClient elasticsearchClient) {
-    ElasticsearchTemplate elasticsearchTemplate = new ElasticsearchTemplate(elasticsearchClient, elasticsearchConverter);
-    elasticsearchTemplate.setRefreshPolicy(RefreshPolicy.IMMEDIATE);
+    ElasticsearchTemplate elasticsearchTemplate = new RefreshPolicyElasticsearchTemplate(elasticsearchClient,
+                                                                                         elasticsearchConverter,
+                                                                                         defaultRefreshPolicy,
+                                                                                         getIndexRefreshPolicies());
     tryConnection(elasticsearchTemplate);
+    if (indexLifecycleManager != null) {
+      // Made before repositories creation, which creates missing indices
+      indexLifecycleManager.initialize(elasticsearchTemplate);
+    }
     return elasticsearchTemplate;
   }
 
+  private HttpAsyncClientBuilder configureHttpClient(HttpAsyncClientBuilder httpClientBuilder) {
+    httpClientBuilder.setMaxConnPerRoute(maxConnectionsPerRoute);
+    httpClientBuilder.setMaxConnTotal(maxConnections);
+    long keepAliveMillis = keepAliveSeconds * 1000l;
+    httpClientBuilder.setKeepAliveStrategy((response, context) -> {
+      long serverKeepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+      return serverKeepAliveMillis > 0 ? Math.min(serverKeepAliveMillis, keepAliveMillis) : keepAliveMillis;
+    });
+    // Timeouts are redefined since the IO Reactor configuration is replaced
+    httpClientBuilder.setDefaultIOReactorConfig(IOReactorConfig.custom()
+                                                               .setConnectTimeout(connectionTimeout * 1000)
+                                                               .setSoTimeout(socketTimeout * 1000)
+                                                               .setSoKeepAlive(true)
+                                                               .build());
+    if (clientMetrics != null) {
+      clientMetrics.setMaxConnections(Math.min(maxConnectionsPerRoute, maxConnections));
+      clientMetrics.setRequestTimeoutMillis((connectionTimeout + socketTimeout) * 1000l);
+      httpClientBuilder.addInterceptorLast((HttpRequestInterceptor) clientMetrics);
+      httpClientBuilder.addInterceptorLast((HttpResponseInterceptor) clientMetrics);
+    }
+    return httpClientBuilder;
+  }
+
+  private Map<String, RefreshPolicy> getIndexRefreshPolicies() {
+    Map<String, RefreshPolicy> refreshPolicies = new HashMap<>();
+    for (String indexRefreshPolicy : StringUtils.split(StringUtils.defaultString(indexRefreshPolicies), ",")) {
+      String indexName = StringUtils.substringBefore(indexRefreshPolicy, ":").trim();
+      String refreshPolicy = StringUtils.substringAfter(indexRefreshPolicy, ":").trim();
+      if (StringUtils.isNotBlank(indexName) && StringUtils.isNotBlank(refreshPolicy)) {
+        refreshPolicies.put(indexName, RefreshPolicy.valueOf(refreshPolicy));
+      }
+    }
+    return refreshPolicies;
+  }
+
   private void tryConnection(ElasticsearchOperations elasticsearchOperations) {
     int i = connectionRetry;
     while (i-- > 0) {
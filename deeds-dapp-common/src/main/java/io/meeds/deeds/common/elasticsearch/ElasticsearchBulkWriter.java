@@ -0,0 +1,232 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Buffers Elasticsearch index, update and delete operations of a request or
+ * a job to send them using bulk requests instead of one request per entity.
+ * Usage:
+ *
+ * <pre>
+ * try (BulkWriteBatch batch = bulkWriter.newBatch()) {
+ *   entities.forEach(batch::index);
+ * }
+ * </pre>
+ *
+ * The buffered operations are flushed when the configured size is reached,
+ * when the oldest buffered operation exceeds the configured delay, or when the
+ * batch is closed. Partial failures are collected in the batch
+ * {@link BulkWriteResult} rather than interrupting the whole job.
+ */
+@Component
+public class ElasticsearchBulkWriter {
+
+  private static final Logger     LOG              = LoggerFactory.getLogger(ElasticsearchBulkWriter.class);
+
+  @Autowired
+  private ElasticsearchOperations elasticsearchOperations;
+
+  @Value("${meeds.elasticsearch.bulk.maxOperations:500}")
+  private int                     maxOperations;
+
+  @Value("${meeds.elasticsearch.bulk.maxDelayMillis:1000}")
+  private long                    maxDelayMillis;
+
+  @Getter
+  private final AtomicLong        bulkRequestCount = new AtomicLong();
+
+  public BulkWriteBatch newBatch() {
+    return new BulkWriteBatch();
+  }
+
+  public class BulkWriteBatch implements AutoCloseable {
+
+    private final Map<IndexCoordinates, List<IndexQuery>>  indexQueries  = new LinkedHashMap<>();
+
+    private final Map<IndexCoordinates, List<UpdateQuery>> updateQueries = new LinkedHashMap<>();
+
+    private final Map<Class<?>, Set<String>>               deletedIds    = new LinkedHashMap<>();
+
+    @Getter
+    private final BulkWriteResult                          result        = new BulkWriteResult();
+
+    private int                                            bufferedCount;
+
+    private long                                           firstBufferedTime;
+
+    private BulkWriteBatch() {
+    }
+
+    /**
+     * Buffers the creation or the replacement of an entity. The entity
+     * identifier has to be set before, since the operation is sent later.
+     *
+     * @param entity Elasticsearch document entity
+     */
+    public void index(Object entity) {
+      IndexCoordinates index = elasticsearchOperations.getIndexCoordinatesFor(entity.getClass());
+      IndexQuery indexQuery = new IndexQueryBuilder().withId(elasticsearchOperations.getEntityId(entity))
+                                                     .withObject(entity)
+                                                     .build();
+      indexQueries.computeIfAbsent(index, key -> new ArrayList<>()).add(indexQuery);
+      buffered();
+    }
+
+    /**
+     * Buffers a partial update of an entity
+     *
+     * @param updateQuery {@link UpdateQuery}
+     * @param entityClass Elasticsearch document class
+     */
+    public void update(UpdateQuery updateQuery, Class<?> entityClass) {
+      IndexCoordinates index = elasticsearchOperations.getIndexCoordinatesFor(entityClass);
+      updateQueries.computeIfAbsent(index, key -> new ArrayList<>()).add(updateQuery);
+      buffered();
+    }
+
+    /**
+     * Buffers the deletion of an entity
+     *
+     * @param id entity identifier
+     * @param entityClass Elasticsearch document class
+     */
+    public void delete(String id, Class<?> entityClass) {
+      deletedIds.computeIfAbsent(entityClass, key -> new LinkedHashSet<>()).add(id);
+      buffered();
+    }
+
+    /**
+     * Sends all buffered operations
+     *
+     * @return {@link BulkWriteResult} of all operations sent by this batch
+     */
+    public BulkWriteResult flush() {
+      indexQueries.forEach(this::flushIndexQueries);
+      updateQueries.forEach(this::flushUpdateQueries);
+      deletedIds.forEach(this::flushDeletes);
+      indexQueries.clear();
+      updateQueries.clear();
+      deletedIds.clear();
+      bufferedCount = 0;
+      firstBufferedTime = 0;
+      return result;
+    }
+
+    @Override
+    public void close() {
+      flush();
+      if (result.hasFailures()) {
+        LOG.warn("{} bulk operations over {} failed for documents {}",
+                 result.getFailedIds().size(),
+                 result.getSuccessCount() + result.getFailedIds().size(),
+                 result.getFailedIds());
+      }
+    }
+
+    private void buffered() {
+      if (bufferedCount++ == 0) {
+        firstBufferedTime = System.currentTimeMillis();
+      }
+      if (bufferedCount >= maxOperations || (System.currentTimeMillis() - firstBufferedTime) >= maxDelayMillis) {
+        flush();
+      }
+    }
+
+    private void flushIndexQueries(IndexCoordinates index, List<IndexQuery> queries) {
+      if (queries.isEmpty()) {
+        return;
+      }
+      execute(queries.stream().map(IndexQuery::getId).toList(),
+              () -> elasticsearchOperations.bulkIndex(queries, index));
+    }
+
+    private void flushUpdateQueries(IndexCoordinates index, List<UpdateQuery> queries) {
+      if (queries.isEmpty()) {
+        return;
+      }
+      execute(queries.stream().map(UpdateQuery::getId).toList(),
+              () -> elasticsearchOperations.bulkUpdate(queries, index));
+    }
+
+    private void flushDeletes(Class<?> entityClass, Set<String> ids) {
+      if (ids.isEmpty()) {
+        return;
+      }
+      CriteriaQuery query = CriteriaQuery.builder(new Criteria()).withIds(ids).build();
+      execute(ids, () -> elasticsearchOperations.delete(query, entityClass));
+    }
+
+    private void execute(Collection<String> ids, Runnable bulkRequest) {
+      bulkRequestCount.incrementAndGet();
+      try {
+        bulkRequest.run();
+        result.successCount += ids.size();
+      } catch (BulkFailureException e) {
+        Set<String> failedIds = e.getFailedDocuments().keySet();
+        result.failedIds.addAll(failedIds);
+        result.successCount += ids.size() - failedIds.size();
+      } catch (RuntimeException e) {
+        LOG.warn("Error while sending a bulk request of {} operations", ids.size(), e);
+        result.failedIds.addAll(ids);
+      }
+    }
+
+  }
+
+  public static class BulkWriteResult {
+
+    @Getter
+    private long              successCount;
+
+    private final Set<String> failedIds = new LinkedHashSet<>();
+
+    public boolean hasFailures() {
+      return !failedIds.isEmpty();
+    }
+
+    public Set<String> getFailedIds() {
+      return Collections.unmodifiableSet(failedIds);
+    }
+
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Collects the Elasticsearch HTTP client metrics, using request and response
+ * interceptors added to the HTTP client:
+ * <ul>
+ * <li>Requests, server errors and latency, measured from the request sending
+ * on a leased connection until its response</li>
+ * <li>In-flight requests compared to the connections count allowed to the
+ * Elasticsearch node, allowing to detect the pool saturation when all
+ * connections are used</li>
+ * </ul>
+ * A request which never gets a response, because of a connection or a socket
+ * timeout, isn't considered as in-flight anymore once the request timeout is
+ * exceeded.
+ */
+@Component
+public class ElasticsearchClientMetrics implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+  private final Map<HttpContext, Long> inFlightRequests     = new ConcurrentHashMap<>();
+
+  @Getter
+  private final AtomicLong             requestCount         = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             responseCount        = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             errorCount           = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             saturationCount      = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             totalLatencyMillis   = new AtomicLong();
+
+  @Getter
+  private final AtomicLong             maxLatencyMillis     = new AtomicLong();
+
+  @Getter
+  @Setter
+  private int                          maxConnections       = 30;
+
+  @Setter
+  private long                         requestTimeoutMillis = 40000;
+
+  @Override
+  public void process(HttpRequest request, HttpContext context) {
+    long now = System.currentTimeMillis();
+    inFlightRequests.values().removeIf(startTime -> (now - startTime) > requestTimeoutMillis);
+    inFlightRequests.put(context, now);
+    requestCount.incrementAndGet();
+    if (inFlightRequests.size() >= maxConnections) {
+      saturationCount.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void process(HttpResponse response, HttpContext context) {
+    Long startTime = inFlightRequests.remove(context);
+    responseCount.incrementAndGet();
+    if (startTime != null) {
+      long latency = System.currentTimeMillis() - startTime;
+      totalLatencyMillis.addAndGet(latency);
+      maxLatencyMillis.accumulateAndGet(latency, Math::max);
+    }
+    if (response.getStatusLine() != null && response.getStatusLine().getStatusCode() >= 500) {
+      errorCount.incrementAndGet();
+    }
+  }
+
+  public int getInFlightRequests() {
+    return inFlightRequests.size();
+  }
+
+  /**
+   * @return in-flight requests ratio of the connections count, a value of 1
+   *         meaning that the next requests will wait for a connection
+   */
+  public double getPoolUsage() {
+    return maxConnections == 0 ? 0 : (double) getInFlightRequests() / maxConnections;
+  }
+
+  public long getAverageLatencyMillis() {
+    long count = responseCount.get();
+    return count == 0 ? 0 : totalLatencyMillis.get() / count;
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.IndexInformation;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Component;
+
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantEvent;
+import io.meeds.deeds.common.elasticsearch.storage.DeedTenantEventRepository;
+
+/**
+ * Stores {@link DeedTenantEvent} in time partitioned indices, one per day or
+ * per week, named 'deed_tenant_events-yyyy.MM.dd' using the partition start
+ * date. This allows to:
+ * <ul>
+ * <li>Scan only the partitions that can contain not consumed events</li>
+ * <li>Apply retention by dropping whole indices instead of a delete by
+ * query</li>
+ * </ul>
+ * The events index used before partitioning is still read and cleaned up
+ * until it gets empty.
+ */
+@Component
+public class EventIndexPartitioner {
+
+  public static final String             LEGACY_INDEX_NAME       = "deed_tenant_events";
+
+  public static final String             PARTITION_PREFIX        = LEGACY_INDEX_NAME + "-";
+
+  private static final DateTimeFormatter PARTITION_DATE_FORMAT   = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+  private static final int               MAX_EXPLICIT_PARTITIONS = 31;
+
+  private static final Logger            LOG                     = LoggerFactory.getLogger(EventIndexPartitioner.class);
+
+  @Autowired(required = false)
+  private ElasticsearchOperations        elasticsearchOperations;
+
+  @Autowired(required = false)
+  private DeedTenantEventRepository      deedTenantEventRepository;
+
+  @Autowired(required = false)
+  private IndexLifecycleManager          indexLifecycleManager;
+
+  @Value("${meeds.elasticsearch.listener.events.partitioned:true}")
+  private boolean                        partitioned;
+
+  @Value("${meeds.elasticsearch.listener.events.partitionPeriod:DAYS}")
+  private ChronoUnit                     partitionPeriod;
+
+  private final Set<String>              existingPartitions      = ConcurrentHashMap.newKeySet();
+
+  public boolean isEnabled() {
+    return partitioned && elasticsearchOperations != null;
+  }
+
+  /**
+   * Persists the event in the partition of its date, after creating the
+   * partition index with {@link DeedTenantEvent} mapping if needed
+   *
+   * @param event {@link DeedTenantEvent} with a date
+   * @return saved {@link DeedTenantEvent} with its generated identifier
+   */
+  public DeedTenantEvent save(DeedTenantEvent event) {
+    String partition = getPartitionName(event.getDate());
+    createPartitionIfNotExists(partition);
+    return elasticsearchOperations.save(event, IndexCoordinates.of(partition));
+  }
+
+  /**
+   * @param fromDate oldest date of events to read
+   * @return {@link IndexCoordinates} of partitions which may contain events
+   *         starting from designated date, including the legacy index
+   */
+  public IndexCoordinates getReadIndexCoordinates(Instant fromDate) {
+    LocalDate partitionStart = getPartitionStart(fromDate);
+    LocalDate lastPartitionStart = getPartitionStart(Instant.now());
+    if (partitionStart.plus(MAX_EXPLICIT_PARTITIONS, partitionPeriod).isBefore(lastPartitionStart)) {
+      return IndexCoordinates.of(LEGACY_INDEX_NAME, PARTITION_PREFIX + "*");
+    }
+    List<String> indexNames = new ArrayList<>();
+    indexNames.add(LEGACY_INDEX_NAME);
+    while (!partitionStart.isAfter(lastPartitionStart)) {
+      indexNames.add(PARTITION_PREFIX + PARTITION_DATE_FORMAT.format(partitionStart));
+      partitionStart = partitionStart.plus(1, partitionPeriod);
+    }
+    return IndexCoordinates.of(indexNames.toArray(new String[0]));
+  }
+
+  /**
+   * Drops the partitions which all events are older than the designated date
+   * and deletes the old events of the legacy index
+   *
+   * @param date retention limit date
+   */
+  public void deleteBefore(Instant date) {
+    LocalDate limitDate = LocalDate.ofInstant(date, ZoneOffset.UTC);
+    List<IndexInformation> partitions = elasticsearchOperations.indexOps(IndexCoordinates.of(PARTITION_PREFIX + "*"))
+                                                               .getInformation();
+    partitions.stream()
+              .map(IndexInformation::getName)
+              .filter(partition -> {
+                LocalDate partitionStart = parsePartitionStart(partition);
+                return partitionStart != null && !partitionStart.plus(1, partitionPeriod).isAfter(limitDate);
+              })
+              .forEach(partition -> {
+                LOG.info("Drop events partition {} older than {}", partition, date);
+                elasticsearchOperations.indexOps(IndexCoordinates.of(partition)).delete();
+                existingPartitions.remove(partition);
+              });
+    if (deedTenantEventRepository != null) {
+      deedTenantEventRepository.deleteByDateLessThan(date);
+    }
+  }
+
+  private void createPartitionIfNotExists(String partition) {
+    if (existingPartitions.contains(partition)) {
+      return;
+    }
+    IndexOperations indexOperations = elasticsearchOperations.indexOps(IndexCoordinates.of(partition));
+    if (!indexOperations.exists()) {
+      try {
+        Settings settings = indexLifecycleManager == null ? indexOperations.createSettings(DeedTenantEvent.class) :
+                                                          indexLifecycleManager.getIndexSettings(indexOperations,
+                                                                                                 DeedTenantEvent.class);
+        indexOperations.create(settings,
+                               indexOperations.createMapping(DeedTenantEvent.class));
+      } catch (RuntimeException e) {
+        // The index may have been created by another node meanwhile
+        if (!indexOperations.exists()) {
+          throw e;
+        }
+      }
+    }
+    existingPartitions.add(partition);
+  }
+
+  private String getPartitionName(Instant date) {
+    return PARTITION_PREFIX + PARTITION_DATE_FORMAT.format(getPartitionStart(date));
+  }
+
+  private LocalDate getPartitionStart(Instant date) {
+    LocalDate day = LocalDate.ofInstant(date, ZoneOffset.UTC);
+    return partitionPeriod == ChronoUnit.WEEKS ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+  }
+
+  private LocalDate parsePartitionStart(String partition) {
+    try {
+      return LocalDate.parse(StringUtils.removeStart(partition, PARTITION_PREFIX), PARTITION_DATE_FORMAT);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+}
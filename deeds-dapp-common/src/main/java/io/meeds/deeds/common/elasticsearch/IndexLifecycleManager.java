@@ -0,0 +1,670 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.IndexInformation;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.CriteriaQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.reindex.ReindexRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+
+/**
+ * Manages the indices of Elasticsearch entities behind aliases:
+ * <ul>
+ * <li>The entity index name is used as an alias pointing to a versioned index
+ * named 'indexName_vN'</li>
+ * <li>Shards, replicas and refresh interval are read from configuration, using
+ * 'meeds.elasticsearch.index.default.*' properties which can be overridden per
+ * index using 'meeds.elasticsearch.index.indexName.*' properties</li>
+ * <li>A hash of the mapping and of the static settings is stored in the index
+ * mapping metadata. When it changes, a new index version is created and
+ * filled in background using a reindex, then the alias is switched to it
+ * while the previous version keeps serving requests until then</li>
+ * <li>An index created before this lifecycle management is moved once behind
+ * an alias at startup, before the repositories are used</li>
+ * <li>Indices are managed by a single node at a time, holding a cluster lock
+ * until the end of background migrations</li>
+ * <li>An existing index holding documents is never deleted, unless all its
+ * documents were copied in its new version</li>
+ * </ul>
+ */
+@Component
+public class IndexLifecycleManager {
+
+  public static final String       VERSION_SUFFIX   = "_v";
+
+  public static final String       LOCK_NAME        = "index-lifecycle";
+
+  private static final Logger      LOG              = LoggerFactory.getLogger(IndexLifecycleManager.class);
+
+  private static final Pattern     VERSION_PATTERN  = Pattern.compile(VERSION_SUFFIX + "(\\d+)$");
+
+  private static final String      META_KEY         = "_meta";
+
+  private static final String      MAPPING_HASH_KEY = "mappingHash";
+
+  private static final String      PROPERTY_PREFIX  = "meeds.elasticsearch.index.";
+
+  private static final String      SHARDS_KEY       = "index.number_of_shards";
+
+  private static final String      REPLICAS_KEY     = "index.number_of_replicas";
+
+  private static final String      AUTO_EXPAND_KEY  = "index.auto_expand_replicas";
+
+  private static final String      REFRESH_KEY      = "index.refresh_interval";
+
+  private static final int         ID_BATCH_SIZE    = 1000;
+
+  /**
+   * Settings which can be changed on an existing index without reindexing
+   */
+  private static final Set<String> DYNAMIC_SETTINGS = Set.of(REPLICAS_KEY,
+                                                             AUTO_EXPAND_KEY,
+                                                             REFRESH_KEY,
+                                                             "index.max_result_window");
+
+  @Autowired
+  private Environment              environment;
+
+  @Autowired(required = false)
+  private ClusterLockManager       clusterLockManager;
+
+  @Value("${meeds.elasticsearch.index.lifecycle.enabled:true}")
+  private boolean                  enabled;
+
+  @Value("${meeds.elasticsearch.index.lifecycle.basePackages:io.meeds}")
+  private String                   basePackages;
+
+  @Value("${meeds.elasticsearch.index.lifecycle.deleteOldVersions:false}")
+  private boolean                  deleteOldVersions;
+
+  @Value("${meeds.elasticsearch.index.lifecycle.taskPollingMillis:2000}")
+  private long                     taskPollingMillis;
+
+  /**
+   * Duration after which the lock of a node which stopped while managing
+   * indices can be taken over. The lock is extended while waiting for reindex
+   * tasks.
+   */
+  @Value("${meeds.elasticsearch.index.lifecycle.lockTtlSeconds:600}")
+  private long                     lockTtlSeconds;
+
+  @Value("${meeds.elasticsearch.index.lifecycle.lockWaitSeconds:300}")
+  private long                     lockWaitSeconds;
+
+  @Value("${meeds.elasticsearch.index.default.shards:1}")
+  private String                   defaultShards;
+
+  /**
+   * When not set, the replicas count is adjusted to the cluster size using
+   * 'auto_expand_replicas', which keeps a single node cluster green
+   */
+  @Value("${meeds.elasticsearch.index.default.replicas:}")
+  private String                   defaultReplicas;
+
+  @Value("${meeds.elasticsearch.index.default.autoExpandReplicas:0-1}")
+  private String                   defaultAutoExpandReplicas;
+
+  @Value("${meeds.elasticsearch.index.default.refreshInterval:1s}")
+  private String                   defaultRefreshInterval;
+
+  private ExecutorService          migrationExecutor;
+
+  @Getter
+  private final AtomicLong         migrationCount   = new AtomicLong();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Creates or migrates the indices of all Elasticsearch entities found in
+   * configured base packages. This has to be called before the repositories
+   * are created.
+   *
+   * @param elasticsearchOperations {@link ElasticsearchOperations}
+   */
+  public void initialize(ElasticsearchOperations elasticsearchOperations) {
+    if (!enabled) {
+      return;
+    }
+    if (!lock(elasticsearchOperations)) {
+      LOG.warn("Indices are managed by another node since more than {} seconds, skip their lifecycle management",
+               lockWaitSeconds);
+      return;
+    }
+    List<Runnable> migrations = new ArrayList<>();
+    try {
+      for (Class<?> entityClass : getEntityClasses()) {
+        try {
+          manageIndex(elasticsearchOperations, entityClass, migrations);
+        } catch (RuntimeException e) {
+          LOG.error("Error while managing index of entity {}", entityClass.getName(), e);
+        }
+      }
+    } finally {
+      if (migrations.isEmpty()) {
+        unlock(elasticsearchOperations);
+      } else {
+        // Keep the lock until the end of background migrations
+        getMigrationExecutor().execute(() -> {
+          try {
+            migrations.forEach(Runnable::run);
+          } finally {
+            unlock(elasticsearchOperations);
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * @param indexOperations {@link IndexOperations} of the index to create
+   * @param entityClass Elasticsearch entity class
+   * @return entity annotated settings with configured shards, replicas and
+   *         refresh interval of the entity index
+   */
+  public Settings getIndexSettings(IndexOperations indexOperations, Class<?> entityClass) {
+    String indexName = getAliasName(entityClass);
+    Settings settings = indexOperations.createSettings(entityClass).flatten();
+    settings.put(SHARDS_KEY, getIndexProperty(indexName, "shards", defaultShards));
+    String replicas = getIndexProperty(indexName, "replicas", defaultReplicas);
+    if (StringUtils.isBlank(replicas)) {
+      settings.remove(REPLICAS_KEY);
+      settings.put(AUTO_EXPAND_KEY, getIndexProperty(indexName, "autoExpandReplicas", defaultAutoExpandReplicas));
+    } else {
+      settings.put(REPLICAS_KEY, replicas);
+      settings.put(AUTO_EXPAND_KEY, "false");
+    }
+    settings.put(REFRESH_KEY, getIndexProperty(indexName, "refreshInterval", defaultRefreshInterval));
+    return settings;
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (migrationExecutor != null) {
+      migrationExecutor.shutdownNow();
+    }
+  }
+
+  private void manageIndex(ElasticsearchOperations elasticsearchOperations,
+                           Class<?> entityClass,
+                           List<Runnable> migrations) {
+    String alias = getAliasName(entityClass);
+    IndexOperations aliasOperations = elasticsearchOperations.indexOps(IndexCoordinates.of(alias));
+    Settings settings = getIndexSettings(aliasOperations, entityClass);
+    Document mapping = aliasOperations.createMapping(entityClass);
+    String mappingHash = computeMappingHash(settings, mapping);
+    mapping.put(META_KEY, Collections.singletonMap(MAPPING_HASH_KEY, mappingHash));
+
+    if (!aliasOperations.exists()) {
+      String index = alias + VERSION_SUFFIX + 1;
+      createIndex(elasticsearchOperations, entityClass, index, settings, mapping);
+      switchAlias(elasticsearchOperations, alias, null, index);
+      LOG.info("Index {} created behind alias {}", index, alias);
+      return;
+    }
+
+    List<IndexInformation> indices = aliasOperations.getInformation();
+    if (indices.size() != 1) {
+      LOG.warn("Alias {} points to {} indices, skip its lifecycle management",
+               alias,
+               indices.stream().map(IndexInformation::getName).toList());
+      return;
+    }
+    String currentIndex = indices.get(0).getName();
+    if (StringUtils.equals(currentIndex, alias)) {
+      migrateLegacyIndex(elasticsearchOperations, entityClass, alias, settings, mapping);
+    } else if (!StringUtils.equals(mappingHash, getMappingHash(indices.get(0)))) {
+      String newIndex = alias + VERSION_SUFFIX + (getVersion(currentIndex) + 1);
+      LOG.info("Mapping of index {} has changed, reindex it in {}", currentIndex, newIndex);
+      migrations.add(() -> migrateIndex(elasticsearchOperations,
+                                        entityClass,
+                                        alias,
+                                        currentIndex,
+                                        newIndex,
+                                        settings,
+                                        mapping));
+    } else {
+      updateDynamicSettings(elasticsearchOperations, currentIndex, settings);
+    }
+  }
+
+  /**
+   * Moves an index created without alias behind an alias. This is made
+   * synchronously since the alias can't be created while the index having the
+   * same name exists. Writes are blocked on the legacy index while it's copied,
+   * then it's deleted only when all its documents were copied.
+   */
+  private void migrateLegacyIndex(ElasticsearchOperations elasticsearchOperations,
+                                  Class<?> entityClass,
+                                  String alias,
+                                  Settings settings,
+                                  Document mapping) {
+    String newIndex = alias + VERSION_SUFFIX + 1;
+    LOG.info("Move index {} behind an alias, reindex it in {}", alias, newIndex);
+    createIndex(elasticsearchOperations, entityClass, newIndex, settings, mapping);
+    try {
+      setWriteBlock(elasticsearchOperations, alias, true);
+      reindex(elasticsearchOperations, entityClass, alias, newIndex);
+      replaceLegacyIndex(elasticsearchOperations, entityClass, alias, newIndex);
+    } catch (RuntimeException e) {
+      LOG.error("Error while reindexing {} in {}, keep using the existing index", alias, newIndex, e);
+      rollbackMigration(elasticsearchOperations, alias, newIndex);
+      return;
+    }
+    migrationCount.incrementAndGet();
+    LOG.info("Index {} moved behind alias {}", newIndex, alias);
+  }
+
+  /**
+   * Deletes the legacy index and creates the alias having its name in a single
+   * atomic operation, after checking that all its documents were copied
+   */
+  private void replaceLegacyIndex(ElasticsearchOperations elasticsearchOperations,
+                                  Class<?> entityClass,
+                                  String legacyIndex,
+                                  String newIndex) {
+    checkCount(elasticsearchOperations, entityClass, legacyIndex, newIndex);
+    AliasActions aliasActions = new AliasActions();
+    aliasActions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                                                                      .withIndices(legacyIndex)
+                                                                      .build()));
+    aliasActions.add(new AliasAction.Add(AliasActionParameters.builder()
+                                                              .withIndices(newIndex)
+                                                              .withAliases(legacyIndex)
+                                                              .build()));
+    elasticsearchOperations.indexOps(IndexCoordinates.of(newIndex)).alias(aliasActions);
+  }
+
+  /**
+   * Fills a new index version while the current one keeps serving reads and
+   * writes. Then writes are blocked on the current version during a second
+   * reindex pass, which copies the documents written during the first pass,
+   * the external versioning avoiding to copy again unchanged documents, and
+   * the documents deleted during the first pass are deleted from the new
+   * version. Once all documents copied, the alias is switched to the new
+   * version.
+   */
+  private void migrateIndex(ElasticsearchOperations elasticsearchOperations,
+                            Class<?> entityClass,
+                            String alias,
+                            String currentIndex,
+                            String newIndex,
+                            Settings settings,
+                            Document mapping) {
+    try {
+      createIndex(elasticsearchOperations, entityClass, newIndex, settings, mapping);
+    } catch (RuntimeException e) {
+      LOG.error("Error while creating index {}, keep using the current version {}", newIndex, currentIndex, e);
+      return;
+    }
+    try {
+      reindex(elasticsearchOperations, entityClass, currentIndex, newIndex);
+      setWriteBlock(elasticsearchOperations, currentIndex, true);
+      reindex(elasticsearchOperations, entityClass, currentIndex, newIndex);
+      deleteRemovedDocuments(elasticsearchOperations, entityClass, currentIndex, newIndex);
+      checkCount(elasticsearchOperations, entityClass, currentIndex, newIndex);
+      switchAlias(elasticsearchOperations, alias, currentIndex, newIndex);
+    } catch (RuntimeException e) {
+      LOG.error("Error while reindexing {} in {}, keep using the current version", currentIndex, newIndex, e);
+      rollbackMigration(elasticsearchOperations, currentIndex, newIndex);
+      return;
+    }
+    migrationCount.incrementAndGet();
+    LOG.info("Alias {} switched from {} to {}", alias, currentIndex, newIndex);
+    try {
+      if (deleteOldVersions) {
+        elasticsearchOperations.indexOps(IndexCoordinates.of(currentIndex)).delete();
+      } else {
+        setWriteBlock(elasticsearchOperations, currentIndex, false);
+      }
+    } catch (RuntimeException e) {
+      LOG.warn("Error while cleaning up previous index version {}", currentIndex, e);
+    }
+  }
+
+  private void rollbackMigration(ElasticsearchOperations elasticsearchOperations, String currentIndex, String newIndex) {
+    try {
+      setWriteBlock(elasticsearchOperations, currentIndex, false);
+    } catch (RuntimeException e) {
+      LOG.error("Error while enabling writes on index {} again", currentIndex, e);
+    }
+    try {
+      elasticsearchOperations.indexOps(IndexCoordinates.of(newIndex)).delete();
+    } catch (RuntimeException e) {
+      LOG.warn("Error while deleting index {}", newIndex, e);
+    }
+  }
+
+  /**
+   * Creates the designated index. An existing index with the same name, left
+   * by an interrupted migration, is replaced only when empty.
+   */
+  private void createIndex(ElasticsearchOperations elasticsearchOperations,
+                           Class<?> entityClass,
+                           String index,
+                           Settings settings,
+                           Document mapping) {
+    IndexOperations indexOperations = elasticsearchOperations.indexOps(IndexCoordinates.of(index));
+    if (indexOperations.exists()) {
+      long count = elasticsearchOperations.count(Query.findAll(), entityClass, IndexCoordinates.of(index));
+      if (count > 0) {
+        throw new IllegalStateException(String.format("Index %s already exists with %s documents, it must be checked and deleted manually",
+                                                      index,
+                                                      count));
+      }
+      indexOperations.delete();
+    }
+    indexOperations.create(settings, mapping);
+  }
+
+  private void switchAlias(ElasticsearchOperations elasticsearchOperations,
+                           String alias,
+                           String previousIndex,
+                           String newIndex) {
+    AliasActions aliasActions = new AliasActions();
+    if (previousIndex != null) {
+      aliasActions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                                                                   .withIndices(previousIndex)
+                                                                   .withAliases(alias)
+                                                                   .build()));
+    }
+    aliasActions.add(new AliasAction.Add(AliasActionParameters.builder()
+                                                              .withIndices(newIndex)
+                                                              .withAliases(alias)
+                                                              .build()));
+    elasticsearchOperations.indexOps(IndexCoordinates.of(newIndex)).alias(aliasActions);
+  }
+
+  private void reindex(ElasticsearchOperations elasticsearchOperations,
+                       Class<?> entityClass,
+                       String sourceIndex,
+                       String destIndex) {
+    ReindexRequest reindexRequest = ReindexRequest.builder(IndexCoordinates.of(sourceIndex), IndexCoordinates.of(destIndex))
+                                                  .withConflicts(ReindexRequest.Conflicts.PROCEED)
+                                                  .withDestVersionType(Document.VersionType.EXTERNAL)
+                                                  .build();
+    if (elasticsearchOperations instanceof ElasticsearchTemplate elasticsearchTemplate) {
+      // Submit the reindex as a task to not be limited by the socket timeout
+      String taskId = elasticsearchOperations.submitReindex(reindexRequest);
+      waitForTask(elasticsearchTemplate, taskId);
+    } else {
+      elasticsearchOperations.reindex(reindexRequest);
+    }
+    elasticsearchOperations.indexOps(IndexCoordinates.of(destIndex)).refresh();
+  }
+
+  /**
+   * Deletes from the destination index the documents which don't exist anymore
+   * in the source index, since a reindex doesn't propagate deletions
+   */
+  private void deleteRemovedDocuments(ElasticsearchOperations elasticsearchOperations,
+                                      Class<?> entityClass,
+                                      String sourceIndex,
+                                      String destIndex) {
+    long deletedCount = 0;
+    List<String> ids = new ArrayList<>();
+    try (SearchHitsIterator<?> hits = elasticsearchOperations.searchForStream(getIdsQuery(null),
+                                                                               entityClass,
+                                                                               IndexCoordinates.of(destIndex))) {
+      while (hits.hasNext()) {
+        ids.add(hits.next().getId());
+        if (ids.size() == ID_BATCH_SIZE || !hits.hasNext()) {
+          List<String> removedIds = getMissingIds(elasticsearchOperations, entityClass, sourceIndex, ids);
+          if (!removedIds.isEmpty()) {
+            elasticsearchOperations.delete(getIdsQuery(removedIds), entityClass, IndexCoordinates.of(destIndex));
+            deletedCount += removedIds.size();
+          }
+          ids.clear();
+        }
+      }
+    }
+    if (deletedCount > 0) {
+      LOG.info("{} documents deleted from {} during its reindex were deleted from {}", deletedCount, sourceIndex, destIndex);
+      elasticsearchOperations.indexOps(IndexCoordinates.of(destIndex)).refresh();
+    }
+  }
+
+  private List<String> getMissingIds(ElasticsearchOperations elasticsearchOperations,
+                                     Class<?> entityClass,
+                                     String index,
+                                     List<String> ids) {
+    Set<String> existingIds = elasticsearchOperations.search(getIdsQuery(ids), entityClass, IndexCoordinates.of(index))
+                                                     .stream()
+                                                     .map(SearchHit::getId)
+                                                     .collect(Collectors.toSet());
+    return ids.stream().filter(id -> !existingIds.contains(id)).toList();
+  }
+
+  /**
+   * @param ids documents identifiers, or null to retrieve all documents
+   * @return a {@link Query} retrieving documents identifiers only
+   */
+  private Query getIdsQuery(List<String> ids) {
+    CriteriaQueryBuilder queryBuilder = CriteriaQuery.builder(new Criteria())
+                                                     .withSourceFilter(new FetchSourceFilterBuilder().withExcludes("*")
+                                                                                                     .build());
+    if (ids == null) {
+      queryBuilder.withPageable(PageRequest.of(0, ID_BATCH_SIZE));
+    } else {
+      queryBuilder.withIds(ids).withPageable(PageRequest.of(0, ids.size()));
+    }
+    return queryBuilder.build();
+  }
+
+  private void checkCount(ElasticsearchOperations elasticsearchOperations,
+                          Class<?> entityClass,
+                          String sourceIndex,
+                          String destIndex) {
+    long sourceCount = elasticsearchOperations.count(Query.findAll(), entityClass, IndexCoordinates.of(sourceIndex));
+    long destCount = elasticsearchOperations.count(Query.findAll(), entityClass, IndexCoordinates.of(destIndex));
+    if (destCount != sourceCount) {
+      throw new IllegalStateException(String.format("%s documents were reindexed from %s to %s instead of %s",
+                                                    destCount,
+                                                    sourceIndex,
+                                                    destIndex,
+                                                    sourceCount));
+    }
+  }
+
+  private void waitForTask(ElasticsearchTemplate elasticsearchTemplate, String taskId) {
+    while (true) {
+      GetTasksResponse task = elasticsearchTemplate.execute(client -> client.tasks()
+                                                                            .get(request -> request.taskId(taskId)
+                                                                                                   .waitForCompletion(false)));
+      if (task.completed()) {
+        if (task.error() != null) {
+          throw new IllegalStateException("Reindex task " + taskId + " failed: " + task.error().reason());
+        }
+        return;
+      }
+      // Extend the lock during long reindex tasks
+      lock(elasticsearchTemplate);
+      try {
+        Thread.sleep(taskPollingMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for reindex task " + taskId, e);
+      }
+    }
+  }
+
+  private void setWriteBlock(ElasticsearchOperations elasticsearchOperations, String index, boolean blocked) {
+    if (!(elasticsearchOperations instanceof ElasticsearchTemplate elasticsearchTemplate)) {
+      return;
+    }
+    IndexSettings indexSettings = new IndexSettings.Builder().blocks(blocks -> blocks.write(blocked)).build();
+    elasticsearchTemplate.execute(client -> client.indices()
+                                                  .putSettings(request -> request.index(index).settings(indexSettings)));
+  }
+
+  private void updateDynamicSettings(ElasticsearchOperations elasticsearchOperations, String index, Settings settings) {
+    if (!(elasticsearchOperations instanceof ElasticsearchTemplate elasticsearchTemplate)) {
+      return;
+    }
+    IndexSettings.Builder indexSettingsBuilder = new IndexSettings.Builder();
+    if (settings.containsKey(REPLICAS_KEY)) {
+      indexSettingsBuilder.numberOfReplicas(String.valueOf(settings.get(REPLICAS_KEY)));
+    }
+    IndexSettings indexSettings = indexSettingsBuilder.autoExpandReplicas(String.valueOf(settings.get(AUTO_EXPAND_KEY)))
+                                                      .refreshInterval(Time.of(time -> time.time(String.valueOf(settings.get(REFRESH_KEY)))))
+                                                      .build();
+    elasticsearchTemplate.execute(client -> client.indices()
+                                                  .putSettings(request -> request.index(index).settings(indexSettings)));
+  }
+
+  private String computeMappingHash(Settings settings,
+                                    Document mapping) {
+    Settings staticSettings = new Settings();
+    settings.keySet()
+            .stream()
+            .sorted()
+            .filter(key -> !DYNAMIC_SETTINGS.contains(key))
+            .forEach(key -> staticSettings.put(key, settings.get(key)));
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(mapping.toJson().getBytes(StandardCharsets.UTF_8));
+      digest.update(staticSettings.toJson().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Can't compute mapping hash", e);
+    }
+  }
+
+  private String getMappingHash(IndexInformation indexInformation) {
+    Map<String, Object> mapping = indexInformation.getMapping();
+    Object meta = mapping == null ? null : mapping.get(META_KEY);
+    return meta instanceof Map<?, ?> metaMap ? (String) metaMap.get(MAPPING_HASH_KEY) : null;
+  }
+
+  private int getVersion(String index) {
+    Matcher matcher = VERSION_PATTERN.matcher(index);
+    return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+  }
+
+  private boolean lock(ElasticsearchOperations elasticsearchOperations) {
+    if (clusterLockManager == null) {
+      return true;
+    }
+    try {
+      return clusterLockManager.lock(elasticsearchOperations,
+                                     LOCK_NAME,
+                                     Duration.ofSeconds(lockTtlSeconds),
+                                     Duration.ofSeconds(lockWaitSeconds));
+    } catch (RuntimeException e) {
+      LOG.warn("Error while acquiring indices lifecycle lock", e);
+      return false;
+    }
+  }
+
+  private void unlock(ElasticsearchOperations elasticsearchOperations) {
+    if (clusterLockManager == null) {
+      return;
+    }
+    try {
+      clusterLockManager.unlock(elasticsearchOperations, LOCK_NAME);
+    } catch (RuntimeException e) {
+      LOG.warn("Error while releasing indices lifecycle lock, it will expire after {} seconds", lockTtlSeconds, e);
+    }
+  }
+
+  private String getIndexProperty(String indexName, String property, String defaultValue) {
+    return environment.getProperty(PROPERTY_PREFIX + indexName + "." + property, defaultValue);
+  }
+
+  private String getAliasName(Class<?> entityClass) {
+    return entityClass.getAnnotation(org.springframework.data.elasticsearch.annotations.Document.class).indexName();
+  }
+
+  private List<Class<?>> getEntityClasses() {
+    ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+    scanner.addIncludeFilter(new AnnotationTypeFilter(org.springframework.data.elasticsearch.annotations.Document.class));
+    List<Class<?>> entityClasses = new ArrayList<>();
+    for (String basePackage : StringUtils.split(basePackages, ",")) {
+      for (BeanDefinition beanDefinition : scanner.findCandidateComponents(basePackage.trim())) {
+        Class<?> entityClass = ClassUtils.resolveClassName(beanDefinition.getBeanClassName(), getClass().getClassLoader());
+        if (entityClass.getAnnotation(org.springframework.data.elasticsearch.annotations.Document.class).createIndex()) {
+          entityClasses.add(entityClass);
+        }
+      }
+    }
+    entityClasses.sort(Comparator.comparing(Class::getName));
+    return entityClasses;
+  }
+
+  private synchronized ExecutorService getMigrationExecutor() {
+    if (migrationExecutor == null) {
+      migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Meeds-IndexMigration");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return migrationExecutor;
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.ByQueryResponse;
+import org.springframework.data.elasticsearch.core.query.Query;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+
+/**
+ * An {@link ElasticsearchTemplate} which applies the refresh policy of write
+ * operations in the following order of precedence:
+ * <ul>
+ * <li>The policy of the current call, set using
+ * {@link #withRefreshPolicy(RefreshPolicy, Supplier)}, for read-your-write
+ * flows like an offer creation followed by a redirection to offers list</li>
+ * <li>The policy configured for the written index</li>
+ * <li>The default policy</li>
+ * </ul>
+ * Since the refresh policy is a property of the template, the writes with a
+ * different policy than the default one are delegated to a dedicated template
+ * sharing the same client.
+ */
+public class RefreshPolicyElasticsearchTemplate extends ElasticsearchTemplate {
+
+  private static final ThreadLocal<RefreshPolicy>         CALL_REFRESH_POLICY = new ThreadLocal<>();
+
+  private final ElasticsearchClient                       client;
+
+  private final ElasticsearchConverter                    converter;
+
+  private final Map<String, RefreshPolicy>                indexRefreshPolicies;
+
+  private final Map<RefreshPolicy, ElasticsearchTemplate> templates           = new EnumMap<>(RefreshPolicy.class);
+
+  public RefreshPolicyElasticsearchTemplate(ElasticsearchClient client,
+                                            ElasticsearchConverter converter,
+                                            RefreshPolicy defaultRefreshPolicy,
+                                            Map<String, RefreshPolicy> indexRefreshPolicies) {
+    super(client, converter);
+    this.client = client;
+    this.converter = converter;
+    this.indexRefreshPolicies = indexRefreshPolicies == null ? Collections.emptyMap() : indexRefreshPolicies;
+    setRefreshPolicy(defaultRefreshPolicy);
+  }
+
+  /**
+   * Executes the designated call, which can make multiple write operations,
+   * using a dedicated refresh policy
+   *
+   * @param <T> call result type
+   * @param refreshPolicy {@link RefreshPolicy} to apply on write operations of
+   *          the call
+   * @param call write operations to execute
+   * @return call result
+   */
+  public static <T> T withRefreshPolicy(RefreshPolicy refreshPolicy, Supplier<T> call) {
+    RefreshPolicy previousRefreshPolicy = CALL_REFRESH_POLICY.get();
+    CALL_REFRESH_POLICY.set(refreshPolicy);
+    try {
+      return call.get();
+    } finally {
+      if (previousRefreshPolicy == null) {
+        CALL_REFRESH_POLICY.remove();
+      } else {
+        CALL_REFRESH_POLICY.set(previousRefreshPolicy);
+      }
+    }
+  }
+
+  @Override
+  public <T> T save(T entity, IndexCoordinates index) {
+    ElasticsearchTemplate template = getTemplate(index);
+    return template == this ? super.save(entity, index) : template.save(entity, index);
+  }
+
+  @Override
+  public <T> Iterable<T> save(Iterable<T> entities, IndexCoordinates index) {
+    ElasticsearchTemplate template = getTemplate(index);
+    return template == this ? super.save(entities, index) : template.save(entities, index);
+  }
+
+  @Override
+  public String delete(String id, IndexCoordinates index) {
+    ElasticsearchTemplate template = getTemplate(index);
+    return template == this ? super.delete(id, index) : template.delete(id, index);
+  }
+
+  @Override
+  public ByQueryResponse delete(Query query, Class<?> clazz, IndexCoordinates index) {
+    ElasticsearchTemplate template = getTemplate(index);
+    return template == this ? super.delete(query, clazz, index) : template.delete(query, clazz, index);
+  }
+
+  RefreshPolicy getRefreshPolicy(IndexCoordinates index) {
+    RefreshPolicy refreshPolicy = CALL_REFRESH_POLICY.get();
+    if (refreshPolicy == null && index != null) {
+      refreshPolicy = indexRefreshPolicies.get(index.getIndexName());
+    }
+    return refreshPolicy == null ? getRefreshPolicy() : refreshPolicy;
+  }
+
+  private ElasticsearchTemplate getTemplate(IndexCoordinates index) {
+    RefreshPolicy refreshPolicy = getRefreshPolicy(index);
+    if (refreshPolicy == getRefreshPolicy()) {
+      return this;
+    }
+    synchronized (templates) {
+      return templates.computeIfAbsent(refreshPolicy, policy -> {
+        ElasticsearchTemplate template = new ElasticsearchTemplate(client, converter);
+        template.setRefreshPolicy(policy);
+        return template;
+      });
+    }
+  }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitSupport;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.stereotype.Component;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Plans searches which filter on the current time, like the not started or
+ * expired offers, by rounding the time bounds to a configurable bucket. The
+ * query sent to Elasticsearch is then the same during the whole bucket, which
+ * allows to cache its result per filter signature for a short period. The
+ * exact time bounds are applied on the cached result before paginating it,
+ * thus the visible result remains the same than a query using the current
+ * time. When the bucketed query matches too many documents, the exact query
+ * is sent to Elasticsearch instead.
+ * <p>
+ * The cache of an entity type is invalidated when an entity is saved on the
+ * current node, and when the events of a modification made by another node
+ * are received. A result computed while an invalidation happens isn't cached,
+ * since it may have been read before the modification.
+ */
+@Component
+public class TimeSlicedQueryPlanner {
+
+  @Autowired
+  private ElasticsearchOperations   elasticsearchOperations;
+
+  @Value("${meeds.elasticsearch.query.cache.enabled:true}")
+  private boolean                   enabled;
+
+  @Value("${meeds.elasticsearch.query.cache.bucketSeconds:60}")
+  private long                      bucketSeconds;
+
+  @Value("${meeds.elasticsearch.query.cache.ttlSeconds:15}")
+  private long                      ttlSeconds;
+
+  @Value("${meeds.elasticsearch.query.cache.maxResults:1000}")
+  private int                       maxResults;
+
+  @Value("${meeds.elasticsearch.query.cache.maxSize:500}")
+  private int                       maxSize;
+
+  private Map<CacheKey, CacheEntry> entries;
+
+  private final Map<Class<?>, Long> generations = new HashMap<>();
+
+  @Getter
+  private final AtomicLong          hitCount    = new AtomicLong();
+
+  @Getter
+  private final AtomicLong          missCount   = new AtomicLong();
+
+  @Getter
+  private final AtomicLong          bypassCount = new AtomicLong();
+
+  /**
+   * Searches entities matching the designated criteria and time bounds
+   *
+   * @param <T> Elasticsearch document type
+   * @param entityClass Elasticsearch document class
+   * @param filter filter object from which the criteria are built, used as
+   *          cache key, thus it has to implement equals and hashCode
+   * @param criteriaSupplier builds the criteria without the time bounds
+   * @param timeBounds {@link List} of {@link TimeBound} relative to the
+   *          current time
+   * @param pageable {@link Pageable}
+   * @return {@link Page} of matching entities
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Page<T> search(Class<T> entityClass,
+                            Object filter,
+                            Supplier<Criteria> criteriaSupplier,
+                            List<TimeBound<T>> timeBounds,
+                            Pageable pageable) {
+    Instant now = Instant.now();
+    if (!enabled || timeBounds.isEmpty()) {
+      return search(elasticsearchOperations, entityClass, criteriaSupplier.get(), timeBounds, pageable, now);
+    }
+    long bucketMillis = bucketSeconds * 1000;
+    long bucketStart = now.toEpochMilli() / bucketMillis * bucketMillis;
+    CacheKey key = new CacheKey(entityClass, filter, pageable.getSort(), bucketStart);
+    CacheEntry entry;
+    long generation;
+    synchronized (this) {
+      entry = getEntries().get(key);
+      generation = getGeneration(entityClass);
+    }
+    if (entry == null || entry.expiryTime < System.currentTimeMillis() || entry.generation != generation) {
+      missCount.incrementAndGet();
+      List<T> results = searchBucket(entityClass,
+                                     criteriaSupplier.get(),
+                                     timeBounds,
+                                     pageable.getSort(),
+                                     Instant.ofEpochMilli(bucketStart),
+                                     Instant.ofEpochMilli(bucketStart + bucketMillis));
+      entry = new CacheEntry(results, System.currentTimeMillis() + ttlSeconds * 1000, generation);
+      synchronized (this) {
+        if (getGeneration(entityClass) == generation) {
+          getEntries().put(key, entry);
+        }
+      }
+    } else {
+      hitCount.incrementAndGet();
+    }
+    if (entry.results == null) {
+      bypassCount.incrementAndGet();
+      return search(elasticsearchOperations, entityClass, criteriaSupplier.get(), timeBounds, pageable, now);
+    }
+    List<T> results = ((List<T>) entry.results).stream()
+                                               .filter(entity -> matches(entity, timeBounds, now))
+                                               .toList();
+    if (pageable.isUnpaged()) {
+      return new PageImpl<>(results, pageable, results.size());
+    }
+    int fromIndex = (int) Math.min(pageable.getOffset(), results.size());
+    int toIndex = Math.min(fromIndex + pageable.getPageSize(), results.size());
+    return new PageImpl<>(results.subList(fromIndex, toIndex), pageable, results.size());
+  }
+
+  /**
+   * Invalidates all cached results of an entity type, used when an entity is
+   * modified
+   *
+   * @param entityClass Elasticsearch document class
+   */
+  public synchronized void invalidate(Class<?> entityClass) {
+    generations.put(entityClass, getGeneration(entityClass) + 1);
+    getEntries().keySet().removeIf(key -> key.entityClass.equals(entityClass));
+  }
+
+  public synchronized int size() {
+    return getEntries().size();
+  }
+
+  /**
+   * Searches entities using the exact time bounds, without caching
+   *
+   * @param <T> Elasticsearch document type
+   * @param elasticsearchOperations {@link ElasticsearchOperations}
+   * @param entityClass Elasticsearch document class
+   * @param criteria criteria without time bounds
+   * @param timeBounds {@link List} of {@link TimeBound}
+   * @param pageable {@link Pageable}
+   * @param now current time
+   * @return {@link Page} of matching entities
+   */
+  public static <T> Page<T> search(ElasticsearchOperations elasticsearchOperations,
+                                   Class<T> entityClass,
+                                   Criteria criteria,
+                                   List<TimeBound<T>> timeBounds,
+                                   Pageable pageable,
+                                   Instant now) {
+    addTimeBounds(criteria, timeBounds, now, now);
+    CriteriaQuery query = new CriteriaQuery(criteria, pageable);
+    SearchHits<T> result = elasticsearchOperations.search(query, entityClass);
+    return SearchHitSupport.searchPageFor(result, pageable).map(SearchHit::getContent);
+  }
+
+  private <T> List<T> searchBucket(Class<T> entityClass,
+                                   Criteria criteria,
+                                   List<TimeBound<T>> timeBounds,
+                                   Sort sort,
+                                   Instant bucketStart,
+                                   Instant bucketEnd) {
+    addTimeBounds(criteria, timeBounds, bucketStart, bucketEnd);
+    CriteriaQuery query = new CriteriaQuery(criteria, PageRequest.of(0, maxResults, sort));
+    SearchHits<T> result = elasticsearchOperations.search(query, entityClass);
+    if (result.getTotalHits() > maxResults) {
+      // Too many results to be cached, will query with exact bounds
+      return null; // NOSONAR
+    }
+    return result.getSearchHits().stream().map(SearchHit::getContent).toList();
+  }
+
+  private <T> boolean matches(T entity, List<TimeBound<T>> timeBounds, Instant now) {
+    return timeBounds.stream().allMatch(timeBound -> timeBound.matches(entity, now));
+  }
+
+  private static <T> void addTimeBounds(Criteria criteria,
+                                        List<TimeBound<T>> timeBounds,
+                                        Instant lowerBound,
+                                        Instant upperBound) {
+    // Widen the bounds to include all entities matching at any time of the
+    // bucket
+    timeBounds.forEach(timeBound -> criteria.and(timeBound.before ? new Criteria(timeBound.field).lessThan(upperBound)
+                                                                   : new Criteria(timeBound.field).greaterThan(lowerBound)));
+  }
+
+  private long getGeneration(Class<?> entityClass) {
+    return generations.getOrDefault(entityClass, 0l);
+  }
+
+  @SuppressWarnings("serial")
+  private Map<CacheKey, CacheEntry> getEntries() {
+    if (entries == null) {
+      entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+          return size() > maxSize;
+        }
+      };
+    }
+    return entries;
+  }
+
+  /**
+   * A date field of an entity which has to be before or after the current
+   * time. Entities without value don't match the bound, as in Elasticsearch
+   * range queries.
+   *
+   * @param <T> Elasticsearch document type
+   */
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  public static class TimeBound<T> {
+
+    private final String               field;
+
+    private final boolean              before;
+
+    private final Function<T, Instant> accessor;
+
+    public static <T> TimeBound<T> before(String field, Function<T, Instant> accessor) {
+      return new TimeBound<>(field, true, accessor);
+    }
+
+    public static <T> TimeBound<T> after(String field, Function<T, Instant> accessor) {
+      return new TimeBound<>(field, false, accessor);
+    }
+
+    private boolean matches(T entity, Instant now) {
+      Instant value = accessor.apply(entity);
+      return value != null && (before ? value.isBefore(now) : value.isAfter(now));
+    }
+
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static class CacheKey {
+
+    private final Class<?> entityClass;
+
+    private final Object   filter;
+
+    private final Sort     sort;
+
+    private final long     bucketStart;
+
+  }
+
+  @AllArgsConstructor
+  private static class CacheEntry {
+
+    private final List<?> results;
+
+    private final long    expiryTime;
+
+    private final long    generation;
+
+  }
+
+}
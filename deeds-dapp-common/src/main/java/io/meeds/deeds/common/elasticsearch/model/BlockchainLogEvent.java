@@ -0,0 +1,76 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainNetwork;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A decoded contract event log indexed from blockchain, used to answer
+ * lookups by Deed or Offer identifier without scanning the whole chain
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(indexName = "deed_blockchain_logs", createIndex = true)
+@JsonInclude(value = Include.NON_EMPTY)
+public class BlockchainLogEvent {
+
+  @Id
+  private String            id;
+
+  @Field(type = FieldType.Keyword)
+  private BlockchainNetwork network;
+
+  @Field(type = FieldType.Keyword)
+  private String            contractAddress;
+
+  @Field(type = FieldType.Keyword)
+  private String            eventName;
+
+  @Field(type = FieldType.Long)
+  private Long              nftId;
+
+  @Field(type = FieldType.Long)
+  private Long              offerId;
+
+  @Field(type = FieldType.Keyword)
+  private String            fromAddress;
+
+  @Field(type = FieldType.Keyword)
+  private String            toAddress;
+
+  @Field(type = FieldType.Keyword)
+  private String            transactionHash;
+
+  @Field(type = FieldType.Long)
+  private long              blockNumber;
+
+  @Field(type = FieldType.Long)
+  private long              logIndex;
+
+}
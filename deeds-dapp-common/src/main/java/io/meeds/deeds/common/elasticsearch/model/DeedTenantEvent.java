@@ -24,6 +24,7 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.annotations.Setting.SortOrder;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
@@ -36,7 +37,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(indexName = "deed_tenant_events", createIndex = true)
-@Setting(replicas = 0, shards = 1)
+@Setting(sortFields = "date", sortOrders = SortOrder.asc)
 @JsonInclude(value = Include.NON_EMPTY)
 public class DeedTenantEvent {
 
@@ -46,6 +47,8 @@ public class DeedTenantEvent {
   @Field(type = FieldType.Keyword)
   private String       eventName;
 
+  // Stored only, the encoded payload is never searched
+  @Field(type = FieldType.Keyword, index = false, docValues = false)
   private String       objectJson;
 
   @Field(type = FieldType.Keyword)
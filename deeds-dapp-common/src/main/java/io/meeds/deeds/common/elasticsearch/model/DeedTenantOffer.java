@@ -25,6 +25,7 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.annotations.Setting.SortOrder;
 
 import io.meeds.deeds.common.constant.DeedCard;
 import io.meeds.deeds.common.constant.OfferType;
@@ -40,7 +41,7 @@ import lombok.With;
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(indexName = "deed_tenant_offer", createIndex = true)
-@Setting(replicas = 0, shards = 1)
+@Setting(sortFields = "createdDate", sortOrders = SortOrder.desc)
 public class DeedTenantOffer implements Cloneable {
 
   @Id
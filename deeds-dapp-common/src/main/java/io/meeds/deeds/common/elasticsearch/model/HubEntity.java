@@ -27,6 +27,7 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.annotations.Setting.SortOrder;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
@@ -40,7 +41,7 @@ import lombok.Setter;
 @AllArgsConstructor
 @JsonInclude(value = Include.NON_EMPTY)
 @Document(indexName = "deed_hub", createIndex = true)
-@Setting(replicas = 0, shards = 1)
+@Setting(sortFields = "createdDate", sortOrders = SortOrder.desc)
 public class HubEntity {
 
   @Id
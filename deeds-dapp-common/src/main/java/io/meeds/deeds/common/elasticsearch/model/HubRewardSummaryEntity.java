@@ -0,0 +1,60 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A projection of the last sent and last rewarded reports statistics of a
+ * Hub, as displayed in Hubs list, stored to not retrieve the Hub reports on
+ * each request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(indexName = "hub_reward_summary", createIndex = true)
+public class HubRewardSummaryEntity {
+
+  @Id
+  @Field(type = FieldType.Keyword)
+  private String  hubAddress;
+
+  @Field(type = FieldType.Long)
+  private long    actionsCount;
+
+  @Field(type = FieldType.Double)
+  private double  topHubReceiverAmount;
+
+  @Field(type = FieldType.Double)
+  private double  engagementScore;
+
+  @Field(type = FieldType.Boolean)
+  private boolean hasReports;
+
+  @Field(type = FieldType.Date, format = DateFormat.basic_date_time)
+  private Instant computedDate;
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch.model;
+
+import java.time.Instant;
+
+import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import io.meeds.deeds.common.constant.DeedCard;
+import io.meeds.deeds.common.constant.DeedCity;
+import io.meeds.deeds.common.constant.TenantProvisioningStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ManagedDeedEntity {
+
+  @Field(type = FieldType.Long)
+  private long                     nftId;
+
+  @Field(type = FieldType.Keyword)
+  private DeedCity                 city;
+
+  @Field(type = FieldType.Keyword)
+  private DeedCard                 cardType;
+
+  @Field(type = FieldType.Keyword)
+  private TenantProvisioningStatus provisioningStatus;
+
+  @Field(type = FieldType.Keyword)
+  private String                   ownerAddress;
+
+  @Field(type = FieldType.Keyword)
+  private String                   managerAddress;
+
+  @Field(type = FieldType.Date, format = DateFormat.basic_date_time)
+  private Instant                  startDate;
+
+  @Field(type = FieldType.Date, format = DateFormat.basic_date_time)
+  private Instant                  endDate;
+
+  @Field(type = FieldType.Boolean)
+  private boolean                  connected;
+
+}
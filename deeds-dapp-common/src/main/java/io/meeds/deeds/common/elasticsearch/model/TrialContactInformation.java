@@ -26,6 +26,7 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.annotations.Setting.SortOrder;
 
 import io.meeds.deeds.common.constant.TrialStatus;
 
@@ -37,7 +38,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(indexName = "trial_contacts", createIndex = true)
-@Setting(replicas = 0, shards = 1)
+@Setting(sortFields = "createdDate", sortOrders = SortOrder.desc)
 public class TrialContactInformation {
 
   @Id
@@ -19,7 +19,6 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
-import org.springframework.data.elasticsearch.annotations.Setting;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -30,7 +29,6 @@ import lombok.With;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(indexName = "deed_user_profile", createIndex = true)
-@Setting(replicas = 0, shards = 1)
 public class UserProfile {
 
   @With
@@ -16,7 +16,6 @@
 package io.meeds.deeds.common.elasticsearch.storage;
 
 import java.time.Instant;
-import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -26,8 +25,6 @@ import io.meeds.deeds.common.elasticsearch.model.DeedTenantEvent;
 
 public interface DeedTenantEventRepository extends ElasticsearchRepository<DeedTenantEvent, String> {
 
-  List<DeedTenantEvent> findByDateGreaterThanEqualAndConsumersNotOrderByDateAsc(Instant lastEventScanDate, String clientName);
-
   Page<DeedTenantEvent> findByConsumersNotOrderByDateDesc(String clientName, Pageable ofSize);
 
   void deleteByDateLessThan(Instant minus);
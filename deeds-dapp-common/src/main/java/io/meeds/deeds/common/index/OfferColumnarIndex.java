@@ -0,0 +1,382 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.index;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.util.CollectionUtils;
+
+import io.meeds.deeds.common.constant.DeedCard;
+import io.meeds.deeds.common.constant.OfferType;
+import io.meeds.deeds.common.constant.TransactionStatus;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantOffer;
+import io.meeds.deeds.common.model.DeedTenantOfferDTO;
+import io.meeds.deeds.common.model.OfferFilter;
+import io.meeds.deeds.common.utils.DeedTenantOfferMapper;
+
+/**
+ * An in-memory columnar index of listed offers, which are the parent offers
+ * not acquired yet. Each offer is stored in a slot of primitive arrays, while
+ * the enumerated and boolean attributes are stored as a {@link BitSet} per
+ * value, allowing to filter offers using bitwise operations. The offers
+ * mapped to {@link DeedTenantOfferDTO} are kept to avoid mapping them on each
+ * search.
+ */
+public class OfferColumnarIndex {
+
+  public static final Set<String>              SORTABLE_FIELDS        = Set.of("createdDate",
+                                                                               "modifiedDate",
+                                                                               "startDate",
+                                                                               "expirationDate",
+                                                                               "amount",
+                                                                               "nftId");
+
+  private static final long                    MISSING_DATE           = Long.MIN_VALUE;
+
+  private static final int                     INITIAL_CAPACITY       = 256;
+
+  private final ReadWriteLock                  lock                   = new ReentrantReadWriteLock();
+
+  private final Map<String, Integer>           slotsById              = new HashMap<>();
+
+  private final Deque<Integer>                 freeSlots              = new ArrayDeque<>();
+
+  private int                                  usedSlots;
+
+  private String[]                             ids                    = new String[INITIAL_CAPACITY];
+
+  private long[]                               nftIds                 = new long[INITIAL_CAPACITY];
+
+  private String[]                             owners                 = new String[INITIAL_CAPACITY];
+
+  private long[]                               startDates             = new long[INITIAL_CAPACITY];
+
+  private long[]                               expirationDates        = new long[INITIAL_CAPACITY];
+
+  private long[]                               createdDates           = new long[INITIAL_CAPACITY];
+
+  private long[]                               modifiedDates          = new long[INITIAL_CAPACITY];
+
+  private double[]                             amounts                = new double[INITIAL_CAPACITY];
+
+  private String[][]                           viewAddresses          = new String[INITIAL_CAPACITY][];
+
+  private DeedTenantOfferDTO[]                 offers                 = new DeedTenantOfferDTO[INITIAL_CAPACITY];
+
+  private final BitSet                         liveSlots              = new BitSet();
+
+  private final BitSet                         enabledSlots           = new BitSet();
+
+  private final BitSet                         publicSlots            = new BitSet();
+
+  private final Map<DeedCard, BitSet>          cardTypeSlots          = new EnumMap<>(DeedCard.class);
+
+  private final Map<OfferType, BitSet>         offerTypeSlots         = new EnumMap<>(OfferType.class);
+
+  private final Map<TransactionStatus, BitSet> transactionStatusSlots = new EnumMap<>(TransactionStatus.class);
+
+  private final Map<String, BitSet>            viewerSlots            = new HashMap<>();
+
+  /**
+   * @param offer {@link DeedTenantOffer}
+   * @return true if the offer is listed in marketplace, using the same
+   *         criteria than Elasticsearch query: a parent offer, which parentId
+   *         doesn't exist, and not acquired
+   */
+  public static boolean isListed(DeedTenantOffer offer) {
+    return offer != null && offer.getParentId() == null && !offer.isAcquired();
+  }
+
+  /**
+   * Adds or replaces an offer, or removes it when it's not listed anymore
+   *
+   * @param offer {@link DeedTenantOffer}
+   */
+  public void put(DeedTenantOffer offer) {
+    if (!isListed(offer)) {
+      if (offer != null) {
+        remove(offer.getId());
+      }
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      Integer slot = slotsById.get(offer.getId());
+      if (slot == null) {
+        slot = freeSlots.isEmpty() ? usedSlots++ : freeSlots.pop();
+        ensureCapacity(slot + 1);
+        slotsById.put(offer.getId(), slot);
+      } else {
+        clearSlot(slot);
+      }
+      writeSlot(slot, offer);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String offerId) {
+    lock.writeLock().lock();
+    try {
+      Integer slot = slotsById.remove(offerId);
+      if (slot != null) {
+        clearSlot(slot);
+        freeSlots.push(slot);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return slotsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param sort {@link Sort} of a search
+   * @return true if all sort fields are stored in the index
+   */
+  public static boolean isSortSupported(Sort sort) {
+    return sort.stream().allMatch(order -> SORTABLE_FIELDS.contains(order.getProperty()));
+  }
+
+  /**
+   * Searches offers using the same filtering semantics than the Elasticsearch
+   * query of offers. Missing dates don't match date criteria and are sorted
+   * last, whatever the sort direction.
+   *
+   * @param offerFilter {@link OfferFilter}
+   * @param pageable {@link Pageable} with a sort supported by
+   *          {@link #isSortSupported(Sort)}
+   * @param now current time used to filter on start and expiration dates
+   * @return {@link Page} of {@link DeedTenantOfferDTO}
+   */
+  public Page<DeedTenantOfferDTO> search(OfferFilter offerFilter, Pageable pageable, Instant now) {
+    lock.readLock().lock();
+    try {
+      List<Integer> matchingSlots = getMatchingSlots(offerFilter, now.toEpochMilli());
+      matchingSlots.sort(getComparator(pageable.getSort()));
+      int total = matchingSlots.size();
+      List<DeedTenantOfferDTO> content;
+      if (pageable.isPaged()) {
+        int fromIndex = (int) Math.min(pageable.getOffset(), total);
+        int toIndex = Math.min(fromIndex + pageable.getPageSize(), total);
+        content = matchingSlots.subList(fromIndex, toIndex).stream().map(slot -> offers[slot]).toList();
+      } else {
+        content = matchingSlots.stream().map(slot -> offers[slot]).toList();
+      }
+      return new PageImpl<>(content, pageable, total);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private List<Integer> getMatchingSlots(OfferFilter offerFilter, long nowMillis) {
+    BitSet matches = (BitSet) liveSlots.clone();
+    if (offerFilter.isExcludeDisabled()) {
+      matches.and(enabledSlots);
+    }
+    if (!CollectionUtils.isEmpty(offerFilter.getCardTypes())) {
+      matches.and(union(cardTypeSlots, offerFilter.getCardTypes()));
+    }
+    if (!CollectionUtils.isEmpty(offerFilter.getOfferTypes())) {
+      matches.and(union(offerTypeSlots, offerFilter.getOfferTypes()));
+    }
+    if (!CollectionUtils.isEmpty(offerFilter.getTransactionStatus())) {
+      matches.and(union(transactionStatusSlots, offerFilter.getTransactionStatus()));
+    }
+    BitSet visibleSlots = (BitSet) publicSlots.clone();
+    if (StringUtils.isNotBlank(offerFilter.getCurrentAddress())) {
+      BitSet currentAddressSlots = viewerSlots.get(StringUtils.lowerCase(offerFilter.getCurrentAddress()));
+      if (currentAddressSlots != null) {
+        visibleSlots.or(currentAddressSlots);
+      }
+    }
+    matches.and(visibleSlots);
+
+    String owner = StringUtils.isBlank(offerFilter.getOwnerAddress()) ? null
+                                                                       : StringUtils.lowerCase(offerFilter.getOwnerAddress());
+    List<Integer> matchingSlots = new ArrayList<>(matches.cardinality());
+    for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+      if ((owner == null || owner.equals(owners[slot]))
+          && (offerFilter.getNftId() < 0 || offerFilter.getNftId() == nftIds[slot])
+          && (!offerFilter.isExcludeNotStarted() || (startDates[slot] != MISSING_DATE && startDates[slot] < nowMillis))
+          && (!offerFilter.isExcludeExpired()
+              || (expirationDates[slot] != MISSING_DATE && expirationDates[slot] > nowMillis))) {
+        matchingSlots.add(slot);
+      }
+    }
+    return matchingSlots;
+  }
+
+  private Comparator<Integer> getComparator(Sort sort) {
+    Comparator<Integer> comparator = null;
+    for (Sort.Order order : sort) {
+      Comparator<Integer> orderComparator = getComparator(order.getProperty(), order.getDirection());
+      comparator = comparator == null ? orderComparator : comparator.thenComparing(orderComparator);
+    }
+    Comparator<Integer> defaultComparator = getComparator("createdDate", Direction.DESC);
+    comparator = comparator == null ? defaultComparator : comparator.thenComparing(defaultComparator);
+    return comparator.thenComparing(slot -> ids[slot]);
+  }
+
+  private Comparator<Integer> getComparator(String property, Direction direction) {
+    switch (property) {
+    case "amount":
+      Comparator<Integer> amountComparator = Comparator.comparingDouble(slot -> amounts[slot]);
+      return direction.isAscending() ? amountComparator : amountComparator.reversed();
+    case "nftId":
+      Comparator<Integer> nftIdComparator = Comparator.comparingLong(slot -> nftIds[slot]);
+      return direction.isAscending() ? nftIdComparator : nftIdComparator.reversed();
+    case "modifiedDate":
+      return getDateComparator(modifiedDates, direction);
+    case "startDate":
+      return getDateComparator(startDates, direction);
+    case "expirationDate":
+      return getDateComparator(expirationDates, direction);
+    default:
+      return getDateComparator(createdDates, direction);
+    }
+  }
+
+  private Comparator<Integer> getDateComparator(long[] dates, Direction direction) {
+    return (slot1, slot2) -> {
+      long date1 = dates[slot1];
+      long date2 = dates[slot2];
+      if (date1 == date2) {
+        return 0;
+      } else if (date1 == MISSING_DATE) {
+        return 1;
+      } else if (date2 == MISSING_DATE) {
+        return -1;
+      } else {
+        return direction.isAscending() ? Long.compare(date1, date2) : Long.compare(date2, date1);
+      }
+    };
+  }
+
+  private void writeSlot(int slot, DeedTenantOffer offer) {
+    ids[slot] = offer.getId();
+    nftIds[slot] = offer.getNftId();
+    owners[slot] = offer.getOwner();
+    startDates[slot] = toMillis(offer.getStartDate());
+    expirationDates[slot] = toMillis(offer.getExpirationDate());
+    createdDates[slot] = toMillis(offer.getCreatedDate());
+    modifiedDates[slot] = toMillis(offer.getModifiedDate());
+    amounts[slot] = offer.getAmount();
+    offers[slot] = DeedTenantOfferMapper.toDTO(offer);
+    liveSlots.set(slot);
+    enabledSlots.set(slot, offer.isEnabled());
+    setSlot(cardTypeSlots, offer.getCardType(), slot);
+    setSlot(offerTypeSlots, offer.getOfferType(), slot);
+    setSlot(transactionStatusSlots, offer.getOfferTransactionStatus(), slot);
+    viewAddresses[slot] = offer.getViewAddresses() == null ? new String[0]
+                                                           : offer.getViewAddresses().toArray(String[]::new);
+    for (String viewAddress : viewAddresses[slot]) {
+      if (DeedTenantOfferMapper.EVERYONE.equals(viewAddress)) {
+        publicSlots.set(slot);
+      } else if (viewAddress != null) {
+        viewerSlots.computeIfAbsent(viewAddress, key -> new BitSet()).set(slot);
+      }
+    }
+  }
+
+  private void clearSlot(int slot) {
+    liveSlots.clear(slot);
+    enabledSlots.clear(slot);
+    publicSlots.clear(slot);
+    cardTypeSlots.values().forEach(slots -> slots.clear(slot));
+    offerTypeSlots.values().forEach(slots -> slots.clear(slot));
+    transactionStatusSlots.values().forEach(slots -> slots.clear(slot));
+    for (String viewAddress : viewAddresses[slot]) {
+      BitSet slots = viewerSlots.get(viewAddress);
+      if (slots != null) {
+        slots.clear(slot);
+        if (slots.isEmpty()) {
+          viewerSlots.remove(viewAddress);
+        }
+      }
+    }
+    ids[slot] = null;
+    owners[slot] = null;
+    viewAddresses[slot] = null;
+    offers[slot] = null;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= ids.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, newCapacity);
+    nftIds = Arrays.copyOf(nftIds, newCapacity);
+    owners = Arrays.copyOf(owners, newCapacity);
+    startDates = Arrays.copyOf(startDates, newCapacity);
+    expirationDates = Arrays.copyOf(expirationDates, newCapacity);
+    createdDates = Arrays.copyOf(createdDates, newCapacity);
+    modifiedDates = Arrays.copyOf(modifiedDates, newCapacity);
+    amounts = Arrays.copyOf(amounts, newCapacity);
+    viewAddresses = Arrays.copyOf(viewAddresses, newCapacity);
+    offers = Arrays.copyOf(offers, newCapacity);
+  }
+
+  private <E extends Enum<E>> void setSlot(Map<E, BitSet> slotsByValue, E value, int slot) {
+    if (value != null) {
+      slotsByValue.computeIfAbsent(value, key -> new BitSet()).set(slot);
+    }
+  }
+
+  private <E extends Enum<E>> BitSet union(Map<E, BitSet> slotsByValue, Collection<E> values) {
+    BitSet slots = new BitSet();
+    for (E value : values) {
+      BitSet valueSlots = slotsByValue.get(value);
+      if (valueSlots != null) {
+        slots.or(valueSlots);
+      }
+    }
+    return slots;
+  }
+
+  private long toMillis(Instant date) {
+    return date == null ? MISSING_DATE : date.toEpochMilli();
+  }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.listener;
+
+import static io.meeds.deeds.common.listerner.model.EventSerialization.OBJECT_MAPPER;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.meeds.deeds.common.constant.CommonConstants.DeedOwnershipTransferEvent;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenant;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantLease;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantOffer;
+import io.meeds.deeds.common.elasticsearch.model.TrialContactInformation;
+import io.meeds.deeds.common.listerner.model.EmailSendingCommand;
+import io.meeds.deeds.common.listerner.model.Event;
+import io.meeds.deeds.common.model.DeedTenantLeaseDTO;
+import io.meeds.deeds.common.model.DeedTenantOfferDTO;
+import io.meeds.deeds.common.model.UserProfileDTO;
+
+/**
+ * Encodes and decodes the payload of persistent events. The encoded payload
+ * has the following format: '#{version}:{type}:{data}' where:
+ * <ul>
+ * <li>type is the identifier of the data class when registered, else the
+ * data class name</li>
+ * <li>data is the JSON serialization of the event data only, since the event
+ * name is already stored in the event document</li>
+ * </ul>
+ * The data class is resolved from the registry or from a cache, thus no
+ * reflection is made for each decoded event, and the JSON readers and writers
+ * are cached per type. Payloads stored using the legacy format, which is a JSON
+ * serialization of the whole {@link Event}, are still decoded.
+ */
+@Component
+public class EventCodec {
+
+  public static final int                       LEGACY_VERSION  = 0;
+
+  public static final int                       CURRENT_VERSION = 1;
+
+  private static final String                   VERSION_PREFIX  = "#";
+
+  private static final char                     SEPARATOR       = ':';
+
+  private final Map<Integer, Class<?>>          classesById     = new HashMap<>();
+
+  private final Map<Class<?>, Integer>          idsByClass      = new HashMap<>();
+
+  private final Map<String, Optional<Class<?>>> classesByName   = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, ObjectReader>     readers         = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, ObjectWriter>     writers         = new ConcurrentHashMap<>();
+
+  @Value("${meeds.elasticsearch.listener.events.codecVersion:1}")
+  private int                                   version         = CURRENT_VERSION;
+
+  public EventCodec() {
+    // Identifiers must never change or be reused since they are persisted
+    registerType(1, String.class);
+    registerType(2, Long.class);
+    registerType(3, DeedTenant.class);
+    registerType(4, DeedTenantLease.class);
+    registerType(5, DeedTenantLeaseDTO.class);
+    registerType(6, DeedTenantOffer.class);
+    registerType(7, DeedTenantOfferDTO.class);
+    registerType(8, DeedOwnershipTransferEvent.class);
+    registerType(9, EmailSendingCommand.class);
+    registerType(10, TrialContactInformation.class);
+    registerType(11, UserProfileDTO.class);
+  }
+
+  /**
+   * Registers a data type with a unique identifier to use in encoded payloads
+   * instead of the class name
+   *
+   * @param typeId unique type identifier
+   * @param type data class
+   */
+  public synchronized void registerType(int typeId, Class<?> type) {
+    Class<?> existingType = classesById.get(typeId);
+    if (existingType != null && !existingType.equals(type)) {
+      throw new IllegalStateException("Type identifier " + typeId + " is already used by " + existingType.getName());
+    }
+    classesById.put(typeId, type);
+    idsByClass.put(type, typeId);
+  }
+
+  /**
+   * @param event {@link Event} to encode
+   * @return encoded payload to store in events index
+   */
+  public String encode(Event event) {
+    try {
+      if (version == LEGACY_VERSION) {
+        return OBJECT_MAPPER.writeValueAsString(event);
+      }
+      Object data = event.getData();
+      StringBuilder payload = new StringBuilder(VERSION_PREFIX).append(CURRENT_VERSION).append(SEPARATOR);
+      if (data != null) {
+        Integer typeId = idsByClass.get(data.getClass());
+        payload.append(typeId == null ? data.getClass().getName() : typeId.toString())
+               .append(SEPARATOR)
+               .append(getWriter(data.getClass()).writeValueAsString(data));
+      } else {
+        payload.append(SEPARATOR);
+      }
+      return payload.toString();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("An error occurred while encoding event: " + event, e);
+    }
+  }
+
+  /**
+   * @param eventName event name
+   * @param payload payload stored in events index
+   * @return decoded {@link Event} or null when the data class isn't available
+   *         for the current consumer
+   * @throws JsonProcessingException when the payload can't be parsed
+   */
+  public Event decode(String eventName, String payload) throws JsonProcessingException {
+    if (!StringUtils.startsWith(payload, VERSION_PREFIX)) {
+      return OBJECT_MAPPER.readValue(payload, Event.class);
+    }
+    int typeStart = payload.indexOf(SEPARATOR) + 1;
+    int dataStart = payload.indexOf(SEPARATOR, typeStart) + 1;
+    if (typeStart <= 0 || dataStart <= 0) {
+      throw new IllegalArgumentException("Malformed event payload for event " + eventName);
+    }
+    String type = payload.substring(typeStart, dataStart - 1);
+    if (type.isEmpty()) {
+      return new Event(eventName, null, null);
+    }
+    Class<?> dataClass = getDataClass(type);
+    if (dataClass == null) {
+      return null;
+    }
+    Object data = getReader(dataClass).readValue(payload.substring(dataStart));
+    return new Event(eventName, data, dataClass.getName());
+  }
+
+  private Class<?> getDataClass(String type) {
+    if (StringUtils.isNumeric(type)) {
+      return classesById.get(Integer.parseInt(type));
+    }
+    return classesByName.computeIfAbsent(type, className -> {
+      try {
+        return Optional.of(Class.forName(className));
+      } catch (ClassNotFoundException e) {
+        // The event is meant to another type of clients
+        return Optional.empty();
+      }
+    }).orElse(null);
+  }
+
+  private ObjectReader getReader(Class<?> type) {
+    return readers.computeIfAbsent(type, OBJECT_MAPPER::readerFor);
+  }
+
+  private ObjectWriter getWriter(Class<?> type) {
+    return writers.computeIfAbsent(type, OBJECT_MAPPER::writerFor);
+  }
+
+}
@@ -47,6 +47,29 @@ public interface EventListener<T> {
    */
   List<String> getSupportedEvents();
 
+  /**
+   * @return true if the listener can be triggered asynchronously, in which
+   *         case the event publisher doesn't wait for its execution. By
+   *         default, listeners are triggered synchronously.
+   */
+  default boolean isAsync() {
+    return false;
+  }
+
+  /**
+   * Used only when the listener is asynchronous to compute the key of events
+   * that have to be handled sequentially, in their publication order. Events
+   * with different keys are handled in parallel.
+   * 
+   * @param  eventName Event name
+   * @param  data      Event data published at the same time by event producer
+   * @return           ordering key of the event or null to handle all events
+   *                   of the listener sequentially
+   */
+  default Object getOrderingKey(String eventName, T data) {
+    return null;
+  }
+
   /**
    * Handle a published event, must not be overriden, use onEvent instead
    * 
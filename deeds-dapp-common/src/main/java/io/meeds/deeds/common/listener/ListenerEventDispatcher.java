@@ -0,0 +1,324 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.listener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.meeds.deeds.common.service.ListenerService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Dispatches events to the {@link EventListener} declared as asynchronous
+ * using {@link EventListener#isAsync()}, so that the event publisher doesn't
+ * wait for them:
+ * <ul>
+ * <li>Events having the same {@link EventListener#getOrderingKey(String, Object)}
+ * are handled sequentially by a listener, in the order of their publication,
+ * while events of different keys are handled in parallel</li>
+ * <li>The number of pending events is bounded, once reached, the publisher
+ * waits until an event is handled</li>
+ * <li>Virtual threads are used when available on the running JVM</li>
+ * </ul>
+ * Synchronous listeners are still triggered in the publisher thread. The
+ * returned {@link CompletableFuture} allows callers, such as the persistent
+ * events replay, to wait until the event is effectively handled.
+ */
+@Component
+public class ListenerEventDispatcher {
+
+  private static final Logger                      LOG             = LoggerFactory.getLogger(ListenerEventDispatcher.class);
+
+  private final Map<QueueKey, Queue<DispatchTask>> queues          = new ConcurrentHashMap<>();
+
+  @Getter
+  private final Map<String, ListenerMetrics>       listenerMetrics = new ConcurrentHashMap<>();
+
+  private ExecutorService                          executor;
+
+  private Semaphore                                pendingEvents;
+
+  @Value("${meeds.listener.async.virtualThreads:true}")
+  private boolean                                  useVirtualThreads;
+
+  @Value("${meeds.listener.async.poolSize:8}")
+  private int                                      poolSize;
+
+  @Value("${meeds.listener.async.maxPendingEvents:10000}")
+  private int                                      maxPendingEvents;
+
+  /**
+   * Triggers the listener with the designated event, either in the current
+   * thread or asynchronously depending on {@link EventListener#isAsync()}
+   *
+   * @param listener {@link EventListener}
+   * @param eventName Event name
+   * @param data Event data
+   * @return {@link CompletableFuture} completed once the event is handled by
+   *         the listener, or completed exceptionally when the event couldn't be
+   *         handled
+   */
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<Void> dispatch(EventListener<?> listener, String eventName, Object data) {
+    ListenerMetrics metrics = getListenerMetrics(listener.getName());
+    if (!listener.isAsync()) {
+      handleEvent(listener, eventName, data, metrics);
+      return CompletableFuture.completedFuture(null);
+    }
+    try {
+      getPendingEvents().acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Interrupted while waiting to dispatch event {} to listener {}, trigger it synchronously",
+               eventName,
+               listener.getName());
+      handleEvent(listener, eventName, data, metrics);
+      return CompletableFuture.completedFuture(null);
+    }
+    Object key = ((EventListener<Object>) listener).getOrderingKey(eventName, data);
+    QueueKey queueKey = new QueueKey(listener.getName(), key);
+    metrics.queueDepth.incrementAndGet();
+    DispatchTask task = new DispatchTask(listener, eventName, data, metrics, new CompletableFuture<>());
+    boolean startDraining;
+    synchronized (queues) {
+      Queue<DispatchTask> queue = queues.get(queueKey);
+      startDraining = queue == null;
+      if (startDraining) {
+        queue = new ArrayDeque<>();
+        queues.put(queueKey, queue);
+      }
+      queue.add(task);
+    }
+    if (startDraining) {
+      startDraining(queueKey);
+    }
+    return task.future;
+  }
+
+  public ListenerMetrics getListenerMetrics(String listenerName) {
+    return listenerMetrics.computeIfAbsent(listenerName, name -> new ListenerMetrics());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+          LOG.warn("Some asynchronous listeners didn't finish handling their events before shutdown");
+          executor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        executor.shutdownNow();
+      }
+      cancelQueuedTasks();
+    }
+  }
+
+  /**
+   * Runs sequentially the tasks of the same key, then frees the key queue
+   *
+   * @param queueKey {@link QueueKey}
+   */
+  private void drain(QueueKey queueKey) {
+    boolean drained = false;
+    try {
+      while (true) {
+        DispatchTask task;
+        synchronized (queues) {
+          Queue<DispatchTask> queue = queues.get(queueKey);
+          task = queue == null ? null : queue.poll();
+          if (task == null) {
+            queues.remove(queueKey);
+            drained = true;
+            return;
+          }
+        }
+        task.run();
+      }
+    } finally {
+      if (!drained) {
+        // A task has thrown an Error, continue with the remaining tasks of the
+        // key in another thread, else the key would remain blocked forever
+        startDraining(queueKey);
+      }
+    }
+  }
+
+  private void startDraining(QueueKey queueKey) {
+    try {
+      getExecutor().execute(() -> drain(queueKey));
+    } catch (RejectedExecutionException e) {
+      LOG.warn("Listeners dispatcher is stopped, cancel pending events of listener {}", queueKey.listenerName);
+      cancelQueuedTasks(queueKey);
+    }
+  }
+
+  /**
+   * Cancels the tasks that weren't handled, such as the ones dropped by
+   * {@link ExecutorService#shutdownNow()}, so that their callers don't wait
+   * forever and that persistent events get replayed later
+   */
+  private void cancelQueuedTasks() {
+    List<QueueKey> queueKeys;
+    synchronized (queues) {
+      queueKeys = new ArrayList<>(queues.keySet());
+    }
+    queueKeys.forEach(this::cancelQueuedTasks);
+  }
+
+  private void cancelQueuedTasks(QueueKey queueKey) {
+    Queue<DispatchTask> queue;
+    synchronized (queues) {
+      queue = queues.remove(queueKey);
+    }
+    if (queue != null && !queue.isEmpty()) {
+      LOG.warn("{} pending events of listener {} were not handled", queue.size(), queueKey.listenerName);
+      queue.forEach(DispatchTask::cancel);
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  private void handleEvent(EventListener<?> listener, String eventName, Object data, ListenerMetrics metrics) {
+    long start = System.currentTimeMillis();
+    try {
+      listener.handleEvent(eventName, data);
+    } finally {
+      long duration = System.currentTimeMillis() - start;
+      metrics.handledCount.incrementAndGet();
+      metrics.handlingTotalMillis.addAndGet(duration);
+      metrics.handlingMaxMillis.accumulateAndGet(duration, Math::max);
+    }
+  }
+
+  private synchronized Semaphore getPendingEvents() {
+    if (pendingEvents == null) {
+      pendingEvents = new Semaphore(maxPendingEvents);
+    }
+    return pendingEvents;
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = useVirtualThreads ? newVirtualThreadExecutor() : null;
+      if (executor == null) {
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+          Thread thread = new Thread(runnable, "ListenerEventDispatcher");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+    return executor;
+  }
+
+  private ExecutorService newVirtualThreadExecutor() {
+    try {
+      // Available starting from Java 21 only
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (Exception e) {
+      LOG.info("Virtual threads aren't available, use a pool of {} threads to dispatch events", poolSize);
+      return null;
+    }
+  }
+
+  @Getter
+  public static class ListenerMetrics {
+
+    private final AtomicLong queueDepth          = new AtomicLong();
+
+    private final AtomicLong handledCount        = new AtomicLong();
+
+    private final AtomicLong errorCount          = new AtomicLong();
+
+    private final AtomicLong handlingTotalMillis = new AtomicLong();
+
+    private final AtomicLong handlingMaxMillis   = new AtomicLong();
+
+  }
+
+  @AllArgsConstructor
+  private class DispatchTask implements Runnable {
+
+    private final EventListener<?>        listener;
+
+    private final String                  eventName;
+
+    private final Object                  data;
+
+    private final ListenerMetrics         metrics;
+
+    private final CompletableFuture<Void> future;
+
+    @Override
+    public void run() {
+      try {
+        metrics.queueDepth.decrementAndGet();
+        handleEvent(listener, eventName, data, metrics);
+        future.complete(null);
+      } catch (Exception e) {
+        metrics.errorCount.incrementAndGet();
+        LOG.warn("Error while handling event {} by listener {}", eventName, listener.getName(), e);
+        future.completeExceptionally(e);
+      } finally {
+        if (!future.isDone()) {
+          future.completeExceptionally(new IllegalStateException("Event " + eventName + " wasn't handled by listener "
+              + listener.getName()));
+        }
+        getPendingEvents().release();
+      }
+    }
+
+    private void cancel() {
+      metrics.queueDepth.decrementAndGet();
+      future.cancel(false);
+      getPendingEvents().release();
+    }
+
+  }
+
+  @EqualsAndHashCode
+  @AllArgsConstructor
+  private static class QueueKey {
+
+    private final String listenerName;
+
+    private final Object key;
+
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.listener.transport;
+
+import io.meeds.deeds.common.service.ListenerService;
+
+/**
+ * A transport used by {@link ListenerService} to notify other nodes about
+ * newly published persistent events, so that they scan them immediately
+ * instead of waiting for the periodic polling. The Elasticsearch events index
+ * remains the source of events, thus a lost notification only delays the
+ * event delivery until the next polling.
+ */
+public interface EventTransport {
+
+  /**
+   * @return true if the transport is configured to be used
+   */
+  boolean isEnabled();
+
+  /**
+   * Starts listening for notifications coming from other nodes
+   *
+   * @param eventsAvailableHandler handler to run when another node notifies
+   *          about newly published events
+   */
+  void start(Runnable eventsAvailableHandler);
+
+  /**
+   * Notifies the other nodes that a new event has been persisted
+   *
+   * @param eventName published event name
+   */
+  void notifyEventPublished(String eventName);
+
+  /**
+   * Stops listening for notifications
+   */
+  void stop();
+
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.listener.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+
+/**
+ * A lightweight HTTP push transport between dApp and Tenant Provisioning
+ * nodes. Each node exposes an endpoint receiving notifications and sends a
+ * notification to its configured peers each time an event is published. The
+ * notification doesn't hold the event itself, it only triggers an immediate
+ * scan of the Elasticsearch events index on the receiving node.
+ */
+@Component
+public class HttpEventTransport implements EventTransport {
+
+  public static final String  TRANSPORT_TYPE = "http";
+
+  public static final String  NOTIFY_PATH    = "/events/notify";
+
+  public static final String  TOKEN_HEADER   = "X-Meeds-Event-Token";
+
+  private static final Logger LOG            = LoggerFactory.getLogger(HttpEventTransport.class);
+
+  @Value("${meeds.listener.transport.type:polling}")
+  private String              transportType;
+
+  @Value("${meeds.listener.transport.http.host:0.0.0.0}")
+  private String              host;
+
+  @Value("${meeds.listener.transport.http.port:0}")
+  private int                 port;
+
+  @Value("${meeds.listener.transport.http.peers:}")
+  private String              peers;
+
+  @Value("${meeds.listener.transport.http.token:}")
+  private String              token;
+
+  @Value("${meeds.listener.transport.http.timeoutMillis:2000}")
+  private long                timeoutMillis;
+
+  private HttpServer          server;
+
+  private HttpClient          client;
+
+  private ExecutorService     handlerExecutor;
+
+  private final AtomicBoolean handlerPending = new AtomicBoolean();
+
+  @Getter
+  private final AtomicLong    receivedCount  = new AtomicLong();
+
+  @Getter
+  private final AtomicLong    sentCount      = new AtomicLong();
+
+  @Getter
+  private final AtomicLong    failedCount    = new AtomicLong();
+
+  @Override
+  public boolean isEnabled() {
+    return StringUtils.equalsIgnoreCase(TRANSPORT_TYPE, transportType);
+  }
+
+  @Override
+  public synchronized void start(Runnable eventsAvailableHandler) {
+    if (!isEnabled() || server != null) {
+      return;
+    }
+    handlerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "HttpEventTransport");
+      thread.setDaemon(true);
+      return thread;
+    });
+    client = HttpClient.newBuilder()
+                       .connectTimeout(Duration.ofMillis(timeoutMillis))
+                       .build();
+    if (port <= 0) {
+      LOG.info("No port configured for events HTTP transport, notifications will be sent only");
+      return;
+    }
+    try {
+      server = HttpServer.create(new InetSocketAddress(host, port), 0);
+      server.createContext(NOTIFY_PATH, exchange -> handleNotification(exchange, eventsAvailableHandler));
+      server.start();
+      LOG.info("Events HTTP transport listening on {}:{}{}", host, port, NOTIFY_PATH);
+    } catch (IOException e) {
+      LOG.warn("Unable to start events HTTP transport on {}:{}, events will be retrieved by polling only", host, port, e);
+      server = null;
+    }
+  }
+
+  @Override
+  public void notifyEventPublished(String eventName) {
+    if (!isEnabled() || client == null) {
+      return;
+    }
+    getPeers().forEach(peer -> {
+      HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(peer + NOTIFY_PATH))
+                                                      .timeout(Duration.ofMillis(timeoutMillis))
+                                                      .POST(HttpRequest.BodyPublishers.ofString(eventName));
+      if (StringUtils.isNotBlank(token)) {
+        requestBuilder.header(TOKEN_HEADER, token);
+      }
+      client.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, error) -> {
+              if (error == null && response.statusCode() < 300) {
+                sentCount.incrementAndGet();
+              } else {
+                failedCount.incrementAndGet();
+                LOG.debug("Error notifying peer {} about event {}, it will be retrieved by polling",
+                          peer,
+                          eventName,
+                          error);
+              }
+            });
+    });
+  }
+
+  @Override
+  @PreDestroy
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(0);
+      server = null;
+    }
+    if (handlerExecutor != null) {
+      handlerExecutor.shutdownNow();
+      handlerExecutor = null;
+    }
+  }
+
+  private void handleNotification(HttpExchange exchange, Runnable eventsAvailableHandler) throws IOException {
+    try (InputStream body = exchange.getRequestBody()) {
+      if (!StringUtils.equalsIgnoreCase("POST", exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      if (StringUtils.isNotBlank(token)
+          && !StringUtils.equals(token, exchange.getRequestHeaders().getFirst(TOKEN_HEADER))) {
+        exchange.sendResponseHeaders(403, -1);
+        return;
+      }
+      LOG.debug("Event {} notified by {}",
+                new String(body.readNBytes(256), StandardCharsets.UTF_8),
+                exchange.getRemoteAddress());
+      receivedCount.incrementAndGet();
+      exchange.sendResponseHeaders(204, -1);
+    } finally {
+      exchange.close();
+    }
+    // Coalesce notifications received while a scan is already pending
+    if (handlerPending.compareAndSet(false, true)) {
+      handlerExecutor.execute(() -> {
+        handlerPending.set(false);
+        try {
+          eventsAvailableHandler.run();
+        } catch (Exception e) {
+          LOG.warn("Error while triggering notified events", e);
+        }
+      });
+    }
+  }
+
+  private List<String> getPeers() {
+    if (StringUtils.isBlank(peers)) {
+      return Collections.emptyList();
+    }
+    return Arrays.stream(peers.split(","))
+                 .map(String::trim)
+                 .filter(StringUtils::isNotBlank)
+                 .map(peer -> StringUtils.removeEnd(peer, "/"))
+                 .toList();
+  }
+
+}
@@ -25,4 +25,16 @@ public class WomDeed {
 
   private short  ownerPercentage;
 
+  @Override
+  public WomDeed clone() {// NOSONAR
+    return new WomDeed(city,
+                       cardType,
+                       mintingPower,
+                       maxUsers,
+                       ownerAddress,
+                       managerAddress,
+                       hubAddress,
+                       ownerPercentage);
+  }
+
 }
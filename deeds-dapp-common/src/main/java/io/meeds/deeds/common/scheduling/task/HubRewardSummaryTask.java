@@ -0,0 +1,61 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.scheduling.task;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.meeds.deeds.common.service.HubReportService;
+import io.meeds.deeds.common.service.HubService;
+
+/**
+ * Recomputes periodically the reward summaries of connected Hubs, to include
+ * the engagement score of reports which rewarded period ended since their last
+ * modification, and to compute missing summaries of Hubs which didn't send a
+ * report since the summaries were introduced.
+ */
+@Component
+public class HubRewardSummaryTask {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HubRewardSummaryTask.class);
+
+  @Autowired(required = false)
+  private HubService          hubService;
+
+  @Autowired(required = false)
+  private HubReportService    hubReportService;
+
+  @Scheduled(fixedDelayString = "${meeds.hub.rewardSummary.refreshSeconds:3600}",
+      timeUnit = TimeUnit.SECONDS, initialDelay = 60)
+  public synchronized void refresh() {
+    if (hubService == null || hubReportService == null) {
+      return;
+    }
+    try {
+      hubService.getHubs(Pageable.unpaged())
+                .forEach(hub -> hubReportService.refreshHubRewardSummary(hub.getAddress()));
+    } catch (Exception e) {
+      LOG.warn("An error occurred while refreshing hubs reward summaries", e);
+    }
+  }
+
+}
@@ -33,7 +33,8 @@ public class ListenerEventTriggerTask {
   @Autowired(required = false)
   private ListenerService     listenerService;
 
-  @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.SECONDS, initialDelay = 60)
+  @Scheduled(fixedDelayString = "${meeds.elasticsearch.listener.events.pollingSeconds:10}",
+      timeUnit = TimeUnit.SECONDS, initialDelay = 60)
   public synchronized void triggerEvents() {
     if (listenerService == null) {
       return;
@@ -0,0 +1,371 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.EventValues;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog.LogObject;
+import org.web3j.protocol.core.methods.response.EthLog.LogResult;
+import org.web3j.tx.Contract;
+
+import io.meeds.deeds.common.blockchain.BlockRangeLogFetcher;
+import io.meeds.deeds.common.blockchain.BlockRangeLogFetcher.LogFilterFactory;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainNetwork;
+import io.meeds.deeds.common.elasticsearch.model.BlockchainLogEvent;
+import io.meeds.deeds.common.elasticsearch.storage.BlockchainLogEventRepository;
+import io.meeds.deeds.common.utils.BlockchainLogDecoder;
+import io.meeds.deeds.contract.Deed;
+import io.meeds.deeds.contract.DeedRenting;
+import io.meeds.deeds.contract.DeedTenantProvisioning;
+
+/**
+ * Incrementally indexes the logs of Deed contracts in bounded block windows,
+ * starting from the last indexed block stored as a setting. The decoded events
+ * are stored in Elasticsearch to allow retrieving Deed owners, Deed managers
+ * and Offer creation transactions without scanning logs from the earliest
+ * block. The indexing is disabled until a start block, typically the block of
+ * the earliest Deed contract deployment, is configured, to not scan the whole
+ * network history.
+ */
+@Component
+public class BlockchainLogIndexService {
+
+  public static final String                   LAST_INDEXED_BLOCK_SETTING_NAME = "BLOCKCHAIN_LOG_INDEX_LAST_BLOCK_";
+
+  private static final Logger                  LOG                             =
+                                                   LoggerFactory.getLogger(BlockchainLogIndexService.class);
+
+  private static final Map<String, Event>      INDEXED_EVENTS                  = Map.of(EventEncoder.encode(Deed.TRANSFERSINGLE_EVENT),
+                                                                                        Deed.TRANSFERSINGLE_EVENT,
+                                                                                        EventEncoder.encode(Deed.TRANSFERBATCH_EVENT),
+                                                                                        Deed.TRANSFERBATCH_EVENT,
+                                                                                        EventEncoder.encode(DeedTenantProvisioning.DELEGATEEADDED_EVENT),
+                                                                                        DeedTenantProvisioning.DELEGATEEADDED_EVENT,
+                                                                                        EventEncoder.encode(DeedRenting.OFFERCREATED_EVENT),
+                                                                                        DeedRenting.OFFERCREATED_EVENT);
+
+  @Autowired
+  @Qualifier("ethereumNetwork")
+  private Web3j                                web3j;
+
+  @Autowired
+  private Deed                                 deed;
+
+  @Autowired(required = false)
+  private DeedTenantProvisioning               deedTenantProvisioning;
+
+  @Autowired(required = false)
+  private DeedRenting                          deedRenting;
+
+  @Autowired(required = false)
+  private BlockRangeLogFetcher                 blockRangeLogFetcher;
+
+  @Autowired
+  private BlockchainLogEventRepository         blockchainLogEventRepository;
+
+  @Autowired
+  private SettingService                       settingService;
+
+  @Value("${meeds.blockchain.logIndex.enabled:true}")
+  private boolean                              enabled;
+
+  @Value("${meeds.blockchain.logIndex.windowSize:5000}")
+  private long                                 windowSize;
+
+  @Value("${meeds.blockchain.logIndex.maxWindowsPerRun:50}")
+  private int                                  maxWindowsPerRun;
+
+  @Value("${meeds.blockchain.logIndex.reorgDepth:12}")
+  private long                                 reorgDepth;
+
+  @Value("${meeds.blockchain.logIndex.ethereumStartBlock:-1}")
+  private long                                 ethereumStartBlock;
+
+  private final Map<BlockchainNetwork, Boolean> synchronizedNetworks            = new EnumMap<>(BlockchainNetwork.class);
+
+  public boolean isEnabled() {
+    return enabled && ethereumStartBlock >= 0;
+  }
+
+  /**
+   * @param network {@link BlockchainNetwork}
+   * @return true if the indexed logs of the network have reached the last
+   *         mined block at least once since the server startup
+   */
+  public boolean isSynchronized(BlockchainNetwork network) {
+    synchronized (synchronizedNetworks) {
+      return isEnabled() && synchronizedNetworks.getOrDefault(network, false);
+    }
+  }
+
+  /**
+   * Indexes newly mined logs of Deed contracts
+   */
+  public void indexLogs() {
+    if (!isEnabled()) {
+      return;
+    }
+    indexLogs(BlockchainNetwork.ETHEREUM);
+  }
+
+  /**
+   * @param nftId Deed NFT identifier
+   * @return {@link List} of addresses which received the Deed, starting from
+   *         the most recent transfer
+   */
+  public List<String> getDeedOwnerCandidates(long nftId) {
+    List<BlockchainLogEvent> transferEvents = new ArrayList<>();
+    transferEvents.addAll(findDeedEvents(deed.getContractAddress(), Deed.TRANSFERSINGLE_EVENT, nftId));
+    transferEvents.addAll(findDeedEvents(deed.getContractAddress(), Deed.TRANSFERBATCH_EVENT, nftId));
+    return transferEvents.stream()
+                         .sorted((event1, event2) -> Long.compare(event2.getBlockNumber(), event1.getBlockNumber()))
+                         .map(BlockchainLogEvent::getToAddress)
+                         .filter(Objects::nonNull)
+                         .distinct()
+                         .toList();
+  }
+
+  /**
+   * @param nftId Deed NFT identifier
+   * @return {@link List} of addresses which were delegated the Deed
+   *         provisioning, starting from the most recent delegation
+   */
+  public List<String> getDeedManagerCandidates(long nftId) {
+    if (deedTenantProvisioning == null) {
+      return Collections.emptyList();
+    }
+    return findDeedEvents(deedTenantProvisioning.getContractAddress(),
+                          DeedTenantProvisioning.DELEGATEEADDED_EVENT,
+                          nftId).stream()
+                                .map(BlockchainLogEvent::getToAddress)
+                                .filter(Objects::nonNull)
+                                .distinct()
+                                .toList();
+  }
+
+  /**
+   * @param offerId Blockchain Offer identifier
+   * @return the transaction hash which created the offer if indexed, else null
+   */
+  public String getOfferCreationTransactionHash(long offerId) {
+    if (deedRenting == null) {
+      return null;
+    }
+    List<BlockchainLogEvent> events =
+                                    blockchainLogEventRepository.findByContractAddressAndEventNameAndOfferIdOrderByBlockNumberAsc(StringUtils.lowerCase(deedRenting.getContractAddress()),
+                                                                                                                                  DeedRenting.OFFERCREATED_EVENT.getName(),
+                                                                                                                                  offerId);
+    return events.isEmpty() ? null : events.get(0).getTransactionHash();
+  }
+
+  private void indexLogs(BlockchainNetwork network) {
+    List<String> contractAddresses = getContractAddresses();
+    if (contractAddresses.isEmpty()) {
+      return;
+    }
+    try {
+      long lastBlock = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+      long lastIndexedBlock = getLastIndexedBlock(network);
+      long fromBlock = lastIndexedBlock < 0 ? ethereumStartBlock : Math.max(0, lastIndexedBlock + 1 - reorgDepth);
+      int windowsCount = 0;
+      while (fromBlock <= lastBlock && windowsCount++ < maxWindowsPerRun) {
+        long toBlock = Math.min(fromBlock + windowSize - 1, lastBlock);
+        indexLogs(network, contractAddresses, fromBlock, toBlock, fromBlock <= lastIndexedBlock);
+        settingService.save(LAST_INDEXED_BLOCK_SETTING_NAME + network.name(), String.valueOf(toBlock));
+        fromBlock = toBlock + 1;
+      }
+      boolean upToDate = fromBlock > lastBlock;
+      synchronized (synchronizedNetworks) {
+        if (upToDate || !synchronizedNetworks.containsKey(network)) {
+          synchronizedNetworks.put(network, upToDate);
+        }
+      }
+      LOG.debug("Blockchain logs of network {} indexed until block {}/{}", network, fromBlock - 1, lastBlock);
+    } catch (Exception e) {
+      LOG.warn("Error while indexing blockchain logs of network {}", network, e);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private void indexLogs(BlockchainNetwork network,
+                         List<String> contractAddresses,
+                         long fromBlock,
+                         long toBlock,
+                         boolean reconcile) throws IOException {
+    LogFilterFactory filterFactory = (from, to) -> new EthFilter(from,
+                                                                 to,
+                                                                 contractAddresses).addOptionalTopics(INDEXED_EVENTS.keySet()
+                                                                                                                    .toArray(new String[0]));
+    List<LogResult> logs;
+    if (blockRangeLogFetcher == null) {
+      logs = web3j.ethGetLogs(filterFactory.newFilter(new DefaultBlockParameterNumber(fromBlock),
+                                                      new DefaultBlockParameterNumber(toBlock)))
+                  .send()
+                  .getLogs();
+    } else {
+      logs = blockRangeLogFetcher.getLogs(web3j, fromBlock, toBlock, filterFactory);
+    }
+    List<BlockchainLogEvent> addedEvents = new ArrayList<>();
+    List<String> removedEventIds = new ArrayList<>();
+    if (logs != null) {
+      for (LogResult logResult : logs) {
+        LogObject logObject = (LogObject) logResult.get();
+        List<BlockchainLogEvent> events = toLogEvents(network, logObject);
+        if (logObject.isRemoved()) {
+          events.stream().map(BlockchainLogEvent::getId).forEach(removedEventIds::add);
+        } else {
+          addedEvents.addAll(events);
+        }
+      }
+    }
+    if (reconcile) {
+      // Delete events indexed before a chain reorganization and which
+      // aren't part of the canonical chain anymore
+      Set<String> addedEventIds = addedEvents.stream().map(BlockchainLogEvent::getId).collect(Collectors.toSet());
+      blockchainLogEventRepository.findByNetworkAndBlockNumberBetween(network, fromBlock, toBlock)
+                                  .stream()
+                                  .map(BlockchainLogEvent::getId)
+                                  .filter(id -> !addedEventIds.contains(id))
+                                  .forEach(removedEventIds::add);
+    }
+    if (!removedEventIds.isEmpty()) {
+      blockchainLogEventRepository.deleteAllById(removedEventIds);
+    }
+    if (!addedEvents.isEmpty()) {
+      blockchainLogEventRepository.saveAll(addedEvents);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private List<BlockchainLogEvent> toLogEvents(BlockchainNetwork network, LogObject logObject) {
+    if (logObject.getTopics() == null || logObject.getTopics().isEmpty()) {
+      return Collections.emptyList();
+    }
+    Event event = INDEXED_EVENTS.get(logObject.getTopics().get(0));
+    if (event == Deed.TRANSFERSINGLE_EVENT || event == Deed.TRANSFERBATCH_EVENT) {
+      return BlockchainLogDecoder.getTransferOwnershipEvents(logObject)
+                                 .stream()
+                                 .map(transferEvent -> newLogEvent(network,
+                                                                   logObject,
+                                                                   event,
+                                                                   transferEvent.getNftId(),
+                                                                   null,
+                                                                   transferEvent.getFrom(),
+                                                                   transferEvent.getTo()))
+                                 .toList();
+    }
+    EventValues eventValues = event == null ? null : Contract.staticExtractEventParameters(event, logObject);
+    if (eventValues == null) {
+      return Collections.emptyList();
+    }
+    List<Type> indexedValues = eventValues.getIndexedValues();
+    List<Type> nonIndexedValues = eventValues.getNonIndexedValues();
+    if (event == DeedTenantProvisioning.DELEGATEEADDED_EVENT) {
+      return Collections.singletonList(newLogEvent(network,
+                                                   logObject,
+                                                   event,
+                                                   getLong(nonIndexedValues.get(0)),
+                                                   null,
+                                                   getAddress(indexedValues.get(0)),
+                                                   getAddress(indexedValues.get(1))));
+    } else {
+      // Offer creation events
+      return Collections.singletonList(newLogEvent(network,
+                                                   logObject,
+                                                   event,
+                                                   getLong(indexedValues.get(1)),
+                                                   getLong(indexedValues.get(0)),
+                                                   getAddress(nonIndexedValues.get(0)),
+                                                   null));
+    }
+  }
+
+  private BlockchainLogEvent newLogEvent(BlockchainNetwork network, // NOSONAR
+                                         LogObject logObject,
+                                         Event event,
+                                         Long nftId,
+                                         Long offerId,
+                                         String fromAddress,
+                                         String toAddress) {
+    long logIndex = logObject.getLogIndex().longValue();
+    return new BlockchainLogEvent(logObject.getTransactionHash() + "-" + logIndex + "-" + nftId,
+                                  network,
+                                  StringUtils.lowerCase(logObject.getAddress()),
+                                  event.getName(),
+                                  nftId,
+                                  offerId,
+                                  fromAddress,
+                                  toAddress,
+                                  logObject.getTransactionHash(),
+                                  logObject.getBlockNumber().longValue(),
+                                  logIndex);
+  }
+
+  private List<BlockchainLogEvent> findDeedEvents(String contractAddress, Event event, long nftId) {
+    return blockchainLogEventRepository.findByContractAddressAndEventNameAndNftIdOrderByBlockNumberDesc(StringUtils.lowerCase(contractAddress),
+                                                                                                      event.getName(),
+                                                                                                      nftId);
+  }
+
+  private List<String> getContractAddresses() {
+    List<String> contractAddresses = new ArrayList<>();
+    contractAddresses.add(deed.getContractAddress());
+    if (deedTenantProvisioning != null) {
+      contractAddresses.add(deedTenantProvisioning.getContractAddress());
+    }
+    if (deedRenting != null) {
+      contractAddresses.add(deedRenting.getContractAddress());
+    }
+    return contractAddresses.stream().filter(StringUtils::isNotBlank).toList();
+  }
+
+  private long getLastIndexedBlock(BlockchainNetwork network) {
+    String lastIndexedBlock = settingService.get(LAST_INDEXED_BLOCK_SETTING_NAME + network.name());
+    return StringUtils.isBlank(lastIndexedBlock) ? -1 : Long.parseLong(lastIndexedBlock);
+  }
+
+  private String getAddress(Type<?> value) {
+    return StringUtils.lowerCase(value.toString());
+  }
+
+  private Long getLong(Type<?> value) {
+    return ((BigInteger) value.getValue()).longValue();
+  }
+
+}
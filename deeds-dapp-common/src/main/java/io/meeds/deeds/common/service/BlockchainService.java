@@ -15,6 +15,8 @@
  */
 package io.meeds.deeds.common.service;
 
+import static io.meeds.deeds.common.utils.WomTransactionUtils.waitForWomTransaction;
+
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -22,15 +24,20 @@ import java.math.MathContext;
 import java.math.RoundingMode;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.StampedLock;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -46,9 +53,16 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.WalletUtils;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.DefaultBlockParameterNumber;
 import org.web3j.protocol.core.RemoteFunctionCall;
@@ -58,6 +72,7 @@ import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
 import org.web3j.protocol.core.methods.response.EthLog;
 import org.web3j.protocol.core.methods.response.EthLog.LogObject;
 import org.web3j.protocol.core.methods.response.EthLog.LogResult;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tuples.generated.Tuple10;
 import org.web3j.tuples.generated.Tuple12;
@@ -69,6 +84,15 @@ import org.web3j.tuples.generated.Tuple9;
 import org.web3j.utils.EnsUtils;
 import org.web3j.utils.Numeric;
 
+import io.meeds.deeds.common.blockchain.BlockRangeLogFetcher;
+import io.meeds.deeds.common.blockchain.BlockRangeLogFetcher.LogFilterFactory;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainLoader;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainNetwork;
+import io.meeds.deeds.common.blockchain.MulticallAggregator;
+import io.meeds.deeds.common.blockchain.MulticallAggregator.MulticallRequest;
+import io.meeds.deeds.common.blockchain.MulticallAggregator.MulticallResult;
+import io.meeds.deeds.common.blockchain.PolygonTransactionPipeline;
 import io.meeds.deeds.common.constant.BlockchainLeaseStatus;
 import io.meeds.deeds.common.constant.BlockchainOfferStatus;
 import io.meeds.deeds.common.constant.CommonConstants.DeedOwnershipTransferEvent;
@@ -79,9 +103,8 @@ import io.meeds.deeds.common.model.DeedOfferBlockchainState;
 import io.meeds.deeds.common.model.FundInfo;
 import io.meeds.deeds.common.model.WomDeed;
 import io.meeds.deeds.common.model.WomHub;
+import io.meeds.deeds.common.utils.BlockchainLogDecoder;
 import io.meeds.deeds.contract.Deed;
-import io.meeds.deeds.contract.Deed.TransferBatchEventResponse;
-import io.meeds.deeds.contract.Deed.TransferSingleEventResponse;
 import io.meeds.deeds.contract.DeedRenting;
 import io.meeds.deeds.contract.DeedRenting.LeaseEndedEventResponse;
 import io.meeds.deeds.contract.DeedRenting.OfferCreatedEventResponse;
@@ -90,15 +113,11 @@ import io.meeds.deeds.contract.DeedRenting.OfferUpdatedEventResponse;
 import io.meeds.deeds.contract.DeedRenting.RentPaidEventResponse;
 import io.meeds.deeds.contract.DeedRenting.TenantEvictedEventResponse;
 import io.meeds.deeds.contract.DeedTenantProvisioning;
-import io.meeds.deeds.contract.DeedTenantProvisioning.TenantStartedEventResponse;
-import io.meeds.deeds.contract.DeedTenantProvisioning.TenantStoppedEventResponse;
 import io.meeds.deeds.contract.ERC20;
 import io.meeds.deeds.contract.MeedsToken;
 import io.meeds.deeds.contract.TokenFactory;
 import io.meeds.deeds.contract.UserEngagementMinting;
 import io.meeds.deeds.contract.WoM;
-import io.meeds.deeds.contract.WoM.HubConnectedEventResponse;
-import io.meeds.deeds.contract.WoM.HubDisconnectedEventResponse;
 import io.meeds.deeds.contract.XMeedsNFTRewarding;
 import io.meeds.wom.api.constant.ObjectNotFoundException;
 import io.meeds.wom.api.constant.WomException;
@@ -110,62 +129,79 @@ import lombok.SneakyThrows;
 @Component
 public class BlockchainService {
 
-  private static final Logger      LOG  = LoggerFactory.getLogger(BlockchainService.class);
-
-  private static final StampedLock LOCK = new StampedLock();
+  private static final Logger           LOG = LoggerFactory.getLogger(BlockchainService.class);
 
   @Autowired
   @Qualifier("ethereumNetwork")
-  private Web3j                    web3j;
+  private Web3j                         web3j;
 
   @Autowired
   @Qualifier("polygonNetwork")
-  private Web3j                    polygonWeb3j;
+  private Web3j                         polygonWeb3j;
 
   @Autowired(required = false)
-  private DeedTenantProvisioning   deedTenantProvisioning;
+  private DeedTenantProvisioning        deedTenantProvisioning;
 
   @Autowired(required = false)
-  private DeedRenting              deedRenting;
+  private DeedRenting                   deedRenting;
 
   @Autowired
-  private Deed                     deed;
+  private Deed                          deed;
 
   @Autowired
-  private TokenFactory             tokenFactory;
+  private TokenFactory                  tokenFactory;
 
   @Autowired
-  private XMeedsNFTRewarding       xMeedsToken;
+  private XMeedsNFTRewarding            xMeedsToken;
 
   @Autowired(required = false)
-  private UserEngagementMinting    uemContract;
+  private UserEngagementMinting         uemContract;
 
   @Autowired(required = false)
   @Qualifier("womContractReadOnly")
-  private WoM                      womContract;
+  private WoM                           womContract;
 
   @Autowired(required = false)
   @Qualifier("womContractReadWrite")
-  private WoM                      womContractWithManager;
+  private WoM                           womContractWithManager;
 
   @Autowired
   @Qualifier("ethereumMeedToken")
-  private MeedsToken               ethereumToken;
+  private MeedsToken                    ethereumToken;
 
   @Autowired
   @Qualifier("polygonMeedToken")
-  private MeedsToken               polygonToken;
+  private MeedsToken                    polygonToken;
 
   @Autowired
   @Qualifier("sushiPairToken")
-  private ERC20                    sushiPairToken;
+  private ERC20                         sushiPairToken;
+
+  @Autowired(required = false)
+  @Qualifier("ethereumMulticall")
+  private MulticallAggregator           ethereumMulticall;
+
+  @Autowired(required = false)
+  private BlockchainReadCache           readCache;
+
+  @Autowired(required = false)
+  private BlockchainLogIndexService     logIndexService;
+
+  @Autowired(required = false)
+  private BlockRangeLogFetcher          blockRangeLogFetcher;
+
+  @Autowired(required = false)
+  private BlockchainSubscriptionService subscriptionService;
+
+  @Autowired(required = false)
+  private PolygonTransactionPipeline    transactionPipeline;
 
   @Value("${io.meeds.maxWaitTransactionSending:3}")
-  private int                      maxWaitTransactionSending;
+  private int                           maxWaitTransactionSending;
 
-  private long                     ethereumNetworkId;
+  private long                          ethereumNetworkId;
 
-  private long                     polygonNetworkId;
+  private long                          polygonNetworkId;
 
   /**
    * Return DEED Tenant Status from Blockchain Contract
@@ -174,11 +210,17 @@ public class BlockchainService {
    * @return if marked as started else false
    */
   public boolean isDeedStarted(long nftId) {
-    try {
-      return deedTenantProvisioning.tenantStatus(BigInteger.valueOf(nftId)).send().booleanValue();
-    } catch (Exception e) {
-      throw new IllegalStateException("Error retrieving information 'getDeedCityIndex' from Blockchain", e);
-    }
+    return cacheForBlock(BlockchainNetwork.ETHEREUM,
+                         deedTenantProvisioning.getContractAddress(),
+                         DeedTenantProvisioning.FUNC_TENANTSTATUS,
+                         () -> {
+                           try {
+                             return deedTenantProvisioning.tenantStatus(BigInteger.valueOf(nftId)).send();
+                           } catch (Exception e) {
+                             throw new IllegalStateException("Error retrieving information 'getDeedCityIndex' from Blockchain", e);
+                           }
+                         },
+                         nftId);
   }
 
   /**
@@ -219,6 +261,10 @@ public class BlockchainService {
    * @return last mined block number
    */
   public long getLastBlock() {
+    long subscribedLastBlock = getSubscribedLastBlock(BlockchainNetwork.ETHEREUM);
+    if (subscribedLastBlock > 0) {
+      return subscribedLastBlock;
+    }
     try {
       return web3j.ethBlockNumber().send().getBlockNumber().longValue();
     } catch (IOException e) {
@@ -230,6 +276,10 @@ public class BlockchainService {
    * @return last mined block number on Polygon Blockchain
    */
   public long getPolygonLastBlock() {
+    long subscribedLastBlock = getSubscribedLastBlock(BlockchainNetwork.POLYGON);
+    if (subscribedLastBlock > 0) {
+      return subscribedLastBlock;
+    }
     try {
       return polygonWeb3j.ethBlockNumber().send().getBlockNumber().longValue();
     } catch (IOException e) {
@@ -238,6 +288,23 @@ public class BlockchainService {
   }
 
   public String getDeedManager(long deedId) {
+    return cacheForBlock(BlockchainNetwork.ETHEREUM,
+                         deedTenantProvisioning.getContractAddress(),
+                         "manager",
+                         () -> retrieveDeedManager(deedId),
+                         deedId);
+  }
+
+  private String retrieveDeedManager(long deedId) {
+    if (isLogIndexSynchronized(BlockchainNetwork.ETHEREUM)) {
+      List<String> managerCandidates = logIndexService.getDeedManagerCandidates(deedId)
+                                                      .stream()
+                                                      .filter(address -> !StringUtils.equalsIgnoreCase(address,
+                                                                                                       EnsUtils.EMPTY_ADDRESS))
+                                                      .toList();
+      String manager = managerCandidates.isEmpty() ? null : findDeedProvisioningManager(deedId, managerCandidates);
+      return manager == null ? getDeedOwner(deedId) : manager;
+    }
     EthFilter ethFilter = new EthFilter(DefaultBlockParameterName.EARLIEST,
                                         DefaultBlockParameterName.LATEST,
                                         deedTenantProvisioning.getContractAddress()).addSingleTopic(EventEncoder.encode(DeedTenantProvisioning.DELEGATEEADDED_EVENT));
@@ -251,10 +318,7 @@ public class BlockchainService {
       return ethLogs.stream()
                     .map(logResult -> (LogObject) logResult.get())
                     .filter(logObject -> !logObject.isRemoved())
-                    .map(LogObject::getTransactionHash)
-                    .map(this::getTransactionReceipt)
-                    .filter(TransactionReceipt::isStatusOK)
-                    .map(this::getMinedDeedTenant)
+                    .map(BlockchainLogDecoder::getDelegatedDeedTenant)
                     .filter(Objects::nonNull)
                     .distinct()
                     .filter(tenant -> tenant.getNftId() == deedId
@@ -277,25 +341,23 @@ public class BlockchainService {
    * @return {@link List} of {@link DeedTenant}
    */
   public List<DeedTenant> getMinedProvisioningTransactions(long fromBlock, long toBlock) {
-    EthFilter ethFilter = new EthFilter(new DefaultBlockParameterNumber(fromBlock),
-                                        new DefaultBlockParameterNumber(toBlock),
-                                        deedTenantProvisioning.getContractAddress());
     try {
-      EthLog ethLog = web3j.ethGetLogs(ethFilter).send();
       @SuppressWarnings("rawtypes")
-      List<LogResult> ethLogs = ethLog.getLogs();
+      List<LogResult> ethLogs = getLogs(web3j,
+                                        fromBlock,
+                                        toBlock,
+                                        (from, to) -> new EthFilter(from, to, deedTenantProvisioning.getContractAddress()));
       if (CollectionUtils.isEmpty(ethLogs)) {
         return Collections.emptyList();
       }
-      return ethLogs.stream()
-                    .map(logResult -> (LogObject) logResult.get())
-                    .filter(logObject -> !logObject.isRemoved())
-                    .map(LogObject::getTransactionHash)
-                    .map(this::getTransactionReceipt)
-                    .filter(TransactionReceipt::isStatusOK)
-                    .map(this::getMinedDeedTenant)
-                    .filter(Objects::nonNull)
-                    .toList();
+      List<DeedTenant> deedTenants = ethLogs.stream()
+                                            .map(logResult -> (LogObject) logResult.get())
+                                            .filter(logObject -> !logObject.isRemoved())
+                                            .map(BlockchainLogDecoder::getDeedTenant)
+                                            .filter(Objects::nonNull)
+                                            .toList();
+      deedTenants.forEach(deedTenant -> invalidateCache(deedTenantProvisioning.getContractAddress(), deedTenant.getNftId()));
+      return deedTenants;
     } catch (IOException e) {
       throw new IllegalStateException("Error retrieving event logs", e);
     }
@@ -303,53 +365,41 @@ public class BlockchainService {
 
   @SneakyThrows
   public List<? extends BaseEventResponse> getMinedUemLogs(long fromBlock, long toBlock) { // NOSONAR
-    EthFilter ethFilter = new EthFilter(fromBlock == 0 ? DefaultBlockParameterName.EARLIEST :
-                                                       new DefaultBlockParameterNumber(fromBlock),
-                                        new DefaultBlockParameterNumber(toBlock),
-                                        womContract.getContractAddress()).addOptionalTopics(EventEncoder.encode(WoM.HUBCONNECTED_EVENT),
-                                                                                            EventEncoder.encode(WoM.HUBDISCONNECTED_EVENT));
-    EthLog ethLog = polygonWeb3j.ethGetLogs(ethFilter).send();
+    if (uemContract == null) {
+      return Collections.emptyList();
+    }
     @SuppressWarnings("rawtypes")
-    List<LogResult> ethLogs = ethLog.getLogs();
+    List<LogResult> ethLogs = getLogs(polygonWeb3j,
+                                      fromBlock,
+                                      toBlock,
+                                      (from, to) -> new EthFilter(from,
+                                                                  to,
+                                                                  uemContract.getContractAddress()).addOptionalTopics(EventEncoder.encode(UserEngagementMinting.REPORTSENT_EVENT),
+                                                                                                                      EventEncoder.encode(UserEngagementMinting.REPORTFRAUD_EVENT),
+                                                                                                                      EventEncoder.encode(UserEngagementMinting.CLAIMED_EVENT)));
     if (CollectionUtils.isEmpty(ethLogs)) {
       return Collections.emptyList();
     }
     return ethLogs.stream()
                   .map(logResult -> (LogObject) logResult.get())
                   .filter(logObject -> !logObject.isRemoved())
-                  .map(LogObject::getTransactionHash)
-                  .map(this::getPolygonTransactionReceipt)
-                  .filter(Objects::nonNull)
-                  .filter(TransactionReceipt::isStatusOK)
-                  .map(this::getUemLogs)
-                  .flatMap(List::stream)
+                  .map(BlockchainLogDecoder::getUemEvent)
                   .filter(Objects::nonNull)
                   .toList();
   }
 
   @SneakyThrows
   public Set<String> getMinedHubConnectionTransactions(long fromBlock, long toBlock) {
-    EthFilter ethFilter = new EthFilter(fromBlock == 0 ? DefaultBlockParameterName.EARLIEST :
-                                                       new DefaultBlockParameterNumber(fromBlock),
-                                        new DefaultBlockParameterNumber(toBlock),
-                                        womContract.getContractAddress()).addOptionalTopics(EventEncoder.encode(WoM.HUBCONNECTED_EVENT),
-                                                                                            EventEncoder.encode(WoM.HUBDISCONNECTED_EVENT));
-    EthLog ethLog = polygonWeb3j.ethGetLogs(ethFilter).send();
     @SuppressWarnings("rawtypes")
-    List<LogResult> ethLogs = ethLog.getLogs();
+    List<LogResult> ethLogs = getLogs(polygonWeb3j, fromBlock, toBlock, this::newHubConnectionFilter);
     if (CollectionUtils.isEmpty(ethLogs)) {
       return Collections.emptySet();
     }
+    invalidateCache(womContract.getContractAddress());
     return ethLogs.stream()
                   .map(logResult -> (LogObject) logResult.get())
                   .filter(logObject -> !logObject.isRemoved())
-                  .map(LogObject::getTransactionHash)
-                  .map(this::getPolygonTransactionReceipt)
-                  .filter(Objects::nonNull)
-                  .filter(TransactionReceipt::isStatusOK)
-                  .map(this::getHubAddresses)
-                  .filter(CollectionUtils::isNotEmpty)
-                  .flatMap(List::stream)
+                  .map(BlockchainLogDecoder::getHubAddress)
                   .filter(StringUtils::isNotBlank)
                   .collect(Collectors.toSet());
   }
@@ -363,36 +413,59 @@ public class BlockchainService {
    */
   public List<Map<?, ?>> getMinedRentingTransactions(long fromBlock, // NOSONAR
                                                      long toBlock) {
-    EthFilter ethFilter = new EthFilter(new DefaultBlockParameterNumber(fromBlock),
-                                        new DefaultBlockParameterNumber(toBlock),
-                                        deedRenting.getContractAddress());
     try {
-      EthLog ethLog = web3j.ethGetLogs(ethFilter).send();
       @SuppressWarnings("rawtypes")
-      List<LogResult> ethLogs = ethLog.getLogs();
+      List<LogResult> ethLogs = getLogs(web3j,
+                                        fromBlock,
+                                        toBlock,
+                                        (from, to) -> new EthFilter(from, to, deedRenting.getContractAddress()));
       if (CollectionUtils.isEmpty(ethLogs)) {
         return Collections.emptyList();
       }
 
-      return ethLogs.stream()
-                    .map(logResult -> (LogObject) logResult.get())
-                    .filter(logObject -> !logObject.isRemoved())
-                    .map(LogObject::getTransactionHash)
-                    .flatMap(transactionHash -> {
-                      Map<?, ?> offerEvents = getOfferTransactionEvents(transactionHash);
-                      Map<?, ?> leaseEvents = getLeaseTransactionEvents(transactionHash);
-                      return MapUtils.isEmpty(offerEvents) ? Stream.of(leaseEvents) :
-                                     MapUtils.isEmpty(leaseEvents) ? Stream.of(offerEvents)// NOSONAR
-                                     : Stream.of(offerEvents, leaseEvents);
-                    })
-                    .filter(MapUtils::isNotEmpty)
-                    .toList();
+      // Group logs by transaction to decode offer and lease events from the
+      // transaction logs without retrieving its receipt
+      Map<String, List<Log>> transactionsLogs = ethLogs.stream()
+                                                       .map(logResult -> (LogObject) logResult.get())
+                                                       .filter(logObject -> !logObject.isRemoved())
+                                                       .collect(Collectors.groupingBy(LogObject::getTransactionHash,
+                                                                                      LinkedHashMap::new,
+                                                                                      Collectors.mapping(Log.class::cast,
+                                                                                                         Collectors.toList())));
+      return transactionsLogs.values()
+                             .stream()
+                             .map(this::toTransactionReceipt)
+                             .flatMap(transactionReceipt -> {
+                               Map<?, ?> offerEvents = getRentingTransactionEvents(transactionReceipt, true);
+                               Map<?, ?> leaseEvents = getRentingTransactionEvents(transactionReceipt, false);
+                               return MapUtils.isEmpty(offerEvents) ? Stream.of(leaseEvents) :
+                                              MapUtils.isEmpty(leaseEvents) ? Stream.of(offerEvents)// NOSONAR
+                                              : Stream.of(offerEvents, leaseEvents);
+                             })
+                             .filter(MapUtils::isNotEmpty)
+                             .toList();
     } catch (IOException e) {
       throw new IllegalStateException("Error retrieving event logs of mined transactions", e);
     }
   }
 
   public String getDeedOwner(long deedId) {
+    return cacheForBlock(BlockchainNetwork.ETHEREUM,
+                         deed.getContractAddress(),
+                         "owner",
+                         () -> retrieveDeedOwner(deedId),
+                         deedId);
+  }
+
+  private String retrieveDeedOwner(long deedId) {
+    if (isLogIndexSynchronized(BlockchainNetwork.ETHEREUM)) {
+      List<String> ownerCandidates = logIndexService.getDeedOwnerCandidates(deedId);
+      String owner = ownerCandidates.isEmpty() ? null : findDeedOwner(deedId, ownerCandidates);
+      if (owner != null) {
+        return owner;
+      }
+      // Transfer may not be indexed yet, thus fallback to logs scan
+    }
     EthFilter ethFilter = new EthFilter(DefaultBlockParameterName.EARLIEST,
                                         DefaultBlockParameterName.LATEST,
                                         deed.getContractAddress()).addOptionalTopics(EventEncoder.encode(Deed.TRANSFERSINGLE_EVENT),
@@ -407,11 +480,8 @@ public class BlockchainService {
       return ethLogs.stream()
                     .map(logResult -> (LogObject) logResult.get())
                     .filter(logObject -> !logObject.isRemoved())
-                    .map(LogObject::getTransactionHash)
-                    .map(this::getTransactionReceipt)
-                    .filter(TransactionReceipt::isStatusOK)
-                    .flatMap(this::getTransferOwnershipEvents)
-                    .filter(Objects::nonNull)
+                    .map(BlockchainLogDecoder::getTransferOwnershipEvents)
+                    .flatMap(List::stream)
                     .map(DeedOwnershipTransferEvent::getTo)
                     .distinct()
                     .filter(address -> isDeedOwner(address, deedId))
@@ -431,25 +501,25 @@ public class BlockchainService {
    * @return {@link Set} of NFT ID of type {@link DeedOwnershipTransferEvent}
    */
   public Set<DeedOwnershipTransferEvent> getMinedTransferOwnershipDeedTransactions(long fromBlock, long toBlock) {
-    EthFilter ethFilter = new EthFilter(new DefaultBlockParameterNumber(fromBlock),
-                                        new DefaultBlockParameterNumber(toBlock),
-                                        deed.getContractAddress());
     try {
-      EthLog ethLog = web3j.ethGetLogs(ethFilter).send();
       @SuppressWarnings("rawtypes")
-      List<LogResult> ethLogs = ethLog.getLogs();
+      List<LogResult> ethLogs = getLogs(web3j,
+                                        fromBlock,
+                                        toBlock,
+                                        (from, to) -> new EthFilter(from, to, deed.getContractAddress()));
       if (CollectionUtils.isEmpty(ethLogs)) {
         return Collections.emptySet();
       }
       List<DeedOwnershipTransferEvent> events = ethLogs.stream()
                                                        .map(logResult -> (LogObject) logResult.get())
                                                        .filter(logObject -> !logObject.isRemoved())
-                                                       .map(LogObject::getTransactionHash)
-                                                       .map(this::getTransactionReceipt)
-                                                       .filter(TransactionReceipt::isStatusOK)
-                                                       .flatMap(this::getTransferOwnershipEvents)
-                                                       .filter(Objects::nonNull)
+                                                       .map(BlockchainLogDecoder::getTransferOwnershipEvents)
+                                                       .flatMap(List::stream)
                                                        .toList();
+      events.forEach(event -> {
+        invalidateCache(deed.getContractAddress(), event.getNftId());
+        invalidateCache(deedTenantProvisioning.getContractAddress(), event.getNftId());
+      });
       return new LinkedHashSet<>(events);
     } catch (IOException e) {
       throw new IllegalStateException("Error retrieving event logs", e);
@@ -465,67 +535,71 @@ public class BlockchainService {
       if (transactionReceipt == null || !transactionReceipt.isStatusOK()) {
         return Collections.emptyMap();
       }
+      return getOfferTransactionEvents(transactionReceipt, transactionHash);
+    } catch (Exception e) {
+      throw new IllegalStateException("Error retrieving transaction receipt " + transactionHash + " logs", e);
+    }
+  }
 
-      Map<BlockchainOfferStatus, DeedOfferBlockchainState> events = new EnumMap<>(BlockchainOfferStatus.class);
-      List<OfferCreatedEventResponse> createdEvents = DeedRenting.getOfferCreatedEvents(transactionReceipt);
-      if (createdEvents != null && !createdEvents.isEmpty()) {
-        if (createdEvents.size() > 1) {
-          LOG.warn("It seems that in a single transaction, we have more than one offer creation, {} events. This can't be handled, only first one will be handled",
-                   createdEvents.size());
-        }
-        OfferCreatedEventResponse response = createdEvents.get(0);
-        DeedOfferBlockchainState deedOffer = getOfferById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
-        events.put(BlockchainOfferStatus.OFFER_CREATED, deedOffer);
+  private Map<BlockchainOfferStatus, DeedOfferBlockchainState> getOfferTransactionEvents(TransactionReceipt transactionReceipt, // NOSONAR
+                                                                                         String transactionHash) throws Exception {
+    Map<BlockchainOfferStatus, DeedOfferBlockchainState> events = new EnumMap<>(BlockchainOfferStatus.class);
+    List<OfferCreatedEventResponse> createdEvents = DeedRenting.getOfferCreatedEvents(transactionReceipt);
+    if (createdEvents != null && !createdEvents.isEmpty()) {
+      if (createdEvents.size() > 1) {
+        LOG.warn("It seems that in a single transaction, we have more than one offer creation, {} events. This can't be handled, only first one will be handled",
+                 createdEvents.size());
       }
-      List<OfferUpdatedEventResponse> updatedEvents = DeedRenting.getOfferUpdatedEvents(transactionReceipt);
-      if (updatedEvents != null && !updatedEvents.isEmpty()) {
-        if (updatedEvents.size() > 1) {
-          LOG.warn("It seems that in a single transaction, we have more than one offer update, {} events. This can't be handled, only first one will be handled",
-                   updatedEvents.size());
-        }
-        OfferUpdatedEventResponse response = updatedEvents.get(0);
-        DeedOfferBlockchainState deedOffer = getOfferById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
-        events.put(BlockchainOfferStatus.OFFER_UPDATED, deedOffer);
+      OfferCreatedEventResponse response = createdEvents.get(0);
+      DeedOfferBlockchainState deedOffer = getOfferById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
+      events.put(BlockchainOfferStatus.OFFER_CREATED, deedOffer);
+    }
+    List<OfferUpdatedEventResponse> updatedEvents = DeedRenting.getOfferUpdatedEvents(transactionReceipt);
+    if (updatedEvents != null && !updatedEvents.isEmpty()) {
+      if (updatedEvents.size() > 1) {
+        LOG.warn("It seems that in a single transaction, we have more than one offer update, {} events. This can't be handled, only first one will be handled",
+                 updatedEvents.size());
       }
-      List<OfferDeletedEventResponse> deletedEvents = DeedRenting.getOfferDeletedEvents(transactionReceipt);
-      if (deletedEvents != null && !deletedEvents.isEmpty()) {
-        if (deletedEvents.size() > 1) {
-          LOG.warn("It seems that in a single transaction, we have more than one offer delete, {} events. This can't be handled, only first one will be handled",
-                   deletedEvents.size());
-        }
-        OfferDeletedEventResponse response = deletedEvents.get(0);
-        DeedOfferBlockchainState deedOffer = new DeedOfferBlockchainState(response.id,
-                                                                          transactionReceipt.getBlockNumber(),
-                                                                          response.deedId,
-                                                                          response.owner,
-                                                                          BigInteger.ZERO,
-                                                                          BigInteger.ZERO,
-                                                                          BigInteger.ZERO,
-                                                                          BigInteger.ZERO,
-                                                                          BigInteger.ZERO,
-                                                                          BigInteger.ZERO,
-                                                                          BigInteger.ZERO,
-                                                                          Address.DEFAULT.getValue(),
-                                                                          BigInteger.ZERO,
-                                                                          StringUtils.lowerCase(transactionHash));
-        events.put(BlockchainOfferStatus.OFFER_DELETED, deedOffer);
+      OfferUpdatedEventResponse response = updatedEvents.get(0);
+      DeedOfferBlockchainState deedOffer = getOfferById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
+      events.put(BlockchainOfferStatus.OFFER_UPDATED, deedOffer);
+    }
+    List<OfferDeletedEventResponse> deletedEvents = DeedRenting.getOfferDeletedEvents(transactionReceipt);
+    if (deletedEvents != null && !deletedEvents.isEmpty()) {
+      if (deletedEvents.size() > 1) {
+        LOG.warn("It seems that in a single transaction, we have more than one offer delete, {} events. This can't be handled, only first one will be handled",
+                 deletedEvents.size());
       }
-      List<RentPaidEventResponse> rentPaidEvents = DeedRenting.getRentPaidEvents(transactionReceipt);
-      if (rentPaidEvents != null && !rentPaidEvents.isEmpty()) {
-        if (rentPaidEvents.size() > 1) {
-          LOG.warn("It seems that in a single transaction, we have more than one rent paid {} events. This can't be handled, only first one will be handled",
-                   rentPaidEvents.size());
-        }
-        RentPaidEventResponse response = rentPaidEvents.get(0);
-        DeedOfferBlockchainState deedOffer = getOfferById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
-        if (response.firstRent.booleanValue()) {
-          events.put(BlockchainOfferStatus.OFFER_ACQUIRED, deedOffer);
-        }
+      OfferDeletedEventResponse response = deletedEvents.get(0);
+      DeedOfferBlockchainState deedOffer = new DeedOfferBlockchainState(response.id,
+                                                                        transactionReceipt.getBlockNumber(),
+                                                                        response.deedId,
+                                                                        response.owner,
+                                                                        BigInteger.ZERO,
+                                                                        BigInteger.ZERO,
+                                                                        BigInteger.ZERO,
+                                                                        BigInteger.ZERO,
+                                                                        BigInteger.ZERO,
+                                                                        BigInteger.ZERO,
+                                                                        BigInteger.ZERO,
+                                                                        Address.DEFAULT.getValue(),
+                                                                        BigInteger.ZERO,
+                                                                        StringUtils.lowerCase(transactionHash));
+      events.put(BlockchainOfferStatus.OFFER_DELETED, deedOffer);
+    }
+    List<RentPaidEventResponse> rentPaidEvents = DeedRenting.getRentPaidEvents(transactionReceipt);
+    if (rentPaidEvents != null && !rentPaidEvents.isEmpty()) {
+      if (rentPaidEvents.size() > 1) {
+        LOG.warn("It seems that in a single transaction, we have more than one rent paid {} events. This can't be handled, only first one will be handled",
+                 rentPaidEvents.size());
+      }
+      RentPaidEventResponse response = rentPaidEvents.get(0);
+      DeedOfferBlockchainState deedOffer = getOfferById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
+      if (response.firstRent.booleanValue()) {
+        events.put(BlockchainOfferStatus.OFFER_ACQUIRED, deedOffer);
       }
-      return events;
-    } catch (Exception e) {
-      throw new IllegalStateException("Error retrieving transaction receipt " + transactionHash + " logs", e);
     }
+    return events;
   }
 
   public Map<BlockchainLeaseStatus, DeedLeaseBlockchainState> getLeaseTransactionEvents(String transactionHash) { // NOSONAR
@@ -537,46 +611,50 @@ public class BlockchainService {
       if (transactionReceipt == null || !transactionReceipt.isStatusOK()) {
         return Collections.emptyMap();
       }
+      return getLeaseTransactionEvents(transactionReceipt, transactionHash);
+    } catch (Exception e) {
+      throw new IllegalStateException("Error retrieving transaction receipt " + transactionHash + " logs", e);
+    }
+  }
 
-      Map<BlockchainLeaseStatus, DeedLeaseBlockchainState> events = new EnumMap<>(BlockchainLeaseStatus.class);
-      List<RentPaidEventResponse> rentPaidEvents = DeedRenting.getRentPaidEvents(transactionReceipt);
-      if (rentPaidEvents != null && !rentPaidEvents.isEmpty()) {
-        if (rentPaidEvents.size() > 1) {
-          LOG.warn("It seems that in a single transaction, we have more than one rent paid {} events. This can't be handled, only first one will be handled",
-                   rentPaidEvents.size());
-        }
-        RentPaidEventResponse response = rentPaidEvents.get(0);
-        DeedLeaseBlockchainState deedLease = getLeaseById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
-        if (response.firstRent.booleanValue()) {
-          events.put(BlockchainLeaseStatus.LEASE_ACQUIRED, deedLease);
-        } else {
-          events.put(BlockchainLeaseStatus.LEASE_PAYED, deedLease);
-        }
+  private Map<BlockchainLeaseStatus, DeedLeaseBlockchainState> getLeaseTransactionEvents(TransactionReceipt transactionReceipt, // NOSONAR
+                                                                                         String transactionHash) throws Exception {
+    Map<BlockchainLeaseStatus, DeedLeaseBlockchainState> events = new EnumMap<>(BlockchainLeaseStatus.class);
+    List<RentPaidEventResponse> rentPaidEvents = DeedRenting.getRentPaidEvents(transactionReceipt);
+    if (rentPaidEvents != null && !rentPaidEvents.isEmpty()) {
+      if (rentPaidEvents.size() > 1) {
+        LOG.warn("It seems that in a single transaction, we have more than one rent paid {} events. This can't be handled, only first one will be handled",
+                 rentPaidEvents.size());
       }
-      List<LeaseEndedEventResponse> leaseEndedEvents = DeedRenting.getLeaseEndedEvents(transactionReceipt);
-      if (leaseEndedEvents != null && !leaseEndedEvents.isEmpty()) {
-        if (leaseEndedEvents.size() > 1) {
-          LOG.warn("It seems that in a single transaction, we have more than one lease ended {} events. This can't be handled, only first one will be handled",
-                   leaseEndedEvents.size());
-        }
-        LeaseEndedEventResponse response = leaseEndedEvents.get(0);
-        DeedLeaseBlockchainState deedLease = getLeaseById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
-        events.put(BlockchainLeaseStatus.LEASE_ENDED, deedLease);
+      RentPaidEventResponse response = rentPaidEvents.get(0);
+      DeedLeaseBlockchainState deedLease = getLeaseById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
+      if (response.firstRent.booleanValue()) {
+        events.put(BlockchainLeaseStatus.LEASE_ACQUIRED, deedLease);
+      } else {
+        events.put(BlockchainLeaseStatus.LEASE_PAYED, deedLease);
       }
-      List<TenantEvictedEventResponse> tenantEvictedEvents = DeedRenting.getTenantEvictedEvents(transactionReceipt);
-      if (tenantEvictedEvents != null && !tenantEvictedEvents.isEmpty()) {
-        if (tenantEvictedEvents.size() > 1) {
-          LOG.warn("It seems that in a single transaction, we have more than one tenant evicted {} events. This can't be handled, only first one will be handled",
-                   tenantEvictedEvents.size());
-        }
-        TenantEvictedEventResponse response = tenantEvictedEvents.get(0);
-        DeedLeaseBlockchainState deedLease = getLeaseById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
-        events.put(BlockchainLeaseStatus.LEASE_MANAGER_EVICTED, deedLease);
+    }
+    List<LeaseEndedEventResponse> leaseEndedEvents = DeedRenting.getLeaseEndedEvents(transactionReceipt);
+    if (leaseEndedEvents != null && !leaseEndedEvents.isEmpty()) {
+      if (leaseEndedEvents.size() > 1) {
+        LOG.warn("It seems that in a single transaction, we have more than one lease ended {} events. This can't be handled, only first one will be handled",
+                 leaseEndedEvents.size());
       }
-      return events;
-    } catch (Exception e) {
-      throw new IllegalStateException("Error retrieving transaction receipt " + transactionHash + " logs", e);
+      LeaseEndedEventResponse response = leaseEndedEvents.get(0);
+      DeedLeaseBlockchainState deedLease = getLeaseById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
+      events.put(BlockchainLeaseStatus.LEASE_ENDED, deedLease);
+    }
+    List<TenantEvictedEventResponse> tenantEvictedEvents = DeedRenting.getTenantEvictedEvents(transactionReceipt);
+    if (tenantEvictedEvents != null && !tenantEvictedEvents.isEmpty()) {
+      if (tenantEvictedEvents.size() > 1) {
+        LOG.warn("It seems that in a single transaction, we have more than one tenant evicted {} events. This can't be handled, only first one will be handled",
+                 tenantEvictedEvents.size());
+      }
+      TenantEvictedEventResponse response = tenantEvictedEvents.get(0);
+      DeedLeaseBlockchainState deedLease = getLeaseById(response.id, transactionReceipt.getBlockNumber(), transactionHash);
+      events.put(BlockchainLeaseStatus.LEASE_MANAGER_EVICTED, deedLease);
     }
+    return events;
   }
 
   public DeedOfferBlockchainState getOfferById(BigInteger offerId,
@@ -633,7 +711,13 @@ public class BlockchainService {
    */
   public boolean isDeedProvisioningManager(String address, long nftId) {
     return WalletUtils.isValidAddress(address)
-           && blockchainCall(deedTenantProvisioning.isProvisioningManager(address, BigInteger.valueOf(nftId)));
+           && cacheForBlock(BlockchainNetwork.ETHEREUM,
+                            deedTenantProvisioning.getContractAddress(),
+                            DeedTenantProvisioning.FUNC_ISPROVISIONINGMANAGER,
+                            () -> blockchainCall(deedTenantProvisioning.isProvisioningManager(address,
+                                                                                              BigInteger.valueOf(nftId))),
+                            address,
+                            nftId);
   }
 
   public double getPendingRewards(String address) {
@@ -652,7 +736,79 @@ public class BlockchainService {
    */
   public boolean isDeedOwner(String address, long nftId) {
     return WalletUtils.isValidAddress(address)
-           && blockchainCall(deed.balanceOf(address, BigInteger.valueOf(nftId))).longValue() > 0;
+           && cacheForBlock(BlockchainNetwork.ETHEREUM,
+                            deed.getContractAddress(),
+                            Deed.FUNC_BALANCEOF,
+                            () -> blockchainCall(deed.balanceOf(address, BigInteger.valueOf(nftId))).longValue() > 0,
+                            address,
+                            nftId);
+  }
+
+  /**
+   * Retrieves from blockchain the first address, in designated order, which is
+   * owner of the deed. All addresses are checked using a single Multicall
+   * request when available.
+   *
+   * @param nftId Deed NFT identifier
+   * @param addresses Ethereum addresses to check
+   * @return first address owning the deed else null
+   */
+  public String findDeedOwner(long nftId, Collection<String> addresses) {
+    List<String> validAddresses = addresses.stream().filter(WalletUtils::isValidAddress).distinct().toList();
+    if (!isMulticallEnabled(validAddresses.size())) {
+      return validAddresses.stream().filter(address -> isDeedOwner(address, nftId)).findFirst().orElse(null);
+    }
+    List<MulticallRequest> calls = validAddresses.stream()
+                                                 .map(address -> new MulticallRequest(deed.getContractAddress(),
+                                                                                      newDeedCallFunction(Deed.FUNC_BALANCEOF,
+                                                                                                          address,
+                                                                                                          nftId,
+                                                                                                          new TypeReference<Uint256>() {
+                                                                                                          })))
+                                                 .toList();
+    List<MulticallResult> results = multicall(calls);
+    for (int i = 0; i < results.size(); i++) {
+      MulticallResult result = results.get(i);
+      if (result.isSuccess() && ((BigInteger) result.getValues().get(0).getValue()).signum() > 0) {
+        return validAddresses.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves from blockchain the first address, in designated order, which is
+   * provisioning manager of the deed. All addresses are checked using a single
+   * Multicall request when available.
+   *
+   * @param nftId Deed NFT identifier
+   * @param addresses Ethereum addresses to check
+   * @return first address managing the deed else null
+   */
+  public String findDeedProvisioningManager(long nftId, Collection<String> addresses) {
+    List<String> validAddresses = addresses.stream().filter(WalletUtils::isValidAddress).distinct().toList();
+    if (!isMulticallEnabled(validAddresses.size())) {
+      return validAddresses.stream()
+                           .filter(address -> isDeedProvisioningManager(address, nftId))
+                           .findFirst()
+                           .orElse(null);
+    }
+    List<MulticallRequest> calls = validAddresses.stream()
+                                                 .map(address -> new MulticallRequest(deedTenantProvisioning.getContractAddress(),
+                                                                                      newDeedCallFunction(DeedTenantProvisioning.FUNC_ISPROVISIONINGMANAGER,
+                                                                                                          address,
+                                                                                                          nftId,
+                                                                                                          new TypeReference<Bool>() {
+                                                                                                          })))
+                                                 .toList();
+    List<MulticallResult> results = multicall(calls);
+    for (int i = 0; i < results.size(); i++) {
+      MulticallResult result = results.get(i);
+      if (result.isSuccess() && Boolean.TRUE.equals(result.getValues().get(0).getValue())) {
+        return validAddresses.get(i);
+      }
+    }
+    return null;
   }
 
   /**
@@ -665,6 +821,10 @@ public class BlockchainService {
    *           exists
    */
   public short getDeedCardType(long nftId) throws ObjectNotFoundException {
+    return cacheImmutable(deed.getContractAddress(), Deed.FUNC_CARDTYPE, () -> retrieveDeedCardType(nftId), nftId);
+  }
+
+  private short retrieveDeedCardType(long nftId) throws ObjectNotFoundException {
     try {
       return deed.cardType(BigInteger.valueOf(nftId)).send().shortValue();
     } catch (Exception e) {
@@ -701,6 +861,10 @@ public class BlockchainService {
    *           exists
    */
   public short getDeedCityIndex(long nftId) throws ObjectNotFoundException {
+    return cacheImmutable(deed.getContractAddress(), Deed.FUNC_CITYINDEX, () -> retrieveDeedCityIndex(nftId), nftId);
+  }
+
+  private short retrieveDeedCityIndex(long nftId) throws ObjectNotFoundException {
     try {
       return deed.cityIndex(BigInteger.valueOf(nftId)).send().shortValue();
     } catch (Exception e) {
@@ -820,11 +984,21 @@ public class BlockchainService {
     return getHubAddressIfConnected(deedTuple == null ? null : deedTuple.component7());
   }
 
-  @SneakyThrows
   public WomDeed getWomDeed(long nftId) {
     if (womContract == null) {
       return null;
     }
+    WomDeed womDeed = cacheForBlock(BlockchainNetwork.POLYGON,
+                                    womContract.getContractAddress(),
+                                    WoM.FUNC_NFTS,
+                                    () -> retrieveWomDeed(nftId),
+                                    nftId);
+    // Return a copy to not alter the cached instance
+    return womDeed == null ? null : womDeed.clone();
+  }
+
+  @SneakyThrows
+  private WomDeed retrieveWomDeed(long nftId) {
     Tuple9<BigInteger, BigInteger, BigInteger, BigInteger, String, String, String, BigInteger, BigInteger> deedTuple =
                                                                                                                      womContract.nfts(BigInteger.valueOf(nftId))
                                                                                                                                 .send();
@@ -851,15 +1025,43 @@ public class BlockchainService {
                                String managerAddress,
                                String hubAddress,
                                short ownerMintingPercentage) throws WomException {
-    updateDeedStatusOnWom(deedId,
-                          city,
-                          cardType,
-                          mintingPower,
-                          maxUsers,
-                          ownerAddress,
-                          managerAddress,
-                          hubAddress,
-                          ownerMintingPercentage);
+    waitForWomTransaction(autoConnectToWomAsync(deedId,
+                                                city,
+                                                cardType,
+                                                mintingPower,
+                                                maxUsers,
+                                                ownerAddress,
+                                                managerAddress,
+                                                hubAddress,
+                                                ownerMintingPercentage));
+  }
+
+  /**
+   * Sends the Deed auto connect transaction to a Hub without waiting for it to
+   * be mined
+   *
+   * @return {@link CompletableFuture} completed once the transaction is mined,
+   *         or completed exceptionally with a {@link WomException} when the
+   *         transaction fails
+   */
+  public CompletableFuture<Void> autoConnectToWomAsync(long deedId, // NOSONAR
+                                                      short city,
+                                                      short cardType,
+                                                      short mintingPower,
+                                                      long maxUsers,
+                                                      String ownerAddress,
+                                                      String managerAddress,
+                                                      String hubAddress,
+                                                      short ownerMintingPercentage) {
+    return updateDeedStatusOnWom(deedId,
+                                 city,
+                                 cardType,
+                                 mintingPower,
+                                 maxUsers,
+                                 ownerAddress,
+                                 managerAddress,
+                                 hubAddress,
+                                 ownerMintingPercentage);
   }
 
   public void updateWomDeed(long deedId, // NOSONAR
@@ -870,15 +1072,40 @@ public class BlockchainService {
                             String ownerAddress,
                             String managerAddress,
                             short ownerMintingPercentage) throws WomException {
-    updateDeedStatusOnWom(deedId,
-                          city,
-                          cardType,
-                          mintingPower,
-                          maxUsers,
-                          ownerAddress,
-                          managerAddress,
-                          EnsUtils.EMPTY_ADDRESS,
-                          ownerMintingPercentage);
+    waitForWomTransaction(updateWomDeedAsync(deedId,
+                                             city,
+                                             cardType,
+                                             mintingPower,
+                                             maxUsers,
+                                             ownerAddress,
+                                             managerAddress,
+                                             ownerMintingPercentage));
+  }
+
+  /**
+   * Sends the Deed update transaction without waiting for it to be mined
+   *
+   * @return {@link CompletableFuture} completed once the transaction is mined,
+   *         or completed exceptionally with a {@link WomException} when the
+   *         transaction fails
+   */
+  public CompletableFuture<Void> updateWomDeedAsync(long deedId, // NOSONAR
+                                                   short city,
+                                                   short cardType,
+                                                   short mintingPower,
+                                                   long maxUsers,
+                                                   String ownerAddress,
+                                                   String managerAddress,
+                                                   short ownerMintingPercentage) {
+    return updateDeedStatusOnWom(deedId,
+                                 city,
+                                 cardType,
+                                 mintingPower,
+                                 maxUsers,
+                                 ownerAddress,
+                                 managerAddress,
+                                 EnsUtils.EMPTY_ADDRESS,
+                                 ownerMintingPercentage);
   }
 
   @SneakyThrows
@@ -1016,9 +1243,12 @@ public class BlockchainService {
                       .component8();
   }
 
-  @SneakyThrows
   public boolean isHubConnected(String address) {
-    return womContract.isHubConnected(address).send().booleanValue();
+    return cacheForBlock(BlockchainNetwork.POLYGON,
+                         womContract.getContractAddress(),
+                         WoM.FUNC_ISHUBCONNECTED,
+                         () -> blockchainCall(womContract.isHubConnected(address)),
+                         address);
   }
 
   public String getEthereumMeedTokenAddress() {
@@ -1126,6 +1356,12 @@ public class BlockchainService {
 
   @SuppressWarnings("rawtypes")
   public String getOfferCreationTransactionHash(BigInteger offerId) throws IOException {
+    if (isLogIndexSynchronized(BlockchainNetwork.ETHEREUM)) {
+      String transactionHash = logIndexService.getOfferCreationTransactionHash(offerId.longValue());
+      if (transactionHash != null) {
+        return transactionHash;
+      }
+    }
     try {
       EthFilter ethFilter = new EthFilter(DefaultBlockParameterName.EARLIEST,
                                           DefaultBlockParameterName.LATEST,
@@ -1145,65 +1381,29 @@ public class BlockchainService {
     return null;
   }
 
-  private Stream<DeedOwnershipTransferEvent> getTransferOwnershipEvents(TransactionReceipt transactionReceipt) {
-    List<TransferSingleEventResponse> transferSingleEvents = Deed.getTransferSingleEvents(transactionReceipt);
-    if (transferSingleEvents != null && !transferSingleEvents.isEmpty()) {
-      return transferSingleEvents.stream()
-                                 .map(transferSingleEventResponse -> new DeedOwnershipTransferEvent(transferSingleEventResponse._id.longValue(),
-                                                                                                    transferSingleEventResponse._from,
-                                                                                                    transferSingleEventResponse._to));
-    }
-    List<TransferBatchEventResponse> transferBatchEvents = Deed.getTransferBatchEvents(transactionReceipt);
-    if (transferBatchEvents != null && !transferBatchEvents.isEmpty()) {
-      return transferBatchEvents.stream().flatMap(transferBatchEventResponse -> {
-        String from = transferBatchEventResponse._from;
-        String to = transferBatchEventResponse._to;
-        return transferBatchEventResponse._ids.stream()
-                                              .map(nftId -> new DeedOwnershipTransferEvent(nftId.longValue(),
-                                                                                           from,
-                                                                                           to));
-      });
-    }
-    return Stream.empty();
-  }
-
-  private DeedTenant getMinedDeedTenant(TransactionReceipt transactionReceipt) {
-    List<TenantStartedEventResponse> startedEvents =
-                                                   DeedTenantProvisioning.getTenantStartedEvents(transactionReceipt);
-    if (startedEvents != null && !startedEvents.isEmpty()) {
-      TenantStartedEventResponse tenantStartedEventResponse = startedEvents.get(0);
-      DeedTenant deedTenant = new DeedTenant();
-      deedTenant.setNftId(tenantStartedEventResponse.nftId.longValue());
-      deedTenant.setStartupTransactionHash(transactionReceipt.getTransactionHash());
-      deedTenant.setManagerAddress(tenantStartedEventResponse.manager.toLowerCase());
-      return deedTenant;
-    }
-    List<TenantStoppedEventResponse> endedEvents =
-                                                 DeedTenantProvisioning.getTenantStoppedEvents(transactionReceipt);
-    if (endedEvents != null && !endedEvents.isEmpty()) {
-      TenantStoppedEventResponse tenantStoppedEventResponse = endedEvents.get(0);
-      DeedTenant deedTenant = new DeedTenant();
-      deedTenant.setNftId(tenantStoppedEventResponse.nftId.longValue());
-      deedTenant.setShutdownTransactionHash(transactionReceipt.getTransactionHash());
-      deedTenant.setManagerAddress(tenantStoppedEventResponse.manager.toLowerCase());
-      return deedTenant;
+  private Map<?, ?> getRentingTransactionEvents(TransactionReceipt transactionReceipt, boolean offerEvents) {
+    String transactionHash = transactionReceipt.getTransactionHash();
+    try {
+      return offerEvents ? getOfferTransactionEvents(transactionReceipt, transactionHash) :
+                         getLeaseTransactionEvents(transactionReceipt, transactionHash);
+    } catch (Exception e) {
+      throw new IllegalStateException("Error retrieving transaction " + transactionHash + " logs", e);
     }
-    return null;
   }
 
-  private List<String> getHubAddresses(TransactionReceipt transactionReceipt) {
-    List<String> result = new ArrayList<>();
-    List<HubConnectedEventResponse> hubConnectedEvents = WoM.getHubConnectedEvents(transactionReceipt);
-    if (CollectionUtils.isNotEmpty(hubConnectedEvents)) {
-      HubConnectedEventResponse hubConnectedEventResponse = hubConnectedEvents.get(0);
-      result.add(hubConnectedEventResponse.hub);
-    }
-    List<HubDisconnectedEventResponse> hubDisconnectedEvents = WoM.getHubDisconnectedEvents(transactionReceipt);
-    if (CollectionUtils.isNotEmpty(hubDisconnectedEvents)) {
-      HubDisconnectedEventResponse hubDisconnectedEventResponse = hubDisconnectedEvents.get(0);
-      result.add(hubDisconnectedEventResponse.hub);
-    }
-    return result;
+  /**
+   * Builds a {@link TransactionReceipt} holding the mined logs of a
+   * transaction, knowing that only successful transactions emit logs
+   */
+  private TransactionReceipt toTransactionReceipt(List<Log> logs) {
+    Log firstLog = logs.get(0);
+    TransactionReceipt transactionReceipt = new TransactionReceipt();
+    transactionReceipt.setTransactionHash(firstLog.getTransactionHash());
+    transactionReceipt.setBlockHash(firstLog.getBlockHash());
+    transactionReceipt.setBlockNumber(firstLog.getBlockNumberRaw());
+    transactionReceipt.setStatus("0x1");
+    transactionReceipt.setLogs(logs);
+    return transactionReceipt;
   }
 
   private TransactionReceipt getPolygonTransactionReceipt(String transactionHash) {
@@ -1226,6 +1426,85 @@ public class BlockchainService {
     return null;
   }
 
+  private <T, E extends Exception> T cacheImmutable(String contractAddress,
+                                                    String method,
+                                                    BlockchainLoader<T, E> loader,
+                                                    Object... args) throws E {
+    return readCache == null ? loader.load() : readCache.getImmutable(contractAddress, method, loader, args);
+  }
+
+  private <T, E extends Exception> T cacheForBlock(BlockchainNetwork network,
+                                                   String contractAddress,
+                                                   String method,
+                                                   BlockchainLoader<T, E> loader,
+                                                   Object... args) throws E {
+    return readCache == null ? loader.load() : readCache.getForBlock(network, contractAddress, method, loader, args);
+  }
+
+  private void invalidateCache(String contractAddress, Object arg) {
+    if (readCache != null) {
+      readCache.invalidate(contractAddress, arg);
+    }
+  }
+
+  private void invalidateCache(String contractAddress) {
+    if (readCache != null) {
+      readCache.invalidate(contractAddress);
+    }
+  }
+
+  /**
+   * Retrieves logs of a block range through the {@link BlockRangeLogFetcher}
+   * when available, else using a single eth_getLogs request
+   */
+  @SuppressWarnings("rawtypes")
+  private List<LogResult> getLogs(Web3j networkWeb3j,
+                                  long fromBlock,
+                                  long toBlock,
+                                  LogFilterFactory filterFactory) throws IOException {
+    if (blockRangeLogFetcher == null) {
+      EthFilter ethFilter = filterFactory.newFilter(fromBlock == 0 ? DefaultBlockParameterName.EARLIEST :
+                                                                   new DefaultBlockParameterNumber(fromBlock),
+                                                    new DefaultBlockParameterNumber(toBlock));
+      return networkWeb3j.ethGetLogs(ethFilter).send().getLogs();
+    } else {
+      return blockRangeLogFetcher.getLogs(networkWeb3j, fromBlock, toBlock, filterFactory);
+    }
+  }
+
+  private EthFilter newHubConnectionFilter(DefaultBlockParameter fromBlock, DefaultBlockParameter toBlock) {
+    return new EthFilter(fromBlock,
+                         toBlock,
+                         womContract.getContractAddress()).addOptionalTopics(EventEncoder.encode(WoM.HUBCONNECTED_EVENT),
+                                                                             EventEncoder.encode(WoM.HUBDISCONNECTED_EVENT));
+  }
+
+  private long getSubscribedLastBlock(BlockchainNetwork network) {
+    return subscriptionService == null ? -1 : subscriptionService.getLastBlock(network);
+  }
+
+  private boolean isLogIndexSynchronized(BlockchainNetwork network) {
+    return logIndexService != null && logIndexService.isSynchronized(network);
+  }
+
+  private boolean isMulticallEnabled(int callsCount) {
+    return callsCount > 1 && ethereumMulticall != null && ethereumMulticall.isEnabled();
+  }
+
+  private Function newDeedCallFunction(String functionName, String address, long nftId, TypeReference<?> outputType) {
+    return new Function(functionName,
+                        Arrays.<Type> asList(new Address(address), new Uint256(nftId)),
+                        Collections.<TypeReference<?>> singletonList(outputType));
+  }
+
+  private List<MulticallResult> multicall(List<MulticallRequest> calls) {
+    try {
+      return ethereumMulticall.aggregate(calls);
+    } catch (Exception e) {
+      throw new IllegalStateException("Error calling blockchain", e);
+    }
+  }
+
   private <T> T blockchainCall(RemoteFunctionCall<T> remoteCall) {
     try {
       return remoteCall.send();
@@ -1262,72 +1541,68 @@ public class BlockchainService {
     return hubAddress != null && womContract.isHubConnected(hubAddress).send() ? hubAddress : null;
   }
 
-  private void updateDeedStatusOnWom(long deedId, // NOSONAR
-                                     short city,
-                                     short cardType,
-                                     short mintingPower,
-                                     long maxUsers,
-                                     String ownerAddress,
-                                     String managerAddress,
-                                     String hubAddress,
-                                     short ownerMintingPercentage) throws WomException {
-    long stamp;
-    try {
-      stamp = LOCK.tryWriteLock(maxWaitTransactionSending * 3l, TimeUnit.MINUTES);
-    } catch (InterruptedException e) { // NOSONAR
-      throw new WomException("wom.updateDeedTransactionTimedOut");
+  private CompletableFuture<Void> updateDeedStatusOnWom(long deedId, // NOSONAR
+                                                        short city,
+                                                        short cardType,
+                                                        short mintingPower,
+                                                        long maxUsers,
+                                                        String ownerAddress,
+                                                        String managerAddress,
+                                                        String hubAddress,
+                                                        short ownerMintingPercentage) {
+    WoM.Deed womDeed = new WoM.Deed(BigInteger.valueOf(city),
+                                    BigInteger.valueOf(cardType),
+                                    BigInteger.valueOf(mintingPower),
+                                    BigInteger.valueOf(maxUsers),
+                                    ownerAddress,
+                                    managerAddress,
+                                    hubAddress,
+                                    BigInteger.valueOf(ownerMintingPercentage),
+                                    BigInteger.valueOf(100l - ownerMintingPercentage));
+    CompletableFuture<TransactionReceipt> transactionReceiptFuture;
+    if (transactionPipeline != null && transactionPipeline.isEnabled()) {
+      String data = FunctionEncoder.encode(new Function(WoM.FUNC_UPDATEDEED,
+                                                        Arrays.<Type> asList(new Uint256(deedId), womDeed),
+                                                        Collections.emptyList()));
+      // Timed out by the pipeline, which synchronizes the nonce when the
+      // transaction isn't mined
+      transactionReceiptFuture = transactionPipeline.sendTransaction(womContractWithManager.getContractAddress(),
+                                                                     data,
+                                                                     WoM.FUNC_UPDATEDEED);
+    } else {
+      transactionReceiptFuture = womContractWithManager.updateDeed(BigInteger.valueOf(deedId), womDeed)
+                                                       .sendAsync()
+                                                       .orTimeout(maxWaitTransactionSending, TimeUnit.MINUTES);
     }
-    try {
-      TransactionReceipt transactionReceipt = womContractWithManager.updateDeed(BigInteger.valueOf(deedId),
-                                                                                new io.meeds.deeds.contract.WoM.Deed(BigInteger.valueOf(city),
-                                                                                                                     BigInteger.valueOf(cardType),
-                                                                                                                     BigInteger.valueOf(mintingPower),
-                                                                                                                     BigInteger.valueOf(maxUsers),
-                                                                                                                     ownerAddress,
-                                                                                                                     managerAddress,
-                                                                                                                     hubAddress,
-                                                                                                                     BigInteger.valueOf(ownerMintingPercentage),
-                                                                                                                     BigInteger.valueOf(100l -
-                                                                                                                         ownerMintingPercentage)))
-                                                                    .sendAsync()
-                                                                    .orTimeout(maxWaitTransactionSending, TimeUnit.MINUTES)
-                                                                    .get();
-      if (transactionReceipt == null) {
-        throw new WomException("wom.updateDeedTransactionFailedWithoutReceipt");
-      } else if (!transactionReceipt.isStatusOK()) {
-        String message = getWomContractMessage(transactionReceipt.getRevertReason());
-        if (StringUtils.isNotBlank(message)) {
-          throw new WomException(message);
-        } else {
-          message = getWomContractMessage(transactionReceipt.getStatus());
-          if (StringUtils.isNotBlank(message)) {
-            throw new WomException(message);
-          } else {
-            throw new WomException("wom.updateDeedTransactionFailed");
-          }
-        }
-      }
-    } catch (Exception e) { // NOSONAR
-      String message = getWomContractExceptionMessage(e);
-      if (StringUtils.isNotBlank(message)) {
-        throw new WomException(message);
+    return transactionReceiptFuture.handle((transactionReceipt, error) -> {
+      checkWomTransactionReceipt(transactionReceipt, error);
+      return null;
+    });
+  }
+
+  private void checkWomTransactionReceipt(TransactionReceipt transactionReceipt, Throwable error) {
+    if (error != null) {
+      Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      String message = getWomContractExceptionMessage(cause);
+      if (cause instanceof TimeoutException) {
+        throw new CompletionException(new WomException("wom.updateDeedTransactionTimedOut"));
+      } else if (StringUtils.isNotBlank(message)) {
+        throw new CompletionException(new WomException(message));
       } else {
-        throw new IllegalStateException("Error While processing Deed Update transaction", e);
+        throw new CompletionException(new IllegalStateException("Error While processing Deed Update transaction", cause));
+      }
+    } else if (transactionReceipt == null) {
+      throw new CompletionException(new WomException("wom.updateDeedTransactionFailedWithoutReceipt"));
+    } else if (!transactionReceipt.isStatusOK()) {
+      String message = getWomContractMessage(StringUtils.defaultString(transactionReceipt.getRevertReason()));
+      if (StringUtils.isBlank(message)) {
+        message = getWomContractMessage(StringUtils.defaultString(transactionReceipt.getStatus()));
       }
-    } finally {
-      LOCK.unlock(stamp);
+      throw new CompletionException(new WomException(StringUtils.isBlank(message) ? "wom.updateDeedTransactionFailed" :
+                                                                                  message));
     }
   }
 
-  private List<? extends BaseEventResponse> getUemLogs(TransactionReceipt transactionReceipt) {
-    return Stream.of(UserEngagementMinting.getReportSentEvents(transactionReceipt),
-                     UserEngagementMinting.getReportFraudEvents(transactionReceipt),
-                     UserEngagementMinting.getClaimedEvents(transactionReceipt))
-                 .flatMap(List::stream)
-                 .filter(Objects::nonNull)
-                 .toList();
-  }
-
   private double convertFromDecimals(BigInteger amount, int decimals) {
     return amount == null ? 0 :
                           BigDecimal.valueOf(amount.doubleValue())
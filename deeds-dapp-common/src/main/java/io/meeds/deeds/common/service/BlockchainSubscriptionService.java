@@ -0,0 +1,490 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.service;
+
+import static io.meeds.deeds.common.constant.CommonConstants.DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Component;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog.LogObject;
+import org.web3j.protocol.core.methods.response.EthLog.LogResult;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.utils.Numeric;
+
+import io.meeds.deeds.common.blockchain.BlockRangeLogFetcher;
+import io.meeds.deeds.common.blockchain.BlockRangeLogFetcher.LogFilterFactory;
+import io.meeds.deeds.common.blockchain.BlockchainConfigurationProperties;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainNetwork;
+import io.meeds.deeds.common.constant.CommonConstants.DeedOwnershipTransferEvent;
+import io.meeds.deeds.common.elasticsearch.ClusterLockManager;
+import io.meeds.deeds.common.utils.BlockchainLogDecoder;
+import io.meeds.deeds.contract.Deed;
+import io.meeds.deeds.contract.DeedRenting;
+import io.meeds.deeds.contract.DeedTenantProvisioning;
+import io.reactivex.disposables.CompositeDisposable;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+
+/**
+ * Optional push mode of mined blocks and contract events, enabled when a
+ * WebSocket URL is configured for a network. It subscribes to 'newHeads' to
+ * keep the last mined block up to date and to the 'logs' of Deed contracts to
+ * invalidate the read cache of transferred deeds and to publish renting
+ * transactions using {@link ListenerService} as soon as they are mined. When
+ * the connection is lost, HTTP polling is used until the subscription is
+ * established again, then the missed block range is backfilled from the last
+ * seen block.
+ * <p>
+ * Since all the nodes subscribe, a renting transaction is claimed in the
+ * cluster using {@link ClusterLockManager} before being published, so that a
+ * single node publishes it. Deed ownership transfers aren't published here,
+ * they are published once by the Tenant Provisioning application.
+ */
+@Component
+public class BlockchainSubscriptionService {
+
+  private static final Logger                                 LOG                 =
+                                                                  LoggerFactory.getLogger(BlockchainSubscriptionService.class);
+
+  @Autowired
+  private BlockchainConfigurationProperties                   properties;
+
+  @Autowired
+  private ListenerService                                     listenerService;
+
+  @Autowired
+  @Qualifier("ethereumNetwork")
+  private Web3j                                               web3j;
+
+  @Autowired
+  private Deed                                                deed;
+
+  @Autowired(required = false)
+  private DeedRenting                                         deedRenting;
+
+  @Autowired(required = false)
+  private DeedTenantProvisioning                              deedTenantProvisioning;
+
+  @Autowired(required = false)
+  private BlockchainReadCache                                 readCache;
+
+  @Autowired(required = false)
+  private BlockRangeLogFetcher                                blockRangeLogFetcher;
+
+  @Autowired(required = false)
+  private ClusterLockManager                                  clusterLockManager;
+
+  @Autowired(required = false)
+  private ElasticsearchOperations                             elasticsearchOperations;
+
+  @Value("${meeds.blockchain.ws.backfillOverlap:12}")
+  private long                                                backfillOverlap;
+
+  @Value("${meeds.blockchain.ws.processedLogsMaxSize:10000}")
+  private int                                                 processedLogsMaxSize;
+
+  @Value("${meeds.blockchain.ws.claimTtlSeconds:86400}")
+  private long                                                claimTtlSeconds;
+
+  private final Map<BlockchainNetwork, BlockchainSubscription> subscriptions       = new EnumMap<>(BlockchainNetwork.class);
+
+  private final Map<BlockchainNetwork, Long>                  lastBlocks          = new EnumMap<>(BlockchainNetwork.class);
+
+  private final Map<String, Boolean>                          processedLogs       = newProcessedLogsMap();
+
+  private final AtomicLong                                    lastSeenBlock       = new AtomicLong(-1);
+
+  @Getter
+  private final AtomicLong                                    connectionsCount    = new AtomicLong();
+
+  @Getter
+  private final AtomicLong                                    backfilledLogsCount = new AtomicLong();
+
+  public boolean isEnabled(BlockchainNetwork network) {
+    return StringUtils.isNotBlank(getWebSocketUrl(network));
+  }
+
+  /**
+   * @param network {@link BlockchainNetwork}
+   * @return true if the network events are currently pushed through WebSocket
+   *         subscription
+   */
+  public boolean isConnected(BlockchainNetwork network) {
+    synchronized (subscriptions) {
+      BlockchainSubscription subscription = subscriptions.get(network);
+      return subscription != null && subscription.connected;
+    }
+  }
+
+  /**
+   * @param network {@link BlockchainNetwork}
+   * @return last mined block number pushed by 'newHeads' subscription, else
+   *         -1 when not connected, in which case HTTP polling has to be used
+   */
+  public long getLastBlock(BlockchainNetwork network) {
+    if (!isConnected(network)) {
+      return -1;
+    }
+    synchronized (lastBlocks) {
+      return lastBlocks.getOrDefault(network, -1l);
+    }
+  }
+
+  /**
+   * Establishes the subscriptions of enabled networks when not connected. When
+   * a previous connection was lost, the logs mined in the meantime are
+   * retrieved using HTTP requests. This method is intended to be called
+   * periodically to reconnect as soon as the WebSocket endpoint is reachable
+   * again.
+   */
+  public synchronized void checkSubscriptions() {
+    for (BlockchainNetwork network : BlockchainNetwork.values()) {
+      if (isEnabled(network) && !isConnected(network)) {
+        long lastBlockBeforeConnection = lastSeenBlock.get();
+        boolean connected = subscribe(network);
+        if (network == BlockchainNetwork.ETHEREUM) {
+          // Retrieve missed logs even if the connection failed, to fallback
+          // to HTTP polling until the subscription is established again
+          backfillLogs(lastBlockBeforeConnection);
+        }
+        if (connected) {
+          connectionsCount.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  @PreDestroy
+  public synchronized void unsubscribe() {
+    for (BlockchainNetwork network : BlockchainNetwork.values()) {
+      closeSubscription(network);
+    }
+  }
+
+  private boolean subscribe(BlockchainNetwork network) {
+    closeSubscription(network);
+    String url = getWebSocketUrl(network);
+    WebSocketService webSocketService = new WebSocketService(url, false);
+    BlockchainSubscription subscription = new BlockchainSubscription(webSocketService);
+    try {
+      webSocketService.connect(message -> LOG.trace("{} WebSocket message received: {}", network, message),
+                               error -> onDisconnect(network, subscription, error),
+                               () -> onDisconnect(network, subscription, null));
+    } catch (ConnectException e) {
+      LOG.warn("Can't connect to {} WebSocket endpoint, use HTTP polling instead. Error: {}", network, e.getMessage());
+      return false;
+    }
+    Web3j webSocketWeb3j = Web3j.build(webSocketService);
+    subscription.connected = true;
+    synchronized (subscriptions) {
+      subscriptions.put(network, subscription);
+    }
+    subscription.disposables.add(webSocketWeb3j.newHeadsNotifications()
+                                               .subscribe(notification -> onNewHead(network,
+                                                                                    notification.getParams()
+                                                                                                .getResult()
+                                                                                                .getNumber()),
+                                                          error -> onDisconnect(network, subscription, error)));
+    if (network == BlockchainNetwork.ETHEREUM) {
+      subscription.disposables.add(webSocketWeb3j.logsNotifications(getContractAddresses(), Collections.emptyList())
+                                                 .subscribe(notification -> onLog(toLog(notification.getParams()
+                                                                                                    .getResult())),
+                                                            error -> onDisconnect(network, subscription, error)));
+    }
+    LOG.info("Subscribed to {} blocks and events using WebSocket endpoint", network);
+    return true;
+  }
+
+  private void onNewHead(BlockchainNetwork network, String blockNumberHex) {
+    long blockNumber = Numeric.decodeQuantity(blockNumberHex).longValue();
+    synchronized (lastBlocks) {
+      lastBlocks.put(network, blockNumber);
+    }
+    if (network == BlockchainNetwork.ETHEREUM) {
+      updateLastSeenBlock(blockNumber);
+    }
+    if (readCache != null) {
+      readCache.onNewBlock(network, blockNumber);
+    }
+  }
+
+  private void onDisconnect(BlockchainNetwork network, BlockchainSubscription subscription, Throwable error) {
+    if (!subscription.connected) {
+      return;
+    }
+    subscription.connected = false;
+    if (error == null) {
+      LOG.warn("{} WebSocket connection closed, use HTTP polling until reconnected", network);
+    } else {
+      LOG.warn("{} WebSocket subscription error, use HTTP polling until reconnected. Error: {}",
+               network,
+               error.getMessage());
+    }
+  }
+
+  private void closeSubscription(BlockchainNetwork network) {
+    BlockchainSubscription subscription;
+    synchronized (subscriptions) {
+      subscription = subscriptions.remove(network);
+    }
+    if (subscription != null) {
+      subscription.connected = false;
+      subscription.disposables.dispose();
+      try {
+        subscription.webSocketService.close();
+      } catch (Exception e) {
+        LOG.debug("Error while closing {} WebSocket connection", network, e);
+      }
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private void backfillLogs(long lastBlock) {
+    if (lastBlock < 0) {
+      // Never connected yet, only new mined events are pushed
+      return;
+    }
+    long fromBlock = Math.max(0, lastBlock - backfillOverlap);
+    try {
+      long toBlock = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+      if (toBlock < fromBlock) {
+        return;
+      }
+      List<String> contractAddresses = getContractAddresses();
+      LogFilterFactory filterFactory = (from, to) -> new EthFilter(from, to, contractAddresses);
+      List<LogResult> logs;
+      if (blockRangeLogFetcher == null) {
+        logs = web3j.ethGetLogs(filterFactory.newFilter(new DefaultBlockParameterNumber(fromBlock),
+                                                        new DefaultBlockParameterNumber(toBlock)))
+                    .send()
+                    .getLogs();
+      } else {
+        logs = blockRangeLogFetcher.getLogs(web3j, fromBlock, toBlock, filterFactory);
+      }
+      if (logs != null) {
+        logs.stream()
+            .map(logResult -> (LogObject) logResult.get())
+            .filter(logObject -> !logObject.isRemoved())
+            .forEach(logObject -> {
+              if (onLog(logObject)) {
+                backfilledLogsCount.incrementAndGet();
+              }
+            });
+      }
+      updateLastSeenBlock(toBlock);
+      LOG.debug("Backfilled Deed contracts logs from block {} to {}", fromBlock, toBlock);
+    } catch (IOException e) {
+      LOG.warn("Error while retrieving Deed contracts logs from block {}. Will retry on next check.", fromBlock, e);
+    }
+  }
+
+  private boolean onLog(Log log) {
+    if (log == null || !markAsProcessed(log)) {
+      return false;
+    }
+    boolean processed = false;
+    try {
+      if (log.getBlockNumberRaw() != null) {
+        updateLastSeenBlock(log.getBlockNumber().longValue());
+      }
+      if (StringUtils.equalsIgnoreCase(log.getAddress(), deed.getContractAddress())) {
+        List<DeedOwnershipTransferEvent> transferEvents = BlockchainLogDecoder.getTransferOwnershipEvents(log);
+        transferEvents.forEach(event -> {
+          invalidateCache(deed.getContractAddress(), event.getNftId());
+          if (deedTenantProvisioning != null) {
+            invalidateCache(deedTenantProvisioning.getContractAddress(), event.getNftId());
+          }
+        });
+      } else if (deedRenting != null
+          && StringUtils.equalsIgnoreCase(log.getAddress(), deedRenting.getContractAddress())
+          && markAsProcessed(log.getTransactionHash())) {
+        publishRentingTransaction(log.getTransactionHash());
+      }
+      processed = true;
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Error while processing mined log of transaction {}", log.getTransactionHash(), e);
+      return false;
+    } finally {
+      if (!processed) {
+        // Allow to process the log again when received again
+        unmarkAsProcessed(log);
+      }
+    }
+  }
+
+  private void publishRentingTransaction(String transactionHash) {
+    boolean published = false;
+    boolean claimed = false;
+    try {
+      claimed = claim(transactionHash);
+      if (claimed) {
+        // A single event is published by transaction since Offers and Leases
+        // states are computed from the whole transaction events
+        listenerService.publishEvent(DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT, transactionHash);
+      }
+      published = true;
+    } finally {
+      if (!published) {
+        // Release the transaction so that it's published again by the first
+        // node receiving it again instead of being lost
+        unmarkAsProcessed(transactionHash);
+        if (claimed) {
+          releaseClaim(transactionHash);
+        }
+      }
+    }
+  }
+
+  private Log toLog(org.web3j.protocol.websocket.events.Log log) {
+    return new Log(false,
+                   log.getLogIndex(),
+                   log.getTransactionIndex(),
+                   log.getTransactionHash(),
+                   log.getBlockHash(),
+                   log.getBlockNumber(),
+                   log.getAddress(),
+                   log.getData(),
+                   null,
+                   log.getTopics());
+  }
+
+  private boolean markAsProcessed(Log log) {
+    return markAsProcessed(log.getTransactionHash() + "-" + log.getLogIndexRaw());
+  }
+
+  private boolean markAsProcessed(String key) {
+    synchronized (processedLogs) {
+      return processedLogs.put(StringUtils.lowerCase(key), Boolean.TRUE) == null;
+    }
+  }
+
+  private void unmarkAsProcessed(Log log) {
+    unmarkAsProcessed(log.getTransactionHash() + "-" + log.getLogIndexRaw());
+  }
+
+  private void unmarkAsProcessed(String key) {
+    synchronized (processedLogs) {
+      processedLogs.remove(StringUtils.lowerCase(key));
+    }
+  }
+
+  /**
+   * @param transactionHash mined transaction hash
+   * @return true if the current node is the first to claim the transaction in
+   *         the cluster. When the claim can't be checked, true is returned to
+   *         not miss the transaction.
+   */
+  private boolean claim(String transactionHash) {
+    if (clusterLockManager == null || elasticsearchOperations == null) {
+      return true;
+    }
+    try {
+      return clusterLockManager.claim(elasticsearchOperations,
+                                      getClaimKey(transactionHash),
+                                      Duration.ofSeconds(claimTtlSeconds));
+    } catch (RuntimeException e) {
+      LOG.warn("Can't claim renting transaction {} in cluster, publish it anyway", transactionHash, e);
+      return true;
+    }
+  }
+
+  private void releaseClaim(String transactionHash) {
+    if (clusterLockManager == null || elasticsearchOperations == null) {
+      return;
+    }
+    try {
+      clusterLockManager.unlock(elasticsearchOperations, getClaimKey(transactionHash));
+    } catch (RuntimeException e) {
+      LOG.warn("Can't release claim of renting transaction {} in cluster", transactionHash, e);
+    }
+  }
+
+  private String getClaimKey(String transactionHash) {
+    return "renting-transaction-" + StringUtils.lowerCase(transactionHash);
+  }
+
+  private void updateLastSeenBlock(long blockNumber) {
+    lastSeenBlock.accumulateAndGet(blockNumber, Math::max);
+  }
+
+  private void invalidateCache(String contractAddress, Object arg) {
+    if (readCache != null) {
+      readCache.invalidate(contractAddress, arg);
+    }
+  }
+
+  private List<String> getContractAddresses() {
+    List<String> addresses = new ArrayList<>();
+    addresses.add(deed.getContractAddress());
+    if (deedRenting != null) {
+      addresses.add(deedRenting.getContractAddress());
+    }
+    return addresses;
+  }
+
+  private String getWebSocketUrl(BlockchainNetwork network) {
+    return network == BlockchainNetwork.POLYGON ? properties.getPolygonNetworkWsUrl() : properties.getNetworkWsUrl();
+  }
+
+  @SuppressWarnings("serial")
+  private Map<String, Boolean> newProcessedLogsMap() {
+    return new LinkedHashMap<>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > processedLogsMaxSize;
+      }
+    };
+  }
+
+  private static class BlockchainSubscription {
+
+    private final WebSocketService    webSocketService;
+
+    private final CompositeDisposable disposables = new CompositeDisposable();
+
+    private volatile boolean          connected;
+
+    private BlockchainSubscription(WebSocketService webSocketService) {
+      this.webSocketService = webSocketService;
+    }
+
+  }
+
+}
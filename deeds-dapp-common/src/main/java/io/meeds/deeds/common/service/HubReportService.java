@@ -19,15 +19,25 @@ package io.meeds.deeds.common.service;
 
 import static io.meeds.deeds.common.utils.HubReportMapper.toEntity;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
 import java.time.DayOfWeek;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -36,9 +46,13 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Component;
 
+import io.meeds.deeds.common.elasticsearch.ElasticsearchBulkWriter;
+import io.meeds.deeds.common.elasticsearch.ElasticsearchBulkWriter.BulkWriteBatch;
 import io.meeds.deeds.common.elasticsearch.model.HubReportEntity;
+import io.meeds.deeds.common.elasticsearch.model.HubRewardSummaryEntity;
 import io.meeds.deeds.common.elasticsearch.model.UemRewardEntity;
 import io.meeds.deeds.common.elasticsearch.storage.HubReportRepository;
+import io.meeds.deeds.common.elasticsearch.storage.HubRewardSummaryRepository;
 import io.meeds.deeds.common.elasticsearch.storage.UemRewardRepository;
 import io.meeds.deeds.common.utils.HubReportMapper;
 import io.meeds.wom.api.constant.WomAuthorizationException;
@@ -46,24 +60,41 @@ import io.meeds.wom.api.constant.WomException;
 import io.meeds.wom.api.model.HubReport;
 import io.meeds.wom.api.model.HubReportVerifiableData;
 
+import lombok.Getter;
 import lombok.SneakyThrows;
 
 @Component
 public class HubReportService {
 
-  public static final String  HUB_REPORT_SAVED = "uem.report.saved";
+  private static final Logger        LOG                        = LoggerFactory.getLogger(HubReportService.class);
+
+  public static final String         HUB_REPORT_SAVED           = "uem.report.saved";
+
+  private static final int           SUMMARY_REPORTS_COUNT      = 3;
+
+  private static final double        ENGAGEMENT_SCORE_SCALE     = 10d;
+
+  private static final double        ENGAGEMENT_SCORE_PRECISION = 1000d;
+
+  private static final double        AMOUNT_RELATIVE_TOLERANCE  = 1e-12;
+
+  @Autowired
+  private BlockchainService          blockchainService;
 
   @Autowired
-  private BlockchainService   blockchainService;
+  private ListenerService            listenerService;
 
   @Autowired
-  private ListenerService     listenerService;
+  private HubReportRepository        reportRepository;
 
   @Autowired
-  private HubReportRepository reportRepository;
+  private UemRewardRepository        rewardRepository;
 
   @Autowired
-  private UemRewardRepository rewardRepository;
+  private HubRewardSummaryRepository rewardSummaryRepository;
+
+  @Autowired(required = false)
+  private ElasticsearchBulkWriter    bulkWriter;
 
   public Page<HubReport> getReportsByHub(String hubAddress, Pageable pageable) {
     return getReports(hubAddress, 0, pageable);
@@ -117,6 +148,47 @@ public class HubReportService {
                            .orElse(null);
   }
 
+  /**
+   * Retrieves the precomputed last sent and last rewarded reports statistics
+   * of a Hub, computes and stores it when not computed yet
+   *
+   * @param hubAddress Hub address
+   * @return {@link HubRewardSummaryEntity}
+   */
+  public HubRewardSummaryEntity getHubRewardSummary(String hubAddress) {
+    return rewardSummaryRepository.findById(StringUtils.lowerCase(hubAddress))
+                                  .orElseGet(() -> refreshHubRewardSummary(hubAddress));
+  }
+
+  /**
+   * Retrieves the precomputed reports statistics of a list of Hubs in a single
+   * request. Hubs which summary isn't computed yet are simply not returned.
+   *
+   * @param hubAddresses Hubs addresses
+   * @return {@link Map} of {@link HubRewardSummaryEntity} by Hub address
+   */
+  public Map<String, HubRewardSummaryEntity> getHubRewardSummaries(Collection<String> hubAddresses) {
+    if (hubAddresses.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, HubRewardSummaryEntity> summaries = new HashMap<>();
+    rewardSummaryRepository.findAllById(hubAddresses.stream().map(StringUtils::lowerCase).toList())
+                           .forEach(summary -> summaries.put(summary.getHubAddress(), summary));
+    return summaries;
+  }
+
+  /**
+   * Computes and stores the statistics of last sent report and last rewarded
+   * report of a Hub, to be displayed in Hubs list without retrieving its
+   * reports
+   *
+   * @param hubAddress Hub address
+   * @return computed {@link HubRewardSummaryEntity}
+   */
+  public HubRewardSummaryEntity refreshHubRewardSummary(String hubAddress) {
+    return refreshHubRewardSummary(hubAddress, Collections.emptyMap());
+  }
+
   @SneakyThrows
   public HubReport saveReport(HubReportVerifiableData reportData) throws WomException {
     if (!reportData.isValid()) {
@@ -124,7 +196,9 @@ public class HubReportService {
     }
     HubReport report = new HubReport(reportData);
     blockchainService.retrieveReportProperties(report);
-    reportRepository.save(toEntity(report));
+    HubReportEntity hubReportEntity = toEntity(report);
+    reportRepository.save(hubReportEntity);
+    refreshHubRewardSummary(report.getHubAddress(), hubReportEntity);
     listenerService.publishEvent(HUB_REPORT_SAVED, report.getReportId());
     return report;
   }
@@ -138,7 +212,9 @@ public class HubReportService {
     } else {
       report = blockchainService.retrieveReportProperties(reportId);
     }
-    reportRepository.save(toEntity(report));
+    hubReportEntity = toEntity(report);
+    reportRepository.save(hubReportEntity);
+    refreshHubRewardSummary(report.getHubAddress(), hubReportEntity);
     listenerService.publishEvent(HUB_REPORT_SAVED, reportId);
     return report;
   }
@@ -155,49 +231,235 @@ public class HubReportService {
     return HubReportMapper.fromEntity(hubReportEntity);
   }
 
-  public void computeUemReward(HubReport report, double periodFixedGlobalIndex, double periodRewardAmount) {
-    double uemRewardAmount = 0;
-    if (!report.isFraud()) {
-      uemRewardAmount = BigDecimal.valueOf(report.getFixedRewardIndex())
-                                  .multiply(BigDecimal.valueOf(periodRewardAmount))
-                                  .divide(BigDecimal.valueOf(periodFixedGlobalIndex),
-                                          MathContext.DECIMAL128)
-                                  .doubleValue();
+  /**
+   * Computes, in a single pass over the reports of a reward period, the UEM
+   * reward amount and the engagement score of each report, then saves the
+   * modified reports using bulk requests
+   *
+   * @param rewardEntity {@link UemRewardEntity} with computed global index,
+   *          amount and reports list
+   * @return {@link UemRewardComputationResult} with the aggregated period
+   *         data and the count of modified reports
+   */
+  public UemRewardComputationResult computeUemRewards(UemRewardEntity rewardEntity) {
+    long start = System.currentTimeMillis();
+    UemRewardComputationResult result = new UemRewardComputationResult();
+    double fixedGlobalIndex = rewardEntity.getFixedGlobalIndex();
+    double rewardAmount = rewardEntity.getAmount();
+    int reportsCount = rewardEntity.getReportIds() == null ? 0 : rewardEntity.getReportIds().size();
+    LocalDate currentPeriodStart = LocalDate.now().with(DayOfWeek.MONDAY);
+
+    List<HubReportEntity> modifiedReports = new ArrayList<>();
+    Map<String, Map<Long, HubReportEntity>> rewardedReportsByHub = new HashMap<>();
+    try (Stream<HubReportEntity> reports = reportRepository.findByRewardId(rewardEntity.getRewardId());
+         BulkWriteBatch batch = bulkWriter == null ? null : bulkWriter.newBatch()) {
+      Iterator<HubReportEntity> iterator = reports.iterator();
+      while (iterator.hasNext()) {
+        HubReportEntity hubReportEntity = iterator.next();
+        result.reportsCount++;
+        result.sumEd += HubReportMapper.fromEntity(hubReportEntity).getEd();
+        result.hubAddresses.add(StringUtils.lowerCase(hubReportEntity.getHubAddress()));
+
+        double uemRewardAmount = computeUemRewardAmount(hubReportEntity.isFraud(),
+                                                        hubReportEntity.getFixedRewardIndex(),
+                                                        fixedGlobalIndex,
+                                                        rewardAmount);
+        boolean changed = !isSameAmount(uemRewardAmount, hubReportEntity.getUemRewardAmount());
+        hubReportEntity.setUemRewardAmount(uemRewardAmount);
+        if (reportsCount > 0
+            && hubReportEntity.getEngagementScore() <= 0
+            && isRewardedPeriod(hubReportEntity, currentPeriodStart)) {
+          hubReportEntity.setEngagementScore(computeEngagementScore(hubReportEntity.getFixedRewardIndex(),
+                                                                    fixedGlobalIndex,
+                                                                    reportsCount));
+          rewardedReportsByHub.computeIfAbsent(hubReportEntity.getHubAddress(), key -> new HashMap<>())
+                              .put(hubReportEntity.getReportId(), hubReportEntity);
+          changed = true;
+        }
+        if (changed) {
+          result.modifiedReportsCount++;
+          if (batch == null) {
+            modifiedReports.add(hubReportEntity);
+          } else {
+            batch.index(hubReportEntity);
+          }
+        }
+      }
+      if (batch != null) {
+        result.failedReportsCount = batch.flush().getFailedIds().size();
+      }
     }
-    boolean changed = uemRewardAmount != report.getUemRewardAmount();
+    if (!modifiedReports.isEmpty()) {
+      reportRepository.saveAll(modifiedReports);
+    }
+    // Bulk indexed reports aren't searchable until the next index refresh, thus
+    // use the modified entities when computing the summaries. Only the
+    // engagement score is part of the summary, thus the summaries of Hubs with
+    // only a modified reward amount aren't recomputed.
+    rewardedReportsByHub.forEach(this::refreshHubRewardSummary);
+    result.durationMillis = System.currentTimeMillis() - start;
+    return result;
+  }
+
+  public void computeUemReward(HubReport report, double periodFixedGlobalIndex, double periodRewardAmount) {
+    double uemRewardAmount = computeUemRewardAmount(report.isFraud(),
+                                                    report.getFixedRewardIndex(),
+                                                    periodFixedGlobalIndex,
+                                                    periodRewardAmount);
+    boolean changed = !isSameAmount(uemRewardAmount, report.getUemRewardAmount());
     report.setUemRewardAmount(uemRewardAmount);
+    HubReportEntity hubReportEntity = reportRepository.findById(report.getReportId()).orElseThrow();
     if (changed) {
-      reportRepository.findById(report.getReportId())
-                      .ifPresent(hubReportEntity -> {
-                        hubReportEntity.setUemRewardAmount(report.getUemRewardAmount());
-                        reportRepository.save(hubReportEntity);
-                      });
+      hubReportEntity.setUemRewardAmount(report.getUemRewardAmount());
     }
-    computeEngagementScore(report.getReportId());
+    changed = updateEngagementScore(hubReportEntity) || changed;
+    if (changed) {
+      reportRepository.save(hubReportEntity);
+    }
+    refreshHubRewardSummary(report.getHubAddress(), hubReportEntity);
   }
 
   public double computeEngagementScore(long reportId) {
     HubReportEntity hubReportEntity = reportRepository.findById(reportId).orElseThrow();
-    boolean isRewardedPeriod = hubReportEntity.getSentDate()
-                                              .atZone(ZoneOffset.UTC)
-                                              .toLocalDate()
-                                              .isBefore(LocalDate.now().with(DayOfWeek.MONDAY));
-    if (!isRewardedPeriod) {
+    if (updateEngagementScore(hubReportEntity)) {
+      hubReportEntity = reportRepository.save(hubReportEntity);
+    }
+    return computeEngagementScore(hubReportEntity);
+  }
+
+  private HubRewardSummaryEntity refreshHubRewardSummary(String hubAddress, HubReportEntity modifiedReport) {
+    return refreshHubRewardSummary(hubAddress, Collections.singletonMap(modifiedReport.getReportId(), modifiedReport));
+  }
+
+  private HubRewardSummaryEntity refreshHubRewardSummary(String hubAddress, Map<Long, HubReportEntity> modifiedReports) {
+    String address = StringUtils.lowerCase(hubAddress);
+    try {
+      Page<HubReportEntity> storedReports = reportRepository.findByHubAddress(address,
+                                                                              PageRequest.of(0,
+                                                                                             SUMMARY_REPORTS_COUNT,
+                                                                                             Sort.by(Direction.DESC, "sentDate")));
+      // The modified reports may not be searchable yet, thus use them instead
+      // of the stored ones and add them when not retrieved
+      List<HubReportEntity> reports = Stream.concat(storedReports.stream()
+                                                                 .filter(report -> !modifiedReports.containsKey(report.getReportId())),
+                                                    modifiedReports.values().stream())
+                                            .sorted(Comparator.comparing(HubReportEntity::getSentDate,
+                                                                         Comparator.nullsLast(Comparator.reverseOrder())))
+                                            .limit(SUMMARY_REPORTS_COUNT)
+                                            .toList();
+      HubReportEntity lastSentReport = reports.stream()
+                                              .findFirst()
+                                              .orElse(null);
+      double engagementScore = reports.stream()
+                                      .mapToDouble(this::computeEngagementScore)
+                                      .filter(score -> score > 0)
+                                      .findFirst()
+                                      .orElse(0d);
+      HubRewardSummaryEntity summary = new HubRewardSummaryEntity(address,
+                                                                  lastSentReport == null ? 0l : lastSentReport.getActionsCount(),
+                                                                  lastSentReport == null ? 0d :
+                                                                                         lastSentReport.getHubTopRewardedAmount(),
+                                                                  engagementScore,
+                                                                  engagementScore > 0,
+                                                                  Instant.now());
+      return rewardSummaryRepository.save(summary);
+    } catch (Exception e) {
+      LOG.warn("Error while computing reward summary of hub {}", address, e);
+      return null;
+    }
+  }
+
+  /**
+   * Sets the engagement score of a report of a rewarded period when not
+   * computed yet, without saving it
+   *
+   * @return true if the engagement score has been modified
+   */
+  private boolean updateEngagementScore(HubReportEntity hubReportEntity) {
+    if (!isRewardedPeriod(hubReportEntity) || hubReportEntity.getEngagementScore() > 0) {
+      return false;
+    }
+    hubReportEntity.setEngagementScore(computeEngagementScore(hubReportEntity));
+    return true;
+  }
+
+  /**
+   * Computes the engagement score of a report in memory, the report isn't
+   * modified
+   */
+  private double computeEngagementScore(HubReportEntity hubReportEntity) {
+    if (!isRewardedPeriod(hubReportEntity)) {
       return 0d;
     } else if (hubReportEntity.getEngagementScore() > 0) {
       return hubReportEntity.getEngagementScore();
     } else {
       UemRewardEntity rewardEntity = rewardRepository.findById(hubReportEntity.getRewardId()).orElseThrow();
-      BigDecimal averageIndex = BigDecimal.valueOf(rewardEntity.getFixedGlobalIndex())
-                                          .divide(BigDecimal.valueOf(rewardEntity.getReportIds().size()), MathContext.DECIMAL128);
-      hubReportEntity.setEngagementScore(BigDecimal.valueOf(hubReportEntity.getFixedRewardIndex())
-                                                   .multiply(BigDecimal.TEN)
-                                                   .divide(averageIndex, MathContext.DECIMAL128)
-                                                   .setScale(3, RoundingMode.HALF_EVEN)
-                                                   .doubleValue());
-      hubReportEntity = reportRepository.save(hubReportEntity);
-      return hubReportEntity.getEngagementScore();
+      int reportsCount = rewardEntity.getReportIds() == null ? 0 : rewardEntity.getReportIds().size();
+      return computeEngagementScore(hubReportEntity.getFixedRewardIndex(),
+                                    rewardEntity.getFixedGlobalIndex(),
+                                    reportsCount);
+    }
+  }
+
+  private double computeUemRewardAmount(boolean fraud,
+                                        double fixedRewardIndex,
+                                        double periodFixedGlobalIndex,
+                                        double periodRewardAmount) {
+    if (fraud || periodFixedGlobalIndex <= 0) {
+      return 0;
+    }
+    return fixedRewardIndex * periodRewardAmount / periodFixedGlobalIndex;
+  }
+
+  /**
+   * Computes the engagement score of a report, which is 10 times the ratio
+   * between its fixed index and the average fixed index of the period, with 3
+   * decimals precision
+   */
+  private double computeEngagementScore(double fixedRewardIndex, double periodFixedGlobalIndex, int reportsCount) {
+    if (periodFixedGlobalIndex <= 0 || reportsCount <= 0) {
+      return 0;
     }
+    double engagementScore = fixedRewardIndex * ENGAGEMENT_SCORE_SCALE * reportsCount / periodFixedGlobalIndex;
+    // Math.rint rounds half to even, as previously done using BigDecimal
+    return Math.rint(engagementScore * ENGAGEMENT_SCORE_PRECISION) / ENGAGEMENT_SCORE_PRECISION;
+  }
+
+  /**
+   * The amounts were previously computed using {@link java.math.BigDecimal},
+   * thus tolerate the difference in last digits to not consider the report as
+   * modified
+   */
+  private boolean isSameAmount(double amount1, double amount2) {
+    return Math.abs(amount1 - amount2) <= AMOUNT_RELATIVE_TOLERANCE * Math.max(Math.abs(amount1), Math.abs(amount2));
+  }
+
+  private boolean isRewardedPeriod(HubReportEntity hubReportEntity) {
+    return isRewardedPeriod(hubReportEntity, LocalDate.now().with(DayOfWeek.MONDAY));
+  }
+
+  private boolean isRewardedPeriod(HubReportEntity hubReportEntity, LocalDate currentPeriodStart) {
+    return hubReportEntity.getSentDate()
+                          .atZone(ZoneOffset.UTC)
+                          .toLocalDate()
+                          .isBefore(currentPeriodStart);
+  }
+
+  @Getter
+  public static class UemRewardComputationResult {
+
+    private long              reportsCount;
+
+    private long              modifiedReportsCount;
+
+    private long              failedReportsCount;
+
+    private double            sumEd;
+
+    private final Set<String> hubAddresses = new HashSet<>();
+
+    private long              durationMillis;
+
   }
 
 }
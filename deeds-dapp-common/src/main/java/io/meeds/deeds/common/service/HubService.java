@@ -17,6 +17,8 @@
  */
 package io.meeds.deeds.common.service;
 
+import static io.meeds.deeds.common.utils.WomTransactionUtils.waitForWomTransaction;
+
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
@@ -27,8 +29,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -80,6 +84,7 @@ import io.meeds.wom.api.model.WomConnectionResponse;
 import io.meeds.wom.api.model.WomDisconnectionRequest;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 
@@ -133,8 +138,19 @@ public class HubService {
   @Value("${meeds.hub.maxTokenLiveTimeSeconds:600}")
   private int                      maxTokenLiveTime;
 
+  /**
+   * Threads count used to save the Hub once its WoM transaction is mined, to
+   * not block the thread tracking the transactions receipts
+   */
+  @Value("${meeds.hub.womCallbackPoolSize:2}")
+  private int                      womCallbackPoolSize;
+
   private Map<String, TokenDetail> tokens                     = new ConcurrentHashMap<>();
 
+  private Map<Long, DeedUpdate>    pendingDeedUpdates         = new ConcurrentHashMap<>();
+
+  private ExecutorService          womCallbackExecutor;
+
   @PostConstruct
   @SneakyThrows
   public void init() {
@@ -143,6 +159,16 @@ public class HubService {
     } catch (NoSuchAlgorithmException e) {
       secureRandomCodeGenerator = SecureRandom.getInstanceStrong();
     }
+    womCallbackExecutor = Executors.newFixedThreadPool(womCallbackPoolSize, runnable -> {
+      Thread thread = new Thread(runnable, "Meeds-HubWomCallback");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void destroy() {
+    womCallbackExecutor.shutdown();
   }
 
   public Page<Hub> getHubs(Pageable pageable) {
@@ -289,20 +315,35 @@ public class HubService {
   }
 
   public WomConnectionResponse connectToWom(WomConnectionRequest hubConnectionRequest) throws WomException {
+    return waitForWomTransaction(connectToWomAsync(hubConnectionRequest));
+  }
+
+  /**
+   * Validates the Hub connection request and sends the Deed update transaction
+   * without blocking the current thread until it's mined
+   *
+   * @param hubConnectionRequest {@link WomConnectionRequest}
+   * @return {@link CompletableFuture} completed with the
+   *         {@link WomConnectionResponse} once the transaction is mined
+   * @throws WomException when the connection request isn't valid
+   */
+  public CompletableFuture<WomConnectionResponse> connectToWomAsync(WomConnectionRequest hubConnectionRequest) throws WomException {
     LOG.info("Hub connection {} initiation with Deed Id {} to the WoM",
              hubConnectionRequest.getAddress(),
              hubConnectionRequest.getDeedId());
     validateHubCommunityConnectionRequest(hubConnectionRequest);
-    updateDeedOnWom(hubConnectionRequest.getDeedId(),
-                    null,
-                    hubConnectionRequest.getDeedOwnerAddress(),
-                    hubConnectionRequest.getDeedManagerAddress());
-    saveHubProperties(hubConnectionRequest);
-    return new WomConnectionResponse(hubConnectionRequest.getDeedId(),
-                                     hubConnectionRequest.getAddress(),
-                                     blockchainService.getWomAddress(),
-                                     blockchainService.getUemAddress(),
-                                     blockchainService.getPolygonNetworkId());
+    return updateDeedOnWomAsync(hubConnectionRequest.getDeedId(),
+                                null,
+                                hubConnectionRequest.getDeedOwnerAddress(),
+                                hubConnectionRequest.getDeedManagerAddress(),
+                                false).thenApplyAsync(updated -> {
+                                  saveHubProperties(hubConnectionRequest);
+                                  return new WomConnectionResponse(hubConnectionRequest.getDeedId(),
+                                                                   hubConnectionRequest.getAddress(),
+                                                                   blockchainService.getWomAddress(),
+                                                                   blockchainService.getUemAddress(),
+                                                                   blockchainService.getPolygonNetworkId());
+                                }, womCallbackExecutor);
   }
 
   @SneakyThrows
@@ -397,21 +438,54 @@ public class HubService {
   }
 
   public boolean updateDeedOnWom(long deedId, boolean forceRefresh) throws ObjectNotFoundException, WomException {
+    return waitForWomTransaction(updateDeedOnWomAsync(deedId, forceRefresh));
+  }
+
+  /**
+   * Sends the Deed update transaction, when needed, without blocking the
+   * current thread until it's mined
+   *
+   * @param deedId Deed NFT identifier
+   * @param forceRefresh whether to send the transaction even if the WoM Deed
+   *          is up to date
+   * @return {@link CompletableFuture} completed with true if a transaction has
+   *         been sent and mined, else with false
+   * @throws ObjectNotFoundException when the Deed isn't found
+   * @throws WomException when the Deed characteristics aren't valid
+   */
+  public CompletableFuture<Boolean> updateDeedOnWomAsync(long deedId, boolean forceRefresh) throws ObjectNotFoundException,
+                                                                                              WomException {
     DeedTenant deedTenant = tenantService.getDeedTenantOrImport(deedId);
-    return updateDeedOnWom(deedId,
-                           null,
-                           deedTenant.getOwnerAddress(),
-                           deedTenant.getManagerAddress(),
-                           forceRefresh);
+    return updateDeedOnWomAsync(deedId,
+                                null,
+                                deedTenant.getOwnerAddress(),
+                                deedTenant.getManagerAddress(),
+                                forceRefresh);
   }
 
   public void autoConnectHubToWom(String hubAddress, long deedId) throws ObjectNotFoundException, WomException {
+    waitForWomTransaction(autoConnectHubToWomAsync(hubAddress, deedId));
+  }
+
+  /**
+   * Sends the Deed auto connect transaction without blocking the current
+   * thread until it's mined
+   *
+   * @param hubAddress Hub address
+   * @param deedId Deed NFT identifier
+   * @return {@link CompletableFuture} completed with the refreshed {@link Hub}
+   *         once the transaction is mined
+   * @throws ObjectNotFoundException when the Deed isn't found
+   * @throws WomException when the Deed characteristics aren't valid
+   */
+  public CompletableFuture<Hub> autoConnectHubToWomAsync(String hubAddress, long deedId) throws ObjectNotFoundException,
+                                                                                         WomException {
     DeedTenant deedTenant = tenantService.getDeedTenantOrImport(deedId);
-    updateDeedOnWom(deedId,
-                    hubAddress,
-                    deedTenant.getOwnerAddress(),
-                    deedTenant.getManagerAddress());
-    refreshHubFromWom(hubAddress);
+    return updateDeedOnWomAsync(deedId,
+                                hubAddress,
+                                deedTenant.getOwnerAddress(),
+                                deedTenant.getManagerAddress(),
+                                false).thenApplyAsync(updated -> refreshHubFromWom(hubAddress), womCallbackExecutor);
   }
 
   public void transferDeedOwner(long deedId, String previousOwner, String newOwner) throws WomException {
@@ -617,20 +691,19 @@ public class HubService {
     }
   }
 
-  @SneakyThrows
   private boolean updateDeedOnWom(long deedId, // NOSONAR
                                   String hubAddress,
                                   String potentialOwnerAddress,
                                   String potentialManagerAddress) throws WomException {
-    return updateDeedOnWom(deedId, hubAddress, potentialOwnerAddress, potentialManagerAddress, false);
+    return waitForWomTransaction(updateDeedOnWomAsync(deedId, hubAddress, potentialOwnerAddress, potentialManagerAddress, false));
   }
 
   @SneakyThrows
-  private boolean updateDeedOnWom(long deedId, // NOSONAR
-                                  String hubAddress,
-                                  String potentialOwnerAddress,
-                                  String potentialManagerAddress,
-                                  boolean forceRefresh) throws WomException {
+  private CompletableFuture<Boolean> updateDeedOnWomAsync(long deedId, // NOSONAR
+                                                          String hubAddress,
+                                                          String potentialOwnerAddress,
+                                                          String potentialManagerAddress,
+                                                          boolean forceRefresh) throws WomException {
     DeedTenantLeaseDTO lease = leaseService.getCurrentLease(deedId);
     short ownerMintingPercentage = lease == null ? 100 : (short) lease.getOwnerMintingPercentage();
     String ownerAddress = getDeedOwnerAddress(deedId, potentialOwnerAddress);
@@ -646,29 +719,7 @@ public class HubService {
           || !StringUtils.equalsIgnoreCase(woMDeed.getManagerAddress(), managerAddress)
           || woMDeed.getOwnerPercentage() != ownerMintingPercentage
           || StringUtils.isBlank(hubAddress)) {
-        LOG.info("Sending Deed Update Transaction on Blockchain for Deed NFT #{} owner {} and manager {}",
-                 deedId,
-                 ownerAddress,
-                 managerAddress);
-        short city = blockchainService.getDeedCityIndex(deedId);
-        short cardType = blockchainService.getDeedCardType(deedId);
-        DeedCard deedCard = DeedCard.values()[cardType];
-        short mintingPower = (short) (deedCard.getMintingPower() * 100);
-        long maxUsers = deedCard.getMaxUsers();
-        blockchainService.updateWomDeed(deedId,
-                                        city,
-                                        cardType,
-                                        mintingPower,
-                                        maxUsers,
-                                        ownerAddress,
-                                        managerAddress,
-                                        ownerMintingPercentage);
-        LOG.info("Sent Deed Update Transaction on Blockchain for Deed NFT #{} owner {} and manager {} in {}ms",
-                 deedId,
-                 ownerAddress,
-                 managerAddress,
-                 System.currentTimeMillis() - start);
-        return true;
+        return sendDeedUpdate(deedId, ownerAddress, managerAddress, ownerMintingPercentage, start);
       }
     } else {
       LOG.info("Sending Deed Auto Connect Transaction for Hub {} on Blockchain using Deed NFT #{} with owner {} and manager {}",
@@ -682,24 +733,86 @@ public class HubService {
       short mintingPower = (short) (deedCard.getMintingPower() * 100);
       long maxUsers = deedCard.getMaxUsers();
 
-      blockchainService.autoConnectToWom(deedId,
-                                         city,
-                                         cardType,
-                                         mintingPower,
-                                         maxUsers,
+      return blockchainService.autoConnectToWomAsync(deedId,
+                                                     city,
+                                                     cardType,
+                                                     mintingPower,
+                                                     maxUsers,
+                                                     ownerAddress,
+                                                     managerAddress,
+                                                     hubAddress,
+                                                     ownerMintingPercentage)
+                              .thenApply(result -> {
+                                LOG.info("Sent Deed Auto Connect Transaction on Blockchain for Hub {}, Deed NFT #{}, owner {} and manager {} in {}ms",
+                                         hubAddress,
+                                         deedId,
                                          ownerAddress,
                                          managerAddress,
-                                         hubAddress,
-                                         ownerMintingPercentage);
-      LOG.info("Sent Deed Auto Connect Transaction on Blockchain for Hub {}, Deed NFT #{}, owner {} and manager {} in {}ms",
-               hubAddress,
+                                         System.currentTimeMillis() - start);
+                                return true;
+                              });
+    }
+    return CompletableFuture.completedFuture(false);
+  }
+
+  /**
+   * Sends the Deed update transaction, unless the same update of the Deed is
+   * already being sent, in which case its {@link CompletableFuture} is reused
+   * to not send a duplicated transaction
+   */
+  private CompletableFuture<Boolean> sendDeedUpdate(long deedId,
+                                                    String ownerAddress,
+                                                    String managerAddress,
+                                                    short ownerMintingPercentage,
+                                                    long start) throws ObjectNotFoundException {
+    DeedUpdate update = new DeedUpdate(ownerAddress, managerAddress, ownerMintingPercentage, new CompletableFuture<>());
+    DeedUpdate pendingUpdate = pendingDeedUpdates.compute(deedId,
+                                                          (id, existingUpdate) -> update.isSameUpdate(existingUpdate) ? existingUpdate
+                                                                                                                      : update);
+    if (pendingUpdate != update) {
+      LOG.info("Deed Update Transaction for Deed NFT #{} owner {} and manager {} is already being sent",
                deedId,
                ownerAddress,
-               managerAddress,
-               System.currentTimeMillis() - start);
-      return true;
+               managerAddress);
+      return pendingUpdate.future;
     }
-    return false;
+    try {
+      LOG.info("Sending Deed Update Transaction on Blockchain for Deed NFT #{} owner {} and manager {}",
+               deedId,
+               ownerAddress,
+               managerAddress);
+      short city = blockchainService.getDeedCityIndex(deedId);
+      short cardType = blockchainService.getDeedCardType(deedId);
+      DeedCard deedCard = DeedCard.values()[cardType];
+      short mintingPower = (short) (deedCard.getMintingPower() * 100);
+      long maxUsers = deedCard.getMaxUsers();
+      blockchainService.updateWomDeedAsync(deedId,
+                                           city,
+                                           cardType,
+                                           mintingPower,
+                                           maxUsers,
+                                           ownerAddress,
+                                           managerAddress,
+                                           ownerMintingPercentage)
+                       .whenComplete((result, error) -> {
+                         pendingDeedUpdates.remove(deedId, update);
+                         if (error == null) {
+                           LOG.info("Sent Deed Update Transaction on Blockchain for Deed NFT #{} owner {} and manager {} in {}ms",
+                                    deedId,
+                                    ownerAddress,
+                                    managerAddress,
+                                    System.currentTimeMillis() - start);
+                           update.future.complete(true);
+                         } else {
+                           update.future.completeExceptionally(error);
+                         }
+                       });
+    } catch (ObjectNotFoundException | RuntimeException e) {
+      pendingDeedUpdates.remove(deedId, update);
+      update.future.completeExceptionally(e);
+      throw e;
+    }
+    return update.future;
   }
 
   private void validateDeedCharacteristics(long deedId,
@@ -714,18 +827,16 @@ public class HubService {
     DeedTenant deedTenant = tenantService.getDeedTenantOrImport(deedId);
     Hub hub = getHub(deedId);
 
-    String ownerAddress = Arrays.asList(potentialDeedOwner,
-                                        deedTenant.getOwnerAddress(),
-                                        hub.getDeedOwnerAddress(),
-                                        hub.getHubOwnerAddress())
-                                .stream()
-                                .filter(StringUtils::isNotBlank)
-                                .map(StringUtils::lowerCase)
-                                .collect(Collectors.toSet())
-                                .stream()
-                                .filter(address -> blockchainService.isDeedOwner(address, deedId))
-                                .findFirst()
-                                .orElse(null);
+    List<String> candidateAddresses = Arrays.asList(potentialDeedOwner,
+                                                    deedTenant.getOwnerAddress(),
+                                                    hub.getDeedOwnerAddress(),
+                                                    hub.getHubOwnerAddress())
+                                            .stream()
+                                            .filter(StringUtils::isNotBlank)
+                                            .map(StringUtils::lowerCase)
+                                            .distinct()
+                                            .toList();
+    String ownerAddress = blockchainService.findDeedOwner(deedId, candidateAddresses);
     if (ownerAddress == null) {
       ownerAddress = blockchainService.getDeedOwner(deedId);
     }
@@ -745,23 +856,21 @@ public class HubService {
     DeedTenantLeaseDTO lease = leaseService.getCurrentLease(deedId);
     DeedTenant deedTenant = tenantService.getDeedTenantOrImport(deedId);
     Hub hub = getHub(deedId);
-    String managerAddress = Arrays.asList(potentialManagerAddress,
-                                          potentialOwnerAddress,
-                                          lease == null ? null : lease.getManagerAddress(),
-                                          deedTenant.getManagerAddress(),
-                                          hub.getDeedManagerAddress(),
-                                          lease == null ? null : lease.getOwnerAddress(),
-                                          deedTenant.getOwnerAddress(),
-                                          hub.getDeedOwnerAddress(),
-                                          hub.getHubOwnerAddress())
-                                  .stream()
-                                  .filter(StringUtils::isNotBlank)
-                                  .map(StringUtils::lowerCase)
-                                  .collect(Collectors.toSet())
-                                  .stream()
-                                  .filter(address -> blockchainService.isDeedProvisioningManager(address, deedId))
-                                  .findFirst()
-                                  .orElse(null);
+    List<String> candidateAddresses = Arrays.asList(potentialManagerAddress,
+                                                    potentialOwnerAddress,
+                                                    lease == null ? null : lease.getManagerAddress(),
+                                                    deedTenant.getManagerAddress(),
+                                                    hub.getDeedManagerAddress(),
+                                                    lease == null ? null : lease.getOwnerAddress(),
+                                                    deedTenant.getOwnerAddress(),
+                                                    hub.getDeedOwnerAddress(),
+                                                    hub.getHubOwnerAddress())
+                                            .stream()
+                                            .filter(StringUtils::isNotBlank)
+                                            .map(StringUtils::lowerCase)
+                                            .distinct()
+                                            .toList();
+    String managerAddress = blockchainService.findDeedProvisioningManager(deedId, candidateAddresses);
     if (managerAddress == null) {
       managerAddress = blockchainService.getDeedManager(deedId);
     }
@@ -862,4 +971,24 @@ public class HubService {
 
   }
 
+  @AllArgsConstructor
+  private static class DeedUpdate {
+
+    String                     ownerAddress;
+
+    String                     managerAddress;
+
+    short                      ownerMintingPercentage;
+
+    CompletableFuture<Boolean> future;
+
+    boolean isSameUpdate(DeedUpdate update) {
+      return update != null
+             && StringUtils.equalsIgnoreCase(ownerAddress, update.ownerAddress)
+             && StringUtils.equalsIgnoreCase(managerAddress, update.managerAddress)
+             && ownerMintingPercentage == update.ownerMintingPercentage;
+    }
+
+  }
+
 }
@@ -32,18 +32,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.SearchHit;
-import org.springframework.data.elasticsearch.core.SearchHitSupport;
-import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.SearchPage;
 import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
 import io.meeds.deeds.common.constant.BlockchainLeaseStatus;
 import io.meeds.deeds.common.constant.TransactionStatus;
 import io.meeds.deeds.common.constant.UnauthorizedOperationException;
+import io.meeds.deeds.common.elasticsearch.TimeSlicedQueryPlanner;
+import io.meeds.deeds.common.elasticsearch.TimeSlicedQueryPlanner.TimeBound;
 import io.meeds.deeds.common.elasticsearch.model.DeedTenant;
 import io.meeds.deeds.common.elasticsearch.model.DeedTenantLease;
 import io.meeds.deeds.common.elasticsearch.storage.LeaseRepository;
@@ -96,55 +93,30 @@ public class LeaseService {
   @Autowired
   private ListenerService         listenerService;
 
-  public Page<DeedTenantLeaseDTO> getLeases(LeaseFilter leaseFilter, Pageable pageable) {
-    Criteria criteria = new Criteria("enabled").is(true);
+  @Autowired(required = false)
+  private TimeSlicedQueryPlanner  queryPlanner;
 
+  public Page<DeedTenantLeaseDTO> getLeases(LeaseFilter leaseFilter, Pageable pageable) {
+    List<TimeBound<DeedTenantLease>> timeBounds = new ArrayList<>();
     if (!leaseFilter.isIncludeOutdated()) {
-      Criteria endDateCriteria = new Criteria("endDate").greaterThan(Instant.now());
-      criteria.and(endDateCriteria);
-    }
-
-    if (leaseFilter.isExcludeNotConfirmed()) {
-      Criteria confirmedCriteria = new Criteria("confirmed").is(true);
-      criteria.and(confirmedCriteria);
-    }
-    if (leaseFilter.getNftId() >= 0) {
-      Criteria nftIdCriteria = new Criteria("nftId").is(leaseFilter.getNftId());
-      criteria.and(nftIdCriteria);
-    }
-    if (!CollectionUtils.isEmpty(leaseFilter.getCardTypes())) {
-      Criteria cardTypeCriteria = new Criteria("cardType").in(leaseFilter.getCardTypes());
-      criteria.and(cardTypeCriteria);
-    }
-    if (!CollectionUtils.isEmpty(leaseFilter.getTransactionStatus())) {
-      Criteria transactionStatusCriteria = new Criteria("transactionStatus").in(leaseFilter.getTransactionStatus());
-      criteria.and(transactionStatusCriteria);
-    }
-
-    if (StringUtils.isNotBlank(leaseFilter.getCurrentAddress())) {
-      Criteria visibilityCriteria = new Criteria("viewAddresses").in(StringUtils.lowerCase(leaseFilter.getCurrentAddress()),
-                                                                     DeedTenantOfferMapper.EVERYONE);
-      criteria.and(visibilityCriteria);
+      timeBounds.add(TimeBound.after("endDate", DeedTenantLease::getEndDate));
+    }
+    Page<DeedTenantLease> leases;
+    if (queryPlanner == null) {
+      leases = TimeSlicedQueryPlanner.search(elasticsearchOperations,
+                                             DeedTenantLease.class,
+                                             buildLeaseCriteria(leaseFilter),
+                                             timeBounds,
+                                             pageable,
+                                             Instant.now());
     } else {
-      Criteria visibilityCriteria = new Criteria("viewAddresses").in(DeedTenantOfferMapper.EVERYONE);
-      criteria.and(visibilityCriteria);
-    }
-
-    if (leaseFilter.getOwner() != null) {
-      if (leaseFilter.getOwner().booleanValue()) {
-        Criteria ownerCriteria = new Criteria("owner").in(StringUtils.lowerCase(leaseFilter.getCurrentAddress()));
-        criteria.and(ownerCriteria);
-      } else {
-        Criteria managerCriteria = new Criteria("manager").in(StringUtils.lowerCase(leaseFilter.getCurrentAddress()));
-        criteria.and(managerCriteria);
-      }
+      leases = queryPlanner.search(DeedTenantLease.class,
+                                   leaseFilter,
+                                   () -> buildLeaseCriteria(leaseFilter),
+                                   timeBounds,
+                                   pageable);
     }
-
-    CriteriaQuery query = new CriteriaQuery(criteria, pageable);
-    SearchHits<DeedTenantLease> result = elasticsearchOperations.search(query, DeedTenantLease.class);
-    SearchPage<DeedTenantLease> searchPage = SearchHitSupport.searchPageFor(result, pageable);
-    return searchPage.map(SearchHit::getContent)
-                     .map(this::buildLeaseDTO);
+    return leases.map(this::buildLeaseDTO);
   }
 
   public DeedTenantLeaseDTO getLease(long leaseId,
@@ -494,7 +466,11 @@ public class LeaseService {
     } else {
       deedTenantLease.setTransactionStatus(TransactionStatus.IN_PROGRESS);
     }
-    return leaseRepository.save(deedTenantLease);
+    DeedTenantLease savedLease = leaseRepository.save(deedTenantLease);
+    if (queryPlanner != null) {
+      queryPlanner.invalidate(DeedTenantLease.class);
+    }
+    return savedLease;
   }
 
   private void checkLeaseBlockchainStatus(DeedTenantLease lease, DeedLeaseBlockchainState blockchainLease) {
@@ -515,6 +491,48 @@ public class LeaseService {
     }
   }
 
+  private Criteria buildLeaseCriteria(LeaseFilter leaseFilter) {
+    Criteria criteria = new Criteria("enabled").is(true);
+
+    if (leaseFilter.isExcludeNotConfirmed()) {
+      Criteria confirmedCriteria = new Criteria("confirmed").is(true);
+      criteria.and(confirmedCriteria);
+    }
+    if (leaseFilter.getNftId() >= 0) {
+      Criteria nftIdCriteria = new Criteria("nftId").is(leaseFilter.getNftId());
+      criteria.and(nftIdCriteria);
+    }
+    if (!CollectionUtils.isEmpty(leaseFilter.getCardTypes())) {
+      Criteria cardTypeCriteria = new Criteria("cardType").in(leaseFilter.getCardTypes());
+      criteria.and(cardTypeCriteria);
+    }
+    if (!CollectionUtils.isEmpty(leaseFilter.getTransactionStatus())) {
+      Criteria transactionStatusCriteria = new Criteria("transactionStatus").in(leaseFilter.getTransactionStatus());
+      criteria.and(transactionStatusCriteria);
+    }
+
+    if (StringUtils.isNotBlank(leaseFilter.getCurrentAddress())) {
+      Criteria visibilityCriteria = new Criteria("viewAddresses").in(StringUtils.lowerCase(leaseFilter.getCurrentAddress()),
+                                                                     DeedTenantOfferMapper.EVERYONE);
+      criteria.and(visibilityCriteria);
+    } else {
+      Criteria visibilityCriteria = new Criteria("viewAddresses").in(DeedTenantOfferMapper.EVERYONE);
+      criteria.and(visibilityCriteria);
+    }
+
+    if (leaseFilter.getOwner() != null) {
+      if (leaseFilter.getOwner().booleanValue()) {
+        Criteria ownerCriteria = new Criteria("owner").in(StringUtils.lowerCase(leaseFilter.getCurrentAddress()));
+        criteria.and(ownerCriteria);
+      } else {
+        Criteria managerCriteria = new Criteria("manager").in(StringUtils.lowerCase(leaseFilter.getCurrentAddress()));
+        criteria.and(managerCriteria);
+      }
+    }
+
+    return criteria;
+  }
+
   private DeedTenantLeaseDTO buildLeaseDTO(DeedTenantLease lease) {
     if (lease == null) {
       return null;
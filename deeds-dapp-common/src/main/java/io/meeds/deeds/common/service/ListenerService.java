@@ -20,13 +20,21 @@ import static io.meeds.deeds.common.listerner.model.EventSerialization.OBJECT_MA
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.StampedLock;
 
 import org.apache.commons.lang3.StringUtils;
@@ -34,23 +42,54 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.IndicesOptions;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import io.meeds.deeds.common.elasticsearch.EventIndexPartitioner;
+import io.meeds.deeds.common.elasticsearch.RefreshPolicyElasticsearchTemplate;
 import io.meeds.deeds.common.elasticsearch.model.DeedTenantEvent;
 import io.meeds.deeds.common.elasticsearch.storage.DeedTenantEventRepository;
+import io.meeds.deeds.common.listener.EventCodec;
 import io.meeds.deeds.common.listener.EventListener;
+import io.meeds.deeds.common.listener.ListenerEventDispatcher;
+import io.meeds.deeds.common.listener.transport.EventTransport;
 import io.meeds.deeds.common.listerner.model.Event;
 import io.meeds.deeds.common.scheduling.task.ListenerEventCleanupTask;
 import io.meeds.deeds.common.scheduling.task.ListenerEventTriggerTask;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
 @Component
 public class ListenerService {
 
   public static final String                                 ES_LAST_SCANNED_DATE_SETTING_NAME = "ES-LAST-SCANNED-DATE";
 
+  private static final String                                CURSOR_SEPARATOR                  = ":";
+
+  private static final String                                NODE_ID                           = UUID.randomUUID().toString().substring(0, 8);
+
+  private static final AtomicLong                            EVENT_ID_SEQUENCE                 = new AtomicLong();
+
+  private static final String                                ADD_CONSUMER_SCRIPT               =
+                                                                 "if (ctx._source.consumers == null) { ctx._source.consumers = [params.consumer] } "
+                                                                     + "else if (!ctx._source.consumers.contains(params.consumer)) { ctx._source.consumers.add(params.consumer) } "
+                                                                     + "else { ctx.op = 'noop' }";
+
   public static final Logger                                 LOG                               =
                                                                  LoggerFactory.getLogger(ListenerService.class);
 
@@ -68,6 +107,45 @@ public class ListenerService {
   @Autowired(required = false)
   private DeedTenantEventRepository                          deedTenantEventRepository;
 
+  @Autowired(required = false)
+  private ElasticsearchOperations                            elasticsearchOperations;
+
+  @Autowired(required = false)
+  private ListenerEventDispatcher                            listenerEventDispatcher;
+
+  @Autowired(required = false)
+  private List<EventTransport>                               eventTransports;
+
+  @Autowired(required = false)
+  private EventCodec                                         eventCodec;
+
+  @Autowired(required = false)
+  private EventIndexPartitioner                              eventIndexPartitioner;
+
+  @Value("${meeds.elasticsearch.listener.events.pageSize:100}")
+  private int                                                eventsPageSize;
+
+  @Value("${meeds.elasticsearch.listener.events.handlingTimeoutSeconds:60}")
+  private long                                               eventsHandlingTimeoutSeconds;
+
+  /**
+   * Handling of persistent events triggered by a scan, but not acknowledged
+   * yet since their listeners didn't finish handling them
+   */
+  private final Map<String, CompletableFuture<Boolean>>      inFlightEvents                    = new ConcurrentHashMap<>();
+
+  @Getter
+  private final AtomicLong                                   acknowledgmentBatchCount          = new AtomicLong();
+
+  @Getter
+  private final AtomicLong                                   acknowledgedEventCount            = new AtomicLong();
+
+  @Getter
+  private final AtomicLong                                   acknowledgmentTotalMillis         = new AtomicLong();
+
+  @Getter
+  private final AtomicLong                                   acknowledgmentMaxMillis           = new AtomicLong();
+
   @Value("${meeds.elasticsearch.listener.events.cleanupHoursPeriodicity:}")
   private String                                             cleanupHoursPeriodicity;
 
@@ -161,18 +239,58 @@ public class ListenerService {
       return;
     }
     executeElasticSearchScanning(() -> {
-      Instant lastEventScanDate = getLastELasticsearchScanDate();
-      List<DeedTenantEvent> events;
-      events = deedTenantEventRepository.findByDateGreaterThanEqualAndConsumersNotOrderByDateAsc(lastEventScanDate, esClientName);
-      try {
-        for (DeedTenantEvent persistentEvent : events) {
-          if (hasListeners(persistentEvent.getEventName())) {
-            triggerElasticsearchEvent(persistentEvent);
+      EventCursor cursor = getLastELasticsearchScanCursor();
+      List<SearchHit<DeedTenantEvent>> events;
+      boolean pageHandled;
+      do {
+        events = getEventsAfter(cursor);
+        List<SearchHit<DeedTenantEvent>> consumedEvents = new ArrayList<>();
+        pageHandled = true;
+        try {
+          List<CompletableFuture<Boolean>> handlings = new ArrayList<>();
+          List<CompletableFuture<Boolean>> triggeredHandlings = new ArrayList<>();
+          for (SearchHit<DeedTenantEvent> eventHit : events) {
+            DeedTenantEvent persistentEvent = eventHit.getContent();
+            // Don't trigger again an event which was triggered by a previous
+            // scan and which listeners didn't finish handling it
+            CompletableFuture<Boolean> handling = inFlightEvents.get(persistentEvent.getId());
+            if (handling == null) {
+              handling = hasListeners(persistentEvent.getEventName()) ? triggerElasticsearchEvent(persistentEvent) :
+                                                                      CompletableFuture.completedFuture(false);
+              triggeredHandlings.add(handling);
+            }
+            handlings.add(handling);
+          }
+          waitForEventsHandling(triggeredHandlings);
+          for (int i = 0; i < events.size(); i++) {
+            Boolean consumed = handlings.get(i).getNow(null);
+            if (consumed == null) {
+              // Stop the checkpoint before the event which is still handled, or
+              // which was cancelled, to not acknowledge it before its listeners
+              // finish and to replay it in next scan
+              pageHandled = false;
+              keepInFlightEvents(events.subList(i, events.size()), handlings.subList(i, handlings.size()));
+              break;
+            }
+            SearchHit<DeedTenantEvent> eventHit = events.get(i);
+            if (consumed.booleanValue()) {
+              consumedEvents.add(eventHit);
+            }
+            DeedTenantEvent persistentEvent = eventHit.getContent();
+            inFlightEvents.remove(persistentEvent.getId());
+            cursor = new EventCursor(maxInstant(cursor.getDate(), persistentEvent.getDate()), persistentEvent.getId());
           }
-          lastEventScanDate = maxInstant(lastEventScanDate, persistentEvent.getDate());
+        } finally {
+          addElasticsearchEventsCurrentConsumer(consumedEvents);
+          // Commit the checkpoint per page to resume from the last processed
+          // event after a crash
+          saveLastELasticsearchScanCursor(cursor);
         }
-      } finally {
-        saveLastELasticsearchScanDate(lastEventScanDate);
+      } while (pageHandled && events.size() >= eventsPageSize);
+      if (pageHandled) {
+        // The handled events which weren't retrieved anymore by the scan were
+        // acknowledged meanwhile
+        inFlightEvents.values().removeIf(CompletableFuture::isDone);
       }
     });
   }
@@ -190,11 +308,19 @@ public class ListenerService {
     }
     if (StringUtils.isNotBlank(cleanupHoursPeriodicity)) {
       Instant lastEventScanDate = getLastELasticsearchScanDate();
-      deedTenantEventRepository.deleteByDateLessThan(lastEventScanDate.minus(Long.parseLong(cleanupHoursPeriodicity.trim()),
-                                                                             ChronoUnit.HOURS));
+      Instant retentionDate = lastEventScanDate.minus(Long.parseLong(cleanupHoursPeriodicity.trim()), ChronoUnit.HOURS);
+      if (isPartitionedEvents()) {
+        eventIndexPartitioner.deleteBefore(retentionDate);
+      } else {
+        deedTenantEventRepository.deleteByDateLessThan(retentionDate);
+      }
     }
   }
 
+  private boolean isPartitionedEvents() {
+    return eventIndexPartitioner != null && eventIndexPartitioner.isEnabled();
+  }
+
   private boolean isUsePerisistentEvents() {
     return persistentFeatureEnabled
         && (StringUtils.contains(esClientName, "dApp")
@@ -212,24 +338,52 @@ public class ListenerService {
     if (!this.isUsePerisistentEvents()) {
       return;
     }
-    String eventJsonString = serializeObjectToJson(event);
+    String eventJsonString = eventCodec == null ? serializeObjectToJson(event) : eventCodec.encode(event);
     List<String> consumers = Collections.singletonList(esClientName);
-    deedTenantEventRepository.save(new DeedTenantEvent(event.getEventName(),
-                                                       eventJsonString,
-                                                       consumers,
-                                                       Instant.now()));
+    Instant date = Instant.now();
+    // Identifier assigned before saving, to be used as sort tie-breaker of
+    // events published in the same millisecond
+    DeedTenantEvent persistentEvent = new DeedTenantEvent(newEventId(date),
+                                                          event.getEventName(),
+                                                          eventJsonString,
+                                                          consumers,
+                                                          date);
+    // Make sure that the event is searchable by the next scan of other nodes,
+    // whatever the refresh policy of the event index or partition
+    RefreshPolicyElasticsearchTemplate.withRefreshPolicy(RefreshPolicy.WAIT_UNTIL,
+                                                         () -> savePersistentEvent(persistentEvent));
+    if (hasEventTransports()) {
+      notifyEventTransports(event.getEventName());
+    }
+  }
+
+  /**
+   * Starts the configured {@link EventTransport} to trigger persistent events
+   * as soon as another node notifies about them, in addition to the periodic
+   * polling made by {@link ListenerEventTriggerTask}
+   */
+  public void startEventTransports() {
+    if (!this.isUsePerisistentEvents() || eventTransports == null) {
+      return;
+    }
+    eventTransports.stream()
+                   .filter(EventTransport::isEnabled)
+                   .forEach(eventTransport -> eventTransport.start(this::triggerElasticSearchEvents));
   }
 
   /**
    * Invoke local event listeners
    * 
-   * @param event {@link Event} to trigger locally
+   * @param  event {@link Event} to trigger locally
+   * @return       {@link CompletableFuture} completed once all listeners
+   *               handled the event
    */
   @SuppressWarnings("deprecation")
-  private void triggerEventLocally(Event event) {
+  private CompletableFuture<Void> triggerEventLocally(Event event) {
     String eventName = event.getEventName();
     Object data = event.getData();
 
+    List<CompletableFuture<Void>> handlings = new ArrayList<>();
     List<EventListener<?>> listenerList = LISTENERS.get(eventName);
     if (!CollectionUtils.isEmpty(listenerList)) {
       LOG.debug("{} - Trigger event {} locally with data {}",
@@ -243,41 +397,167 @@ public class ListenerService {
                   listener.getName(),
                   eventName,
                   data);
-        listener.handleEvent(eventName, data);
+        if (listenerEventDispatcher == null) {
+          listener.handleEvent(eventName, data);
+        } else {
+          handlings.add(listenerEventDispatcher.dispatch(listener, eventName, data));
+        }
       });
     }
+    return CompletableFuture.allOf(handlings.toArray(new CompletableFuture[handlings.size()]));
   }
 
-  private void triggerElasticsearchEvent(DeedTenantEvent persistentEvent) {
+  /**
+   * Triggers a persistent event locally
+   * 
+   * @param  persistentEvent {@link DeedTenantEvent}
+   * @return                 {@link CompletableFuture} completed with true once
+   *                         the event was handled by all local listeners and
+   *                         can be acknowledged, null when its handling was
+   *                         cancelled, else false
+   */
+  private CompletableFuture<Boolean> triggerElasticsearchEvent(DeedTenantEvent persistentEvent) {
     if (persistentEvent.getConsumers().contains(esClientName)) {
-      return;
+      return CompletableFuture.completedFuture(false);
     }
     try {
-      Event event = OBJECT_MAPPER.readValue(persistentEvent.getObjectJson(), Event.class);
+      Event event = eventCodec == null ? OBJECT_MAPPER.readValue(persistentEvent.getObjectJson(), Event.class) :
+                                       eventCodec.decode(persistentEvent.getEventName(), persistentEvent.getObjectJson());
       if (event == null) {
         LOG.debug("Can't parse Event Class of name {}. Ignore the event, it should be meant to another type of clients",
                   persistentEvent.getEventName());
+        return CompletableFuture.completedFuture(true);
       } else {
-        triggerEventLocally(event);
+        return triggerEventLocally(event).handle((result, e) -> {
+          if (e == null) {
+            return true;
+          } else if (e instanceof CancellationException || e.getCause() instanceof CancellationException) {
+            return null;
+          } else {
+            LOG.warn("{} - Error while handling event from ES {}",
+                     esClientName,
+                     persistentEvent,
+                     e);
+            return false;
+          }
+        });
       }
-      addElasticsearchEventCurrentConsumer(persistentEvent);
     } catch (Exception e) {
       LOG.warn("{} - Error while triggering event from ES {}",
                esClientName,
                persistentEvent,
                e);
+      return CompletableFuture.completedFuture(false);
+    }
+  }
+
+  /**
+   * Keeps the handling of events which weren't acknowledged by the current
+   * scan, so that the next scans wait for it instead of triggering the events
+   * again. Cancelled events are released to be triggered again.
+   *
+   * @param events events hits which weren't acknowledged
+   * @param handlings events handling {@link CompletableFuture} list
+   */
+  private void keepInFlightEvents(List<SearchHit<DeedTenantEvent>> events, List<CompletableFuture<Boolean>> handlings) {
+    for (int i = 0; i < events.size(); i++) {
+      String eventId = events.get(i).getContent().getId();
+      CompletableFuture<Boolean> handling = handlings.get(i);
+      if (handling.isDone() && handling.getNow(null) == null) {
+        inFlightEvents.remove(eventId);
+      } else {
+        inFlightEvents.put(eventId, handling);
+      }
+    }
+  }
+
+  /**
+   * Waits until the events of a page are handled by the asynchronous
+   * listeners, in the limit of a configured timeout
+   * 
+   * @param handlings events handling {@link CompletableFuture} list
+   */
+  private void waitForEventsHandling(List<CompletableFuture<Boolean>> handlings) {
+    try {
+      CompletableFuture.allOf(handlings.toArray(new CompletableFuture[handlings.size()]))
+                       .get(eventsHandlingTimeoutSeconds, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      LOG.warn("{} - Persistent events still not handled after {} seconds, they will be replayed in next scan",
+               esClientName,
+               eventsHandlingTimeoutSeconds);
+    }
+  }
+
+  /**
+   * Adds the current consumer name to the consumers of the designated events
+   * using a single bulk request of scripted partial updates per index, so that
+   * concurrent consumers don't override each other
+   *
+   * @param events consumed {@link DeedTenantEvent} hits list
+   */
+  private void addElasticsearchEventsCurrentConsumer(List<SearchHit<DeedTenantEvent>> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    try {
+      Map<String, Object> params = Collections.singletonMap("consumer", esClientName);
+      // Events may be stored in different partitions
+      Map<String, List<UpdateQuery>> queriesByIndex = new HashMap<>();
+      for (SearchHit<DeedTenantEvent> event : events) {
+        UpdateQuery query = UpdateQuery.builder(event.getContent().getId())
+                                       .withScript(ADD_CONSUMER_SCRIPT)
+                                       .withLang("painless")
+                                       .withParams(params)
+                                       .build();
+        queriesByIndex.computeIfAbsent(StringUtils.defaultString(event.getIndex()), key -> new ArrayList<>()).add(query);
+      }
+      queriesByIndex.forEach((indexName, queries) -> {
+        if (StringUtils.isBlank(indexName)) {
+          elasticsearchOperations.bulkUpdate(queries, DeedTenantEvent.class);
+        } else {
+          elasticsearchOperations.bulkUpdate(queries, IndexCoordinates.of(indexName));
+        }
+      });
+    } catch (Exception e) {
+      LOG.warn("{} - Error acknowledging {} events in bulk, acknowledge them one by one",
+               esClientName,
+               events.size(),
+               e);
+      events.forEach(this::addElasticsearchEventCurrentConsumer);
+    } finally {
+      long latency = System.currentTimeMillis() - start;
+      acknowledgmentBatchCount.incrementAndGet();
+      acknowledgedEventCount.addAndGet(events.size());
+      acknowledgmentTotalMillis.addAndGet(latency);
+      acknowledgmentMaxMillis.accumulateAndGet(latency, Math::max);
     }
   }
 
-  private void addElasticsearchEventCurrentConsumer(DeedTenantEvent event) {
+  private void addElasticsearchEventCurrentConsumer(SearchHit<DeedTenantEvent> eventHit) {
+    DeedTenantEvent event = eventHit.getContent();
+    IndexCoordinates indexCoordinates = StringUtils.isBlank(eventHit.getIndex()) ? null
+                                                                                 : IndexCoordinates.of(eventHit.getIndex());
     try {
       // Get a fresh event detail
-      event = deedTenantEventRepository.findById(event.getId()).orElse(event);
+      DeedTenantEvent storedEvent = indexCoordinates == null ? deedTenantEventRepository.findById(event.getId()).orElse(null)
+                                                             : elasticsearchOperations.get(event.getId(),
+                                                                                           DeedTenantEvent.class,
+                                                                                           indexCoordinates);
+      if (storedEvent != null) {
+        event = storedEvent;
+      }
       List<String> consumers = CollectionUtils.isEmpty(event.getConsumers()) ? new ArrayList<>()
                                                                              : new ArrayList<>(event.getConsumers());
       consumers.add(esClientName);
       event.setConsumers(consumers);
-      deedTenantEventRepository.save(event);
+      if (indexCoordinates == null) {
+        deedTenantEventRepository.save(event);
+      } else {
+        elasticsearchOperations.save(event, indexCoordinates);
+      }
     } catch (Exception e) {
       LOG.warn("{} - Error saving consumer name of event {}/{}",
                esClientName,
@@ -286,19 +566,60 @@ public class ListenerService {
     }
   }
 
-  private Instant getLastELasticsearchScanDate() {
+  /**
+   * Retrieves a page of events not consumed yet, sorted by date and id, which
+   * comes after the designated cursor
+   *
+   * @param cursor {@link EventCursor} of the last processed event
+   * @return {@link List} of {@link DeedTenantEvent} hits limited to the
+   *         configured page size
+   */
+  private List<SearchHit<DeedTenantEvent>> getEventsAfter(EventCursor cursor) {
+    Criteria criteria = new Criteria("date").greaterThanEqual(cursor.getDate())
+                                            .and(new Criteria("consumers").not().is(esClientName));
+    Sort sort = Sort.by(Direction.ASC, "date").and(Sort.by(Direction.ASC, "id"));
+    CriteriaQuery query = new CriteriaQuery(criteria, PageRequest.of(0, eventsPageSize, sort));
+    if (cursor.getId() != null) {
+      query.setSearchAfter(Arrays.asList(cursor.getDate().toEpochMilli(), cursor.getId()));
+    }
+    SearchHits<DeedTenantEvent> result;
+    if (isPartitionedEvents()) {
+      // Scan only the partitions which can hold events after the cursor
+      query.setIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN);
+      result = elasticsearchOperations.search(query,
+                                              DeedTenantEvent.class,
+                                              eventIndexPartitioner.getReadIndexCoordinates(cursor.getDate()));
+    } else {
+      result = elasticsearchOperations.search(query, DeedTenantEvent.class);
+    }
+    return result.getSearchHits();
+  }
+
+  private EventCursor getLastELasticsearchScanCursor() {
     String settingName = getSettingName(ES_LAST_SCANNED_DATE_SETTING_NAME);
-    String lastEventScanDate = settingService.get(settingName);
-    if (StringUtils.isBlank(lastEventScanDate)) {
-      return Instant.now();
+    String lastEventScanCursor = settingService.get(settingName);
+    if (StringUtils.isBlank(lastEventScanCursor)) {
+      return new EventCursor(Instant.now(), null);
     } else {
-      return Instant.ofEpochMilli(Long.parseLong(lastEventScanDate));
+      // Previously, only the last scanned date was stored
+      String lastEventScanDate = StringUtils.substringBefore(lastEventScanCursor, CURSOR_SEPARATOR);
+      String lastEventId = StringUtils.substringAfter(lastEventScanCursor, CURSOR_SEPARATOR);
+      return new EventCursor(Instant.ofEpochMilli(Long.parseLong(lastEventScanDate)),
+                             StringUtils.isBlank(lastEventId) ? null : lastEventId);
     }
   }
 
-  private void saveLastELasticsearchScanDate(Instant persistedEventDate) {
+  private Instant getLastELasticsearchScanDate() {
+    return getLastELasticsearchScanCursor().getDate();
+  }
+
+  private void saveLastELasticsearchScanCursor(EventCursor cursor) {
     String settingName = getSettingName(ES_LAST_SCANNED_DATE_SETTING_NAME);
-    settingService.save(settingName, String.valueOf(persistedEventDate.toEpochMilli()));
+    String value = String.valueOf(cursor.getDate().toEpochMilli());
+    if (cursor.getId() != null) {
+      value += CURSOR_SEPARATOR + cursor.getId();
+    }
+    settingService.save(settingName, value);
   }
 
   private boolean hasListeners(String eventName) {
@@ -319,16 +640,48 @@ public class ListenerService {
   private void executeElasticSearchScanning(Runnable task) {
     try {
       long stamp = ELASTIC_SEARCH_EVENT_READING_LOCK.tryWriteLock(3, TimeUnit.SECONDS);
+      if (stamp == 0) {
+        // The scan made by another thread will retrieve the same events
+        LOG.debug("{} - Persistent events are already being scanned, skip this scan", esClientName);
+        return;
+      }
       try {
         task.run();
       } finally {
-        ELASTIC_SEARCH_EVENT_READING_LOCK.unlock(stamp);
+        ELASTIC_SEARCH_EVENT_READING_LOCK.unlockWrite(stamp);
       }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     }
   }
 
+  private DeedTenantEvent savePersistentEvent(DeedTenantEvent persistentEvent) {
+    if (isPartitionedEvents()) {
+      return eventIndexPartitioner.save(persistentEvent);
+    } else {
+      return deedTenantEventRepository.save(persistentEvent);
+    }
+  }
+
+  private boolean hasEventTransports() {
+    return eventTransports != null && eventTransports.stream().anyMatch(EventTransport::isEnabled);
+  }
+
+  private void notifyEventTransports(String eventName) {
+    eventTransports.stream()
+                   .filter(EventTransport::isEnabled)
+                   .forEach(eventTransport -> eventTransport.notifyEventPublished(eventName));
+  }
+
+  /**
+   * @param date event date
+   * @return a unique identifier ordered by date first, then by node and by
+   *         publishing order in the node
+   */
+  private static String newEventId(Instant date) {
+    return String.format("%013d-%s-%019d", date.toEpochMilli(), NODE_ID, EVENT_ID_SEQUENCE.incrementAndGet());
+  }
+
   private Instant maxInstant(Instant instant1, Instant instant2) {
     if (instant1.isBefore(instant2)) {
       instant1 = instant2;
@@ -340,4 +693,14 @@ public class ListenerService {
     return settingPrefix + "-" + esClientName;
   }
 
+  @Getter
+  @AllArgsConstructor
+  private static class EventCursor {
+
+    private Instant date;
+
+    private String  id;
+
+  }
+
 }
@@ -59,6 +59,7 @@ public class ListenerServiceInit implements ApplicationContextAware {
       ListenerService.persistentFeatureEnabled = false; // NOSONAR
     }
     registerListeners();
+    listenerService.startEventTransports();
   }
 
   /**
@@ -0,0 +1,170 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.service;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.meeds.deeds.common.constant.TenantProvisioningStatus;
+import io.meeds.deeds.common.elasticsearch.model.ManagedDeedsEntity;
+import io.meeds.deeds.common.elasticsearch.storage.HubRepository;
+import io.meeds.deeds.common.elasticsearch.storage.ManagedDeedsRepository;
+import io.meeds.deeds.common.model.ManagedDeed;
+import io.meeds.deeds.common.utils.ManagedDeedMapper;
+
+/**
+ * Serves the Deeds managed by an address from a stored projection, computed
+ * using {@link HubService#getManagedDeeds(String)} which retrieves owned
+ * Deeds from blockchain and Deed Tenants, Leases and Hubs from Elasticsearch
+ * for each Deed. The projection is recomputed when a change of Deed
+ * ownership, Lease, Tenant or Hub is notified, and when a displayed Lease
+ * ends, since it changes the managed Deeds without notifying any event. A
+ * Tenant status change updates only the Deed of the Tenant in the projection.
+ * Since the Tenant status can be confirmed by the provisioning without
+ * notifying any event, a projection having a pending Tenant status expires
+ * early.
+ */
+@Component
+public class ManagedDeedService {
+
+  private static final Logger    LOG = LoggerFactory.getLogger(ManagedDeedService.class);
+
+  @Autowired
+  private HubService             hubService;
+
+  @Autowired
+  private HubRepository          hubRepository;
+
+  @Autowired
+  private ManagedDeedsRepository managedDeedsRepository;
+
+  @Value("${meeds.hub.managedDeeds.maxAgeSeconds:3600}")
+  private long                   maxAgeSeconds;
+
+  @Value("${meeds.hub.managedDeeds.pendingMaxAgeSeconds:30}")
+  private long                   pendingMaxAgeSeconds;
+
+  /**
+   * @param address Deed owner or manager address
+   * @param forceRefresh whether to compute the managed Deeds again rather
+   *          than using the stored projection
+   * @return {@link List} of {@link ManagedDeed}
+   */
+  public List<ManagedDeed> getManagedDeeds(String address, boolean forceRefresh) {
+    String managerAddress = StringUtils.lowerCase(address);
+    if (!forceRefresh) {
+      ManagedDeedsEntity managedDeeds = managedDeedsRepository.findById(managerAddress).orElse(null);
+      if (managedDeeds != null
+          && managedDeeds.getValidUntil() != null
+          && managedDeeds.getValidUntil().isAfter(Instant.now())) {
+        return ManagedDeedMapper.fromEntity(managedDeeds);
+      }
+    }
+    return computeManagedDeeds(managerAddress);
+  }
+
+  /**
+   * Recomputes the stored projections of designated addresses. The addresses
+   * without projection are ignored, their projection will be computed on
+   * first retrieval.
+   *
+   * @param addresses Deed owner or manager addresses
+   */
+  public void refreshManagedDeeds(String... addresses) {
+    Arrays.stream(addresses)
+          .filter(StringUtils::isNotBlank)
+          .map(StringUtils::lowerCase)
+          .distinct()
+          .filter(managedDeedsRepository::existsById)
+          .forEach(address -> {
+            try {
+              computeManagedDeeds(address);
+            } catch (Exception e) {
+              LOG.warn("Error while refreshing managed deeds of address {}", address, e);
+            }
+          });
+  }
+
+  /**
+   * Recomputes the stored projections of the Deed owner and manager of a Hub
+   *
+   * @param hubAddress Hub address
+   */
+  public void refreshHubManagedDeeds(String hubAddress) {
+    hubRepository.findById(StringUtils.lowerCase(hubAddress))
+                 .ifPresent(hub -> refreshManagedDeeds(hub.getDeedOwnerAddress(), hub.getDeedManagerAddress()));
+  }
+
+  /**
+   * Updates the Tenant status of a Deed in the stored projections of
+   * designated addresses, without recomputing the other Deeds
+   *
+   * @param nftId Deed NFT identifier
+   * @param provisioningStatus new {@link TenantProvisioningStatus}
+   * @param addresses Deed owner or manager addresses
+   */
+  public void updateManagedDeedStatus(long nftId, TenantProvisioningStatus provisioningStatus, String... addresses) {
+    Arrays.stream(addresses)
+          .filter(StringUtils::isNotBlank)
+          .map(StringUtils::lowerCase)
+          .distinct()
+          .forEach(address -> {
+            try {
+              managedDeedsRepository.findById(address).ifPresent(managedDeeds -> {
+                List<ManagedDeed> deeds = ManagedDeedMapper.fromEntity(managedDeeds);
+                deeds.stream()
+                     .filter(deed -> deed.getNftId() == nftId)
+                     .forEach(deed -> deed.setProvisioningStatus(provisioningStatus));
+                saveManagedDeeds(address, deeds, managedDeeds.getComputedDate());
+              });
+            } catch (Exception e) {
+              LOG.warn("Error while updating managed deed {} of address {}", nftId, address, e);
+            }
+          });
+  }
+
+  private List<ManagedDeed> computeManagedDeeds(String address) {
+    List<ManagedDeed> deeds = hubService.getManagedDeeds(address);
+    saveManagedDeeds(address, deeds, Instant.now());
+    return deeds;
+  }
+
+  private void saveManagedDeeds(String address, List<ManagedDeed> deeds, Instant computedDate) {
+    Instant now = Instant.now();
+    Instant validUntil = deeds.stream()
+                              .flatMap(deed -> Stream.of(deed.getStartDate(), deed.getEndDate()))
+                              .filter(Objects::nonNull)
+                              .filter(now::isBefore)
+                              .reduce(computedDate.plusSeconds(maxAgeSeconds), (date1, date2) -> date1.isBefore(date2) ? date1 : date2);
+    if (deeds.stream()
+             .anyMatch(deed -> deed.getProvisioningStatus() != null && deed.getProvisioningStatus().isPending())) {
+      Instant pendingValidUntil = now.plusSeconds(pendingMaxAgeSeconds);
+      validUntil = pendingValidUntil.isBefore(validUntil) ? pendingValidUntil : validUntil;
+    }
+    managedDeedsRepository.save(ManagedDeedMapper.toEntity(address, deeds, computedDate, validUntil));
+  }
+
+}
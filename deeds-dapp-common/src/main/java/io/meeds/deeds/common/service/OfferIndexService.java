@@ -0,0 +1,195 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.service;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.stereotype.Component;
+
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantOffer;
+import io.meeds.deeds.common.elasticsearch.storage.OfferRepository;
+import io.meeds.deeds.common.index.OfferColumnarIndex;
+import io.meeds.deeds.common.model.DeedTenantOfferDTO;
+import io.meeds.deeds.common.model.OfferFilter;
+
+import lombok.Getter;
+
+/**
+ * Maintains an in-memory {@link OfferColumnarIndex} of marketplace offers to
+ * serve offers searches without querying Elasticsearch. Elasticsearch remains
+ * the source of truth: the index is loaded lazily at first search, updated
+ * incrementally each time an offer is saved or removed, and rebuilt
+ * periodically to catch up with changes made by other nodes.
+ */
+@Component
+public class OfferIndexService {
+
+  private static final Logger         LOG             = LoggerFactory.getLogger(OfferIndexService.class);
+
+  @Autowired
+  private ElasticsearchOperations     elasticsearchOperations;
+
+  @Autowired
+  private OfferRepository             offerRepository;
+
+  @Value("${meeds.offers.index.enabled:true}")
+  private boolean                     enabled;
+
+  private volatile OfferColumnarIndex offerIndex;
+
+  private volatile boolean            reloading;
+
+  private final Set<String>           changedOfferIds = ConcurrentHashMap.newKeySet();
+
+  @Getter
+  private final AtomicLong            searchCount     = new AtomicLong();
+
+  @Getter
+  private final AtomicLong            updateCount     = new AtomicLong();
+
+  @Getter
+  private final AtomicLong            reloadCount     = new AtomicLong();
+
+  /**
+   * @param pageable {@link Pageable} of the search
+   * @return true if the search can be served by the in-memory index
+   */
+  public boolean canSearch(Pageable pageable) {
+    return enabled && OfferColumnarIndex.isSortSupported(pageable.getSort());
+  }
+
+  public Page<DeedTenantOfferDTO> getOffers(OfferFilter offerFilter, Pageable pageable) {
+    searchCount.incrementAndGet();
+    return getOfferIndex().search(offerFilter, pageable, Instant.now());
+  }
+
+  /**
+   * Updates the index with the saved state of an offer, when the index is
+   * already loaded
+   *
+   * @param offer saved {@link DeedTenantOffer}
+   */
+  public void updateOffer(DeedTenantOffer offer) {
+    OfferColumnarIndex index = offerIndex;
+    if (index == null || offer == null) {
+      return;
+    }
+    index.put(offer);
+    markChanged(offer.getId());
+  }
+
+  public void removeOffer(String offerId) {
+    OfferColumnarIndex index = offerIndex;
+    if (index == null || StringUtils.isBlank(offerId)) {
+      return;
+    }
+    index.remove(offerId);
+    markChanged(offerId);
+  }
+
+  /**
+   * Reloads an offer from Elasticsearch into the index, used when the offer
+   * has been modified by another node
+   *
+   * @param offerId offer technical identifier
+   */
+  public void refreshOffer(String offerId) {
+    if (offerIndex == null || StringUtils.isBlank(offerId)) {
+      return;
+    }
+    DeedTenantOffer offer = offerRepository.findById(offerId).orElse(null);
+    if (offer == null) {
+      removeOffer(offerId);
+    } else {
+      updateOffer(offer);
+    }
+  }
+
+  /**
+   * Rebuilds the index from Elasticsearch when it's already loaded. The
+   * offers changed while rebuilding are refreshed again after the swap to
+   * not lose an update made after it has been read from Elasticsearch.
+   */
+  public void reconcile() {
+    if (!enabled || offerIndex == null) {
+      return;
+    }
+    synchronized (this) {
+      reloading = true;
+      try {
+        offerIndex = loadOfferIndex();
+      } finally {
+        reloading = false;
+      }
+    }
+    Set<String> offerIds = Set.copyOf(changedOfferIds);
+    changedOfferIds.removeAll(offerIds);
+    offerIds.forEach(this::refreshOffer);
+  }
+
+  public boolean isLoaded() {
+    return offerIndex != null;
+  }
+
+  private OfferColumnarIndex getOfferIndex() {
+    OfferColumnarIndex index = offerIndex;
+    if (index == null) {
+      synchronized (this) {
+        if (offerIndex == null) {
+          offerIndex = loadOfferIndex();
+        }
+        index = offerIndex;
+      }
+    }
+    return index;
+  }
+
+  private OfferColumnarIndex loadOfferIndex() {
+    long start = System.currentTimeMillis();
+    Criteria criteria = new Criteria("parentId").not().exists();
+    criteria.and(criteria, new Criteria("acquired").is(false));
+    OfferColumnarIndex index = new OfferColumnarIndex();
+    try (SearchHitsIterator<DeedTenantOffer> hits = elasticsearchOperations.searchForStream(new CriteriaQuery(criteria),
+                                                                                            DeedTenantOffer.class)) {
+      hits.forEachRemaining(hit -> index.put(hit.getContent()));
+    }
+    reloadCount.incrementAndGet();
+    LOG.info("Offers index loaded with {} offers in {}ms", index.size(), System.currentTimeMillis() - start);
+    return index;
+  }
+
+  private void markChanged(String offerId) {
+    updateCount.incrementAndGet();
+    if (reloading) {
+      changedOfferIds.add(offerId);
+    }
+  }
+
+}
@@ -19,6 +19,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.MathContext;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -37,12 +38,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.SearchHit;
-import org.springframework.data.elasticsearch.core.SearchHitSupport;
-import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.SearchPage;
 import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.web3j.abi.datatypes.Address;
@@ -54,6 +50,8 @@ import io.meeds.deeds.common.constant.OfferType;
 import io.meeds.deeds.common.constant.RentalPaymentPeriodicity;
 import io.meeds.deeds.common.constant.TransactionStatus;
 import io.meeds.deeds.common.constant.UnauthorizedOperationException;
+import io.meeds.deeds.common.elasticsearch.TimeSlicedQueryPlanner;
+import io.meeds.deeds.common.elasticsearch.TimeSlicedQueryPlanner.TimeBound;
 import io.meeds.deeds.common.elasticsearch.model.DeedTenant;
 import io.meeds.deeds.common.elasticsearch.model.DeedTenantOffer;
 import io.meeds.deeds.common.elasticsearch.storage.OfferRepository;
@@ -104,58 +102,43 @@ public class OfferService {
   @Autowired
   private ListenerService          listenerService;
 
+  @Autowired(required = false)
+  private OfferIndexService        offerIndexService;
+
+  @Autowired(required = false)
+  private TimeSlicedQueryPlanner   queryPlanner;
+
   private Map<String, StampedLock> blockchainRefreshLocks                = new ConcurrentHashMap<>();
 
   private Map<String, Long>        blockchainRefreshStamp                = new ConcurrentHashMap<>();
 
   public Page<DeedTenantOfferDTO> getOffers(OfferFilter offerFilter, Pageable pageable) {
-    Criteria criteria = new Criteria("parentId").not().exists();
-    criteria.and(criteria, new Criteria("acquired").is(false));
-
-    if (StringUtils.isNotBlank(offerFilter.getOwnerAddress())) {
-      criteria.and(criteria, new Criteria("owner").is(StringUtils.lowerCase(offerFilter.getOwnerAddress())));
-    }
-    if (offerFilter.isExcludeDisabled()) {
-      Criteria enabledCriteria = new Criteria("enabled").is(true);
-      criteria.and(criteria, enabledCriteria);
+    if (offerIndexService != null && offerIndexService.canSearch(pageable)) {
+      return offerIndexService.getOffers(offerFilter, pageable);
     }
+    List<TimeBound<DeedTenantOffer>> timeBounds = new ArrayList<>();
     if (offerFilter.isExcludeNotStarted()) {
-      Criteria startDateCriteria = new Criteria("startDate").lessThan(Instant.now());
-      criteria.and(criteria, startDateCriteria);
-    }
-    if (offerFilter.getNftId() >= 0) {
-      Criteria nftIdCriteria = new Criteria("nftId").is(offerFilter.getNftId());
-      criteria.and(nftIdCriteria);
-    }
-    if (!CollectionUtils.isEmpty(offerFilter.getCardTypes())) {
-      Criteria cardTypeCriteria = new Criteria("cardType").in(offerFilter.getCardTypes());
-      criteria.and(criteria, cardTypeCriteria);
-    }
-    if (!CollectionUtils.isEmpty(offerFilter.getOfferTypes())) {
-      Criteria offerCriteria = new Criteria("offerType").in(offerFilter.getOfferTypes());
-      criteria.and(criteria, offerCriteria);
+      timeBounds.add(TimeBound.before("startDate", DeedTenantOffer::getStartDate));
     }
     if (offerFilter.isExcludeExpired()) {
-      Criteria expirationDateCriteria = new Criteria("expirationDate").greaterThan(Instant.now());
-      criteria.and(criteria, expirationDateCriteria);
-    }
-    if (!CollectionUtils.isEmpty(offerFilter.getTransactionStatus())) {
-      Criteria transactionStatusCriteria = new Criteria("offerTransactionStatus").in(offerFilter.getTransactionStatus());
-      criteria.and(criteria, transactionStatusCriteria);
-    }
-    if (StringUtils.isNotBlank(offerFilter.getCurrentAddress())) {
-      Criteria visibilityCriteria = new Criteria("viewAddresses").in(StringUtils.lowerCase(offerFilter.getCurrentAddress()),
-                                                                     DeedTenantOfferMapper.EVERYONE);
-      criteria.and(criteria, visibilityCriteria);
+      timeBounds.add(TimeBound.after("expirationDate", DeedTenantOffer::getExpirationDate));
+    }
+    Page<DeedTenantOffer> offers;
+    if (queryPlanner == null) {
+      offers = TimeSlicedQueryPlanner.search(elasticsearchOperations,
+                                             DeedTenantOffer.class,
+                                             buildOfferCriteria(offerFilter),
+                                             timeBounds,
+                                             pageable,
+                                             Instant.now());
     } else {
-      Criteria visibilityCriteria = new Criteria("viewAddresses").in(DeedTenantOfferMapper.EVERYONE);
-      criteria.and(criteria, visibilityCriteria);
+      offers = queryPlanner.search(DeedTenantOffer.class,
+                                   offerFilter,
+                                   () -> buildOfferCriteria(offerFilter),
+                                   timeBounds,
+                                   pageable);
     }
-    CriteriaQuery query = new CriteriaQuery(criteria, pageable);
-    SearchHits<DeedTenantOffer> result = elasticsearchOperations.search(query, DeedTenantOffer.class);
-    SearchPage<DeedTenantOffer> searchPage = SearchHitSupport.searchPageFor(result, pageable);
-    return searchPage.map(SearchHit::getContent)
-                     .map(DeedTenantOfferMapper::toDTO);
+    return offers.map(DeedTenantOfferMapper::toDTO);
   }
 
   public DeedTenantOfferDTO getOffer(String id, String walletAddress, boolean refreshFromBlockchain) throws Exception {
@@ -376,6 +359,12 @@ public class OfferService {
       cancelChangeLog(parentOffer, offer);
     } else if (!blockchainService.isOfferEnabled(offer.getOfferId())) {
       offerRepository.delete(offer);
+      if (offerIndexService != null) {
+        offerIndexService.removeOffer(offer.getId());
+      }
+      if (queryPlanner != null) {
+        queryPlanner.invalidate(DeedTenantOffer.class);
+      }
     } else {
       LOG.warn("Don't know what to do with a parent offer {} with blockchain Id {} that exists on blockchain and that is meant to have a valid transaction",
                offer.getId(),
@@ -686,6 +675,44 @@ public class OfferService {
     }
   }
 
+  private Criteria buildOfferCriteria(OfferFilter offerFilter) {
+    Criteria criteria = new Criteria("parentId").not().exists();
+    criteria.and(criteria, new Criteria("acquired").is(false));
+
+    if (StringUtils.isNotBlank(offerFilter.getOwnerAddress())) {
+      criteria.and(criteria, new Criteria("owner").is(StringUtils.lowerCase(offerFilter.getOwnerAddress())));
+    }
+    if (offerFilter.isExcludeDisabled()) {
+      Criteria enabledCriteria = new Criteria("enabled").is(true);
+      criteria.and(criteria, enabledCriteria);
+    }
+    if (offerFilter.getNftId() >= 0) {
+      Criteria nftIdCriteria = new Criteria("nftId").is(offerFilter.getNftId());
+      criteria.and(nftIdCriteria);
+    }
+    if (!CollectionUtils.isEmpty(offerFilter.getCardTypes())) {
+      Criteria cardTypeCriteria = new Criteria("cardType").in(offerFilter.getCardTypes());
+      criteria.and(criteria, cardTypeCriteria);
+    }
+    if (!CollectionUtils.isEmpty(offerFilter.getOfferTypes())) {
+      Criteria offerCriteria = new Criteria("offerType").in(offerFilter.getOfferTypes());
+      criteria.and(criteria, offerCriteria);
+    }
+    if (!CollectionUtils.isEmpty(offerFilter.getTransactionStatus())) {
+      Criteria transactionStatusCriteria = new Criteria("offerTransactionStatus").in(offerFilter.getTransactionStatus());
+      criteria.and(criteria, transactionStatusCriteria);
+    }
+    if (StringUtils.isNotBlank(offerFilter.getCurrentAddress())) {
+      Criteria visibilityCriteria = new Criteria("viewAddresses").in(StringUtils.lowerCase(offerFilter.getCurrentAddress()),
+                                                                     DeedTenantOfferMapper.EVERYONE);
+      criteria.and(criteria, visibilityCriteria);
+    } else {
+      Criteria visibilityCriteria = new Criteria("viewAddresses").in(DeedTenantOfferMapper.EVERYONE);
+      criteria.and(criteria, visibilityCriteria);
+    }
+    return criteria;
+  }
+
   private boolean isChangelog(DeedTenantOffer offer) {
     return offer != null && StringUtils.isNotBlank(offer.getParentId());
   }
@@ -927,7 +954,14 @@ public class OfferService {
     }
     String parentId = offer.getParentId();
     try {
-      return offerRepository.save(offer);
+      DeedTenantOffer savedOffer = offerRepository.save(offer);
+      if (offerIndexService != null) {
+        offerIndexService.updateOffer(savedOffer);
+      }
+      if (queryPlanner != null) {
+        queryPlanner.invalidate(DeedTenantOffer.class);
+      }
+      return savedOffer;
     } finally {
       if (isChangelog && isNewOffer) {
         LOG.debug("Delete acquired UI Refresh Lock on Offer {} after a new changelog has been added",
@@ -18,6 +18,7 @@ package io.meeds.deeds.common.service;
 import static io.meeds.deeds.common.constant.CommonConstants.DEED_EVENT_TENANT_EMAIL_UPDATED;
 import static io.meeds.deeds.common.constant.CommonConstants.TENANT_COMMAND_START_EVENT;
 import static io.meeds.deeds.common.constant.CommonConstants.TENANT_COMMAND_STOP_EVENT;
+import static io.meeds.deeds.common.constant.CommonConstants.TENANT_STATUS_UPDATED_EVENT;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -135,6 +136,7 @@ public class TenantService {
                                           boolean refreshFromBlockchain) throws ObjectNotFoundException {
     DeedTenant deedTenant = getDeedTenantOrImport(managerAddress, nftId);
     if (refreshFromBlockchain && deedTenant != null) {
+      TenantProvisioningStatus previousStatus = deedTenant.getTenantProvisioningStatus();
       boolean isPending = deedTenant.getTenantProvisioningStatus() != null
                           && deedTenant.getTenantProvisioningStatus().isPending();
       if (isPending) {
@@ -168,6 +170,9 @@ public class TenantService {
           deedTenant.setTenantProvisioningStatus(TenantProvisioningStatus.STOP_CONFIRMED);
         }
       }
+      if (previousStatus != deedTenant.getTenantProvisioningStatus()) {
+        listenerService.publishEvent(TENANT_STATUS_UPDATED_EVENT, deedTenant);
+      }
     }
     return deedTenant;
   }
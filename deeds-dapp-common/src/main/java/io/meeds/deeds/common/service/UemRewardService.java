@@ -17,12 +17,9 @@
  */
 package io.meeds.deeds.common.service;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.Collectors;
-
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -33,13 +30,15 @@ import org.springframework.stereotype.Component;
 
 import io.meeds.deeds.common.elasticsearch.model.UemRewardEntity;
 import io.meeds.deeds.common.elasticsearch.storage.UemRewardRepository;
+import io.meeds.deeds.common.service.HubReportService.UemRewardComputationResult;
 import io.meeds.deeds.common.utils.UemRewardMapper;
-import io.meeds.wom.api.model.HubReport;
 import io.meeds.wom.api.model.UemReward;
 
 @Component
 public class UemRewardService {
 
+  private static final Logger LOG              = LoggerFactory.getLogger(UemRewardService.class);
+
   public static final String  UEM_REWARD_SAVED = "uem.reward.saved";
 
   @Autowired
@@ -95,20 +94,15 @@ public class UemRewardService {
   }
 
   private void computeUemReward(UemRewardEntity rewardEntity) {
-    List<HubReport> reports = hubReportService.getReportsByRewardId(rewardEntity.getRewardId());
-    if (CollectionUtils.isEmpty(reports)) {
-      rewardEntity.setSumEd(0);
-      rewardEntity.setHubAddresses(Collections.emptySet());
-    } else {
-      reports.forEach(report -> hubReportService.computeUemReward(report,
-                                                                  rewardEntity.getFixedGlobalIndex(),
-                                                                  rewardEntity.getAmount()));
-      rewardEntity.setSumEd(reports.stream().mapToDouble(HubReport::getEd).sum());
-      rewardEntity.setHubAddresses(reports.stream()
-                                          .map(HubReport::getHubAddress)
-                                          .map(StringUtils::lowerCase)
-                                          .collect(Collectors.toSet()));
-    }
+    UemRewardComputationResult result = hubReportService.computeUemRewards(rewardEntity);
+    rewardEntity.setSumEd(result.getSumEd());
+    rewardEntity.setHubAddresses(result.getHubAddresses());
+    LOG.info("UEM reward {} computed in {}ms: {} reports modified over {}, {} failed to be saved",
+             rewardEntity.getRewardId(),
+             result.getDurationMillis(),
+             result.getModifiedReportsCount(),
+             result.getReportsCount(),
+             result.getFailedReportsCount());
   }
 
 }
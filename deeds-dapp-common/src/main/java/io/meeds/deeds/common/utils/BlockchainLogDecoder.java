@@ -0,0 +1,205 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.utils;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.EventValues;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.core.methods.response.BaseEventResponse;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.tx.Contract;
+
+import io.meeds.deeds.common.constant.CommonConstants.DeedOwnershipTransferEvent;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenant;
+import io.meeds.deeds.contract.Deed;
+import io.meeds.deeds.contract.DeedTenantProvisioning;
+import io.meeds.deeds.contract.UserEngagementMinting;
+import io.meeds.deeds.contract.UserEngagementMinting.ClaimedEventResponse;
+import io.meeds.deeds.contract.UserEngagementMinting.ReportFraudEventResponse;
+import io.meeds.deeds.contract.UserEngagementMinting.ReportSentEventResponse;
+import io.meeds.deeds.contract.WoM;
+
+/**
+ * Decodes contract events directly from mined logs, which already hold the
+ * event topics and data, without having to retrieve the transaction receipt.
+ * Only successful transactions emit logs, thus no receipt status check is
+ * needed.
+ */
+public class BlockchainLogDecoder {
+
+  private static final String TRANSFER_SINGLE_TOPIC  = EventEncoder.encode(Deed.TRANSFERSINGLE_EVENT);
+
+  private static final String TRANSFER_BATCH_TOPIC   = EventEncoder.encode(Deed.TRANSFERBATCH_EVENT);
+
+  private static final String TENANT_STARTED_TOPIC   = EventEncoder.encode(DeedTenantProvisioning.TENANTSTARTED_EVENT);
+
+  private static final String TENANT_STOPPED_TOPIC   = EventEncoder.encode(DeedTenantProvisioning.TENANTSTOPPED_EVENT);
+
+  private static final String DELEGATEE_ADDED_TOPIC  = EventEncoder.encode(DeedTenantProvisioning.DELEGATEEADDED_EVENT);
+
+  private static final String HUB_CONNECTED_TOPIC    = EventEncoder.encode(WoM.HUBCONNECTED_EVENT);
+
+  private static final String HUB_DISCONNECTED_TOPIC = EventEncoder.encode(WoM.HUBDISCONNECTED_EVENT);
+
+  private static final String UEM_REPORT_SENT_TOPIC  = EventEncoder.encode(UserEngagementMinting.REPORTSENT_EVENT);
+
+  private static final String UEM_REPORT_FRAUD_TOPIC = EventEncoder.encode(UserEngagementMinting.REPORTFRAUD_EVENT);
+
+  private static final String UEM_CLAIMED_TOPIC      = EventEncoder.encode(UserEngagementMinting.CLAIMED_EVENT);
+
+  private BlockchainLogDecoder() {
+    // Utils class
+  }
+
+  /**
+   * @param log {@link Log} emitted by Deed contract
+   * @return {@link List} of {@link DeedOwnershipTransferEvent} of a
+   *         TransferSingle or TransferBatch event, else an empty list
+   */
+  @SuppressWarnings({
+      "rawtypes", "unchecked"
+  })
+  public static List<DeedOwnershipTransferEvent> getTransferOwnershipEvents(Log log) {
+    String topic = getTopic(log);
+    if (StringUtils.equals(topic, TRANSFER_SINGLE_TOPIC)) {
+      EventValues eventValues = Contract.staticExtractEventParameters(Deed.TRANSFERSINGLE_EVENT, log);
+      return Collections.singletonList(new DeedOwnershipTransferEvent(getLong(eventValues.getNonIndexedValues().get(0)),
+                                                                      getAddress(eventValues.getIndexedValues().get(1)),
+                                                                      getAddress(eventValues.getIndexedValues().get(2))));
+    } else if (StringUtils.equals(topic, TRANSFER_BATCH_TOPIC)) {
+      EventValues eventValues = Contract.staticExtractEventParameters(Deed.TRANSFERBATCH_EVENT, log);
+      String from = getAddress(eventValues.getIndexedValues().get(1));
+      String to = getAddress(eventValues.getIndexedValues().get(2));
+      List<Type> nftIds = (List<Type>) eventValues.getNonIndexedValues().get(0).getValue();
+      return nftIds.stream()
+                   .map(nftId -> new DeedOwnershipTransferEvent(getLong(nftId), from, to))
+                   .toList();
+    } else {
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * @param log {@link Log} emitted by Deed Tenant Provisioning contract
+   * @return {@link DeedTenant} for TenantStarted and TenantStopped events,
+   *         else null
+   */
+  public static DeedTenant getDeedTenant(Log log) {
+    String topic = getTopic(log);
+    boolean started = StringUtils.equals(topic, TENANT_STARTED_TOPIC);
+    if (!started && !StringUtils.equals(topic, TENANT_STOPPED_TOPIC)) {
+      return null;
+    }
+    Event event = started ? DeedTenantProvisioning.TENANTSTARTED_EVENT : DeedTenantProvisioning.TENANTSTOPPED_EVENT;
+    EventValues eventValues = Contract.staticExtractEventParameters(event, log);
+    DeedTenant deedTenant = new DeedTenant();
+    deedTenant.setNftId(getLong(eventValues.getIndexedValues().get(1)));
+    deedTenant.setManagerAddress(getAddress(eventValues.getIndexedValues().get(0)));
+    if (started) {
+      deedTenant.setStartupTransactionHash(log.getTransactionHash());
+    } else {
+      deedTenant.setShutdownTransactionHash(log.getTransactionHash());
+    }
+    return deedTenant;
+  }
+
+  /**
+   * @param log {@link Log} emitted by Deed Tenant Provisioning contract
+   * @return {@link DeedTenant} holding the delegated manager of a
+   *         DelegateeAdded event, else null
+   */
+  public static DeedTenant getDelegatedDeedTenant(Log log) {
+    if (!StringUtils.equals(getTopic(log), DELEGATEE_ADDED_TOPIC)) {
+      return null;
+    }
+    EventValues eventValues = Contract.staticExtractEventParameters(DeedTenantProvisioning.DELEGATEEADDED_EVENT, log);
+    DeedTenant deedTenant = new DeedTenant();
+    deedTenant.setNftId(getLong(eventValues.getNonIndexedValues().get(0)));
+    deedTenant.setManagerAddress(getAddress(eventValues.getIndexedValues().get(1)));
+    return deedTenant;
+  }
+
+  /**
+   * @param log {@link Log} emitted by WoM contract
+   * @return Hub address of HubConnected and HubDisconnected events, else null
+   */
+  public static String getHubAddress(Log log) {
+    String topic = getTopic(log);
+    if (StringUtils.equals(topic, HUB_CONNECTED_TOPIC)) {
+      return getAddress(Contract.staticExtractEventParameters(WoM.HUBCONNECTED_EVENT, log).getIndexedValues().get(0));
+    } else if (StringUtils.equals(topic, HUB_DISCONNECTED_TOPIC)) {
+      return getAddress(Contract.staticExtractEventParameters(WoM.HUBDISCONNECTED_EVENT, log).getIndexedValues().get(0));
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @param log {@link Log} emitted by UEM contract
+   * @return {@link BaseEventResponse} of ReportSent, ReportFraud and Claimed
+   *         events, else null
+   */
+  @SuppressWarnings("rawtypes")
+  public static BaseEventResponse getUemEvent(Log log) {
+    String topic = getTopic(log);
+    if (StringUtils.equals(topic, UEM_REPORT_SENT_TOPIC)) {
+      List<Type> values = Contract.staticExtractEventParameters(UserEngagementMinting.REPORTSENT_EVENT, log)
+                                  .getIndexedValues();
+      ReportSentEventResponse eventResponse = new ReportSentEventResponse();
+      eventResponse.log = log;
+      eventResponse.hub = getAddress(values.get(0));
+      eventResponse.reportId = (BigInteger) values.get(1).getValue();
+      return eventResponse;
+    } else if (StringUtils.equals(topic, UEM_REPORT_FRAUD_TOPIC)) {
+      List<Type> values = Contract.staticExtractEventParameters(UserEngagementMinting.REPORTFRAUD_EVENT, log)
+                                  .getIndexedValues();
+      ReportFraudEventResponse eventResponse = new ReportFraudEventResponse();
+      eventResponse.log = log;
+      eventResponse.reportId = (BigInteger) values.get(0).getValue();
+      return eventResponse;
+    } else if (StringUtils.equals(topic, UEM_CLAIMED_TOPIC)) {
+      List<Type> values = Contract.staticExtractEventParameters(UserEngagementMinting.CLAIMED_EVENT, log)
+                                  .getIndexedValues();
+      ClaimedEventResponse eventResponse = new ClaimedEventResponse();
+      eventResponse.log = log;
+      eventResponse.recipient = getAddress(values.get(0));
+      eventResponse.receiver = getAddress(values.get(1));
+      eventResponse.amount = (BigInteger) values.get(2).getValue();
+      return eventResponse;
+    } else {
+      return null;
+    }
+  }
+
+  private static String getTopic(Log log) {
+    return log == null || log.getTopics() == null || log.getTopics().isEmpty() ? null : log.getTopics().get(0);
+  }
+
+  private static String getAddress(Type<?> value) {
+    return StringUtils.lowerCase(value.toString());
+  }
+
+  private static long getLong(Type<?> value) {
+    return ((BigInteger) value.getValue()).longValue();
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.utils;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import io.meeds.deeds.common.elasticsearch.model.ManagedDeedEntity;
+import io.meeds.deeds.common.elasticsearch.model.ManagedDeedsEntity;
+import io.meeds.deeds.common.model.ManagedDeed;
+
+public class ManagedDeedMapper {
+
+  private ManagedDeedMapper() {
+    // Utils class
+  }
+
+  public static List<ManagedDeed> fromEntity(ManagedDeedsEntity entity) {
+    if (entity == null || entity.getDeeds() == null) {
+      return Collections.emptyList();
+    }
+    return entity.getDeeds()
+                 .stream()
+                 .map(deed -> new ManagedDeed(deed.getNftId(),
+                                              deed.getCity(),
+                                              deed.getCardType(),
+                                              deed.getProvisioningStatus(),
+                                              deed.getOwnerAddress(),
+                                              deed.getManagerAddress(),
+                                              deed.getStartDate(),
+                                              deed.getEndDate(),
+                                              deed.isConnected()))
+                 .toList();
+  }
+
+  public static ManagedDeedsEntity toEntity(String address,
+                                            List<ManagedDeed> deeds,
+                                            Instant computedDate,
+                                            Instant validUntil) {
+    List<ManagedDeedEntity> deedEntities = deeds.stream()
+                                                .map(deed -> new ManagedDeedEntity(deed.getNftId(),
+                                                                                   deed.getCity(),
+                                                                                   deed.getCardType(),
+                                                                                   deed.getProvisioningStatus(),
+                                                                                   deed.getOwnerAddress(),
+                                                                                   deed.getManagerAddress(),
+                                                                                   deed.getStartDate(),
+                                                                                   deed.getEndDate(),
+                                                                                   deed.isConnected()))
+                                                .toList();
+    return new ManagedDeedsEntity(address, deedEntities, computedDate, validUntil);
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import io.meeds.wom.api.constant.WomException;
+
+public class WomTransactionUtils {
+
+  private WomTransactionUtils() {
+    // Utils class
+  }
+
+  /**
+   * Waits for an asynchronous WoM transaction to be mined and processed
+   *
+   * @param <T> result type
+   * @param transactionFuture {@link CompletableFuture} of the transaction
+   * @return the transaction processing result
+   * @throws WomException when the transaction fails or when interrupted
+   */
+  public static <T> T waitForWomTransaction(CompletableFuture<T> transactionFuture) throws WomException {
+    try {
+      return transactionFuture.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WomException("wom.updateDeedTransactionTimedOut");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof WomException womException) {
+        throw womException;
+      } else if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else {
+        throw new IllegalStateException("Error While processing Deed Update transaction", e.getCause());
+      }
+    }
+  }
+
+}
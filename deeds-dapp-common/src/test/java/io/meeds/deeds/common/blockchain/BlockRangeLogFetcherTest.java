@@ -0,0 +1,133 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.EthLog.LogResult;
+
+class BlockRangeLogFetcherTest {
+
+  private static final String CONTRACT_ADDRESS = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  void testSplitWindowOnTooManyResults() throws Exception {
+    Web3j web3j = mockGetLogs(50, true);
+    BlockRangeLogFetcher logFetcher = new BlockRangeLogFetcher(100, 100, 1000, 1);
+
+    List<LogResult> logs = logFetcher.getLogs(web3j, 0, 99, this::newFilter);
+    assertEquals(2, logs.size());
+    assertEquals("0-49", logs.get(0).get());
+    assertEquals("50-99", logs.get(1).get());
+    assertEquals(1, logFetcher.getSplitWindowsCount().get());
+    assertEquals(100, logFetcher.getScannedBlocksCount().get());
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  void testGrowWindowOnSmallResults() throws Exception {
+    Web3j web3j = mockGetLogs(1000, false);
+    BlockRangeLogFetcher logFetcher = new BlockRangeLogFetcher(10, 40, 10, 2);
+    try {
+      List<LogResult> logs = logFetcher.getLogs(web3j, 0, 99, this::newFilter);
+      assertEquals(0, logs.size());
+      assertEquals(40, logFetcher.getWindowSize(web3j));
+      assertEquals(100, logFetcher.getScannedBlocksCount().get());
+    } finally {
+      logFetcher.shutdown();
+    }
+  }
+
+  @Test
+  void testFailWhenSingleBlockTooLarge() {
+    Web3j web3j = mockGetLogs(0, true);
+    BlockRangeLogFetcher logFetcher = new BlockRangeLogFetcher(8, 8, 1000, 1);
+    assertThrows(IOException.class, () -> logFetcher.getLogs(web3j, 0, 7, this::newFilter));
+  }
+
+  @Test
+  void testFailWithoutSplittingOnUnrelatedError() {
+    Web3j web3j = mock(Web3j.class);
+    doAnswer(invocation -> {
+      EthLog ethLog = new EthLog();
+      ethLog.setError(new Response.Error(-32000, "index out of range"));
+      return new Request<String, EthLog>() {
+        @Override
+        public EthLog send() {
+          return ethLog;
+        }
+      };
+    }).when(web3j).ethGetLogs(any());
+    BlockRangeLogFetcher logFetcher = new BlockRangeLogFetcher(8, 8, 1000, 1);
+    assertThrows(IOException.class, () -> logFetcher.getLogs(web3j, 0, 7, this::newFilter));
+    verify(web3j, times(1)).ethGetLogs(any());
+    assertEquals(0, logFetcher.getSplitWindowsCount().get());
+  }
+
+  private EthFilter newFilter(DefaultBlockParameter fromBlock,
+                              DefaultBlockParameter toBlock) {
+    return new EthFilter(fromBlock, toBlock, CONTRACT_ADDRESS);
+  }
+
+  /**
+   * Mocks eth_getLogs to fail with a 'too many results' error when the
+   * requested range exceeds the designated size, else to return a single log,
+   * identified by its range, when requested
+   */
+  private Web3j mockGetLogs(long maxBlocksCount, boolean returnLog) {
+    Web3j web3j = mock(Web3j.class);
+    doAnswer(invocation -> {
+      EthFilter ethFilter = invocation.getArgument(0);
+      long fromBlock = ((DefaultBlockParameterNumber) ethFilter.getFromBlock()).getBlockNumber().longValue();
+      long toBlock = ((DefaultBlockParameterNumber) ethFilter.getToBlock()).getBlockNumber().longValue();
+      EthLog ethLog = new EthLog();
+      if (toBlock - fromBlock + 1 > maxBlocksCount) {
+        ethLog.setError(new Response.Error(-32005, "query returned more than 10000 results"));
+      } else if (returnLog) {
+        ethLog.setResult(Collections.singletonList(new EthLog.Hash(fromBlock + "-" + toBlock)));
+      } else {
+        ethLog.setResult(Collections.emptyList());
+      }
+      return new Request<String, EthLog>() {
+        @Override
+        public EthLog send() {
+          return ethLog;
+        }
+      };
+    }).when(web3j).ethGetLogs(any());
+    return web3j;
+  }
+
+}
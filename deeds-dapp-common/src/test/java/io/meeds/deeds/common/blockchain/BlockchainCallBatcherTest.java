@@ -0,0 +1,151 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+class BlockchainCallBatcherTest {
+
+  private static final String CONTRACT_ADDRESS = "0x334d85047da64738c065d36e10b2adeb965000d0";
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testCallWithoutBatching() throws Exception {
+    Web3j web3j = mock(Web3j.class);
+    Request<?, EthCall> request = mock(Request.class);
+    EthCall ethCall = newEthCall(1, "0x01");
+    doReturn(request).when(web3j).ethCall(any(), any());
+    when(request.send()).thenReturn(ethCall);
+
+    BlockchainCallBatcher callBatcher = new BlockchainCallBatcher(web3j, 20, 0);
+    assertFalse(callBatcher.isEnabled());
+    assertEquals(ethCall, callBatcher.call(newTransaction(), DefaultBlockParameterName.LATEST));
+    verify(web3j, never()).newBatch();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testSerialCallSentWithoutLinger() throws Exception {
+    Web3j web3j = mock(Web3j.class);
+    Request<?, EthCall> request = mock(Request.class);
+    EthCall ethCall = newEthCall(1, "0x01");
+    doReturn(request).when(web3j).ethCall(any(), any());
+    when(request.send()).thenReturn(ethCall);
+
+    // Big linger window to ensure that a single call doesn't wait for it
+    BlockchainCallBatcher callBatcher = new BlockchainCallBatcher(web3j, 20, 60000);
+    assertTrue(callBatcher.isEnabled());
+    assertEquals(ethCall, CompletableFuture.supplyAsync(() -> call(callBatcher)).get(10, TimeUnit.SECONDS));
+    assertEquals(ethCall, CompletableFuture.supplyAsync(() -> call(callBatcher)).get(10, TimeUnit.SECONDS));
+    verify(web3j, never()).newBatch();
+    verify(request, times(2)).send();
+    assertEquals(2l, callBatcher.getSentBatchCount().get());
+    assertEquals(2l, callBatcher.getSentCallCount().get());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testConcurrentCallsSentInOneBatch() throws Exception {
+    Web3j web3j = mock(Web3j.class);
+    Request<?, EthCall> request0 = mock(Request.class);
+    Request<?, EthCall> request1 = mock(Request.class);
+    Request<?, EthCall> request2 = mock(Request.class);
+    when(request1.getId()).thenReturn(1l);
+    when(request2.getId()).thenReturn(2l);
+    doReturn(request0, request1, request2).when(web3j).ethCall(any(), any());
+
+    // Keep a first call being sent, so that the next calls overlap with it
+    CountDownLatch sending = new CountDownLatch(1);
+    CountDownLatch sent = new CountDownLatch(1);
+    when(request0.send()).thenAnswer(invocation -> {
+      sending.countDown();
+      sent.await(10, TimeUnit.SECONDS);
+      return newEthCall(0, "0x00");
+    });
+
+    BatchRequest batchRequest = mock(BatchRequest.class);
+    BatchResponse batchResponse = mock(BatchResponse.class);
+    when(web3j.newBatch()).thenReturn(batchRequest);
+    when(batchRequest.add(any())).thenReturn(batchRequest);
+    when(batchRequest.send()).thenReturn(batchResponse);
+    // Responses returned in a different order than requests
+    doReturn(Arrays.asList(newEthCall(2, "0x02"), newEthCall(1, "0x01"))).when(batchResponse).getResponses();
+
+    // Big linger window to ensure that the batch is sent once full
+    BlockchainCallBatcher callBatcher = new BlockchainCallBatcher(web3j, 2, 60000);
+    assertTrue(callBatcher.isEnabled());
+    CompletableFuture<EthCall> call0 = CompletableFuture.supplyAsync(() -> call(callBatcher));
+    assertTrue(sending.await(10, TimeUnit.SECONDS));
+    CompletableFuture<EthCall> call1 = CompletableFuture.supplyAsync(() -> call(callBatcher));
+    CompletableFuture<EthCall> call2 = CompletableFuture.supplyAsync(() -> call(callBatcher));
+
+    Set<String> values = Stream.of(call1.get(), call2.get()).map(EthCall::getValue).collect(Collectors.toSet());
+    assertEquals(Set.of("0x01", "0x02"), values);
+    sent.countDown();
+    assertEquals("0x00", call0.get().getValue());
+    verify(web3j, times(1)).newBatch();
+    verify(request1, never()).send();
+    verify(request2, never()).send();
+    assertEquals(2l, callBatcher.getSentBatchCount().get());
+    assertEquals(3l, callBatcher.getSentCallCount().get());
+  }
+
+  private EthCall call(BlockchainCallBatcher callBatcher) {
+    try {
+      return callBatcher.call(newTransaction(), DefaultBlockParameterName.LATEST);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Transaction newTransaction() {
+    return Transaction.createEthCallTransaction(CONTRACT_ADDRESS, CONTRACT_ADDRESS, "0x");
+  }
+
+  private EthCall newEthCall(long id, String value) {
+    EthCall ethCall = new EthCall();
+    ethCall.setId(id);
+    ethCall.setResult(value);
+    return ethCall;
+  }
+
+}
@@ -81,6 +81,10 @@ class BlockchainConfigurationPropertiesTest {
 
     BlockchainConfigurationProperties properties = new BlockchainConfigurationProperties(NETWORK_URL_VALUE,
                                                                                          POLYGON_NETWORK_URL_VALUE,
+                                                                                         null,
+                                                                                         null,
+                                                                                         null,
+                                                                                         null,
                                                                                          TENANT_PROVISIONING_ADDRESS_VALUE,
                                                                                          TENANT_RENTING_ADDRESS_VALUE,
                                                                                          DEED_ADDRESS_VALUE,
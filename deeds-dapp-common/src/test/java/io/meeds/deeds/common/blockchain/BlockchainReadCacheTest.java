@@ -0,0 +1,131 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainNetwork;
+import io.meeds.wom.api.constant.ObjectNotFoundException;
+
+@SpringBootTest(classes = {
+    BlockchainReadCache.class,
+}, properties = {
+    "meeds.blockchain.cache.maxSize=" + BlockchainReadCacheTest.MAX_SIZE,
+    "meeds.blockchain.cache.blockRefreshMillis=0",
+})
+class BlockchainReadCacheTest {
+
+  public static final int     MAX_SIZE         = 3;
+
+  private static final String CONTRACT_ADDRESS = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  private static final String OWNER_ADDRESS    = "0x609a6f01b7976439603356e41d5456b42df957b7";
+
+  @MockBean(name = "ethereumNetwork")
+  private Web3j               web3j;
+
+  @MockBean(name = "polygonNetwork")
+  private Web3j               polygonWeb3j;
+
+  @Autowired
+  private BlockchainReadCache readCache;
+
+  private EthBlockNumber      ethBlockNumber;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() throws Exception {
+    Request<?, EthBlockNumber> request = mock(Request.class);
+    ethBlockNumber = new EthBlockNumber();
+    ethBlockNumber.setResult("0x1");
+    doReturn(request).when(web3j).ethBlockNumber();
+    when(request.send()).thenReturn(ethBlockNumber);
+  }
+
+  @Test
+  void testGetImmutable() throws Exception {
+    AtomicInteger loadCount = new AtomicInteger();
+    long hits = readCache.getHitCount().get();
+
+    assertThrows(ObjectNotFoundException.class,
+                 () -> readCache.getImmutable(CONTRACT_ADDRESS, "cardType", () -> {
+                   throw new ObjectNotFoundException("Deed not found");
+                 }, 10l));
+    short cardType = readCache.getImmutable(CONTRACT_ADDRESS, "cardType", () -> (short) (loadCount.incrementAndGet() + 1), 1l);
+    assertEquals(2, cardType);
+    cardType = readCache.getImmutable(CONTRACT_ADDRESS, "cardType", () -> (short) (loadCount.incrementAndGet() + 1), 1l);
+    assertEquals(2, cardType);
+    assertEquals(1, loadCount.get());
+    assertEquals(hits + 1, readCache.getHitCount().get());
+  }
+
+  @Test
+  void testGetForBlock() {
+    AtomicInteger loadCount = new AtomicInteger();
+
+    assertTrue(getOwnership(loadCount));
+    assertTrue(getOwnership(loadCount));
+    assertEquals(1, loadCount.get());
+
+    ethBlockNumber.setResult("0x2");
+    assertTrue(getOwnership(loadCount));
+    assertEquals(2, loadCount.get());
+
+    readCache.invalidate(CONTRACT_ADDRESS, 5l);
+    assertTrue(getOwnership(loadCount));
+    assertEquals(3, loadCount.get());
+
+    readCache.invalidate(CONTRACT_ADDRESS, OWNER_ADDRESS.toUpperCase());
+    assertTrue(getOwnership(loadCount));
+    assertEquals(4, loadCount.get());
+  }
+
+  @Test
+  void testBoundedSize() {
+    for (long i = 0; i < MAX_SIZE * 2; i++) {
+      long nftId = i;
+      readCache.getForBlock(BlockchainNetwork.ETHEREUM, CONTRACT_ADDRESS, "tenantStatus", () -> true, nftId);
+      readCache.getImmutable(CONTRACT_ADDRESS, "cityIndex", () -> (short) 1, nftId);
+    }
+    assertEquals(MAX_SIZE * 2, readCache.size());
+  }
+
+  private boolean getOwnership(AtomicInteger loadCount) {
+    return readCache.getForBlock(BlockchainNetwork.ETHEREUM,
+                                 CONTRACT_ADDRESS,
+                                 "balanceOf",
+                                 () -> loadCount.incrementAndGet() > 0,
+                                 OWNER_ADDRESS,
+                                 5l);
+  }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class MultiEndpointWeb3jServiceTest {
+
+  private static final Pattern      ID_PATTERN     = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+  private static final Pattern      METHOD_PATTERN = Pattern.compile("\"method\"\\s*:\\s*\"(\\w+)\"");
+
+  private List<RpcStub>             stubs          = new ArrayList<>();
+
+  private MultiEndpointWeb3jService web3jService;
+
+  @AfterEach
+  void teardown() throws IOException {
+    if (web3jService != null) {
+      web3jService.close();
+    }
+    stubs.forEach(RpcStub::stop);
+  }
+
+  @Test
+  void testReadFromFastestEndpoint() throws Exception {
+    RpcStub slowStub = newStub(100, 200);
+    RpcStub fastStub = newStub(100, 0);
+    Web3j web3j = newWeb3j(0, slowStub, fastStub);
+
+    web3j.ethChainId().send();
+    web3j.ethChainId().send();
+    assertEquals(0, slowStub.getCount("eth_chainId"));
+    assertEquals(2, fastStub.getCount("eth_chainId"));
+    assertTrue(web3jService.getEndpoints().get(1).getLatencyHistogram().getCount() >= 3);
+  }
+
+  @Test
+  void testHedgeSlowRequest() throws Exception {
+    RpcStub firstStub = newStub(100, 0);
+    RpcStub secondStub = newStub(100, 50);
+    Web3j web3j = newWeb3j(100, firstStub, secondStub);
+
+    firstStub.latencyMillis = 3000;
+    long start = System.currentTimeMillis();
+    web3j.ethChainId().send();
+    assertTrue(System.currentTimeMillis() - start < 2000);
+    assertEquals(1, firstStub.getCount("eth_chainId"));
+    assertEquals(1, secondStub.getCount("eth_chainId"));
+  }
+
+  @Test
+  void testFailoverAndLaggingEndpoint() throws Exception {
+    RpcStub firstStub = newStub(100, 0);
+    RpcStub laggingStub = newStub(80, 0);
+    RpcStub thirdStub = newStub(99, 20);
+    Web3j web3j = newWeb3j(0, firstStub, laggingStub, thirdStub);
+    assertTrue(web3jService.getEndpoints().get(0).isHealthy());
+    assertFalse(web3jService.getEndpoints().get(1).isHealthy());
+    assertTrue(web3jService.getEndpoints().get(2).isHealthy());
+
+    firstStub.stop();
+    web3j.ethChainId().send();
+    assertFalse(web3jService.getEndpoints().get(0).isHealthy());
+    assertEquals(0, laggingStub.getCount("eth_chainId"));
+    assertEquals(1, thirdStub.getCount("eth_chainId"));
+  }
+
+  @Test
+  void testWritesStickToSameEndpoint() throws Exception {
+    RpcStub slowStub = newStub(100, 100);
+    RpcStub fastStub = newStub(100, 0);
+    Web3j web3j = newWeb3j(0, slowStub, fastStub);
+
+    web3j.ethSendRawTransaction("0x01").send();
+    web3j.ethSendRawTransaction("0x02").send();
+    assertEquals(2, slowStub.getCount("eth_sendRawTransaction"));
+    assertEquals(0, fastStub.getCount("eth_sendRawTransaction"));
+  }
+
+  private Web3j newWeb3j(long hedgeDelayMillis, RpcStub... rpcStubs) {
+    List<String> urls = Arrays.stream(rpcStubs).map(RpcStub::getUrl).toList();
+    web3jService = new MultiEndpointWeb3jService(urls, 60000, 5, hedgeDelayMillis);
+    web3jService.checkHealth();
+    return Web3j.build(web3jService);
+  }
+
+  private RpcStub newStub(long blockNumber, long latencyMillis) throws IOException {
+    RpcStub stub = new RpcStub(blockNumber, latencyMillis);
+    stubs.add(stub);
+    return stub;
+  }
+
+  private static class RpcStub {
+
+    private final HttpServer      server;
+
+    private final ExecutorService executor;
+
+    private final long            blockNumber;
+
+    private volatile long         latencyMillis;
+
+    private final AtomicInteger   chainIdCount = new AtomicInteger();
+
+    private final AtomicInteger   sendCount    = new AtomicInteger();
+
+    private RpcStub(long blockNumber, long latencyMillis) throws IOException {
+      this.blockNumber = blockNumber;
+      this.latencyMillis = latencyMillis;
+      this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+      this.executor = Executors.newCachedThreadPool();
+      this.server.setExecutor(executor);
+      this.server.createContext("/", this::handle);
+      this.server.start();
+    }
+
+    private String getUrl() {
+      return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private int getCount(String method) {
+      return "eth_chainId".equals(method) ? chainIdCount.get() : sendCount.get();
+    }
+
+    private void stop() {
+      if (!executor.isShutdown()) {
+        server.stop(0);
+        executor.shutdownNow();
+      }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+      String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+      String method = find(METHOD_PATTERN, body);
+      String result;
+      if ("eth_blockNumber".equals(method)) {
+        result = "\"0x" + Long.toHexString(blockNumber) + "\"";
+      } else if ("eth_chainId".equals(method)) {
+        chainIdCount.incrementAndGet();
+        result = "\"0x89\"";
+      } else {
+        sendCount.incrementAndGet();
+        result = "\"0x" + "0".repeat(64) + "\"";
+      }
+      if (latencyMillis > 0) {
+        try {
+          Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      String json = "{\"jsonrpc\":\"2.0\",\"id\":" + find(ID_PATTERN, body) + ",\"result\":" + result + "}";
+      byte[] response = json.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    }
+
+    private String find(Pattern pattern, String body) {
+      Matcher matcher = pattern.matcher(body);
+      return matcher.find() ? matcher.group(1) : null;
+    }
+
+  }
+
+}
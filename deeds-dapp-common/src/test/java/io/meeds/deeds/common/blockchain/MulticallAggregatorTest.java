@@ -0,0 +1,98 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.tx.TransactionManager;
+
+import io.meeds.deeds.common.blockchain.MulticallAggregator.MulticallRequest;
+import io.meeds.deeds.common.blockchain.MulticallAggregator.MulticallResult;
+
+class MulticallAggregatorTest {
+
+  private static final String MULTICALL_ADDRESS = MulticallAggregator.DEFAULT_MULTICALL3_ADDRESS;
+
+  private static final String DEED_ADDRESS      = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  private static final String OWNER_ADDRESS     = "0x609a6f01b7976439603356e41d5456b42df957b7";
+
+  @Test
+  void testAggregate() throws Exception {
+    TransactionManager transactionManager = mock(TransactionManager.class);
+    String encodedResult = "0x"
+        + word(0x20) // Result[] offset
+        + word(2) // Result[] length
+        + word(0x40) // First Result offset
+        + word(0xc0) // Second Result offset
+        + word(1) // First Result success
+        + word(0x40) // First Result returnData offset
+        + word(0x20) // First Result returnData length
+        + word(5) // First Result returnData: uint256
+        + word(0) // Second Result success
+        + word(0x40) // Second Result returnData offset
+        + word(0); // Second Result returnData length
+    when(transactionManager.sendCall(eq(MULTICALL_ADDRESS),
+                                     argThat(data -> data.startsWith("0x82ad56cb")),
+                                     any())).thenReturn(encodedResult);
+
+    MulticallAggregator multicallAggregator = new MulticallAggregator(transactionManager, MULTICALL_ADDRESS);
+    assertTrue(multicallAggregator.isEnabled());
+
+    List<MulticallResult> results = multicallAggregator.aggregate(Arrays.asList(newBalanceOfCall(1),
+                                                                                newBalanceOfCall(2)));
+    assertEquals(2, results.size());
+    assertTrue(results.get(0).isSuccess());
+    assertEquals(BigInteger.valueOf(5), results.get(0).getValues().get(0).getValue());
+    assertFalse(results.get(1).isSuccess());
+  }
+
+  @Test
+  void testDisabledWhenNoAddress() {
+    assertFalse(new MulticallAggregator(mock(TransactionManager.class), "").isEnabled());
+  }
+
+  private MulticallRequest newBalanceOfCall(long nftId) {
+    return new MulticallRequest(DEED_ADDRESS,
+                                new Function("balanceOf",
+                                             Arrays.<Type> asList(new Address(OWNER_ADDRESS), new Uint256(nftId)),
+                                             Collections.<TypeReference<?>> singletonList(new TypeReference<Uint256>() {
+                                             })));
+  }
+
+  private String word(long value) {
+    return String.format("%064x", value);
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+import org.web3j.protocol.core.methods.response.EthFeeHistory.FeeHistory;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
+
+import io.meeds.deeds.common.blockchain.PolygonGasOracle.GasSpeed;
+
+class PolygonGasOracleTest {
+
+  private static final String FUNCTION_NAME = "updateDeed";
+
+  private Web3j               web3j;
+
+  private FeeHistory          feeHistory;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() throws Exception {
+    web3j = mock(Web3j.class);
+    Request<?, EthFeeHistory> request = mock(Request.class);
+    EthFeeHistory ethFeeHistory = mock(EthFeeHistory.class);
+    feeHistory = mock(FeeHistory.class);
+    doReturn(request).when(web3j).ethFeeHistory(anyInt(), any(), any());
+    when(request.send()).thenReturn(ethFeeHistory);
+    when(ethFeeHistory.getFeeHistory()).thenReturn(feeHistory);
+    when(feeHistory.getBaseFeePerGas()).thenReturn(Arrays.asList(BigInteger.valueOf(80), BigInteger.valueOf(100)));
+    when(feeHistory.getReward()).thenReturn(Arrays.asList(Arrays.asList(BigInteger.valueOf(1),
+                                                                        BigInteger.valueOf(10),
+                                                                        BigInteger.valueOf(20)),
+                                                          Arrays.asList(BigInteger.valueOf(3),
+                                                                        BigInteger.valueOf(30),
+                                                                        BigInteger.valueOf(40))));
+  }
+
+  @Test
+  void testGetGasPriceFromCachedFeeHistory() throws Exception {
+    PolygonGasOracle gasOracle = newGasOracle(GasSpeed.STANDARD, 60000);
+    gasOracle.refresh();
+
+    assertEquals(BigInteger.valueOf(100), gasOracle.getBaseFeePerGas());
+    assertEquals(BigInteger.valueOf(2), gasOracle.getMaxPriorityFeePerGas(GasSpeed.SLOW));
+    assertEquals(BigInteger.valueOf(20), gasOracle.getMaxPriorityFeePerGas(GasSpeed.STANDARD));
+    assertEquals(BigInteger.valueOf(30), gasOracle.getMaxPriorityFeePerGas(GasSpeed.FAST));
+    assertEquals(BigInteger.valueOf(145), gasOracle.getGasPrice());
+    assertEquals(BigInteger.valueOf(155), gasOracle.getMaxFeePerGas(GasSpeed.FAST));
+
+    gasOracle.getGasPrice();
+    verify(web3j, times(1)).ethFeeHistory(anyInt(), any(), any());
+    assertEquals(0, gasOracle.getFallbackCount().get());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testFallbackWhenFeeHistoryUnavailable() throws Exception {
+    when(feeHistory.getBaseFeePerGas()).thenReturn(List.of());
+    Request<?, EthGasPrice> request = mock(Request.class);
+    EthGasPrice ethGasPrice = new EthGasPrice();
+    ethGasPrice.setResult("0x64");
+    doReturn(request).when(web3j).ethGasPrice();
+    when(request.send()).thenReturn(ethGasPrice);
+
+    PolygonGasOracle gasOracle = newGasOracle(GasSpeed.FAST, 60000);
+    assertEquals(BigInteger.valueOf(120), gasOracle.getGasPrice());
+    assertEquals(1, gasOracle.getFallbackCount().get());
+  }
+
+  @Test
+  void testGetGasLimitPerFunction() {
+    PolygonGasOracle gasOracle = newGasOracle(GasSpeed.STANDARD, 60000);
+    assertEquals(BigInteger.valueOf(300000), gasOracle.getGasLimit(FUNCTION_NAME));
+
+    gasOracle.recordGasUsed(FUNCTION_NAME, BigInteger.valueOf(100000));
+    gasOracle.recordGasUsed(FUNCTION_NAME, BigInteger.valueOf(80000));
+    // Not lower than the default gas limit
+    assertEquals(BigInteger.valueOf(300000), gasOracle.getGasLimit(FUNCTION_NAME));
+
+    gasOracle.recordGasUsed(FUNCTION_NAME, BigInteger.valueOf(250000));
+    assertEquals(BigInteger.valueOf(375000), gasOracle.getGasLimit(FUNCTION_NAME));
+    assertEquals(BigInteger.valueOf(300000), gasOracle.getGasLimit("otherFunction"));
+  }
+
+  private PolygonGasOracle newGasOracle(GasSpeed targetSpeed, long ttlMillis) {
+    return new PolygonGasOracle(web3j, targetSpeed, 2, 5000, ttlMillis, 1.25, 300000, 1.5);
+  }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.blockchain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Keys;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.gas.ContractGasProvider;
+
+class PolygonTransactionPipelineTest {
+
+  private static final String             CONTRACT_ADDRESS = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  private static final String             FUNCTION_NAME    = "updateDeed";
+
+  private static final BigInteger         GAS_PRICE        = BigInteger.valueOf(100);
+
+  private static final BigInteger         GAS_LIMIT        = BigInteger.valueOf(300000);
+
+  private Web3j                           web3j;
+
+  private ContractGasProvider             gasProvider;
+
+  private PolygonWomRawTransactionManager transactionManager;
+
+  private PolygonTransactionPipeline      pipeline;
+
+  @BeforeEach
+  void setup() {
+    web3j = mock(Web3j.class);
+    gasProvider = mock(ContractGasProvider.class);
+    when(gasProvider.getGasPrice(FUNCTION_NAME)).thenReturn(GAS_PRICE);
+    when(gasProvider.getGasPrice()).thenReturn(GAS_PRICE);
+    when(gasProvider.getGasLimit(FUNCTION_NAME)).thenReturn(GAS_LIMIT);
+    transactionManager = mock(PolygonWomRawTransactionManager.class);
+    PolygonTransactionManagerProxy.setTransactionManager(transactionManager);
+    pipeline = new PolygonTransactionPipeline(web3j, gasProvider, 60000, 60000, 1, 600000);
+  }
+
+  @AfterEach
+  void teardown() {
+    pipeline.shutdown();
+    PolygonTransactionManagerProxy.setTransactionManager(null);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testAllocateNonce() throws Exception {
+    Web3j nonceWeb3j = mock(Web3j.class);
+    Request<?, EthGetTransactionCount> request = mock(Request.class);
+    EthGetTransactionCount ethGetTransactionCount = new EthGetTransactionCount();
+    ethGetTransactionCount.setResult("0x5");
+    doReturn(request).when(nonceWeb3j).ethGetTransactionCount(any(), any());
+    when(request.send()).thenReturn(ethGetTransactionCount);
+
+    PolygonWomRawTransactionManager rawTransactionManager =
+                                                          new PolygonWomRawTransactionManager(nonceWeb3j,
+                                                                                              Credentials.create(Keys.createEcKeyPair()),
+                                                                                              137l);
+    assertEquals(BigInteger.valueOf(5), rawTransactionManager.allocateNonce());
+    assertEquals(BigInteger.valueOf(6), rawTransactionManager.allocateNonce());
+    assertEquals(BigInteger.valueOf(7), rawTransactionManager.allocateNonce());
+
+    rawTransactionManager.releaseNonce(BigInteger.valueOf(6));
+    assertEquals(BigInteger.valueOf(6), rawTransactionManager.allocateNonce());
+    assertEquals(BigInteger.valueOf(8), rawTransactionManager.allocateNonce());
+
+    ethGetTransactionCount.setResult("0xa");
+    rawTransactionManager.synchronizeNonce();
+    assertEquals(BigInteger.valueOf(10), rawTransactionManager.allocateNonce());
+    assertEquals(BigInteger.valueOf(11), rawTransactionManager.allocateNonce());
+    assertEquals(BigInteger.valueOf(12), rawTransactionManager.allocateNonce());
+
+    // Transaction with nonce 10 dropped while 12 is still in-flight
+    rawTransactionManager.synchronizePendingNonce(Collections.singleton(BigInteger.valueOf(12)));
+    assertEquals(BigInteger.valueOf(10), rawTransactionManager.allocateNonce());
+    assertEquals(BigInteger.valueOf(11), rawTransactionManager.allocateNonce());
+    assertEquals(BigInteger.valueOf(13), rawTransactionManager.allocateNonce());
+  }
+
+  @Test
+  void testSendWithoutWaitingForMining() throws Exception {
+    when(transactionManager.allocateNonce()).thenReturn(BigInteger.ONE, BigInteger.TWO);
+    mockSendTransaction(BigInteger.ONE, GAS_PRICE, "0x01");
+    mockSendTransaction(BigInteger.TWO, GAS_PRICE, "0x02");
+    mockReceipt("0x01", null);
+    mockReceipt("0x02", null);
+
+    CompletableFuture<TransactionReceipt> firstFuture = pipeline.sendTransaction(CONTRACT_ADDRESS, "0x", FUNCTION_NAME);
+    CompletableFuture<TransactionReceipt> secondFuture = pipeline.sendTransaction(CONTRACT_ADDRESS, "0x", FUNCTION_NAME);
+    assertFalse(firstFuture.isDone());
+    assertFalse(secondFuture.isDone());
+    assertEquals(2, pipeline.getPendingTransactionsCount());
+    assertEquals(2, pipeline.getSentTransactionsCount().get());
+
+    TransactionReceipt receipt = newReceipt("0x02");
+    mockReceipt("0x02", receipt);
+    pipeline.trackReceipts();
+    assertFalse(firstFuture.isDone());
+    assertTrue(secondFuture.isDone());
+    assertEquals(receipt, secondFuture.get());
+    assertEquals(1, pipeline.getPendingTransactionsCount());
+  }
+
+  @Test
+  void testReleaseNonceWhenSendingFails() throws Exception {
+    when(transactionManager.allocateNonce()).thenReturn(BigInteger.ONE);
+    EthSendTransaction ethSendTransaction = new EthSendTransaction();
+    ethSendTransaction.setError(new Response.Error(-32000, "nonce too low"));
+    when(transactionManager.sendTransaction(eq(BigInteger.ONE), any(), any(), any(), any())).thenReturn(ethSendTransaction);
+
+    CompletableFuture<TransactionReceipt> future = pipeline.sendTransaction(CONTRACT_ADDRESS, "0x", FUNCTION_NAME);
+    assertTrue(future.isCompletedExceptionally());
+    verify(transactionManager).releaseNonce(BigInteger.ONE);
+    verify(transactionManager).synchronizeNonce();
+    assertEquals(0, pipeline.getPendingTransactionsCount());
+  }
+
+  @Test
+  void testReplaceStuckTransaction() throws Exception {
+    pipeline.shutdown();
+    pipeline = new PolygonTransactionPipeline(web3j, gasProvider, 60000, 0, 1, 600000);
+
+    when(transactionManager.allocateNonce()).thenReturn(BigInteger.ONE);
+    BigInteger bumpedGasPrice = BigInteger.valueOf(113);
+    mockSendTransaction(BigInteger.ONE, GAS_PRICE, "0x01");
+    mockSendTransaction(BigInteger.ONE, bumpedGasPrice, "0x03");
+    mockReceipt("0x01", null);
+    mockReceipt("0x03", null);
+
+    CompletableFuture<TransactionReceipt> future = pipeline.sendTransaction(CONTRACT_ADDRESS, "0x", FUNCTION_NAME);
+    Thread.sleep(5);
+    pipeline.trackReceipts();
+    verify(transactionManager).sendTransaction(BigInteger.ONE, bumpedGasPrice, GAS_LIMIT, CONTRACT_ADDRESS, "0x");
+    assertEquals(1, pipeline.getReplacedTransactionsCount().get());
+
+    // Max replacements reached
+    Thread.sleep(5);
+    pipeline.trackReceipts();
+    assertEquals(1, pipeline.getReplacedTransactionsCount().get());
+
+    // The first sent transaction is mined instead of the replacement
+    TransactionReceipt receipt = newReceipt("0x01");
+    mockReceipt("0x01", receipt);
+    pipeline.trackReceipts();
+    assertEquals(receipt, future.get());
+  }
+
+  @Test
+  void testSynchronizeNonceWhenTransactionNotMined() throws Exception {
+    pipeline.shutdown();
+    pipeline = new PolygonTransactionPipeline(web3j, gasProvider, 60000, 60000, 1, 0);
+
+    when(transactionManager.allocateNonce()).thenReturn(BigInteger.ONE, BigInteger.TWO);
+    mockSendTransaction(BigInteger.ONE, GAS_PRICE, "0x01");
+    mockSendTransaction(BigInteger.TWO, GAS_PRICE, "0x02");
+    mockReceipt("0x01", null);
+    mockReceipt("0x02", newReceipt("0x02"));
+
+    CompletableFuture<TransactionReceipt> future = pipeline.sendTransaction(CONTRACT_ADDRESS, "0x", FUNCTION_NAME);
+    pipeline.sendTransaction(CONTRACT_ADDRESS, "0x", FUNCTION_NAME);
+    Thread.sleep(5);
+    pipeline.trackReceipts();
+
+    ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+    assertInstanceOf(TimeoutException.class, exception.getCause());
+    verify(transactionManager).synchronizePendingNonce(Collections.singleton(BigInteger.TWO));
+    assertEquals(0, pipeline.getPendingTransactionsCount());
+  }
+
+  private void mockSendTransaction(BigInteger nonce, BigInteger gasPrice, String transactionHash) throws Exception {
+    EthSendTransaction ethSendTransaction = new EthSendTransaction();
+    ethSendTransaction.setResult(transactionHash);
+    when(transactionManager.sendTransaction(nonce, gasPrice, GAS_LIMIT, CONTRACT_ADDRESS, "0x")).thenReturn(ethSendTransaction);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void mockReceipt(String transactionHash, TransactionReceipt receipt) throws Exception {
+    Request<?, EthGetTransactionReceipt> request = mock(Request.class);
+    EthGetTransactionReceipt ethGetTransactionReceipt = new EthGetTransactionReceipt();
+    ethGetTransactionReceipt.setResult(receipt);
+    doReturn(request).when(web3j).ethGetTransactionReceipt(transactionHash);
+    when(request.send()).thenReturn(ethGetTransactionReceipt);
+  }
+
+  private TransactionReceipt newReceipt(String transactionHash) {
+    TransactionReceipt receipt = new TransactionReceipt();
+    receipt.setTransactionHash(transactionHash);
+    receipt.setStatus("0x1");
+    receipt.setBlockNumber("0x10");
+    return receipt;
+  }
+
+}
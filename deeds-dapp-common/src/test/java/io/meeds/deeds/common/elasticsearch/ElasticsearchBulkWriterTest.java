@@ -0,0 +1,120 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+
+import io.meeds.deeds.common.elasticsearch.ElasticsearchBulkWriter.BulkWriteBatch;
+import io.meeds.deeds.common.elasticsearch.ElasticsearchBulkWriter.BulkWriteResult;
+import io.meeds.deeds.common.elasticsearch.model.HubReportEntity;
+
+@SpringBootTest(classes = {
+    ElasticsearchBulkWriter.class,
+}, properties = {
+    "meeds.elasticsearch.bulk.maxOperations=2",
+    "meeds.elasticsearch.bulk.maxDelayMillis=60000",
+})
+class ElasticsearchBulkWriterTest {
+
+  private static final IndexCoordinates REPORT_INDEX = IndexCoordinates.of("hub_report");
+
+  @MockBean
+  private ElasticsearchOperations       elasticsearchOperations;
+
+  @Autowired
+  private ElasticsearchBulkWriter       bulkWriter;
+
+  @BeforeEach
+  void setup() {
+    when(elasticsearchOperations.getIndexCoordinatesFor(HubReportEntity.class)).thenReturn(REPORT_INDEX);
+    when(elasticsearchOperations.getEntityId(any())).thenAnswer(invocation -> {
+      HubReportEntity report = invocation.getArgument(0);
+      return String.valueOf(report.getReportId());
+    });
+  }
+
+  @Test
+  void testFlushWhenMaxOperationsReached() {
+    try (BulkWriteBatch batch = bulkWriter.newBatch()) {
+      batch.index(newReport(1));
+      verify(elasticsearchOperations, never()).bulkIndex(any(), any(IndexCoordinates.class));
+
+      batch.index(newReport(2));
+      verify(elasticsearchOperations, times(1)).bulkIndex(argThat(queries -> queries.size() == 2), eq(REPORT_INDEX));
+
+      batch.index(newReport(3));
+    }
+    verify(elasticsearchOperations, times(1)).bulkIndex(argThat(queries -> queries.size() == 1), eq(REPORT_INDEX));
+  }
+
+  @Test
+  void testPartialFailures() {
+    BulkFailureException exception = mock(BulkFailureException.class);
+    doReturn(Collections.singletonMap("2", null)).when(exception).getFailedDocuments();
+    doThrow(exception).when(elasticsearchOperations).bulkIndex(any(), any(IndexCoordinates.class));
+
+    BulkWriteBatch batch = bulkWriter.newBatch();
+    batch.index(newReport(1));
+    batch.index(newReport(2));
+    BulkWriteResult result = batch.flush();
+
+    assertTrue(result.hasFailures());
+    assertEquals(Collections.singleton("2"), result.getFailedIds());
+    assertEquals(1, result.getSuccessCount());
+  }
+
+  @Test
+  void testNoFailures() {
+    BulkWriteBatch batch = bulkWriter.newBatch();
+    batch.delete("1", HubReportEntity.class);
+    BulkWriteResult result = batch.flush();
+
+    assertFalse(result.hasFailures());
+    assertEquals(1, result.getSuccessCount());
+    verify(elasticsearchOperations, times(1)).delete(any(Query.class), eq(HubReportEntity.class));
+  }
+
+  private HubReportEntity newReport(long reportId) {
+    HubReportEntity report = new HubReportEntity();
+    report.setReportId(reportId);
+    return report;
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.junit.jupiter.api.Test;
+
+class ElasticsearchClientMetricsTest {
+
+  @Test
+  void testPoolUsage() {
+    ElasticsearchClientMetrics clientMetrics = new ElasticsearchClientMetrics();
+    clientMetrics.setMaxConnections(2);
+
+    HttpContext firstContext = new BasicHttpContext();
+    HttpContext secondContext = new BasicHttpContext();
+    clientMetrics.process(new BasicHttpRequest("GET", "/deed_tenant_offer/_search"), firstContext);
+    assertEquals(0.5d, clientMetrics.getPoolUsage());
+    assertEquals(0, clientMetrics.getSaturationCount().get());
+
+    clientMetrics.process(new BasicHttpRequest("GET", "/deed_tenant_offer/_search"), secondContext);
+    assertEquals(1d, clientMetrics.getPoolUsage());
+    assertEquals(1, clientMetrics.getSaturationCount().get());
+
+    clientMetrics.process(new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"), firstContext);
+    clientMetrics.process(new BasicHttpResponse(HttpVersion.HTTP_1_1, 503, "Service Unavailable"), secondContext);
+    assertEquals(0, clientMetrics.getInFlightRequests());
+    assertEquals(2, clientMetrics.getRequestCount().get());
+    assertEquals(2, clientMetrics.getResponseCount().get());
+    assertEquals(1, clientMetrics.getErrorCount().get());
+  }
+
+  @Test
+  void testExpiredRequests() {
+    ElasticsearchClientMetrics clientMetrics = new ElasticsearchClientMetrics();
+    clientMetrics.setRequestTimeoutMillis(-1);
+
+    clientMetrics.process(new BasicHttpRequest("GET", "/deed_tenant_offer/_search"), new BasicHttpContext());
+    clientMetrics.process(new BasicHttpRequest("GET", "/deed_tenant_offer/_search"), new BasicHttpContext());
+    assertEquals(1, clientMetrics.getInFlightRequests());
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.IndexInformation;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantEvent;
+import io.meeds.deeds.common.elasticsearch.storage.DeedTenantEventRepository;
+
+@SpringBootTest(classes = {
+    EventIndexPartitioner.class,
+}, properties = {
+    "meeds.elasticsearch.listener.events.partitionPeriod=DAYS",
+})
+class EventIndexPartitionerTest {
+
+  private static final Instant      EVENT_DATE = Instant.parse("2024-05-13T10:15:30Z");
+
+  @MockBean
+  private ElasticsearchOperations   elasticsearchOperations;
+
+  @MockBean
+  private DeedTenantEventRepository deedTenantEventRepository;
+
+  @Autowired
+  private EventIndexPartitioner     eventIndexPartitioner;
+
+  @Test
+  void testSaveInDailyPartition() {
+    IndexOperations indexOperations = mock(IndexOperations.class);
+    when(elasticsearchOperations.indexOps(IndexCoordinates.of("deed_tenant_events-2024.05.13"))).thenReturn(indexOperations);
+    DeedTenantEvent event = new DeedTenantEvent("test.event", "{}", Collections.singletonList("dApp"), EVENT_DATE);
+
+    assertTrue(eventIndexPartitioner.isEnabled());
+    eventIndexPartitioner.save(event);
+    eventIndexPartitioner.save(event);
+
+    verify(indexOperations, times(1)).create(any(), any());
+    verify(elasticsearchOperations, times(2)).save(event, IndexCoordinates.of("deed_tenant_events-2024.05.13"));
+  }
+
+  @Test
+  void testGetReadIndexCoordinates() {
+    Instant fromDate = Instant.now().minus(2, ChronoUnit.DAYS);
+    IndexCoordinates indexCoordinates = eventIndexPartitioner.getReadIndexCoordinates(fromDate);
+    assertEquals(4, indexCoordinates.getIndexNames().length);
+    assertEquals(EventIndexPartitioner.LEGACY_INDEX_NAME, indexCoordinates.getIndexNames()[0]);
+
+    indexCoordinates = eventIndexPartitioner.getReadIndexCoordinates(Instant.now().minus(100, ChronoUnit.DAYS));
+    assertEquals(Arrays.asList(EventIndexPartitioner.LEGACY_INDEX_NAME, EventIndexPartitioner.PARTITION_PREFIX + "*"),
+                 Arrays.asList(indexCoordinates.getIndexNames()));
+  }
+
+  @Test
+  void testDeleteBefore() {
+    IndexOperations partitionsOperations = mock(IndexOperations.class);
+    IndexOperations oldPartitionOperations = mock(IndexOperations.class);
+    IndexOperations recentPartitionOperations = mock(IndexOperations.class);
+    when(elasticsearchOperations.indexOps(IndexCoordinates.of("deed_tenant_events-*"))).thenReturn(partitionsOperations);
+    when(elasticsearchOperations.indexOps(IndexCoordinates.of("deed_tenant_events-2024.05.12"))).thenReturn(oldPartitionOperations);
+    when(elasticsearchOperations.indexOps(IndexCoordinates.of("deed_tenant_events-2024.05.13"))).thenReturn(recentPartitionOperations);
+    List<IndexInformation> partitions = Arrays.asList(newIndexInformation("deed_tenant_events-2024.05.12"),
+                                                      newIndexInformation("deed_tenant_events-2024.05.13"));
+    when(partitionsOperations.getInformation()).thenReturn(partitions);
+
+    eventIndexPartitioner.deleteBefore(EVENT_DATE);
+
+    verify(oldPartitionOperations).delete();
+    verify(recentPartitionOperations, never()).delete();
+    verify(deedTenantEventRepository).deleteByDateLessThan(eq(EVENT_DATE));
+  }
+
+  private IndexInformation newIndexInformation(String name) {
+    IndexInformation indexInformation = mock(IndexInformation.class);
+    when(indexInformation.getName()).thenReturn(name);
+    return indexInformation;
+  }
+
+}
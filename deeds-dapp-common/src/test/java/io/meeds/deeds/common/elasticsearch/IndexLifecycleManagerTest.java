@@ -0,0 +1,191 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.IndexInformation;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.Query;
+
+import io.meeds.deeds.common.elasticsearch.model.DeedSetting;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantOffer;
+
+@SpringBootTest(classes = {
+    IndexLifecycleManager.class,
+}, properties = {
+    "meeds.elasticsearch.index.lifecycle.basePackages=io.meeds.deeds.common.elasticsearch.model",
+    "meeds.elasticsearch.index.deed_tenant_offer.shards=3",
+    "meeds.elasticsearch.index.deed_tenant_offer.replicas=2",
+})
+class IndexLifecycleManagerTest {
+
+  private static final int        ENTITIES_COUNT = 15;
+
+  @MockBean
+  private ElasticsearchOperations elasticsearchOperations;
+
+  @MockBean
+  private ClusterLockManager      clusterLockManager;
+
+  @Autowired
+  private IndexLifecycleManager   indexLifecycleManager;
+
+  @Test
+  void testGetIndexSettings() {
+    IndexOperations indexOperations = mockIndexOperations();
+
+    Settings settings = indexLifecycleManager.getIndexSettings(indexOperations, DeedSetting.class);
+    assertEquals("1", settings.get("index.number_of_shards"));
+    assertEquals("0-1", settings.get("index.auto_expand_replicas"));
+    assertFalse(settings.containsKey("index.number_of_replicas"));
+
+    settings = indexLifecycleManager.getIndexSettings(indexOperations, DeedTenantOffer.class);
+    assertEquals("3", settings.get("index.number_of_shards"));
+    assertEquals("2", settings.get("index.number_of_replicas"));
+    assertEquals("false", settings.get("index.auto_expand_replicas"));
+  }
+
+  @Test
+  void testCreateIndicesBehindAliases() {
+    IndexOperations indexOperations = mockIndexOperations();
+    when(elasticsearchOperations.indexOps(any(IndexCoordinates.class))).thenReturn(indexOperations);
+    when(indexOperations.exists()).thenReturn(false);
+    when(clusterLockManager.lock(eq(elasticsearchOperations), eq(IndexLifecycleManager.LOCK_NAME), any(), any())).thenReturn(true);
+
+    indexLifecycleManager.initialize(elasticsearchOperations);
+
+    verify(elasticsearchOperations).indexOps(IndexCoordinates.of("deed_tenant_offer_v1"));
+    verify(indexOperations, times(ENTITIES_COUNT)).create(any(), any(Document.class));
+    verify(indexOperations, times(ENTITIES_COUNT)).alias(any());
+    verify(clusterLockManager).unlock(elasticsearchOperations, IndexLifecycleManager.LOCK_NAME);
+  }
+
+  @Test
+  void testSkipWhenManagedByAnotherNode() {
+    IndexOperations indexOperations = mockIndexOperations();
+    when(elasticsearchOperations.indexOps(any(IndexCoordinates.class))).thenReturn(indexOperations);
+    when(clusterLockManager.lock(eq(elasticsearchOperations), eq(IndexLifecycleManager.LOCK_NAME), any(), any())).thenReturn(false);
+
+    indexLifecycleManager.initialize(elasticsearchOperations);
+
+    verify(indexOperations, never()).create(any(), any(Document.class));
+    verify(clusterLockManager, never()).unlock(any(), any());
+  }
+
+  @Test
+  void testKeepExistingIndexWithDocuments() {
+    IndexOperations indexOperations = mockIndexOperations();
+    when(elasticsearchOperations.indexOps(any(IndexCoordinates.class))).thenReturn(indexOperations);
+    // Alias doesn't exist while its first version exists
+    when(indexOperations.exists()).thenReturn(false, true);
+    when(elasticsearchOperations.count(any(), any(Class.class), any(IndexCoordinates.class))).thenReturn(5l);
+    when(clusterLockManager.lock(eq(elasticsearchOperations), eq(IndexLifecycleManager.LOCK_NAME), any(), any())).thenReturn(true);
+
+    indexLifecycleManager.initialize(elasticsearchOperations);
+
+    verify(indexOperations, never()).delete();
+    verify(clusterLockManager).unlock(elasticsearchOperations, IndexLifecycleManager.LOCK_NAME);
+  }
+
+  @Test
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  void testDeleteDocumentsRemovedDuringMigration() {
+    IndexOperations indexOperations = mockIndexOperations();
+    IndexOperations newIndexOperations = mockIndexOperations();
+    when(elasticsearchOperations.indexOps(any(IndexCoordinates.class))).thenAnswer(invocation -> {
+      IndexCoordinates index = invocation.getArgument(0);
+      return index.getIndexName().endsWith(IndexLifecycleManager.VERSION_SUFFIX + 2) ? newIndexOperations : indexOperations;
+    });
+    when(indexOperations.exists()).thenReturn(true);
+    when(newIndexOperations.exists()).thenReturn(false);
+    // Current version having a different mapping hash
+    when(indexOperations.getInformation()).thenReturn(List.of(IndexInformation.of("deed_setting_v1", null, null, null)));
+    // Document 2 was deleted from the current version during the first reindex
+    SearchHit hit1 = mockSearchHit("1");
+    SearchHit hit2 = mockSearchHit("2");
+    when(elasticsearchOperations.searchForStream(any(Query.class),
+                                                 any(Class.class),
+                                                 any(IndexCoordinates.class))).thenAnswer(invocation -> invocation.getArgument(1) == DeedSetting.class ? mockSearchHitsIterator(hit1, hit2)
+                                                                                                                                                      : mockSearchHitsIterator());
+    SearchHits sourceHits = mock(SearchHits.class);
+    when(sourceHits.stream()).thenAnswer(invocation -> Stream.of(hit1));
+    when(elasticsearchOperations.search(any(Query.class),
+                                        eq(DeedSetting.class),
+                                        eq(IndexCoordinates.of("deed_setting_v1")))).thenReturn(sourceHits);
+    when(clusterLockManager.lock(eq(elasticsearchOperations), eq(IndexLifecycleManager.LOCK_NAME), any(), any())).thenReturn(true);
+
+    indexLifecycleManager.initialize(elasticsearchOperations);
+
+    verify(clusterLockManager, timeout(10000)).unlock(elasticsearchOperations, IndexLifecycleManager.LOCK_NAME);
+    ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+    verify(elasticsearchOperations).delete(queryCaptor.capture(),
+                                           eq(DeedSetting.class),
+                                           eq(IndexCoordinates.of("deed_setting_v2")));
+    assertEquals(List.of("2"), ((CriteriaQuery) queryCaptor.getValue()).getIds());
+    verify(newIndexOperations, never()).delete();
+  }
+
+  @SuppressWarnings("rawtypes")
+  private SearchHit mockSearchHit(String id) {
+    SearchHit searchHit = mock(SearchHit.class);
+    when(searchHit.getId()).thenReturn(id);
+    return searchHit;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private SearchHitsIterator mockSearchHitsIterator(SearchHit... hits) {
+    Iterator<SearchHit> iterator = List.of(hits).iterator();
+    SearchHitsIterator searchHitsIterator = mock(SearchHitsIterator.class);
+    when(searchHitsIterator.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+    when(searchHitsIterator.next()).thenAnswer(invocation -> iterator.next());
+    return searchHitsIterator;
+  }
+
+  private IndexOperations mockIndexOperations() {
+    IndexOperations indexOperations = mock(IndexOperations.class);
+    when(indexOperations.createSettings(any(Class.class))).thenAnswer(invocation -> new Settings());
+    when(indexOperations.createMapping(any(Class.class))).thenAnswer(invocation -> Document.create());
+    return indexOperations;
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+
+class RefreshPolicyElasticsearchTemplateTest {
+
+  private static final IndexCoordinates      OFFER_INDEX   = IndexCoordinates.of("deed_tenant_offer");
+
+  private static final IndexCoordinates      SETTING_INDEX = IndexCoordinates.of("deed_setting");
+
+  private RefreshPolicyElasticsearchTemplate template;
+
+  @BeforeEach
+  void setup() {
+    template = new RefreshPolicyElasticsearchTemplate(mock(ElasticsearchClient.class, RETURNS_DEEP_STUBS),
+                                                      new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext()),
+                                                      RefreshPolicy.NONE,
+                                                      Collections.singletonMap(OFFER_INDEX.getIndexName(),
+                                                                               RefreshPolicy.IMMEDIATE));
+  }
+
+  @Test
+  void testDefaultRefreshPolicy() {
+    assertEquals(RefreshPolicy.NONE, template.getRefreshPolicy());
+    assertEquals(RefreshPolicy.NONE, template.getRefreshPolicy(SETTING_INDEX));
+  }
+
+  @Test
+  void testIndexRefreshPolicy() {
+    assertEquals(RefreshPolicy.IMMEDIATE, template.getRefreshPolicy(OFFER_INDEX));
+  }
+
+  @Test
+  void testCallRefreshPolicy() {
+    RefreshPolicy refreshPolicy =
+                                RefreshPolicyElasticsearchTemplate.withRefreshPolicy(RefreshPolicy.WAIT_UNTIL,
+                                                                                     () -> template.getRefreshPolicy(OFFER_INDEX));
+    assertEquals(RefreshPolicy.WAIT_UNTIL, refreshPolicy);
+
+    refreshPolicy = RefreshPolicyElasticsearchTemplate.withRefreshPolicy(RefreshPolicy.WAIT_UNTIL, () -> {
+      RefreshPolicy nestedRefreshPolicy =
+                                        RefreshPolicyElasticsearchTemplate.withRefreshPolicy(RefreshPolicy.IMMEDIATE,
+                                                                                             () -> template.getRefreshPolicy(SETTING_INDEX));
+      assertEquals(RefreshPolicy.IMMEDIATE, nestedRefreshPolicy);
+      return template.getRefreshPolicy(SETTING_INDEX);
+    });
+    assertEquals(RefreshPolicy.WAIT_UNTIL, refreshPolicy);
+    assertEquals(RefreshPolicy.NONE, template.getRefreshPolicy(SETTING_INDEX));
+  }
+
+}
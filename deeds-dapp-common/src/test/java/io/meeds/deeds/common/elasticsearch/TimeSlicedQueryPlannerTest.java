@@ -0,0 +1,163 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.elasticsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.Query;
+
+import io.meeds.deeds.common.elasticsearch.TimeSlicedQueryPlanner.TimeBound;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantLease;
+import io.meeds.deeds.common.model.LeaseFilter;
+
+@SpringBootTest(classes = {
+    TimeSlicedQueryPlanner.class,
+}, properties = {
+    // Use a large bucket to not switch to a new bucket while testing
+    "meeds.elasticsearch.query.cache.bucketSeconds=3153600000",
+    "meeds.elasticsearch.query.cache.ttlSeconds=60",
+    "meeds.elasticsearch.query.cache.maxResults=" + TimeSlicedQueryPlannerTest.MAX_RESULTS,
+})
+class TimeSlicedQueryPlannerTest {
+
+  public static final int                               MAX_RESULTS = 3;
+
+  private static final List<TimeBound<DeedTenantLease>> TIME_BOUNDS = List.of(TimeBound.after("endDate",
+                                                                                               DeedTenantLease::getEndDate));
+
+  @MockBean
+  private ElasticsearchOperations                       elasticsearchOperations;
+
+  @Autowired
+  private TimeSlicedQueryPlanner                        queryPlanner;
+
+  @BeforeEach
+  void setup() {
+    queryPlanner.invalidate(DeedTenantLease.class);
+  }
+
+  @Test
+  void testSearchFromCache() {
+    SearchHits<DeedTenantLease> searchHits = newSearchHits(2, newLease(1, 1), newLease(2, -1));
+    when(elasticsearchOperations.search(any(Query.class), eq(DeedTenantLease.class))).thenReturn(searchHits);
+    long hits = queryPlanner.getHitCount().get();
+
+    Page<DeedTenantLease> leases = search(new LeaseFilter(), PageRequest.of(0, 10));
+    assertEquals(1, leases.getTotalElements());
+    assertEquals(1, leases.getContent().get(0).getId());
+
+    leases = search(new LeaseFilter(), PageRequest.of(0, 10));
+    assertEquals(1, leases.getTotalElements());
+    assertEquals(hits + 1, queryPlanner.getHitCount().get());
+    verify(elasticsearchOperations, times(1)).search(any(Query.class), eq(DeedTenantLease.class));
+
+    search(LeaseFilter.ofNftId(1), PageRequest.of(0, 10));
+    verify(elasticsearchOperations, times(2)).search(any(Query.class), eq(DeedTenantLease.class));
+
+    queryPlanner.invalidate(DeedTenantLease.class);
+    search(new LeaseFilter(), PageRequest.of(0, 10));
+    verify(elasticsearchOperations, times(3)).search(any(Query.class), eq(DeedTenantLease.class));
+  }
+
+  @Test
+  void testDontCacheResultReadDuringInvalidation() {
+    SearchHits<DeedTenantLease> searchHits = newSearchHits(1, newLease(1, 1));
+    when(elasticsearchOperations.search(any(Query.class), eq(DeedTenantLease.class))).thenAnswer(invocation -> {
+      // Lease modified while searching
+      queryPlanner.invalidate(DeedTenantLease.class);
+      return searchHits;
+    });
+
+    search(new LeaseFilter(), PageRequest.of(0, 10));
+    search(new LeaseFilter(), PageRequest.of(0, 10));
+    verify(elasticsearchOperations, times(2)).search(any(Query.class), eq(DeedTenantLease.class));
+  }
+
+  @Test
+  void testPaginateCachedResult() {
+    SearchHits<DeedTenantLease> searchHits = newSearchHits(3, newLease(1, 1), newLease(2, 2), newLease(3, 3));
+    when(elasticsearchOperations.search(any(Query.class), eq(DeedTenantLease.class))).thenReturn(searchHits);
+
+    Page<DeedTenantLease> leases = search(new LeaseFilter(), PageRequest.of(1, 2));
+    assertEquals(3, leases.getTotalElements());
+    assertEquals(1, leases.getNumberOfElements());
+    assertEquals(3, leases.getContent().get(0).getId());
+  }
+
+  @Test
+  void testBypassCacheWhenTooManyResults() {
+    SearchHits<DeedTenantLease> searchHits = newSearchHits(MAX_RESULTS + 1l, newLease(1, 1), newLease(2, 2));
+    when(elasticsearchOperations.search(any(Query.class), eq(DeedTenantLease.class))).thenReturn(searchHits);
+    long bypasses = queryPlanner.getBypassCount().get();
+
+    Page<DeedTenantLease> leases = search(new LeaseFilter(), PageRequest.of(0, 2));
+    assertEquals(MAX_RESULTS + 1l, leases.getTotalElements());
+    assertEquals(bypasses + 1, queryPlanner.getBypassCount().get());
+    verify(elasticsearchOperations, times(2)).search(any(Query.class), eq(DeedTenantLease.class));
+  }
+
+  private Page<DeedTenantLease> search(LeaseFilter leaseFilter, Pageable pageable) {
+    return queryPlanner.search(DeedTenantLease.class,
+                               leaseFilter,
+                               () -> new Criteria("enabled").is(true),
+                               TIME_BOUNDS,
+                               pageable);
+  }
+
+  @SuppressWarnings("unchecked")
+  private SearchHits<DeedTenantLease> newSearchHits(long totalHits, DeedTenantLease... leases) {
+    List<SearchHit<DeedTenantLease>> hits = Arrays.stream(leases).map(lease -> {
+      SearchHit<DeedTenantLease> hit = mock(SearchHit.class);
+      when(hit.getContent()).thenReturn(lease);
+      return hit;
+    }).toList();
+    SearchHits<DeedTenantLease> searchHits = mock(SearchHits.class);
+    when(searchHits.getSearchHits()).thenReturn(hits);
+    when(searchHits.getTotalHits()).thenReturn(totalHits);
+    return searchHits;
+  }
+
+  private DeedTenantLease newLease(long id, long endDateHours) {
+    DeedTenantLease lease = new DeedTenantLease();
+    lease.setId(id);
+    lease.setEndDate(Instant.now().plus(endDateHours, ChronoUnit.HOURS));
+    return lease;
+  }
+
+}
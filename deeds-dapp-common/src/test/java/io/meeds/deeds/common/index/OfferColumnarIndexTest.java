@@ -0,0 +1,180 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+
+import io.meeds.deeds.common.constant.DeedCard;
+import io.meeds.deeds.common.constant.OfferType;
+import io.meeds.deeds.common.constant.TransactionStatus;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantOffer;
+import io.meeds.deeds.common.model.DeedTenantOfferDTO;
+import io.meeds.deeds.common.model.OfferFilter;
+import io.meeds.deeds.common.utils.DeedTenantOfferMapper;
+
+class OfferColumnarIndexTest {
+
+  private static final String  OWNER  = "0x609a6f01b7976439603356e41d5456b42df957b7";
+
+  private static final String  VIEWER = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  private static final Instant NOW    = Instant.now();
+
+  private OfferColumnarIndex   offerIndex;
+
+  @BeforeEach
+  void setup() {
+    offerIndex = new OfferColumnarIndex();
+    offerIndex.put(newOffer("1", 1, DeedCard.COMMON, 10, DeedTenantOfferMapper.EVERYONE));
+    offerIndex.put(newOffer("2", 2, DeedCard.UNCOMMON, 20, DeedTenantOfferMapper.EVERYONE));
+    offerIndex.put(newOffer("3", 3, DeedCard.RARE, 30, VIEWER));
+    DeedTenantOffer disabledOffer = newOffer("4", 4, DeedCard.COMMON, 40, DeedTenantOfferMapper.EVERYONE);
+    disabledOffer.setEnabled(false);
+    offerIndex.put(disabledOffer);
+    DeedTenantOffer changelog = newOffer("5", 1, DeedCard.COMMON, 50, DeedTenantOfferMapper.EVERYONE);
+    changelog.setParentId("1");
+    offerIndex.put(changelog);
+  }
+
+  @Test
+  void testSearchVisibility() {
+    assertEquals(4, offerIndex.size());
+    assertEquals(List.of("4", "2", "1"), search(new OfferFilter(), Sort.unsorted()));
+
+    OfferFilter offerFilter = new OfferFilter();
+    offerFilter.setCurrentAddress(VIEWER.toUpperCase());
+    assertEquals(List.of("4", "3", "2", "1"), search(offerFilter, Sort.unsorted()));
+  }
+
+  @Test
+  void testSearchFilters() {
+    OfferFilter offerFilter = new OfferFilter();
+    offerFilter.setExcludeDisabled(true);
+    offerFilter.setCardTypes(Collections.singletonList(DeedCard.COMMON));
+    assertEquals(List.of("1"), search(offerFilter, Sort.unsorted()));
+
+    offerFilter = new OfferFilter();
+    offerFilter.setNftId(2);
+    offerFilter.setOwnerAddress(OWNER.toUpperCase());
+    offerFilter.setOfferTypes(Collections.singletonList(OfferType.RENTING));
+    offerFilter.setTransactionStatus(Arrays.asList(TransactionStatus.VALIDATED, TransactionStatus.IN_PROGRESS));
+    assertEquals(List.of("2"), search(offerFilter, Sort.unsorted()));
+
+    offerFilter.setOfferTypes(Collections.singletonList(OfferType.SALE));
+    assertTrue(search(offerFilter, Sort.unsorted()).isEmpty());
+  }
+
+  @Test
+  void testSearchDates() {
+    DeedTenantOffer notStartedOffer = newOffer("6", 6, DeedCard.LEGENDARY, 60, DeedTenantOfferMapper.EVERYONE);
+    notStartedOffer.setStartDate(null);
+    offerIndex.put(notStartedOffer);
+    DeedTenantOffer expiredOffer = newOffer("7", 7, DeedCard.LEGENDARY, 70, DeedTenantOfferMapper.EVERYONE);
+    expiredOffer.setExpirationDate(NOW.minus(1, ChronoUnit.DAYS));
+    offerIndex.put(expiredOffer);
+
+    OfferFilter offerFilter = new OfferFilter();
+    offerFilter.setCardTypes(Collections.singletonList(DeedCard.LEGENDARY));
+    assertEquals(List.of("7", "6"), search(offerFilter, Sort.unsorted()));
+
+    offerFilter.setExcludeNotStarted(true);
+    assertEquals(List.of("7"), search(offerFilter, Sort.unsorted()));
+
+    offerFilter.setExcludeExpired(true);
+    assertTrue(search(offerFilter, Sort.unsorted()).isEmpty());
+  }
+
+  @Test
+  void testSortAndPaging() {
+    assertEquals(List.of("1", "2", "4"), search(new OfferFilter(), Sort.by(Direction.ASC, "amount")));
+
+    DeedTenantOffer offer = newOffer("2", 2, DeedCard.UNCOMMON, 20, DeedTenantOfferMapper.EVERYONE);
+    offer.setModifiedDate(null);
+    offerIndex.put(offer);
+    assertEquals(List.of("4", "1", "2"), search(new OfferFilter(), Sort.by(Direction.DESC, "modifiedDate")));
+    assertEquals(List.of("1", "4", "2"), search(new OfferFilter(), Sort.by(Direction.ASC, "modifiedDate")));
+
+    Page<DeedTenantOfferDTO> page = offerIndex.search(new OfferFilter(),
+                                                      PageRequest.of(1, 2, Sort.by(Direction.ASC, "nftId")),
+                                                      NOW);
+    assertEquals(3, page.getTotalElements());
+    assertEquals(1, page.getNumberOfElements());
+    assertEquals("4", page.getContent().get(0).getId());
+
+    assertTrue(OfferColumnarIndex.isSortSupported(Sort.by("createdDate", "amount")));
+    assertFalse(OfferColumnarIndex.isSortSupported(Sort.by("description")));
+  }
+
+  @Test
+  void testUpdateAndRemove() {
+    DeedTenantOffer offer = newOffer("2", 2, DeedCard.UNCOMMON, 25, DeedTenantOfferMapper.EVERYONE);
+    offer.setAcquired(true);
+    offerIndex.put(offer);
+    assertEquals(List.of("4", "1"), search(new OfferFilter(), Sort.unsorted()));
+
+    offerIndex.remove("1");
+    offerIndex.put(newOffer("8", 8, DeedCard.RARE, 80, VIEWER));
+    assertEquals(3, offerIndex.size());
+
+    OfferFilter offerFilter = new OfferFilter();
+    offerFilter.setCurrentAddress(VIEWER);
+    assertEquals(List.of("8", "4", "3"), search(offerFilter, Sort.unsorted()));
+
+    offerIndex.remove("3");
+    offerIndex.remove("8");
+    assertEquals(List.of("4"), search(offerFilter, Sort.unsorted()));
+  }
+
+  private List<String> search(OfferFilter offerFilter, Sort sort) {
+    return offerIndex.search(offerFilter, PageRequest.of(0, 10, sort), NOW)
+                     .map(DeedTenantOfferDTO::getId)
+                     .getContent();
+  }
+
+  private DeedTenantOffer newOffer(String id, long nftId, DeedCard cardType, double amount, String viewAddress) {
+    DeedTenantOffer offer = new DeedTenantOffer();
+    offer.setId(id);
+    offer.setNftId(nftId);
+    offer.setCardType(cardType);
+    offer.setOwner(OWNER);
+    offer.setAmount(amount);
+    offer.setOfferType(OfferType.RENTING);
+    offer.setOfferTransactionStatus(TransactionStatus.VALIDATED);
+    offer.setViewAddresses(Collections.singletonList(viewAddress));
+    offer.setEnabled(true);
+    offer.setStartDate(NOW.minus(1, ChronoUnit.DAYS));
+    offer.setExpirationDate(NOW.plus(1, ChronoUnit.DAYS));
+    offer.setCreatedDate(NOW.plusSeconds(nftId));
+    offer.setModifiedDate(NOW.plusSeconds(nftId));
+    return offer;
+  }
+
+}
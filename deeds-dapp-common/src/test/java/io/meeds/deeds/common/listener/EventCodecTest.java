@@ -0,0 +1,93 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.listener;
+
+import static io.meeds.deeds.common.listerner.model.EventSerialization.OBJECT_MAPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.meeds.deeds.common.constant.CommonConstants.DeedOwnershipTransferEvent;
+import io.meeds.deeds.common.listerner.model.Event;
+import io.meeds.deeds.common.model.DeedTenantLeaseDTO;
+
+class EventCodecTest {
+
+  private static final String EVENT_NAME = "deed.event.test";
+
+  private EventCodec          eventCodec = new EventCodec();
+
+  @Test
+  void testEncodeRegisteredType() throws Exception {
+    DeedTenantLeaseDTO lease = new DeedTenantLeaseDTO();
+    lease.setId(2l);
+    lease.setNftId(3l);
+    lease.setManagerAddress("0x609a6f01b7976439603356e41d5456b42df957b7");
+    lease.setEndDate(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+    String payload = eventCodec.encode(new Event(EVENT_NAME, lease, lease.getClass().getName()));
+    assertTrue(payload.startsWith("#1:5:"));
+    assertTrue(payload.length() < OBJECT_MAPPER.writeValueAsString(new Event(EVENT_NAME,
+                                                                             lease,
+                                                                             lease.getClass().getName()))
+                                               .length());
+
+    Event event = eventCodec.decode(EVENT_NAME, payload);
+    assertEquals(EVENT_NAME, event.getEventName());
+    assertEquals(lease, event.getData());
+    assertEquals(DeedTenantLeaseDTO.class.getName(), event.getDataClassName());
+  }
+
+  @Test
+  void testEncodeNotRegisteredType() throws Exception {
+    String payload = eventCodec.encode(new Event(EVENT_NAME, true, Boolean.class.getName()));
+    assertEquals("#1:java.lang.Boolean:true", payload);
+    assertEquals(true, eventCodec.decode(EVENT_NAME, payload).getData());
+
+    assertNull(eventCodec.decode(EVENT_NAME, "#1:io.meeds.NotExistingClass:{}"));
+  }
+
+  @Test
+  void testEncodeNullData() throws Exception {
+    String payload = eventCodec.encode(new Event(EVENT_NAME, null, null));
+    Event event = eventCodec.decode(EVENT_NAME, payload);
+    assertEquals(EVENT_NAME, event.getEventName());
+    assertNull(event.getData());
+  }
+
+  @Test
+  void testDecodeLegacyPayload() throws Exception {
+    DeedOwnershipTransferEvent transferEvent = new DeedOwnershipTransferEvent(3l, "0x1", "0x2");
+    String legacyPayload = OBJECT_MAPPER.writeValueAsString(new Event(EVENT_NAME,
+                                                                      transferEvent,
+                                                                      transferEvent.getClass().getName()));
+
+    Event event = eventCodec.decode(EVENT_NAME, legacyPayload);
+    assertEquals(transferEvent, event.getData());
+  }
+
+  @Test
+  void testRegisterTypeTwice() {
+    assertThrows(IllegalStateException.class, () -> eventCodec.registerType(1, Integer.class));
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.listener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import io.meeds.deeds.common.listener.ListenerEventDispatcher.ListenerMetrics;
+
+@SpringBootTest(classes = {
+    ListenerEventDispatcher.class,
+}, properties = {
+    "meeds.listener.async.virtualThreads=false",
+    "meeds.listener.async.poolSize=4",
+    "meeds.listener.async.maxPendingEvents=10",
+})
+class ListenerEventDispatcherTest {
+
+  private static final String     EVENT_NAME = "test.event";
+
+  @Autowired
+  private ListenerEventDispatcher listenerEventDispatcher;
+
+  @Test
+  void testDispatchSynchronously() {
+    List<Long> handledEvents = new ArrayList<>();
+    TestListener listener = new TestListener("SyncListener", false, (eventName, data) -> handledEvents.add(data));
+
+    listenerEventDispatcher.dispatch(listener, EVENT_NAME, 1l);
+    listenerEventDispatcher.dispatch(listener, EVENT_NAME, 2l);
+
+    assertEquals(List.of(1l, 2l), handledEvents);
+    ListenerMetrics metrics = listenerEventDispatcher.getListenerMetrics("SyncListener");
+    assertEquals(2, metrics.getHandledCount().get());
+    assertEquals(0, metrics.getQueueDepth().get());
+  }
+
+  @Test
+  void testDispatchAsynchronouslyWithOrderPerKey() throws InterruptedException {
+    int eventsPerKey = 3;
+    CountDownLatch allHandled = new CountDownLatch(eventsPerKey * 2);
+    CountDownLatch firstKeyReleased = new CountDownLatch(1);
+    Map<Long, List<Long>> handledEvents = new ConcurrentHashMap<>();
+    TestListener listener = new TestListener("AsyncListener", true, (eventName, data) -> {
+      long key = data / 10;
+      if (key == 1) {
+        // Block the first key until events of the second key are all handled
+        firstKeyReleased.await(10, TimeUnit.SECONDS);
+      }
+      handledEvents.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(data);
+      if (key == 2 && handledEvents.get(key).size() == eventsPerKey) {
+        firstKeyReleased.countDown();
+      }
+      allHandled.countDown();
+    });
+
+    for (long i = 0; i < eventsPerKey; i++) {
+      listenerEventDispatcher.dispatch(listener, EVENT_NAME, 10 + i);
+      listenerEventDispatcher.dispatch(listener, EVENT_NAME, 20 + i);
+    }
+
+    assertTrue(allHandled.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of(10l, 11l, 12l), handledEvents.get(1l));
+    assertEquals(List.of(20l, 21l, 22l), handledEvents.get(2l));
+    assertEquals(0, listenerEventDispatcher.getListenerMetrics("AsyncListener").getQueueDepth().get());
+  }
+
+  @Test
+  void testDispatchAsynchronouslyCompletesAfterHandling() throws Exception {
+    CountDownLatch handlingReleased = new CountDownLatch(1);
+    List<Long> handledEvents = Collections.synchronizedList(new ArrayList<>());
+    TestListener listener = new TestListener("AsyncCompletionListener", true, (eventName, data) -> {
+      handlingReleased.await(10, TimeUnit.SECONDS);
+      handledEvents.add(data);
+    });
+
+    CompletableFuture<Void> handling = listenerEventDispatcher.dispatch(listener, EVENT_NAME, 1l);
+    assertFalse(handling.isDone());
+
+    handlingReleased.countDown();
+    handling.get(10, TimeUnit.SECONDS);
+    assertEquals(List.of(1l), handledEvents);
+  }
+
+  @Test
+  void testDispatchAsynchronouslyAfterError() throws Exception {
+    List<Long> handledEvents = Collections.synchronizedList(new ArrayList<>());
+    TestListener listener = new TestListener("AsyncErrorListener", true, (eventName, data) -> {
+      if (data == 1) {
+        throw new AssertionError("Expected error");
+      }
+      handledEvents.add(data);
+    });
+
+    CompletableFuture<Void> failedHandling = listenerEventDispatcher.dispatch(listener, EVENT_NAME, 1l);
+    CompletableFuture<Void> handling = listenerEventDispatcher.dispatch(listener, EVENT_NAME, 2l);
+
+    handling.get(10, TimeUnit.SECONDS);
+    assertTrue(failedHandling.isCompletedExceptionally());
+    assertEquals(List.of(2l), handledEvents);
+  }
+
+  @FunctionalInterface
+  private interface EventHandler {
+    void handle(String eventName, Long data) throws Exception; // NOSONAR
+  }
+
+  private static class TestListener implements EventListener<Long> {
+
+    private final String       name;
+
+    private final boolean      async;
+
+    private final EventHandler handler;
+
+    private TestListener(String name, boolean async, EventHandler handler) {
+      this.name = name;
+      this.async = async;
+      this.handler = handler;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public List<String> getSupportedEvents() {
+      return Collections.singletonList(EVENT_NAME);
+    }
+
+    @Override
+    public boolean isAsync() {
+      return async;
+    }
+
+    @Override
+    public Object getOrderingKey(String eventName, Long data) {
+      return data / 10;
+    }
+
+    @Override
+    public void onEvent(String eventName, Long data) throws Exception {
+      handler.handle(eventName, data);
+    }
+
+  }
+
+}
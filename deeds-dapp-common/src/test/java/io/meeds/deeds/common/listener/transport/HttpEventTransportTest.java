@@ -0,0 +1,62 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.listener.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(classes = {
+    HttpEventTransport.class,
+}, properties = {
+    "meeds.listener.transport.type=http",
+    "meeds.listener.transport.http.host=localhost",
+    "meeds.listener.transport.http.port=" + HttpEventTransportTest.PORT,
+    "meeds.listener.transport.http.peers=http://localhost:" + HttpEventTransportTest.PORT + "/",
+    "meeds.listener.transport.http.token=secret",
+})
+class HttpEventTransportTest {
+
+  public static final int    PORT = 18465;
+
+  @Autowired
+  private HttpEventTransport httpEventTransport;
+
+  @AfterEach
+  void teardown() {
+    httpEventTransport.stop();
+  }
+
+  @Test
+  void testNotifyPeers() throws InterruptedException {
+    assertTrue(httpEventTransport.isEnabled());
+    CountDownLatch eventsAvailable = new CountDownLatch(1);
+    httpEventTransport.start(eventsAvailable::countDown);
+
+    httpEventTransport.notifyEventPublished("deed.event.test");
+
+    assertTrue(eventsAvailable.await(10, TimeUnit.SECONDS));
+    assertEquals(1, httpEventTransport.getReceivedCount().get());
+  }
+
+}
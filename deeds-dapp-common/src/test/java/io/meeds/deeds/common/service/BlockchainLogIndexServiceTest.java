@@ -0,0 +1,213 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.service;
+
+import static io.meeds.deeds.common.service.BlockchainLogIndexService.LAST_INDEXED_BLOCK_SETTING_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.EthLog.LogObject;
+import org.web3j.protocol.core.methods.response.EthLog.LogResult;
+import org.web3j.utils.Numeric;
+
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainNetwork;
+import io.meeds.deeds.common.elasticsearch.model.BlockchainLogEvent;
+import io.meeds.deeds.common.elasticsearch.storage.BlockchainLogEventRepository;
+import io.meeds.deeds.contract.Deed;
+import io.meeds.deeds.contract.DeedRenting;
+import io.meeds.deeds.contract.DeedTenantProvisioning;
+
+@SpringBootTest(classes = {
+    BlockchainLogIndexService.class,
+}, properties = {
+    "meeds.blockchain.logIndex.windowSize=" + BlockchainLogIndexServiceTest.WINDOW_SIZE,
+    "meeds.blockchain.logIndex.reorgDepth=" + BlockchainLogIndexServiceTest.REORG_DEPTH,
+    "meeds.blockchain.logIndex.ethereumStartBlock=0",
+})
+class BlockchainLogIndexServiceTest {
+
+  public static final long             WINDOW_SIZE       = 50;
+
+  public static final long             REORG_DEPTH       = 5;
+
+  private static final String          DEED_ADDRESS      = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  private static final String          FROM_ADDRESS      = "0x0000000000000000000000000000000000000000";
+
+  private static final String          TO_ADDRESS        = "0x609a6f01b7976439603356e41d5456b42df957b7";
+
+  private static final String          TRANSACTION_HASH  =
+                                                        "0xab5bc0ece5ef0995fac33c53f4b92d68da952552a73932e51b4c02933237e84f";
+
+  private static final String          ETHEREUM_SETTING  = LAST_INDEXED_BLOCK_SETTING_NAME + BlockchainNetwork.ETHEREUM.name();
+
+  @MockBean(name = "ethereumNetwork")
+  private Web3j                        web3j;
+
+  @MockBean
+  private Deed                         deed;
+
+  @MockBean
+  private DeedTenantProvisioning       deedTenantProvisioning;
+
+  @MockBean
+  private DeedRenting                  deedRenting;
+
+  @MockBean
+  private BlockchainLogEventRepository blockchainLogEventRepository;
+
+  @MockBean
+  private SettingService               settingService;
+
+  @Autowired
+  private BlockchainLogIndexService    blockchainLogIndexService;
+
+  private EthBlockNumber               ethBlockNumber;
+
+  private List<LogResult<?>>           logs;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() throws Exception {
+    when(deed.getContractAddress()).thenReturn(DEED_ADDRESS);
+
+    Request<?, EthBlockNumber> blockNumberRequest = mock(Request.class);
+    ethBlockNumber = new EthBlockNumber();
+    ethBlockNumber.setResult("0x64"); // 100
+    doReturn(blockNumberRequest).when(web3j).ethBlockNumber();
+    when(blockNumberRequest.send()).thenReturn(ethBlockNumber);
+
+    Request<?, EthLog> logsRequest = mock(Request.class);
+    EthLog ethLog = mock(EthLog.class);
+    logs = new ArrayList<>();
+    doReturn(logsRequest).when(web3j).ethGetLogs(any());
+    when(logsRequest.send()).thenReturn(ethLog);
+    doReturn(logs).when(ethLog).getLogs();
+  }
+
+  @Test
+  void testIndexLogsInWindows() {
+    logs.add(newTransferSingleLog(false, 3l));
+
+    blockchainLogIndexService.indexLogs();
+
+    verify(web3j, times(3)).ethGetLogs(any());
+    verify(settingService).save(ETHEREUM_SETTING, "49");
+    verify(settingService).save(ETHEREUM_SETTING, "99");
+    verify(settingService).save(ETHEREUM_SETTING, "100");
+    verify(blockchainLogEventRepository, times(3)).saveAll(argThat(events -> {
+      BlockchainLogEvent event = events.iterator().next();
+      return event.getNftId() == 3l
+             && TO_ADDRESS.equals(event.getToAddress())
+             && Deed.TRANSFERSINGLE_EVENT.getName().equals(event.getEventName())
+             && TRANSACTION_HASH.equals(event.getTransactionHash());
+    }));
+    verify(blockchainLogEventRepository, never()).deleteAllById(any());
+    assertTrue(blockchainLogIndexService.isSynchronized(BlockchainNetwork.ETHEREUM));
+  }
+
+  @Test
+  void testIndexLogsWithReorg() {
+    when(settingService.get(ETHEREUM_SETTING)).thenReturn("98");
+    BlockchainLogEvent reorgedEvent = new BlockchainLogEvent();
+    reorgedEvent.setId("reorgedEventId");
+    when(blockchainLogEventRepository.findByNetworkAndBlockNumberBetween(eq(BlockchainNetwork.ETHEREUM),
+                                                                         anyLong(),
+                                                                         anyLong())).thenReturn(Collections.singletonList(reorgedEvent));
+    logs.add(newTransferSingleLog(true, 4l));
+
+    blockchainLogIndexService.indexLogs();
+
+    verify(blockchainLogEventRepository).findByNetworkAndBlockNumberBetween(BlockchainNetwork.ETHEREUM, 94l, 100l);
+    verify(blockchainLogEventRepository).deleteAllById(argThat(ids -> {
+      List<String> idsList = new ArrayList<>();
+      ids.forEach(idsList::add);
+      return idsList.size() == 2 && idsList.contains("reorgedEventId");
+    }));
+    verify(blockchainLogEventRepository, never()).saveAll(any());
+    verify(settingService).save(ETHEREUM_SETTING, "100");
+  }
+
+  @Test
+  void testGetDeedOwnerCandidates() {
+    BlockchainLogEvent oldTransfer = newTransferEvent("0x1111111111111111111111111111111111111111", 10);
+    BlockchainLogEvent newTransfer = newTransferEvent(TO_ADDRESS, 20);
+    when(blockchainLogEventRepository.findByContractAddressAndEventNameAndNftIdOrderByBlockNumberDesc(DEED_ADDRESS,
+                                                                                                     Deed.TRANSFERSINGLE_EVENT.getName(),
+                                                                                                     3l)).thenReturn(Collections.singletonList(oldTransfer));
+    when(blockchainLogEventRepository.findByContractAddressAndEventNameAndNftIdOrderByBlockNumberDesc(DEED_ADDRESS,
+                                                                                                     Deed.TRANSFERBATCH_EVENT.getName(),
+                                                                                                     3l)).thenReturn(Collections.singletonList(newTransfer));
+
+    assertEquals(Arrays.asList(TO_ADDRESS, oldTransfer.getToAddress()), blockchainLogIndexService.getDeedOwnerCandidates(3l));
+  }
+
+  private BlockchainLogEvent newTransferEvent(String toAddress, long blockNumber) {
+    BlockchainLogEvent event = new BlockchainLogEvent();
+    event.setToAddress(toAddress);
+    event.setBlockNumber(blockNumber);
+    return event;
+  }
+
+  private LogObject newTransferSingleLog(boolean removed, long nftId) {
+    String data = Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(nftId), 64)
+        + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.ONE, 64);
+    return new LogObject(removed,
+                         "0x1",
+                         "0x0",
+                         TRANSACTION_HASH,
+                         "0x0",
+                         "0x60",
+                         DEED_ADDRESS,
+                         data,
+                         null,
+                         Arrays.asList(EventEncoder.encode(Deed.TRANSFERSINGLE_EVENT),
+                                       toTopic(TO_ADDRESS),
+                                       toTopic(FROM_ADDRESS),
+                                       toTopic(TO_ADDRESS)));
+  }
+
+  private String toTopic(String address) {
+    return Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(address), 64);
+  }
+
+}
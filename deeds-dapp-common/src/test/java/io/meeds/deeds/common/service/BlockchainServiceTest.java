@@ -23,6 +23,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
@@ -40,19 +42,20 @@ import org.mockito.MockedStatic;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.web3j.abi.EventEncoder;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.RemoteFunctionCall;
 import org.web3j.protocol.core.Request;
 import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
 import org.web3j.protocol.core.methods.response.EthLog;
 import org.web3j.protocol.core.methods.response.EthLog.LogObject;
-import org.web3j.protocol.core.methods.response.EthLog.LogResult;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tuples.generated.Tuple10;
 import org.web3j.tuples.generated.Tuple12;
 import org.web3j.tuples.generated.Tuple4;
 import org.web3j.tuples.generated.Tuple5;
 import org.web3j.tuples.generated.Tuple9;
+import org.web3j.utils.Numeric;
 
 import io.meeds.deeds.common.constant.BlockchainOfferStatus;
 import io.meeds.deeds.common.constant.CommonConstants.DeedOwnershipTransferEvent;
@@ -60,7 +63,6 @@ import io.meeds.deeds.common.model.DeedCity;
 import io.meeds.deeds.common.model.DeedOfferBlockchainState;
 import io.meeds.deeds.common.model.FundInfo;
 import io.meeds.deeds.contract.Deed;
-import io.meeds.deeds.contract.Deed.TransferSingleEventResponse;
 import io.meeds.deeds.contract.DeedRenting;
 import io.meeds.deeds.contract.DeedRenting.OfferCreatedEventResponse;
 import io.meeds.deeds.contract.DeedRenting.OfferDeletedEventResponse;
@@ -506,48 +508,30 @@ class BlockchainServiceTest {
     assertNotNull(minedTransactions);
     assertTrue(minedTransactions.isEmpty());
 
-    String transactionHash = "0xab5bc0ece5ef0995fac33c53f4b92d68da952552a73932e51b4c02933237e84f";
-    LogResult logResult = mock(LogResult.class);
-    LogObject logObject = mock(LogObject.class);
-    when(logResult.get()).thenReturn(logObject);
-    when(ethLogs.getLogs()).thenReturn(Collections.singletonList(logResult));
-
-    when(logObject.getTransactionHash()).thenReturn(transactionHash);
-    Request getTransactionReceiptRequest = mock(Request.class);
-    when(web3j.ethGetTransactionReceipt(transactionHash)).thenReturn(getTransactionReceiptRequest);
-    EthGetTransactionReceipt ethGetTransactionReceipt = mock(EthGetTransactionReceipt.class);
-    when(getTransactionReceiptRequest.send()).thenReturn(ethGetTransactionReceipt);
-    TransactionReceipt transactionReceipt = mock(TransactionReceipt.class);
-    when(ethGetTransactionReceipt.getResult()).thenReturn(transactionReceipt);
-    when(transactionReceipt.isStatusOK()).thenReturn(false);
-
-    minedTransactions = blockchainService.getMinedTransferOwnershipDeedTransactions(fromBlock, toBlock);
-    assertNotNull(minedTransactions);
-    assertTrue(minedTransactions.isEmpty());
-
-    when(transactionReceipt.isStatusOK()).thenReturn(true);
-    MockedStatic<Deed> mockDeedContract = mockStatic(Deed.class);
-    String fromAddress = "fromAddress";
-    String toAddress = "toAddress";
+    String fromAddress = "0x0000000000000000000000000000000000000000";
+    String toAddress = "0x609a6f01b7976439603356e41d5456b42df957b7";
     long nftId = 2l;
 
-    mockDeedContract.when(() -> Deed.getTransferSingleEvents(transactionReceipt))
-                    .thenReturn(Arrays.asList(newTransferSingleEvent(nftId, fromAddress, toAddress),
-                                              newTransferSingleEvent(nftId, fromAddress, toAddress),
-                                              newTransferSingleEvent(nftId, fromAddress, toAddress)));
+    when(ethLogs.getLogs()).thenReturn(Arrays.asList(newTransferSingleLog(false, nftId, fromAddress, toAddress),
+                                                     newTransferSingleLog(false, nftId, fromAddress, toAddress),
+                                                     newTransferSingleLog(true, nftId + 1, fromAddress, toAddress)));
 
     minedTransactions = blockchainService.getMinedTransferOwnershipDeedTransactions(fromBlock, toBlock);
     assertNotNull(minedTransactions);
     assertEquals(1, minedTransactions.size());
+    DeedOwnershipTransferEvent transferEvent = minedTransactions.iterator().next();
+    assertEquals(nftId, transferEvent.getNftId());
+    assertEquals(fromAddress, transferEvent.getFrom());
+    assertEquals(toAddress, transferEvent.getTo());
 
-    mockDeedContract.when(() -> Deed.getTransferSingleEvents(transactionReceipt))
-                    .thenReturn(Arrays.asList(newTransferSingleEvent(nftId, fromAddress, toAddress),
-                                              newTransferSingleEvent(nftId + 1, fromAddress, toAddress),
-                                              newTransferSingleEvent(nftId + 2, fromAddress, toAddress)));
+    when(ethLogs.getLogs()).thenReturn(Arrays.asList(newTransferSingleLog(false, nftId, fromAddress, toAddress),
+                                                     newTransferSingleLog(false, nftId + 1, fromAddress, toAddress),
+                                                     newTransferSingleLog(false, nftId + 2, fromAddress, toAddress)));
 
     minedTransactions = blockchainService.getMinedTransferOwnershipDeedTransactions(fromBlock, toBlock);
     assertNotNull(minedTransactions);
     assertEquals(3, minedTransactions.size());
+    verify(web3j, never()).ethGetTransactionReceipt(any());
   }
 
   @Test
@@ -791,12 +775,22 @@ class BlockchainServiceTest {
     when(deedRenting.deedOffers(offerId)).thenReturn(remoteFunctionCall);
   }
 
-  private TransferSingleEventResponse newTransferSingleEvent(long nftId, String fromAddress, String toAddress) {
-    TransferSingleEventResponse eventResponse = new TransferSingleEventResponse();
-    eventResponse._id = BigInteger.valueOf(nftId);
-    eventResponse._from = fromAddress;
-    eventResponse._to = toAddress;
-    return eventResponse;
+  private LogObject newTransferSingleLog(boolean removed, long nftId, String fromAddress, String toAddress) {
+    String data = Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(nftId), 64)
+        + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.ONE, 64);
+    return new LogObject(removed,
+                         "0x0",
+                         "0x0",
+                         "0xab5bc0ece5ef0995fac33c53f4b92d68da952552a73932e51b4c02933237e84f",
+                         "0x0",
+                         "0x10",
+                         "0x0143b71443650aa8efa76bd82f35c22ebd558090",
+                         data,
+                         null,
+                         Arrays.asList(EventEncoder.encode(Deed.TRANSFERSINGLE_EVENT),
+                                       Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(toAddress), 64),
+                                       Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(fromAddress), 64),
+                                       Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(toAddress), 64)));
   }
 
 }
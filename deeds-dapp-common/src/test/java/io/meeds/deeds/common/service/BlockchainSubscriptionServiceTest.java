@@ -0,0 +1,347 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.service;
+
+import static io.meeds.deeds.common.constant.CommonConstants.DEED_OWNERSHIP_TRANSFERRED_BLOCKCHAIN_EVENT;
+import static io.meeds.deeds.common.constant.CommonConstants.DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.EthLog.LogObject;
+import org.web3j.utils.Numeric;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.meeds.deeds.common.blockchain.BlockchainConfigurationProperties;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache;
+import io.meeds.deeds.common.blockchain.BlockchainReadCache.BlockchainNetwork;
+import io.meeds.deeds.common.elasticsearch.ClusterLockManager;
+import io.meeds.deeds.contract.Deed;
+import io.meeds.deeds.contract.DeedRenting;
+
+@SpringBootTest(classes = {
+    BlockchainSubscriptionService.class,
+})
+// Processed logs are kept by the service between tests
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class BlockchainSubscriptionServiceTest {
+
+  private static final ObjectMapper         OBJECT_MAPPER          = new ObjectMapper();
+
+  private static final String               DEED_ADDRESS           = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  private static final String               RENTING_ADDRESS        = "0x427aa8f31013960e0e5e73977c1918e15d693baa";
+
+  private static final String               OWNER_ADDRESS          = "0x609a6f01b7976439603356e41d5456b42df957b7";
+
+  private static final String               TRANSFER_TRANSACTION   =
+                                                                 "0xab5bc0ece5ef0995fac33c53f4b92d68da952552a73932e51b4c02933237e84f";
+
+  private static final String               RENTING_TRANSACTION    =
+                                                                "0x5b1f5fb4a4d4c2c1bd8e07ca8d0cb1b5c43a1d4e4b5a1b5cc42c7c03e0d2a1f0";
+
+  private static final String               NEW_HEADS_SUBSCRIPTION = "0x1";
+
+  private static final String               LOGS_SUBSCRIPTION      = "0x2";
+
+  private static final long                 NFT_ID                 = 3l;
+
+  @MockBean
+  private BlockchainConfigurationProperties properties;
+
+  @MockBean
+  private ListenerService                   listenerService;
+
+  @MockBean(name = "ethereumNetwork")
+  private Web3j                             web3j;
+
+  @MockBean
+  private Deed                              deed;
+
+  @MockBean
+  private DeedRenting                       deedRenting;
+
+  @MockBean
+  private BlockchainReadCache               readCache;
+
+  @MockBean
+  private ClusterLockManager                clusterLockManager;
+
+  @MockBean
+  private ElasticsearchOperations           elasticsearchOperations;
+
+  @Autowired
+  private BlockchainSubscriptionService     subscriptionService;
+
+  private JsonRpcStubServer                 server;
+
+  @BeforeEach
+  void setup() throws Exception {
+    server = new JsonRpcStubServer();
+    server.start();
+    assertTrue(server.started.await(10, TimeUnit.SECONDS));
+    when(properties.getNetworkWsUrl()).thenReturn("ws://localhost:" + server.getPort());
+    when(deed.getContractAddress()).thenReturn(DEED_ADDRESS);
+    when(deedRenting.getContractAddress()).thenReturn(RENTING_ADDRESS);
+    when(clusterLockManager.claim(eq(elasticsearchOperations), any(), any())).thenReturn(true);
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    subscriptionService.unsubscribe();
+    server.stop(1000);
+  }
+
+  @Test
+  @SuppressWarnings({
+      "unchecked", "rawtypes"
+  })
+  void testSubscribeAndBackfillAfterDisconnection() throws Exception {
+    assertTrue(subscriptionService.isEnabled(BlockchainNetwork.ETHEREUM));
+    assertFalse(subscriptionService.isEnabled(BlockchainNetwork.POLYGON));
+    assertEquals(-1, subscriptionService.getLastBlock(BlockchainNetwork.ETHEREUM));
+
+    subscriptionService.checkSubscriptions();
+    assertTrue(subscriptionService.isConnected(BlockchainNetwork.ETHEREUM));
+    verify(readCache, timeout(5000)).invalidate(DEED_ADDRESS, NFT_ID);
+    waitFor(() -> subscriptionService.getLastBlock(BlockchainNetwork.ETHEREUM) == 16);
+
+    server.getConnections().forEach(WebSocket::close);
+    waitFor(() -> !subscriptionService.isConnected(BlockchainNetwork.ETHEREUM));
+    assertEquals(-1, subscriptionService.getLastBlock(BlockchainNetwork.ETHEREUM));
+
+    Request blockNumberRequest = mock(Request.class);
+    EthBlockNumber ethBlockNumber = new EthBlockNumber();
+    ethBlockNumber.setResult("0x12");
+    when(web3j.ethBlockNumber()).thenReturn(blockNumberRequest);
+    when(blockNumberRequest.send()).thenReturn(ethBlockNumber);
+
+    Request getLogsRequest = mock(Request.class);
+    EthLog ethLog = mock(EthLog.class);
+    when(web3j.ethGetLogs(any())).thenReturn(getLogsRequest);
+    when(getLogsRequest.send()).thenReturn(ethLog);
+    when(ethLog.getLogs()).thenReturn(Collections.singletonList(new LogObject(false,
+                                                                              "0x0",
+                                                                              "0x0",
+                                                                              RENTING_TRANSACTION,
+                                                                              "0x0",
+                                                                              "0x11",
+                                                                              RENTING_ADDRESS,
+                                                                              "0x",
+                                                                              null,
+                                                                              Collections.emptyList())));
+
+    subscriptionService.checkSubscriptions();
+    assertTrue(subscriptionService.isConnected(BlockchainNetwork.ETHEREUM));
+    assertEquals(1, subscriptionService.getBackfilledLogsCount().get());
+    verify(clusterLockManager).claim(elasticsearchOperations,
+                                     "renting-transaction-" + RENTING_TRANSACTION,
+                                     Duration.ofSeconds(86400));
+    verify(listenerService).publishEvent(DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT, RENTING_TRANSACTION);
+    // The same transfer log pushed again on reconnection is processed once
+    verify(readCache, after(500).times(1)).invalidate(DEED_ADDRESS, NFT_ID);
+    // Transfers are published by Tenant Provisioning application only
+    verify(listenerService, never()).publishEvent(eq(DEED_OWNERSHIP_TRANSFERRED_BLOCKCHAIN_EVENT), any());
+  }
+
+  @Test
+  void testRentingTransactionClaimedByAnotherNode() throws Exception {
+    when(clusterLockManager.claim(eq(elasticsearchOperations), any(), any())).thenReturn(false);
+    subscriptionService.checkSubscriptions();
+    assertTrue(subscriptionService.isConnected(BlockchainNetwork.ETHEREUM));
+    verify(readCache, timeout(5000)).invalidate(DEED_ADDRESS, NFT_ID);
+
+    server.getConnections().forEach(WebSocket::close);
+    waitFor(() -> !subscriptionService.isConnected(BlockchainNetwork.ETHEREUM));
+
+    mockRentingTransactionLog();
+
+    subscriptionService.checkSubscriptions();
+    verify(clusterLockManager).claim(elasticsearchOperations,
+                                     "renting-transaction-" + RENTING_TRANSACTION,
+                                     Duration.ofSeconds(86400));
+    verify(listenerService, never()).publishEvent(eq(DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT), any());
+  }
+
+  @Test
+  void testReleaseRentingTransactionWhenPublishingFails() throws Exception {
+    doThrow(new IllegalStateException("Expected error")).when(listenerService)
+                                                         .publishEvent(eq(DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT), any());
+    subscriptionService.checkSubscriptions();
+    assertTrue(subscriptionService.isConnected(BlockchainNetwork.ETHEREUM));
+    verify(readCache, timeout(5000)).invalidate(DEED_ADDRESS, NFT_ID);
+
+    server.getConnections().forEach(WebSocket::close);
+    waitFor(() -> !subscriptionService.isConnected(BlockchainNetwork.ETHEREUM));
+
+    mockRentingTransactionLog();
+
+    subscriptionService.checkSubscriptions();
+    verify(listenerService).publishEvent(DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT, RENTING_TRANSACTION);
+    verify(clusterLockManager).unlock(elasticsearchOperations, "renting-transaction-" + RENTING_TRANSACTION);
+    assertEquals(0, subscriptionService.getBackfilledLogsCount().get());
+  }
+
+  @SuppressWarnings({
+      "unchecked", "rawtypes"
+  })
+  private void mockRentingTransactionLog() throws Exception {
+    Request blockNumberRequest = mock(Request.class);
+    EthBlockNumber ethBlockNumber = new EthBlockNumber();
+    ethBlockNumber.setResult("0x12");
+    when(web3j.ethBlockNumber()).thenReturn(blockNumberRequest);
+    when(blockNumberRequest.send()).thenReturn(ethBlockNumber);
+
+    Request getLogsRequest = mock(Request.class);
+    EthLog ethLog = mock(EthLog.class);
+    when(web3j.ethGetLogs(any())).thenReturn(getLogsRequest);
+    when(getLogsRequest.send()).thenReturn(ethLog);
+    when(ethLog.getLogs()).thenReturn(Collections.singletonList(new LogObject(false,
+                                                                              "0x0",
+                                                                              "0x0",
+                                                                              RENTING_TRANSACTION,
+                                                                              "0x0",
+                                                                              "0x11",
+                                                                              RENTING_ADDRESS,
+                                                                              "0x",
+                                                                              null,
+                                                                              Collections.emptyList())));
+  }
+
+  private void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(50);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  private static String newTransferLogNotification() {
+    String data = Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(NFT_ID), 64)
+        + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.ONE, 64);
+    String emptyAddressTopic = Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 64);
+    String ownerAddressTopic = Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(OWNER_ADDRESS), 64);
+    return "{\"address\":\"" + DEED_ADDRESS + "\","
+        + "\"blockHash\":\"0x0\","
+        + "\"blockNumber\":\"0x10\","
+        + "\"data\":\"" + data + "\","
+        + "\"logIndex\":\"0x0\","
+        + "\"transactionHash\":\"" + TRANSFER_TRANSACTION + "\","
+        + "\"transactionIndex\":\"0x0\","
+        + "\"topics\":[\"" + EventEncoder.encode(Deed.TRANSFERSINGLE_EVENT) + "\",\"" + ownerAddressTopic + "\",\""
+        + emptyAddressTopic + "\",\"" + ownerAddressTopic + "\"]}";
+  }
+
+  /**
+   * A local WebSocket JSON-RPC endpoint accepting subscriptions and pushing a
+   * new block and a Deed transfer log once subscribed
+   */
+  private static class JsonRpcStubServer extends WebSocketServer {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private JsonRpcStubServer() {
+      super(new InetSocketAddress("localhost", 0));
+    }
+
+    @Override
+    public void onOpen(WebSocket connection, ClientHandshake handshake) {
+      // Nothing to initialize
+    }
+
+    @Override
+    public void onClose(WebSocket connection, int code, String reason, boolean remote) {
+      // Nothing to cleanup
+    }
+
+    @Override
+    public void onMessage(WebSocket connection, String message) {
+      try {
+        JsonNode request = OBJECT_MAPPER.readTree(message);
+        long id = request.get("id").asLong();
+        if ("eth_subscribe".equals(request.get("method").asText())) {
+          boolean newHeads = "newHeads".equals(request.get("params").get(0).asText());
+          String subscriptionId = newHeads ? NEW_HEADS_SUBSCRIPTION : LOGS_SUBSCRIPTION;
+          connection.send(reply(id, "\"" + subscriptionId + "\""));
+          connection.send(notification(subscriptionId,
+                                       newHeads ? "{\"number\":\"0x10\"}" : newTransferLogNotification()));
+        } else {
+          connection.send(reply(id, "true"));
+        }
+      } catch (Exception e) {
+        throw new IllegalStateException("Error while handling message " + message, e);
+      }
+    }
+
+    @Override
+    public void onError(WebSocket connection, Exception e) {
+      // Errors are checked by test assertions
+    }
+
+    @Override
+    public void onStart() {
+      started.countDown();
+    }
+
+    private String reply(long id, String result) {
+      return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":" + result + "}";
+    }
+
+    private String notification(String subscriptionId, String result) {
+      return "{\"jsonrpc\":\"2.0\",\"method\":\"eth_subscription\",\"params\":{\"subscription\":\""
+          + subscriptionId + "\",\"result\":" + result + "}}";
+    }
+
+  }
+
+}
@@ -26,9 +26,11 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -38,6 +40,7 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.TreeSet;
@@ -60,9 +63,13 @@ import org.web3j.crypto.Sign;
 import org.web3j.utils.Numeric;
 
 import io.meeds.deeds.common.elasticsearch.model.HubReportEntity;
+import io.meeds.deeds.common.elasticsearch.model.HubRewardSummaryEntity;
 import io.meeds.deeds.common.elasticsearch.model.UemRewardEntity;
 import io.meeds.deeds.common.elasticsearch.storage.HubReportRepository;
+import io.meeds.deeds.common.elasticsearch.storage.HubRewardSummaryRepository;
 import io.meeds.deeds.common.elasticsearch.storage.UemRewardRepository;
+import io.meeds.deeds.common.service.HubReportService.UemRewardComputationResult;
+import io.meeds.deeds.common.utils.HubReportMapper;
 import io.meeds.wom.api.constant.WomAuthorizationException;
 import io.meeds.wom.api.constant.WomException;
 import io.meeds.wom.api.model.HubReport;
@@ -75,102 +82,105 @@ import io.meeds.wom.api.model.HubReportVerifiableData;
 @ExtendWith(MockitoExtension.class)
 public class HubReportServiceTest {
 
-  private static final Pageable PAGEABLE                  = Pageable.ofSize(10);
+  private static final Pageable      PAGEABLE                  = Pageable.ofSize(10);
 
   @MockBean
-  private BlockchainService     blockchainService;
+  private BlockchainService          blockchainService;
 
   @MockBean
-  private ListenerService       listenerService;
+  private ListenerService            listenerService;
 
   @MockBean
-  private HubReportRepository   reportRepository;
+  private HubReportRepository        reportRepository;
 
   @MockBean
-  private UemRewardRepository   rewardRepository;
+  private UemRewardRepository        rewardRepository;
+
+  @MockBean
+  private HubRewardSummaryRepository rewardSummaryRepository;
 
   @Autowired
-  private HubReportService      hubReportService;
+  private HubReportService           hubReportService;
 
-  private Credentials           hubCredentials            =
+  private Credentials                hubCredentials            =
                                                Credentials.create("0x1da4ef21b864d2cc526dbdb2a120bd2874c36c9d0a1fb7f8c63d7f7a8b41de8f");
 
-  private String                hubAddress                = hubCredentials.getAddress();
+  private String                     hubAddress                = hubCredentials.getAddress();
 
-  private long                  deedId                    = 3l;
+  private long                       deedId                    = 3l;
 
-  private long                  reportId                  = 56684l;
+  private long                       reportId                  = 56684l;
 
-  private long                  rewardId                  = 6398841l;
+  private long                       rewardId                  = 6398841l;
 
-  private long                  periodStartTime           = ZonedDateTime.now()
+  private long                       periodStartTime           = ZonedDateTime.now()
                                                                          .with(DayOfWeek.MONDAY)
                                                                          .minusWeeks(3)
                                                                          .toLocalDate()
                                                                          .atStartOfDay(ZoneOffset.UTC)
                                                                          .toEpochSecond();
 
-  private long                  periodEndTime             = ZonedDateTime.now()
+  private long                       periodEndTime             = ZonedDateTime.now()
                                                                          .with(DayOfWeek.MONDAY)
                                                                          .minusWeeks(2)
                                                                          .toLocalDate()
                                                                          .atStartOfDay(ZoneOffset.UTC)
                                                                          .toEpochSecond();
 
-  private short                 city                      = 1;
+  private short                      city                      = 1;
 
-  private short                 cardType                  = 3;
+  private short                      cardType                  = 3;
 
-  private short                 mintingPower              = 120;
+  private short                      mintingPower              = 120;
 
-  private long                  maxUsers                  = Long.MAX_VALUE;
+  private long                       maxUsers                  = Long.MAX_VALUE;
 
-  private int                   ownerMintingPercentage    = 60;
+  private int                        ownerMintingPercentage    = 60;
 
-  private double                fixedRewardIndex          = 0.005446d;
+  private double                     fixedRewardIndex          = 0.005446d;
 
-  private double                ownerFixedIndex           = 0.0032676d;
+  private double                     ownerFixedIndex           = 0.0032676d;
 
-  private double                tenantFixedIndex          = 0.0021784d;
+  private double                     tenantFixedIndex          = 0.0021784d;
 
-  private double                engagementScore           = 1.23d;
+  private double                     engagementScore           = 1.23d;
 
-  private double                lastPeriodUemRewardAmount = 84d;
+  private double                     lastPeriodUemRewardAmount = 84d;
 
-  private double                uemRewardAmount           = 90d;
+  private double                     uemRewardAmount           = 90d;
 
-  private double                hubRewardAmount           = 150d;
+  private double                     hubRewardAmount           = 150d;
 
-  private double                hubTopRewardedAmount      = 12.365d;
+  private double                     hubTopRewardedAmount      = 12.365d;
 
-  private Instant               updatedDate               = Instant.now();
+  private Instant                    updatedDate               = Instant.now();
 
-  private boolean               fraud                     = false;
+  private boolean                    fraud                     = false;
 
-  private long                  usersCount                = 125l;
+  private long                       usersCount                = 125l;
 
-  private long                  participantsCount         = 85l;
+  private long                       participantsCount         = 85l;
 
-  private long                  recipientsCount           = 65l;
+  private long                       recipientsCount           = 65l;
 
-  private int                   achievementsCount         = 55698;
+  private int                        achievementsCount         = 55698;
 
-  private int                   actionsCount              = 55698;
+  private int                        actionsCount              = 55698;
 
-  private String                rewardTokenAddress        = "0x334d85047da64738c065d36e10b2adeb965000d0";
+  private String                     rewardTokenAddress        = "0x334d85047da64738c065d36e10b2adeb965000d0";
 
-  private long                  rewardTokenNetworkId      = 1l;
+  private long                       rewardTokenNetworkId      = 1l;
 
-  private String                deedManagerAddress        = "0x609a6f01b7976439603356e41d5456b42df957b7";
+  private String                     deedManagerAddress        = "0x609a6f01b7976439603356e41d5456b42df957b7";
 
-  private String                ownerAddress              = "0x27d282d1e7e790df596f50a234602d9e761d22aa";
+  private String                     ownerAddress              = "0x27d282d1e7e790df596f50a234602d9e761d22aa";
 
-  private String                periodType                = "WEEK";
+  private String                     periodType                = "WEEK";
 
-  private String                txHash                    =
+  private String                     txHash                    =
                                        "0xef4e9db309b5dd7020ce463ae726b4d0759e1de0635661de91d8d98e83ae2862";
 
-  private Instant               sentDate                  = Instant.now();
+  private Instant                    sentDate                  = Instant.now();
 
   @Test
   void getReportsByHub() {
@@ -568,6 +578,28 @@ public class HubReportServiceTest {
     verify(reportRepository).save(any());
   }
 
+  @Test
+  void computeUemRewardWithSummaryOfModifiedReport() {
+    HubReportEntity hubReportEntity = newHubReportEntity();
+    hubReportEntity.setSentDate(sentDate.minusSeconds(604800l));
+    hubReportEntity.setEngagementScore(0d);
+    when(reportRepository.findById(reportId)).thenReturn(Optional.of(hubReportEntity));
+    // Modified report not searchable yet
+    when(reportRepository.findByHubAddress(eq(StringUtils.lowerCase(hubAddress)),
+                                           any())).thenReturn(new PageImpl<>(Collections.emptyList()));
+    UemRewardEntity rewardEntity = mock(UemRewardEntity.class);
+    int multiplier = 4;
+    when(rewardEntity.getFixedGlobalIndex()).thenReturn(fixedRewardIndex * multiplier);
+    List<Long> reportIds = Arrays.asList(1l, 2l, 3l);
+    when(rewardEntity.getReportIds()).thenReturn(reportIds);
+    when(rewardRepository.findById(rewardId)).thenReturn(Optional.of(rewardEntity));
+
+    hubReportService.computeUemReward(newHubReport(), fixedRewardIndex * 2, 2d);
+    verify(reportRepository, times(1)).save(any());
+    verify(rewardSummaryRepository).save(argThat(summary -> summary.isHasReports()
+        && summary.getEngagementScore() == 10d * reportIds.size() / multiplier));
+  }
+
   @Test
   void computeEngagementScore() {
     assertThrows(RuntimeException.class, () -> hubReportService.computeEngagementScore(reportId));
@@ -591,6 +623,85 @@ public class HubReportServiceTest {
     verify(reportRepository).save(any());
   }
 
+  @Test
+  void computeUemRewards() {
+    HubReportEntity rewardedReport = newHubReportEntity();
+    rewardedReport.setSentDate(sentDate.minusSeconds(604800l));
+    rewardedReport.setEngagementScore(0d);
+    HubReportEntity currentReport = newHubReportEntity();
+    currentReport.setReportId(reportId + 1);
+    currentReport.setUemRewardAmount(2d);
+    when(reportRepository.findByRewardId(rewardId)).thenReturn(Stream.of(rewardedReport, currentReport));
+    when(reportRepository.findByHubAddress(eq(StringUtils.lowerCase(hubAddress)),
+                                           any())).thenReturn(new PageImpl<>(Arrays.asList(currentReport, rewardedReport)));
+
+    UemRewardEntity rewardEntity = mock(UemRewardEntity.class);
+    int multiplier = 4;
+    when(rewardEntity.getRewardId()).thenReturn(rewardId);
+    when(rewardEntity.getFixedGlobalIndex()).thenReturn(fixedRewardIndex * multiplier);
+    when(rewardEntity.getAmount()).thenReturn(2d * multiplier);
+    List<Long> reportIds = Arrays.asList(1l, 2l, 3l);
+    when(rewardEntity.getReportIds()).thenReturn(reportIds);
+
+    UemRewardComputationResult result = hubReportService.computeUemRewards(rewardEntity);
+    assertNotNull(result);
+    assertEquals(2, result.getReportsCount());
+    assertEquals(1, result.getModifiedReportsCount());
+    assertEquals(0, result.getFailedReportsCount());
+    assertEquals(Collections.singleton(StringUtils.lowerCase(hubAddress)), result.getHubAddresses());
+    assertEquals(HubReportMapper.fromEntity(rewardedReport).getEd() + HubReportMapper.fromEntity(currentReport).getEd(),
+                 result.getSumEd());
+    assertEquals(2d, rewardedReport.getUemRewardAmount());
+    assertEquals(10d * reportIds.size() / multiplier, rewardedReport.getEngagementScore());
+    assertEquals(engagementScore, currentReport.getEngagementScore());
+    verify(reportRepository).saveAll(Collections.singletonList(rewardedReport));
+    verify(reportRepository, never()).save(any());
+    verify(rewardSummaryRepository).save(any());
+  }
+
+  @Test
+  void refreshHubRewardSummary() {
+    HubReportEntity lastSentReport = newHubReportEntity();
+    lastSentReport.setReportId(reportId + 1);
+    lastSentReport.setActionsCount(actionsCount + 1l);
+    lastSentReport.setEngagementScore(0d);
+    HubReportEntity lastRewardedReport = newHubReportEntity();
+    lastRewardedReport.setSentDate(sentDate.minusSeconds(604800l));
+    when(reportRepository.findByHubAddress(eq(StringUtils.lowerCase(hubAddress)),
+                                           any())).thenReturn(new PageImpl<>(Arrays.asList(lastSentReport,
+                                                                                           lastRewardedReport)));
+    when(rewardSummaryRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+
+    HubRewardSummaryEntity summary = hubReportService.refreshHubRewardSummary(hubAddress);
+    assertNotNull(summary);
+    assertEquals(StringUtils.lowerCase(hubAddress), summary.getHubAddress());
+    assertEquals(actionsCount + 1l, summary.getActionsCount());
+    assertEquals(hubTopRewardedAmount, summary.getTopHubReceiverAmount());
+    assertEquals(engagementScore, summary.getEngagementScore());
+    assertTrue(summary.isHasReports());
+    assertNotNull(summary.getComputedDate());
+    verify(rewardSummaryRepository).save(any());
+    verify(reportRepository, never()).save(any());
+  }
+
+  @Test
+  void getHubRewardSummaryWhenNotComputed() {
+    when(reportRepository.findByHubAddress(eq(StringUtils.lowerCase(hubAddress)),
+                                           any())).thenReturn(new PageImpl<>(Arrays.asList(newHubReportEntity())));
+    when(rewardSummaryRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+
+    HubRewardSummaryEntity summary = hubReportService.getHubRewardSummary(hubAddress);
+    assertNotNull(summary);
+    assertEquals(actionsCount, summary.getActionsCount());
+    assertEquals(0d, summary.getEngagementScore());
+    assertFalse(summary.isHasReports());
+    verify(rewardSummaryRepository).save(any());
+
+    when(rewardSummaryRepository.findById(StringUtils.lowerCase(hubAddress))).thenReturn(Optional.of(summary));
+    assertEquals(summary, hubReportService.getHubRewardSummary(hubAddress));
+    verify(rewardSummaryRepository).save(any());
+  }
+
   private HubReportVerifiableData newHubReportVerifiableData() {
     HubReportPayload reportPayload = new HubReportPayload(reportId,
                                                           hubAddress,
@@ -27,7 +27,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -56,6 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -238,6 +241,23 @@ class HubServiceTest {
   @BeforeEach
   void setup() {
     hubService.cleanTokens();
+    when(blockchainService.updateWomDeedAsync(anyLong(),
+                                              anyShort(),
+                                              anyShort(),
+                                              anyShort(),
+                                              anyLong(),
+                                              any(),
+                                              any(),
+                                              anyShort())).thenReturn(CompletableFuture.completedFuture(null));
+    when(blockchainService.autoConnectToWomAsync(anyLong(),
+                                                 anyShort(),
+                                                 anyShort(),
+                                                 anyShort(),
+                                                 anyLong(),
+                                                 any(),
+                                                 any(),
+                                                 any(),
+                                                 anyShort())).thenReturn(CompletableFuture.completedFuture(null));
   }
 
   @Test
@@ -393,18 +413,63 @@ class HubServiceTest {
     Hub hub = hubService.getHub(hubAddress, true);
     assertNotNull(hub);
     verify(listenerService).publishEvent(HUB_SAVED, hubAddress.toLowerCase());
-    verify(blockchainService).updateWomDeed(deedId,
-                                            city,
-                                            cardType,
-                                            mintingPower,
-                                            maxUsers,
-                                            deedOwnerAddress,
-                                            deedManagerAddress,
-                                            ownerPercentage);
+    verify(blockchainService).updateWomDeedAsync(deedId,
+                                                 city,
+                                                 cardType,
+                                                 mintingPower,
+                                                 maxUsers,
+                                                 deedOwnerAddress,
+                                                 deedManagerAddress,
+                                                 ownerPercentage);
     verify(listenerService, never()).publishEvent(HUB_CONNECTED, hubAddress.toLowerCase());
     verify(listenerService, never()).publishEvent(HUB_DISCONNECTED, hubAddress.toLowerCase());
   }
 
+  @Test
+  void updateDeedOnWomAsyncWhenSameUpdateIsBeingSent() throws Exception {
+    when(hubRepository.findByNftId(deedId)).thenReturn(Optional.of(newHubEntity()));
+    when(tenantService.getDeedTenantOrImport(deedId)).thenReturn(newDeedTenant());
+    when(blockchainService.getDeedOwner(deedId)).thenReturn(deedOwnerAddress);
+    when(blockchainService.isDeedOwner(deedOwnerAddress, deedId)).thenReturn(true);
+    when(blockchainService.getDeedManager(deedId)).thenReturn(deedManagerAddress);
+    when(blockchainService.isDeedProvisioningManager(deedManagerAddress, deedId)).thenReturn(true);
+    when(blockchainService.getDeedCityIndex(deedId)).thenReturn(city);
+    when(blockchainService.getDeedCardType(deedId)).thenReturn(cardType);
+    CompletableFuture<Void> transaction = new CompletableFuture<>();
+    when(blockchainService.updateWomDeedAsync(anyLong(),
+                                              anyShort(),
+                                              anyShort(),
+                                              anyShort(),
+                                              anyLong(),
+                                              any(),
+                                              any(),
+                                              anyShort())).thenReturn(transaction);
+
+    CompletableFuture<Boolean> update = hubService.updateDeedOnWomAsync(deedId, false);
+    assertSame(update, hubService.updateDeedOnWomAsync(deedId, true));
+    assertFalse(update.isDone());
+    transaction.complete(null);
+    assertTrue(update.get());
+    verify(blockchainService, times(1)).updateWomDeedAsync(eq(deedId),
+                                                           eq(city),
+                                                           eq(cardType),
+                                                           anyShort(),
+                                                           anyLong(),
+                                                           eq(deedOwnerAddress),
+                                                           eq(deedManagerAddress),
+                                                           anyShort());
+
+    assertNotSame(update, hubService.updateDeedOnWomAsync(deedId, false));
+    verify(blockchainService, times(2)).updateWomDeedAsync(eq(deedId),
+                                                           eq(city),
+                                                           eq(cardType),
+                                                           anyShort(),
+                                                           anyLong(),
+                                                           eq(deedOwnerAddress),
+                                                           eq(deedManagerAddress),
+                                                           anyShort());
+  }
+
   @Test
   void getHubByAddressWhenRefreshAndExistsInBlockchainAndDisconnectWhenChangeManager() throws ObjectNotFoundException,
                                                                                        WomException {
@@ -428,16 +493,16 @@ class HubServiceTest {
                                 invocation.getArgument(6),
                                 hubAddress,
                                 invocation.getArgument(7)));
-      return null;
+      return CompletableFuture.completedFuture(null);
     }).when(blockchainService)
-      .updateWomDeed(eq(deedId),
-                     anyShort(),
-                     anyShort(),
-                     anyShort(),
-                     anyLong(),
-                     anyString(),
-                     anyString(),
-                     anyShort());
+      .updateWomDeedAsync(eq(deedId),
+                          anyShort(),
+                          anyShort(),
+                          anyShort(),
+                          anyLong(),
+                          anyString(),
+                          anyString(),
+                          anyShort());
 
     ThreadLocal<HubEntity> hubEntityTL = new ThreadLocal<>();
     HubEntity hubEntity = newHubEntity();
@@ -469,14 +534,14 @@ class HubServiceTest {
     Hub hub = hubService.getHub(hubAddress, true);
     assertNotNull(hub);
     verify(listenerService).publishEvent(HUB_DISCONNECTED, hubAddress.toLowerCase());
-    verify(blockchainService).updateWomDeed(deedId,
-                                            city,
-                                            cardType,
-                                            mintingPower,
-                                            maxUsers,
-                                            deedOwnerAddress,
-                                            newDeedManagerAddress,
-                                            ownerPercentage);
+    verify(blockchainService).updateWomDeedAsync(deedId,
+                                                 city,
+                                                 cardType,
+                                                 mintingPower,
+                                                 maxUsers,
+                                                 deedOwnerAddress,
+                                                 newDeedManagerAddress,
+                                                 ownerPercentage);
   }
 
   @Test
@@ -501,16 +566,16 @@ class HubServiceTest {
                                 invocation.getArgument(6),
                                 hubAddress,
                                 invocation.getArgument(7)));
-      return null;
+      return CompletableFuture.completedFuture(null);
     }).when(blockchainService)
-      .updateWomDeed(eq(deedId),
-                     anyShort(),
-                     anyShort(),
-                     anyShort(),
-                     anyLong(),
-                     anyString(),
-                     anyString(),
-                     anyShort());
+      .updateWomDeedAsync(eq(deedId),
+                          anyShort(),
+                          anyShort(),
+                          anyShort(),
+                          anyLong(),
+                          anyString(),
+                          anyString(),
+                          anyShort());
 
     ThreadLocal<HubEntity> hubEntityTL = new ThreadLocal<>();
     HubEntity hubEntity = newHubEntity();
@@ -543,14 +608,14 @@ class HubServiceTest {
     Hub hub = hubService.getHub(hubAddress, true);
     assertNotNull(hub);
     verify(listenerService).publishEvent(HUB_CONNECTED, hubAddress.toLowerCase());
-    verify(blockchainService).updateWomDeed(deedId,
-                                            city,
-                                            cardType,
-                                            mintingPower,
-                                            maxUsers,
-                                            deedOwnerAddress,
-                                            deedManagerAddress,
-                                            ownerPercentage);
+    verify(blockchainService).updateWomDeedAsync(deedId,
+                                                 city,
+                                                 cardType,
+                                                 mintingPower,
+                                                 maxUsers,
+                                                 deedOwnerAddress,
+                                                 deedManagerAddress,
+                                                 ownerPercentage);
   }
 
   @Test
@@ -677,16 +742,16 @@ class HubServiceTest {
                                 invocation.getArgument(6),
                                 hubAddress,
                                 invocation.getArgument(7)));
-      return null;
+      return CompletableFuture.completedFuture(null);
     }).when(blockchainService)
-      .updateWomDeed(eq(deedId),
-                     anyShort(),
-                     anyShort(),
-                     anyShort(),
-                     anyLong(),
-                     anyString(),
-                     anyString(),
-                     anyShort());
+      .updateWomDeedAsync(eq(deedId),
+                          anyShort(),
+                          anyShort(),
+                          anyShort(),
+                          anyLong(),
+                          anyString(),
+                          anyString(),
+                          anyShort());
 
     ThreadLocal<HubEntity> hubEntityTL = new ThreadLocal<>();
     HubEntity hubEntity = newHubEntity();
@@ -731,14 +796,14 @@ class HubServiceTest {
     hubConnectionRequest.setDeedId(deedId);
     hubService.connectToWom(hubConnectionRequest);
     verify(listenerService).publishEvent(HUB_CONNECTED, hubAddress.toLowerCase());
-    verify(blockchainService).updateWomDeed(deedId,
-                                            city,
-                                            cardType,
-                                            mintingPower,
-                                            maxUsers,
-                                            deedOwnerAddress,
-                                            deedManagerAddress,
-                                            ownerPercentage);
+    verify(blockchainService).updateWomDeedAsync(deedId,
+                                                 city,
+                                                 cardType,
+                                                 mintingPower,
+                                                 maxUsers,
+                                                 deedOwnerAddress,
+                                                 deedManagerAddress,
+                                                 ownerPercentage);
   }
 
   @Test
@@ -822,16 +887,16 @@ class HubServiceTest {
                                 invocation.getArgument(6),
                                 hubAddress,
                                 invocation.getArgument(7)));
-      return null;
+      return CompletableFuture.completedFuture(null);
     }).when(blockchainService)
-      .updateWomDeed(eq(deedId),
-                     anyShort(),
-                     anyShort(),
-                     anyShort(),
-                     anyLong(),
-                     anyString(),
-                     anyString(),
-                     anyShort());
+      .updateWomDeedAsync(eq(deedId),
+                          anyShort(),
+                          anyShort(),
+                          anyShort(),
+                          anyLong(),
+                          anyString(),
+                          anyString(),
+                          anyShort());
 
     ThreadLocal<HubEntity> hubEntityTL = new ThreadLocal<>();
     HubEntity hubEntity = newHubEntity();
@@ -1133,17 +1198,17 @@ class HubServiceTest {
                                 invocation.getArgument(6),
                                 invocation.getArgument(7),
                                 invocation.getArgument(8)));
-      return null;
+      return CompletableFuture.completedFuture(null);
     }).when(blockchainService)
-      .autoConnectToWom(eq(deedId),
-                        anyShort(),
-                        anyShort(),
-                        anyShort(),
-                        anyLong(),
-                        anyString(),
-                        anyString(),
-                        anyString(),
-                        anyShort());
+      .autoConnectToWomAsync(eq(deedId),
+                             anyShort(),
+                             anyShort(),
+                             anyShort(),
+                             anyLong(),
+                             anyString(),
+                             anyString(),
+                             anyString(),
+                             anyShort());
 
     DeedTenantLeaseDTO lease = new DeedTenantLeaseDTO();
     lease.setNftId(deedId);
@@ -1175,15 +1240,15 @@ class HubServiceTest {
     hubService.autoConnectHubToWom(hubAddress, deedId);
 
     verify(listenerService).publishEvent(HUB_CONNECTED, hubAddress.toLowerCase());
-    verify(blockchainService).autoConnectToWom(deedId,
-                                               city,
-                                               cardType,
-                                               mintingPower,
-                                               maxUsers,
-                                               deedOwnerAddress,
-                                               deedManagerAddress,
-                                               hubAddress,
-                                               ownerPercentage);
+    verify(blockchainService).autoConnectToWomAsync(deedId,
+                                                    city,
+                                                    cardType,
+                                                    mintingPower,
+                                                    maxUsers,
+                                                    deedOwnerAddress,
+                                                    deedManagerAddress,
+                                                    hubAddress,
+                                                    ownerPercentage);
   }
 
   private DeedTenant newDeedTenant() {
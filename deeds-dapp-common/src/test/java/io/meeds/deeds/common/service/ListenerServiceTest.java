@@ -18,29 +18,46 @@ package io.meeds.deeds.common.service;
 import static io.meeds.deeds.common.listerner.model.EventSerialization.OBJECT_MAPPER;
 import static io.meeds.deeds.common.service.ListenerService.ES_LAST_SCANNED_DATE_SETTING_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
 
 import io.meeds.deeds.common.elasticsearch.model.DeedTenantEvent;
 import io.meeds.deeds.common.elasticsearch.storage.DeedTenantEventRepository;
 import io.meeds.deeds.common.listener.EventListener;
+import io.meeds.deeds.common.listener.ListenerEventDispatcher;
 import io.meeds.deeds.common.listerner.model.Event;
 
 import lombok.AllArgsConstructor;
@@ -50,9 +67,12 @@ import lombok.NoArgsConstructor;
 
 @SpringBootTest(classes = {
     ListenerService.class,
+    ListenerEventDispatcher.class,
 }, properties = {
     "meeds.elasticsearch.listener.clientName=" + ListenerServiceTest.CLIENT_NAME,
     "meeds.elasticsearch.listener.events.cleanupHoursPeriodicity=" + ListenerServiceTest.CLEANUP_HOURS_PERIODICITY,
+    "meeds.elasticsearch.listener.events.pageSize=" + ListenerServiceTest.EVENTS_PAGE_SIZE,
+    "meeds.elasticsearch.listener.events.handlingTimeoutSeconds=1",
 })
 class ListenerServiceTest {
 
@@ -60,6 +80,8 @@ class ListenerServiceTest {
 
   public static final long          CLEANUP_HOURS_PERIODICITY = 1l;
 
+  public static final int           EVENTS_PAGE_SIZE          = 3;
+
   private static final String       EVENT_NAME                = "test.event";
 
   private static final String       OTHER_EVENT_NAME          = "test.otherevent";
@@ -72,6 +94,9 @@ class ListenerServiceTest {
   @MockBean
   private DeedTenantEventRepository deedTenantEventRepository;
 
+  @MockBean
+  private ElasticsearchOperations   elasticsearchOperations;
+
   @Autowired
   private ListenerService           listenerService;
 
@@ -153,19 +178,50 @@ class ListenerServiceTest {
     Instant eventDate = now.plusSeconds(5);
     List<String> consumers = Collections.emptyList();
     String objectJson = OBJECT_MAPPER.writeValueAsString(new Event(EVENT_NAME, eventData, eventData.getClass().getName()));
-    List<DeedTenantEvent> events = Collections.singletonList(new DeedTenantEvent(EVENT_NAME, objectJson, consumers, eventDate));
-    when(deedTenantEventRepository.findByDateGreaterThanEqualAndConsumersNotOrderByDateAsc(now, CLIENT_NAME)).thenReturn(events);
+    DeedTenantEvent event = new DeedTenantEvent("1", EVENT_NAME, objectJson, consumers, eventDate);
+    mockSearchEvents(Collections.singletonList(event));
 
     assertEquals(0, eventListener.getEventCount());
     assertNull(eventListener.getEventData());
     assertNull(eventListener.getEventName());
 
+    long acknowledgedEventCount = listenerService.getAcknowledgedEventCount().get();
     listenerService.triggerElasticSearchEvents();
 
     assertEquals(1, eventListener.getEventCount());
     assertEquals(eventData, eventListener.getEventData());
     assertEquals(EVENT_NAME, eventListener.getEventName());
 
+    verify(elasticsearchOperations, times(1)).bulkUpdate(argThat(new ArgumentMatcher<List<UpdateQuery>>() {
+      @Override
+      public boolean matches(List<UpdateQuery> queries) {
+        return queries != null
+            && queries.size() == 1
+            && queries.get(0).getId().equals("1")
+            && CLIENT_NAME.equals(queries.get(0).getParams().get("consumer"));
+      }
+    }), eq(DeedTenantEvent.class));
+    verify(deedTenantEventRepository, never()).save(any());
+    verify(settingService).save(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME, eventDate.toEpochMilli() + ":1");
+    assertEquals(1, listenerService.getAcknowledgedEventCount().get() - acknowledgedEventCount);
+  }
+
+  @Test
+  void testAcknowledgeEventsOneByOneWhenBulkFails() throws Exception {
+    long currentTimeMillis = System.currentTimeMillis();
+    when(settingService.get(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME)).thenReturn(String.valueOf(currentTimeMillis));
+    String objectJson = OBJECT_MAPPER.writeValueAsString(new Event(EVENT_NAME, eventData, eventData.getClass().getName()));
+    DeedTenantEvent event = new DeedTenantEvent("1",
+                                                EVENT_NAME,
+                                                objectJson,
+                                                Collections.emptyList(),
+                                                Instant.ofEpochMilli(currentTimeMillis + 1));
+    mockSearchEvents(Collections.singletonList(event));
+    doThrow(IllegalStateException.class).when(elasticsearchOperations).bulkUpdate(anyList(), eq(DeedTenantEvent.class));
+
+    listenerService.triggerElasticSearchEvents();
+
+    assertEquals(1, eventListener.getEventCount());
     verify(deedTenantEventRepository, times(1)).save(argThat(new ArgumentMatcher<DeedTenantEvent>() {
       @Override
       public boolean matches(DeedTenantEvent deedTenantEvent) {
@@ -174,6 +230,132 @@ class ListenerServiceTest {
     }));
   }
 
+  @Test
+  void testTriggerElasticSearchEventsByPage() throws Exception {
+    long currentTimeMillis = System.currentTimeMillis();
+    String lastScannedValue = currentTimeMillis + ":0";
+    when(settingService.get(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME)).thenReturn(lastScannedValue);
+
+    String objectJson = OBJECT_MAPPER.writeValueAsString(new Event(EVENT_NAME, eventData, eventData.getClass().getName()));
+    List<DeedTenantEvent> firstPage = new ArrayList<>();
+    for (int i = 1; i <= EVENTS_PAGE_SIZE; i++) {
+      firstPage.add(new DeedTenantEvent(String.valueOf(i),
+                                        EVENT_NAME,
+                                        objectJson,
+                                        Collections.emptyList(),
+                                        Instant.ofEpochMilli(currentTimeMillis + i)));
+    }
+    DeedTenantEvent lastEvent = new DeedTenantEvent(String.valueOf(EVENTS_PAGE_SIZE + 1),
+                                                    EVENT_NAME,
+                                                    objectJson,
+                                                    Collections.emptyList(),
+                                                    Instant.ofEpochMilli(currentTimeMillis + EVENTS_PAGE_SIZE + 1));
+    mockSearchEvents(firstPage, Collections.singletonList(lastEvent));
+
+    listenerService.triggerElasticSearchEvents();
+
+    assertEquals(EVENTS_PAGE_SIZE + 1, eventListener.getEventCount());
+    ArgumentCaptor<CriteriaQuery> queryCaptor = ArgumentCaptor.forClass(CriteriaQuery.class);
+    verify(elasticsearchOperations, times(2)).search(queryCaptor.capture(), eq(DeedTenantEvent.class));
+    assertEquals(Arrays.asList(currentTimeMillis, "0"), queryCaptor.getAllValues().get(0).getSearchAfter());
+    assertEquals(Arrays.asList(currentTimeMillis + EVENTS_PAGE_SIZE, String.valueOf(EVENTS_PAGE_SIZE)),
+                 queryCaptor.getAllValues().get(1).getSearchAfter());
+    verify(settingService).save(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME,
+                                (currentTimeMillis + EVENTS_PAGE_SIZE) + ":" + EVENTS_PAGE_SIZE);
+    verify(settingService).save(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME,
+                                (currentTimeMillis + EVENTS_PAGE_SIZE + 1) + ":" + (EVENTS_PAGE_SIZE + 1));
+  }
+
+  @Test
+  void testTriggerElasticSearchEventsPublishedInSameMillisecond() throws Exception {
+    // No identifier generated by the repository, as Elasticsearch does
+    when(deedTenantEventRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    for (int i = 0; i <= EVENTS_PAGE_SIZE; i++) {
+      listenerService.publishEvent(EVENT_NAME, newData(i));
+    }
+    ArgumentCaptor<DeedTenantEvent> eventCaptor = ArgumentCaptor.forClass(DeedTenantEvent.class);
+    verify(deedTenantEventRepository, times(EVENTS_PAGE_SIZE + 1)).save(eventCaptor.capture());
+    List<DeedTenantEvent> events = eventCaptor.getAllValues();
+
+    Instant eventDate = Instant.now();
+    for (int i = 0; i < events.size(); i++) {
+      DeedTenantEvent event = events.get(i);
+      assertNotNull(event.getId());
+      if (i > 0) {
+        assertTrue(event.getId().compareTo(events.get(i - 1).getId()) > 0);
+      }
+      event.setConsumers(Collections.emptyList());
+      event.setDate(eventDate);
+    }
+    String lastScannedValue = String.valueOf(eventDate.toEpochMilli());
+    when(settingService.get(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME)).thenReturn(lastScannedValue);
+    mockSearchEvents(events.subList(0, EVENTS_PAGE_SIZE), events.subList(EVENTS_PAGE_SIZE, events.size()));
+
+    listenerService.triggerElasticSearchEvents();
+
+    ArgumentCaptor<CriteriaQuery> queryCaptor = ArgumentCaptor.forClass(CriteriaQuery.class);
+    verify(elasticsearchOperations, times(2)).search(queryCaptor.capture(), eq(DeedTenantEvent.class));
+    // The second page starts after the last event of the first page sharing
+    // the same date
+    assertEquals(Arrays.asList(eventDate.toEpochMilli(), events.get(EVENTS_PAGE_SIZE - 1).getId()),
+                 queryCaptor.getAllValues().get(1).getSearchAfter());
+    verify(settingService).save(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME,
+                                eventDate.toEpochMilli() + ":" + events.get(EVENTS_PAGE_SIZE).getId());
+  }
+
+  @Test
+  void testDontTriggerAgainEventStillHandled() throws Exception {
+    CountDownLatch handlingLatch = new CountDownLatch(1);
+    AsyncListenerTest asyncListener = new AsyncListenerTest(handlingLatch);
+    listenerService.addListener(asyncListener);
+
+    long currentTimeMillis = System.currentTimeMillis();
+    when(settingService.get(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME)).thenReturn(String.valueOf(currentTimeMillis));
+    String objectJson = OBJECT_MAPPER.writeValueAsString(new Event(EVENT_NAME, eventData, eventData.getClass().getName()));
+    DeedTenantEvent event = new DeedTenantEvent("in-flight",
+                                                EVENT_NAME,
+                                                objectJson,
+                                                Collections.emptyList(),
+                                                Instant.ofEpochMilli(currentTimeMillis + 1));
+    // Event returned by each scan until acknowledged
+    mockSearchEvents(Collections.singletonList(event));
+
+    long acknowledgedEventCount = listenerService.getAcknowledgedEventCount().get();
+    // Handling timeout reached
+    listenerService.triggerElasticSearchEvents();
+    assertEquals(0, listenerService.getAcknowledgedEventCount().get() - acknowledgedEventCount);
+    // Event still handled by the asynchronous listener
+    listenerService.triggerElasticSearchEvents();
+    assertEquals(0, listenerService.getAcknowledgedEventCount().get() - acknowledgedEventCount);
+    verify(settingService, never()).save(eq(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME),
+                                         argThat(value -> value.endsWith(":in-flight")));
+
+    handlingLatch.countDown();
+    long timeout = System.currentTimeMillis() + 5000;
+    while (listenerService.getAcknowledgedEventCount().get() == acknowledgedEventCount
+        && System.currentTimeMillis() < timeout) {
+      Thread.sleep(50);
+      listenerService.triggerElasticSearchEvents();
+    }
+    assertEquals(1, listenerService.getAcknowledgedEventCount().get() - acknowledgedEventCount);
+    assertEquals(1, asyncListener.getEventCount());
+    assertEquals(1, eventListener.getEventCount());
+    verify(settingService).save(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME,
+                                (currentTimeMillis + 1) + ":in-flight");
+  }
+
+  @Test
+  void testSkipScanWhenAlreadyScanning() {
+    long stamp = ListenerService.ELASTIC_SEARCH_EVENT_READING_LOCK.writeLock();
+    try {
+      listenerService.triggerElasticSearchEvents();
+    } finally {
+      ListenerService.ELASTIC_SEARCH_EVENT_READING_LOCK.unlockWrite(stamp);
+    }
+    verify(elasticsearchOperations, never()).search(any(CriteriaQuery.class), eq(DeedTenantEvent.class));
+    verify(settingService, never()).save(eq(ES_LAST_SCANNED_DATE_SETTING_NAME + "-" + CLIENT_NAME), any());
+  }
+
   @Test
   void testCleanupElasticsearchEvents() throws Exception {
     long currentTimeMillis = System.currentTimeMillis();
@@ -187,6 +369,29 @@ class ListenerServiceTest {
                                                                                ChronoUnit.HOURS));
   }
 
+  @SafeVarargs
+  @SuppressWarnings("unchecked")
+  private void mockSearchEvents(List<DeedTenantEvent> firstPage, List<DeedTenantEvent>... nextPages) {
+    SearchHits<DeedTenantEvent> firstSearchHits = newSearchHits(firstPage);
+    SearchHits<DeedTenantEvent>[] nextSearchHits = Arrays.stream(nextPages)
+                                                         .map(this::newSearchHits)
+                                                         .toArray(SearchHits[]::new);
+    when(elasticsearchOperations.search(any(CriteriaQuery.class), eq(DeedTenantEvent.class))).thenReturn(firstSearchHits,
+                                                                                                        nextSearchHits);
+  }
+
+  @SuppressWarnings("unchecked")
+  private SearchHits<DeedTenantEvent> newSearchHits(List<DeedTenantEvent> events) {
+    List<SearchHit<DeedTenantEvent>> hits = events.stream().map(event -> {
+      SearchHit<DeedTenantEvent> searchHit = mock(SearchHit.class);
+      when(searchHit.getContent()).thenReturn(event);
+      return searchHit;
+    }).toList();
+    SearchHits<DeedTenantEvent> searchHits = mock(SearchHits.class);
+    when(searchHits.getSearchHits()).thenReturn(hits);
+    return searchHits;
+  }
+
   private EventData newData(int data) {
     return new EventData(data);
   }
@@ -220,6 +425,39 @@ class ListenerServiceTest {
     }
   }
 
+  public static class AsyncListenerTest implements EventListener<ListenerServiceTest.EventData> {
+
+    private final CountDownLatch handlingLatch;
+
+    @Getter
+    private volatile int         eventCount;
+
+    public AsyncListenerTest(CountDownLatch handlingLatch) {
+      this.handlingLatch = handlingLatch;
+    }
+
+    @Override
+    public void onEvent(String name, EventData data) throws Exception {
+      eventCount++; // NOSONAR
+      handlingLatch.await(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public boolean isAsync() {
+      return true;
+    }
+
+    @Override
+    public List<String> getSupportedEvents() {
+      return Collections.singletonList(EVENT_NAME);
+    }
+
+    @Override
+    public String getName() {
+      return "listener.async";
+    }
+  }
+
   @Data
   @AllArgsConstructor
   @NoArgsConstructor
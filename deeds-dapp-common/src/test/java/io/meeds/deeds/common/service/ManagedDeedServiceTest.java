@@ -0,0 +1,145 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.deeds.common.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import io.meeds.deeds.common.constant.DeedCard;
+import io.meeds.deeds.common.constant.DeedCity;
+import io.meeds.deeds.common.constant.TenantProvisioningStatus;
+import io.meeds.deeds.common.elasticsearch.model.ManagedDeedsEntity;
+import io.meeds.deeds.common.elasticsearch.storage.HubRepository;
+import io.meeds.deeds.common.elasticsearch.storage.ManagedDeedsRepository;
+import io.meeds.deeds.common.model.ManagedDeed;
+import io.meeds.deeds.common.utils.ManagedDeedMapper;
+
+@SpringBootTest(classes = {
+    ManagedDeedService.class,
+}, properties = {
+    "meeds.hub.managedDeeds.maxAgeSeconds=3600",
+})
+class ManagedDeedServiceTest {
+
+  private static final String    ADDRESS         = "0x609a6f01b7976439603356e41d5456b42df957b7";
+
+  private static final String    MANAGER_ADDRESS = "0x0143b71443650aa8efa76bd82f35c22ebd558090";
+
+  @MockBean
+  private HubService             hubService;
+
+  @MockBean
+  private HubRepository          hubRepository;
+
+  @MockBean
+  private ManagedDeedsRepository managedDeedsRepository;
+
+  @Autowired
+  private ManagedDeedService     managedDeedService;
+
+  @Test
+  void testComputeManagedDeedsWhenNoProjection() {
+    Instant leaseEndDate = Instant.now().plus(1, ChronoUnit.MINUTES);
+    List<ManagedDeed> deeds = List.of(newManagedDeed(1, null), newManagedDeed(2, leaseEndDate));
+    when(hubService.getManagedDeeds(ADDRESS)).thenReturn(deeds);
+
+    assertEquals(deeds, managedDeedService.getManagedDeeds(ADDRESS.toUpperCase(), false));
+    verify(managedDeedsRepository).save(argThat(entity -> ADDRESS.equals(entity.getAddress())
+        && entity.getDeeds().size() == 2
+        && leaseEndDate.equals(entity.getValidUntil())));
+  }
+
+  @Test
+  void testGetManagedDeedsFromProjection() {
+    List<ManagedDeed> deeds = List.of(newManagedDeed(1, null));
+    ManagedDeedsEntity entity = ManagedDeedMapper.toEntity(ADDRESS,
+                                                           deeds,
+                                                           Instant.now(),
+                                                           Instant.now().plus(1, ChronoUnit.HOURS));
+    when(managedDeedsRepository.findById(ADDRESS)).thenReturn(Optional.of(entity));
+
+    assertEquals(deeds, managedDeedService.getManagedDeeds(ADDRESS, false));
+    verify(hubService, never()).getManagedDeeds(any());
+
+    managedDeedService.getManagedDeeds(ADDRESS, true);
+    verify(hubService, times(1)).getManagedDeeds(ADDRESS);
+
+    entity.setValidUntil(Instant.now().minusSeconds(1));
+    managedDeedService.getManagedDeeds(ADDRESS, false);
+    verify(hubService, times(2)).getManagedDeeds(ADDRESS);
+  }
+
+  @Test
+  void testRefreshExistingProjectionsOnly() {
+    when(managedDeedsRepository.existsById(ADDRESS)).thenReturn(true);
+    when(hubService.getManagedDeeds(ADDRESS)).thenReturn(Collections.emptyList());
+
+    managedDeedService.refreshManagedDeeds(ADDRESS, MANAGER_ADDRESS, null);
+    verify(hubService, times(1)).getManagedDeeds(ADDRESS);
+    verify(hubService, never()).getManagedDeeds(MANAGER_ADDRESS);
+    verify(managedDeedsRepository).save(argThat(entity -> ADDRESS.equals(entity.getAddress())
+        && entity.getValidUntil().isAfter(Instant.now().plus(59, ChronoUnit.MINUTES))));
+    assertTrue(managedDeedService.getManagedDeeds(ADDRESS, true).isEmpty());
+  }
+
+  @Test
+  void testUpdateManagedDeedStatus() {
+    List<ManagedDeed> deeds = List.of(newManagedDeed(1, null), newManagedDeed(2, null));
+    ManagedDeedsEntity entity = ManagedDeedMapper.toEntity(ADDRESS,
+                                                           deeds,
+                                                           Instant.now(),
+                                                           Instant.now().plus(1, ChronoUnit.HOURS));
+    when(managedDeedsRepository.findById(ADDRESS)).thenReturn(Optional.of(entity));
+
+    managedDeedService.updateManagedDeedStatus(2, TenantProvisioningStatus.START_IN_PROGRESS, ADDRESS, MANAGER_ADDRESS);
+    verify(hubService, never()).getManagedDeeds(any());
+    verify(managedDeedsRepository).save(argThat(savedEntity -> ADDRESS.equals(savedEntity.getAddress())
+        && savedEntity.getDeeds().get(0).getProvisioningStatus() == null
+        && savedEntity.getDeeds().get(1).getProvisioningStatus() == TenantProvisioningStatus.START_IN_PROGRESS
+        // Expires early to retrieve the confirmed status
+        && savedEntity.getValidUntil().isBefore(Instant.now().plus(1, ChronoUnit.MINUTES))));
+  }
+
+  private ManagedDeed newManagedDeed(long nftId, Instant endDate) {
+    return new ManagedDeed(nftId,
+                           DeedCity.TANIT,
+                           DeedCard.COMMON,
+                           null,
+                           ADDRESS,
+                           endDate == null ? ADDRESS : MANAGER_ADDRESS,
+                           endDate == null ? null : Instant.now().minus(1, ChronoUnit.DAYS),
+                           endDate,
+                           false);
+  }
+
+}
@@ -0,0 +1,48 @@
+// SPDX-License-Identifier: UNLICENSED
+pragma solidity 0.8.9;
+
+/**
+ * @title Read only subset of Multicall3 contract allowing to aggregate
+ * multiple view function calls into a single eth_call.
+ * The function signatures are the same as the ones of the Multicall3
+ * contract deployed on Ethereum and Polygon networks
+ * (0xcA11bde05977b3631167028862bE2a173976CA11), thus the generated
+ * wrapper can be used to query the deployed contract as well.
+ */
+contract Multicall3 {
+
+    struct Call3 {
+        address target;
+        bool allowFailure;
+        bytes callData;
+    }
+
+    struct Result {
+        bool success;
+        bytes returnData;
+    }
+
+    /**
+     * @dev Aggregate calls, ensuring each returns success if required
+     * @param calls An array of Call3 structs
+     * @return returnData An array of Result structs
+     */
+    function aggregate3(Call3[] calldata calls) public view returns (Result[] memory returnData) {
+        uint256 length = calls.length;
+        returnData = new Result[](length);
+        for (uint256 i = 0; i < length; i++) {
+            Call3 calldata call = calls[i];
+            (bool success, bytes memory data) = call.target.staticcall(call.callData);
+            require(success || call.allowFailure, "Multicall3: call failed");
+            returnData[i] = Result(success, data);
+        }
+    }
+
+    /**
+     * @return blockNumber The block number
+     */
+    function getBlockNumber() public view returns (uint256 blockNumber) {
+        blockNumber = block.number;
+    }
+
+}
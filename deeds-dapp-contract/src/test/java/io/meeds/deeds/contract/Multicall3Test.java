@@ -0,0 +1,85 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package io.meeds.deeds.contract;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.EVMTest;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.tx.TransactionManager;
+import org.web3j.tx.gas.ContractGasProvider;
+import org.web3j.utils.Numeric;
+
+import io.meeds.deeds.contract.Multicall3.Call3;
+import io.meeds.deeds.contract.Multicall3.Result;
+
+@EVMTest
+public class Multicall3Test {
+
+  private Multicall3 multicall;
+
+  @BeforeEach
+  public void init(Web3j web3j,
+                   TransactionManager transactionManager,
+                   ContractGasProvider contractGasProvider) throws Exception {
+    this.multicall = Multicall3.deploy(web3j, transactionManager, contractGasProvider).send();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void aggregate3() throws Exception {
+    Function getBlockNumber = new Function(Multicall3.FUNC_GETBLOCKNUMBER,
+                                           Collections.emptyList(),
+                                           Collections.<TypeReference<?>> singletonList(new TypeReference<Uint256>() {
+                                           }));
+    byte[] getBlockNumberData = Numeric.hexStringToByteArray(FunctionEncoder.encode(getBlockNumber));
+    byte[] unknownFunctionData = Numeric.hexStringToByteArray("0x12345678");
+
+    List<Result> results = multicall.aggregate3(Arrays.asList(new Call3(multicall.getContractAddress(),
+                                                                        true,
+                                                                        getBlockNumberData),
+                                                              new Call3(multicall.getContractAddress(),
+                                                                        true,
+                                                                        unknownFunctionData)))
+                                    .send();
+    assertEquals(2, results.size());
+
+    assertTrue(results.get(0).success);
+    @SuppressWarnings("rawtypes")
+    List<Type> values = FunctionReturnDecoder.decode(Numeric.toHexString(results.get(0).returnData),
+                                                     getBlockNumber.getOutputParameters());
+    BigInteger blockNumber = multicall.getBlockNumber().send();
+    assertEquals(blockNumber, values.get(0).getValue());
+
+    assertFalse(results.get(1).success);
+  }
+
+}
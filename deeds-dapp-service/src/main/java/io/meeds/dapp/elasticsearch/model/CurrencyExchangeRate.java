@@ -36,7 +36,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(indexName = "currency_exchange_rate", createIndex = true)
-@Setting(sortFields = "date", sortOrders = SortOrder.desc, replicas = 0, shards = 1)
+@Setting(sortFields = "date", sortOrders = SortOrder.desc)
 public class CurrencyExchangeRate {
 
   @Id
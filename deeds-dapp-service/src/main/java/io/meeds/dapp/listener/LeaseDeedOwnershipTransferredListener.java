@@ -52,6 +52,16 @@ public class LeaseDeedOwnershipTransferredListener implements EventListener<Deed
     return SUPPORTED_EVENTS;
   }
 
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public Object getOrderingKey(String eventName, DeedOwnershipTransferEvent ownershipTransferEvent) {
+    return ownershipTransferEvent.getNftId();
+  }
+
   @Override
   public void onEvent(String eventName, DeedOwnershipTransferEvent ownershipTransferEvent) {
     String oldOwner = ownershipTransferEvent.getFrom();
@@ -0,0 +1,125 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.dapp.listener;
+
+import static io.meeds.deeds.common.constant.CommonConstants.DEED_OWNERSHIP_TRANSFERRED_BLOCKCHAIN_EVENT;
+import static io.meeds.deeds.common.constant.CommonConstants.DEED_TENANT_OWNERSHIP_TRANSFERRED_EVENT;
+import static io.meeds.deeds.common.constant.CommonConstants.TENANT_COMMAND_START_EVENT;
+import static io.meeds.deeds.common.constant.CommonConstants.TENANT_COMMAND_STOP_EVENT;
+import static io.meeds.deeds.common.constant.CommonConstants.TENANT_STATUS_UPDATED_EVENT;
+import static io.meeds.deeds.common.service.HubService.HUB_CONNECTED;
+import static io.meeds.deeds.common.service.HubService.HUB_DISCONNECTED;
+import static io.meeds.deeds.common.service.HubService.HUB_SAVED;
+import static io.meeds.deeds.common.service.LeaseService.LEASE_ACQUIRED_EVENT;
+import static io.meeds.deeds.common.service.LeaseService.LEASE_ACQUISITION_CONFIRMED_EVENT;
+import static io.meeds.deeds.common.service.LeaseService.LEASE_ENDED_CONFIRMED_EVENT;
+import static io.meeds.deeds.common.service.LeaseService.LEASE_END_EVENT;
+import static io.meeds.deeds.common.service.LeaseService.LEASE_TENANT_EVICTED_CONFIRMED_EVENT;
+import static io.meeds.deeds.common.service.LeaseService.LEASE_TENANT_EVICT_EVENT;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import io.meeds.deeds.common.constant.CommonConstants.DeedOwnershipTransferEvent;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenant;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantLease;
+import io.meeds.deeds.common.listener.EventListener;
+import io.meeds.deeds.common.model.DeedTenantLeaseDTO;
+import io.meeds.deeds.common.service.ManagedDeedService;
+
+/**
+ * Refreshes the stored projections of managed Deeds of the addresses
+ * impacted by a Deed ownership, Lease, Tenant or Hub change. A Tenant start,
+ * stop or status change updates only the Deed of the Tenant.
+ */
+@Service
+public class ManagedDeedsListener implements EventListener<Object> {
+
+  public static final String        LISTENER_NAME    = "ManagedDeedsListener";
+
+  private static final List<String> SUPPORTED_EVENTS = Arrays.asList(DEED_OWNERSHIP_TRANSFERRED_BLOCKCHAIN_EVENT,
+                                                                     DEED_TENANT_OWNERSHIP_TRANSFERRED_EVENT,
+                                                                     LEASE_ACQUIRED_EVENT,
+                                                                     LEASE_ACQUISITION_CONFIRMED_EVENT,
+                                                                     LEASE_END_EVENT,
+                                                                     LEASE_ENDED_CONFIRMED_EVENT,
+                                                                     LEASE_TENANT_EVICT_EVENT,
+                                                                     LEASE_TENANT_EVICTED_CONFIRMED_EVENT,
+                                                                     TENANT_COMMAND_START_EVENT,
+                                                                     TENANT_COMMAND_STOP_EVENT,
+                                                                     TENANT_STATUS_UPDATED_EVENT,
+                                                                     HUB_SAVED,
+                                                                     HUB_CONNECTED,
+                                                                     HUB_DISCONNECTED);
+
+  @Autowired
+  private ManagedDeedService        managedDeedService;
+
+  @Override
+  public String getName() {
+    return LISTENER_NAME;
+  }
+
+  @Override
+  public List<String> getSupportedEvents() {
+    return SUPPORTED_EVENTS;
+  }
+
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public Object getOrderingKey(String eventName, Object data) {
+    if (data instanceof DeedOwnershipTransferEvent transferEvent) {
+      return transferEvent.getNftId();
+    } else if (data instanceof DeedTenantLease lease) {
+      return lease.getNftId();
+    } else if (data instanceof DeedTenantLeaseDTO lease) {
+      return lease.getNftId();
+    } else if (data instanceof DeedTenant deedTenant) {
+      return deedTenant.getNftId();
+    } else {
+      return data;
+    }
+  }
+
+  @Override
+  public void onEvent(String eventName, Object data) {
+    if (data instanceof DeedOwnershipTransferEvent transferEvent) {
+      managedDeedService.refreshManagedDeeds(transferEvent.getFrom(), transferEvent.getTo());
+    } else if (data instanceof DeedTenantLease lease) {
+      managedDeedService.refreshManagedDeeds(lease.getOwner(), lease.getManager());
+    } else if (data instanceof DeedTenantLeaseDTO lease) {
+      managedDeedService.refreshManagedDeeds(lease.getOwnerAddress(), lease.getManagerAddress());
+    } else if (data instanceof DeedTenant deedTenant && deedTenant.getTenantProvisioningStatus() != null) {
+      // Only the Tenant status changes, no need to retrieve all the Deeds
+      managedDeedService.updateManagedDeedStatus(deedTenant.getNftId(),
+                                                 deedTenant.getTenantProvisioningStatus(),
+                                                 deedTenant.getOwnerAddress(),
+                                                 deedTenant.getManagerAddress());
+    } else if (data instanceof DeedTenant deedTenant) {
+      managedDeedService.refreshManagedDeeds(deedTenant.getOwnerAddress(), deedTenant.getManagerAddress());
+    } else if (data instanceof String hubAddress) {
+      managedDeedService.refreshHubManagedDeeds(hubAddress);
+    }
+  }
+
+}
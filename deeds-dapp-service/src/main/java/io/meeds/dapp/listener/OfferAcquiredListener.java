@@ -58,6 +58,16 @@ public class OfferAcquiredListener implements EventListener<DeedTenantLeaseDTO>
     return SUPPORTED_EVENTS;
   }
 
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public Object getOrderingKey(String eventName, DeedTenantLeaseDTO lease) {
+    return lease.getNftId();
+  }
+
   @Override
   public void onEvent(String eventName, DeedTenantLeaseDTO lease) {
     if (!lease.isConfirmed()) {
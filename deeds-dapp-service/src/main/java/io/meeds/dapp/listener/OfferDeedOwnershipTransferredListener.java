@@ -48,6 +48,16 @@ public class OfferDeedOwnershipTransferredListener implements EventListener<Deed
     return SUPPORTED_EVENTS;
   }
 
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public Object getOrderingKey(String eventName, DeedOwnershipTransferEvent ownershipTransferEvent) {
+    return ownershipTransferEvent.getNftId();
+  }
+
   @Override
   public void onEvent(String eventName, DeedOwnershipTransferEvent ownershipTransferEvent) {
     String oldOwner = ownershipTransferEvent.getFrom();
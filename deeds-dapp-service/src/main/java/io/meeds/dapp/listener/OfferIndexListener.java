@@ -0,0 +1,103 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.dapp.listener;
+
+import static io.meeds.deeds.common.service.OfferService.OFFER_ACQUISITION_CONFIRMED_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_ACQUISITION_PROGRESS_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_CANCELED_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_CREATED_CONFIRMED_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_CREATED_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_DELETED_CONFIRMED_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_DELETED_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_UPDATED_CONFIRMED_EVENT;
+import static io.meeds.deeds.common.service.OfferService.OFFER_UPDATED_EVENT;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantOffer;
+import io.meeds.deeds.common.listener.EventListener;
+import io.meeds.deeds.common.model.DeedTenantOfferDTO;
+import io.meeds.deeds.common.service.OfferIndexService;
+
+/**
+ * Refreshes offers of the in-memory offers index when modified, especially
+ * when the modification is made by another node and retrieved from
+ * Elasticsearch events.
+ */
+@Service
+public class OfferIndexListener implements EventListener<Object> {
+
+  public static final String        LISTENER_NAME    = "OfferIndexListener";
+
+  private static final List<String> SUPPORTED_EVENTS = Arrays.asList(OFFER_CREATED_EVENT,
+                                                                     OFFER_CREATED_CONFIRMED_EVENT,
+                                                                     OFFER_UPDATED_EVENT,
+                                                                     OFFER_UPDATED_CONFIRMED_EVENT,
+                                                                     OFFER_DELETED_EVENT,
+                                                                     OFFER_DELETED_CONFIRMED_EVENT,
+                                                                     OFFER_CANCELED_EVENT,
+                                                                     OFFER_ACQUISITION_PROGRESS_EVENT,
+                                                                     OFFER_ACQUISITION_CONFIRMED_EVENT);
+
+  @Autowired
+  private OfferIndexService         offerIndexService;
+
+  @Override
+  public String getName() {
+    return LISTENER_NAME;
+  }
+
+  @Override
+  public List<String> getSupportedEvents() {
+    return SUPPORTED_EVENTS;
+  }
+
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public Object getOrderingKey(String eventName, Object offer) {
+    return getOfferId(offer);
+  }
+
+  @Override
+  public void onEvent(String eventName, Object offer) {
+    if (!offerIndexService.isLoaded()) {
+      return;
+    }
+    String offerId = getOfferId(offer);
+    if (offerId != null) {
+      offerIndexService.refreshOffer(offerId);
+    }
+  }
+
+  private String getOfferId(Object offer) {
+    if (offer instanceof DeedTenantOffer deedTenantOffer) {
+      return deedTenantOffer.getParentId() == null ? deedTenantOffer.getId() : deedTenantOffer.getParentId();
+    } else if (offer instanceof DeedTenantOfferDTO deedTenantOffer) {
+      return deedTenantOffer.getParentId() == null ? deedTenantOffer.getId() : deedTenantOffer.getParentId();
+    } else {
+      return null;
+    }
+  }
+
+}
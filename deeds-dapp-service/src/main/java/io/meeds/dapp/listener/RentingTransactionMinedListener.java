@@ -0,0 +1,140 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 - 2024 Meeds Association contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.dapp.listener;
+
+import static io.meeds.deeds.common.constant.CommonConstants.DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import io.meeds.deeds.common.constant.BlockchainLeaseStatus;
+import io.meeds.deeds.common.constant.BlockchainOfferStatus;
+import io.meeds.deeds.common.elasticsearch.model.DeedTenantLease;
+import io.meeds.deeds.common.listener.EventListener;
+import io.meeds.deeds.common.model.DeedLeaseBlockchainState;
+import io.meeds.deeds.common.model.DeedOfferBlockchainState;
+import io.meeds.deeds.common.model.DeedTenantOfferDTO;
+import io.meeds.deeds.common.service.BlockchainService;
+import io.meeds.deeds.common.service.LeaseService;
+import io.meeds.deeds.common.service.OfferService;
+
+/**
+ * Applies immediately the mined Renting transactions pushed by blockchain
+ * subscription on pending Offers and Leases, without waiting for the periodic
+ * pending transactions check.
+ */
+@Service
+public class RentingTransactionMinedListener implements EventListener<String> {
+
+  private static final Logger       LOG              = LoggerFactory.getLogger(RentingTransactionMinedListener.class);
+
+  public static final String        LISTENER_NAME    = "RentingTransactionMinedListener";
+
+  private static final List<String> SUPPORTED_EVENTS = Collections.singletonList(DEED_RENTING_TRANSACTION_BLOCKCHAIN_EVENT);
+
+  @Autowired
+  private BlockchainService         blockchainService;
+
+  @Autowired
+  private OfferService              offerService;
+
+  @Autowired
+  private LeaseService              leaseService;
+
+  @Override
+  public String getName() {
+    return LISTENER_NAME;
+  }
+
+  @Override
+  public List<String> getSupportedEvents() {
+    return SUPPORTED_EVENTS;
+  }
+
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public Object getOrderingKey(String eventName, String transactionHash) {
+    return transactionHash;
+  }
+
+  @Override
+  public void onEvent(String eventName, String transactionHash) {
+    updatePendingOffers(transactionHash);
+    updatePendingLeases(transactionHash);
+  }
+
+  private void updatePendingOffers(String transactionHash) {
+    List<DeedTenantOfferDTO> pendingOffers = offerService.getPendingTransactions()
+                                                         .stream()
+                                                         .filter(offer -> StringUtils.equalsIgnoreCase(offer.getOfferTransactionHash(),
+                                                                                                       transactionHash))
+                                                         .toList();
+    if (pendingOffers.isEmpty()) {
+      return;
+    }
+    Map<BlockchainOfferStatus, DeedOfferBlockchainState> minedEvents =
+                                                                     blockchainService.getOfferTransactionEvents(transactionHash);
+    if (minedEvents.isEmpty()) {
+      // Let the pending transactions check decide about the transaction
+      // status once its receipt is available
+      return;
+    }
+    pendingOffers.forEach(offer -> {
+      try {
+        offerService.updateRentingOfferStatusFromBlockchain(offer.getId(), minedEvents);
+      } catch (Exception e) {
+        LOG.warn("Error updating offer {} with mined transaction {}", offer.getId(), transactionHash, e);
+      }
+    });
+  }
+
+  private void updatePendingLeases(String transactionHash) {
+    List<DeedTenantLease> pendingLeases = leaseService.getPendingTransactions()
+                                                      .stream()
+                                                      .filter(lease -> lease.getPendingTransactions()
+                                                                            .stream()
+                                                                            .anyMatch(hash -> StringUtils.equalsIgnoreCase(hash,
+                                                                                                                           transactionHash)))
+                                                      .toList();
+    if (pendingLeases.isEmpty()) {
+      return;
+    }
+    Map<BlockchainLeaseStatus, DeedLeaseBlockchainState> minedEvents =
+                                                                     blockchainService.getLeaseTransactionEvents(transactionHash);
+    if (minedEvents.isEmpty()) {
+      return;
+    }
+    pendingLeases.forEach(lease -> {
+      try {
+        leaseService.updateLeaseStatusFromBlockchain(lease.getId(), transactionHash, minedEvents);
+      } catch (Exception e) {
+        LOG.warn("Error updating lease {} with mined transaction {}", lease.getId(), transactionHash, e);
+      }
+    });
+  }
+
+}
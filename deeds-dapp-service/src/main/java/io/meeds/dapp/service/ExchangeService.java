@@ -26,9 +26,12 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -214,16 +217,25 @@ public class ExchangeService {
 
     LocalDate indexDate = firstMeedTokenDate();
     LocalDate untilDate = LocalDate.now(ZoneOffset.UTC).plusDays(1);
+    List<LocalDate> dates = new ArrayList<>();
     while (indexDate.isBefore(untilDate)) {
-      CurrencyExchangeRate rate = currencyExchangeRateRepository.findById(indexDate).orElse(null);
-      if (rate == null) {
-        rate = new CurrencyExchangeRate(indexDate,
-                                        todayExchangeRate.getCurrency(),
-                                        todayExchangeRate.getRate());
-        currencyExchangeRateRepository.save(rate);
-      }
+      dates.add(indexDate);
       indexDate = indexDate.plusDays(1);
     }
+    Set<LocalDate> existingDates = new HashSet<>();
+    currencyExchangeRateRepository.findAllById(dates).forEach(rate -> existingDates.add(rate.getDate()));
+
+    List<CurrencyExchangeRate> missingRates = new ArrayList<>();
+    for (LocalDate date : dates) {
+      if (!existingDates.contains(date)) {
+        missingRates.add(new CurrencyExchangeRate(date,
+                                                  todayExchangeRate.getCurrency(),
+                                                  todayExchangeRate.getRate()));
+      }
+    }
+    if (!missingRates.isEmpty()) {
+      currencyExchangeRateRepository.saveAll(missingRates);
+    }
   }
 
   private CurrencyExchangeRate computeCurrencyExchangeRateOfDay(LocalDate date) {
@@ -37,4 +37,8 @@ public interface CurrencyExchangeRateRepository extends ElasticsearchRepository<
   @CacheEvict(cacheNames = "currencyRates", allEntries = true)
   <S extends CurrencyExchangeRate> S save(S entity);
 
+  @Override
+  @CacheEvict(cacheNames = "currencyRates", allEntries = true)
+  <S extends CurrencyExchangeRate> Iterable<S> saveAll(Iterable<S> entities);
+
 }
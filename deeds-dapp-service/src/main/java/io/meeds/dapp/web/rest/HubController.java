@@ -18,6 +18,7 @@ package io.meeds.dapp.web.rest;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -48,10 +49,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 import io.meeds.dapp.web.rest.model.HubWithReward;
 import io.meeds.dapp.web.rest.utils.EntityBuilder;
+import io.meeds.deeds.common.elasticsearch.model.HubRewardSummaryEntity;
 import io.meeds.deeds.common.model.FileBinary;
 import io.meeds.deeds.common.model.ManagedDeed;
 import io.meeds.deeds.common.service.HubReportService;
 import io.meeds.deeds.common.service.HubService;
+import io.meeds.deeds.common.service.ManagedDeedService;
 import io.meeds.wom.api.constant.ObjectNotFoundException;
 import io.meeds.wom.api.constant.WomAuthorizationException;
 import io.meeds.wom.api.constant.WomException;
@@ -85,6 +88,9 @@ public class HubController {
   @Autowired
   private HubReportService    hubReportService;
 
+  @Autowired
+  private ManagedDeedService  managedDeedService;
+
   @GetMapping
   public ResponseEntity<PagedModel<EntityModel<HubWithReward>>> getHubs(Pageable pageable,
                                                                         PagedResourcesAssembler<HubWithReward> assembler,
@@ -92,9 +98,12 @@ public class HubController {
                                                                                       defaultValue = "0")
                                                                         long rewardId) {
     Page<Hub> hubs = hubService.getHubs(rewardId, pageable);
+    Map<String, HubRewardSummaryEntity> summaries = hubReportService.getHubRewardSummaries(hubs.map(Hub::getAddress)
+                                                                                               .toList());
     return ResponseEntity.ok()
                          .cacheControl(CacheControl.noStore())
-                         .body(assembler.toModel(hubs.map(hub -> EntityBuilder.decorateHubWithReward(hub, hubReportService))));
+                         .body(assembler.toModel(hubs.map(hub -> EntityBuilder.decorateHubWithReward(hub,
+                                                                                                     summaries.get(hub.getAddress())))));
   }
 
   @GetMapping("/{hubAddress}")
@@ -109,15 +118,17 @@ public class HubController {
     } else {
       return ResponseEntity.ok()
                            .cacheControl(CacheControl.noStore())
-                           .body(EntityBuilder.decorateHubWithReward(hub, hubReportService));
+                           .body(EntityBuilder.decorateHubWithReward(hub, hubReportService.getHubRewardSummary(hubAddress)));
     }
   }
 
   @GetMapping("/managed-deeds/{managerAddress}")
   public ResponseEntity<Object> getManagedDeeds(
                                                 @PathVariable(name = "managerAddress")
-                                                String managerAddress) {
-    List<ManagedDeed> deeds = hubService.getManagedDeeds(managerAddress);
+                                                String managerAddress,
+                                                @RequestParam(name = "forceRefresh", required = false)
+                                                boolean forceRefresh) {
+    List<ManagedDeed> deeds = managedDeedService.getManagedDeeds(managerAddress, forceRefresh);
     return ResponseEntity.ok()
                          .cacheControl(CacheControl.noStore())
                          .body(deeds);
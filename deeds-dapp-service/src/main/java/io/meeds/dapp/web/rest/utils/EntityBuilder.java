@@ -24,10 +24,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
@@ -40,10 +36,9 @@ import io.meeds.deeds.common.constant.TenantProvisioningStatus;
 import io.meeds.deeds.common.constant.TenantStatus;
 import io.meeds.deeds.common.elasticsearch.model.DeedMetadata;
 import io.meeds.deeds.common.elasticsearch.model.DeedTenant;
+import io.meeds.deeds.common.elasticsearch.model.HubRewardSummaryEntity;
 import io.meeds.deeds.common.model.DeedMetadataAttribute;
-import io.meeds.deeds.common.service.HubReportService;
 import io.meeds.wom.api.model.Hub;
-import io.meeds.wom.api.model.HubReport;
 
 public class EntityBuilder {
 
@@ -96,21 +91,15 @@ public class EntityBuilder {
                                       epochSecond);
   }
 
-  public static HubWithReward decorateHubWithReward(Hub hub, HubReportService hubReportService) {
-    Page<HubReport> reports = hubReportService.getReportsByHub(hub.getAddress(),
-                                                               PageRequest.of(0, 3, Sort.by(Direction.DESC, "sentDate")));
-    HubReport lastSentReport = reports.stream()
-                                      .findFirst()
-                                      .orElse(null);
-    HubReport lastRewardedReport = reports.stream()
-                                          .filter(r -> hubReportService.computeEngagementScore(r.getReportId()) > 0)
-                                          .findFirst()
-                                          .orElse(null);
+  public static HubWithReward decorateHubWithReward(Hub hub, HubRewardSummaryEntity summary) {
+    if (summary == null) {
+      return new HubWithReward(hub, 0l, 0d, 0d, false);
+    }
     return new HubWithReward(hub,
-                             lastSentReport == null ? 0l : lastSentReport.getActionsCount(),
-                             lastSentReport == null ? 0d : lastSentReport.getHubTopRewardedAmount(),
-                             lastRewardedReport == null ? 0d : lastRewardedReport.getEngagementScore(),
-                             lastRewardedReport != null);
+                             summary.getActionsCount(),
+                             summary.getTopHubReceiverAmount(),
+                             summary.getEngagementScore(),
+                             summary.isHasReports());
   }
 
   private static void applyCache(BodyBuilder response) {
@@ -24,6 +24,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
@@ -51,7 +52,6 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithAnonymousUser;
@@ -65,10 +65,12 @@ import io.meeds.dapp.web.rest.HubController;
 import io.meeds.dapp.web.security.DeedAccessDeniedHandler;
 import io.meeds.dapp.web.security.DeedAuthenticationProvider;
 import io.meeds.dapp.web.security.WebSecurityConfig;
+import io.meeds.deeds.common.elasticsearch.model.HubRewardSummaryEntity;
 import io.meeds.deeds.common.model.FileBinary;
 import io.meeds.deeds.common.model.ManagedDeed;
 import io.meeds.deeds.common.service.HubReportService;
 import io.meeds.deeds.common.service.HubService;
+import io.meeds.deeds.common.service.ManagedDeedService;
 import io.meeds.wom.api.constant.ObjectNotFoundException;
 import io.meeds.wom.api.constant.WomAuthorizationException;
 import io.meeds.wom.api.constant.WomException;
@@ -108,6 +110,9 @@ public class HubControllerTest {
   @MockBean
   private HubReportService      reportService;
 
+  @MockBean
+  private ManagedDeedService    managedDeedService;
+
   @Autowired
   private WebApplicationContext context;
 
@@ -178,10 +183,15 @@ public class HubControllerTest {
   @WithAnonymousUser
   void getHubs() throws Exception {
     when(hubService.getHubs(eq(0l), any())).thenReturn(new PageImpl<>(Arrays.asList(newHub())));
-    when(reportService.getReportsByHub(eq(hubAddress), any())).thenReturn(Page.empty());
+    when(reportService.getHubRewardSummaries(any())).thenReturn(Collections.singletonMap(hubAddress,
+                                                                                        newHubRewardSummary()));
     ResultActions response = mockMvc.perform(get(API_HUBS));
     response.andExpect(status().isOk())
-            .andExpect(jsonPath("$.page.totalPages",is(1)));
+            .andExpect(jsonPath("$.page.totalPages",is(1)))
+            .andExpect(jsonPath("$._embedded.hubs[0].actionsCount",is(15)))
+            .andExpect(jsonPath("$._embedded.hubs[0].engagementScore",is(1.5d)))
+            .andExpect(jsonPath("$._embedded.hubs[0].hasReports",is(true)));
+    verify(reportService, never()).getReportsByHub(any(), any());
   }
 
   @Test
@@ -195,7 +205,7 @@ public class HubControllerTest {
   @WithAnonymousUser
   void getHub() throws Exception {
     when(hubService.getHub(hubAddress, false)).thenReturn(newHub());
-    when(reportService.getReportsByHub(eq(hubAddress), any())).thenReturn(Page.empty());
+    when(reportService.getHubRewardSummary(hubAddress)).thenReturn(newHubRewardSummary());
     ResultActions response = mockMvc.perform(get(API_HUBS + "/" + hubAddress));
     response.andExpect(status().isOk())
             .andExpect(jsonPath("$.deedId",is((int) deedId))) // NOSONAR
@@ -214,13 +224,15 @@ public class HubControllerTest {
             .andExpect(jsonPath("$.rewardsPerPeriod",is(rewardsPerPeriod)))
             .andExpect(jsonPath("$.connected",is(enabled)))
             .andExpect(jsonPath("$.ownerClaimableAmount",is(ownerClaimableAmount)))
-            .andExpect(jsonPath("$.managerClaimableAmount",is(managerClaimableAmount)));
+            .andExpect(jsonPath("$.managerClaimableAmount",is(managerClaimableAmount)))
+            .andExpect(jsonPath("$.actionsCount",is(15)))
+            .andExpect(jsonPath("$.topHubReceiverAmount",is(3.5d)));
   }
 
   @Test
   @WithAnonymousUser
   void getManagedDeeds() throws Exception {
-    when(hubService.getManagedDeeds(deedManagerAddress)).thenReturn(Arrays.asList(new ManagedDeed()));
+    when(managedDeedService.getManagedDeeds(deedManagerAddress, false)).thenReturn(Arrays.asList(new ManagedDeed()));
     ResultActions response = mockMvc.perform(get("/api/hubs/managed-deeds/" + deedManagerAddress));
     response.andExpect(status().isOk())
             .andExpect(jsonPath("$").isArray());
@@ -525,6 +537,10 @@ public class HubControllerTest {
             .andExpect(jsonPath("$.managerClaimableAmount",is(managerClaimableAmount)));
   }
 
+  private HubRewardSummaryEntity newHubRewardSummary() {
+    return new HubRewardSummaryEntity(hubAddress, 15l, 3.5d, 1.5d, true, Instant.now());
+  }
+
   private Hub newHub() {
     return new Hub(deedId,
                    city,
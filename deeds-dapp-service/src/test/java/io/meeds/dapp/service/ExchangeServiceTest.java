@@ -98,10 +98,19 @@ class ExchangeServiceTest {
     exchangeService.computeCurrencyExchangeRate();
     Duration between = Duration.between(exchangeService.firstMeedTokenDate().atStartOfDay(), LocalDate.now().atStartOfDay());
     verify(currencyExchangeRateRepository,
-           times((int) between.toDays() + 2)).save(argThat(rate -> BigDecimal.valueOf(1.8d).equals(rate.getRate()) && rate.getCurrency() == Currency.EUR));
-
+           times(1)).save(argThat(rate -> BigDecimal.valueOf(1.8d).equals(rate.getRate()) && rate.getCurrency() == Currency.EUR));
     verify(currencyExchangeRateRepository,
-           times(1)).save(new CurrencyExchangeRate(exchangeService.firstMeedTokenDate(), Currency.EUR, BigDecimal.valueOf(1.8d)));
+           times(1)).saveAll(argThat((Iterable<CurrencyExchangeRate> rates) -> {
+             List<CurrencyExchangeRate> ratesList = new ArrayList<>();
+             rates.forEach(ratesList::add);
+             return ratesList.size() == between.toDays() + 1
+                 && ratesList.stream()
+                             .allMatch(rate -> BigDecimal.valueOf(1.8d).equals(rate.getRate())
+                                               && rate.getCurrency() == Currency.EUR)
+                 && ratesList.contains(new CurrencyExchangeRate(exchangeService.firstMeedTokenDate(),
+                                                                Currency.EUR,
+                                                                BigDecimal.valueOf(1.8d)));
+           }));
   }
 
   @Test
@@ -224,6 +233,11 @@ class ExchangeServiceTest {
       currencyExchangeRates.add(exchangeRate);
       return exchangeRate;
     });
+    when(currencyExchangeRateRepository.saveAll(any())).thenAnswer(invocation -> {
+      Iterable<CurrencyExchangeRate> exchangeRates = invocation.getArgument(0);
+      exchangeRates.forEach(currencyExchangeRates::add);
+      return exchangeRates;
+    });
 
     exchangeService.computeMeedExchangeRate();
     exchangeService.computeCurrencyExchangeRate();